@@ -0,0 +1,82 @@
+/*
+ * Part of Simbrain--a java-based neural network kit
+ * Copyright (C) 2005,2007 The Authors.  See http://www.simbrain.net/credits
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package org.simbrain.network;
+
+import org.openjdk.jmh.annotations.*;
+import org.simbrain.network.connections.Sparse;
+import org.simbrain.network.core.Network;
+import org.simbrain.network.groups.NeuronGroup;
+import org.simbrain.network.groups.SynapseGroup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time saving a network to, and opening it from, the XStream based xml
+ * format used by {@link NetworkComponent}. The network is a single neuron
+ * group with a recurrent sparse synapse group.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NetworkSerializationBenchmark {
+
+    @Param({"1000", "5000"})
+    public int numNeurons;
+
+    @Param({"0.01", "0.1"})
+    public double density;
+
+    @Param({"LinearRule", "IzhikevichRule"})
+    public String ruleType;
+
+    private NetworkComponent component;
+
+    private byte[] saved;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Network network = new Network();
+        NeuronGroup ng = new NeuronGroup(network, numNeurons);
+        ng.setNeuronType(ruleType);
+        network.addGroup(ng);
+        Sparse connection = new Sparse(density, false, false);
+        connection.setSeed(42L);
+        network.addGroup(SynapseGroup.createSynapseGroup(ng, ng, connection));
+        component = new NetworkComponent("Benchmark", network);
+        saved = save();
+    }
+
+    @Benchmark
+    public byte[] save() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        component.save(out, null);
+        return out.toByteArray();
+    }
+
+    @Benchmark
+    public NetworkComponent open() {
+        return NetworkComponent.open(new ByteArrayInputStream(saved), "Benchmark", null);
+    }
+
+}
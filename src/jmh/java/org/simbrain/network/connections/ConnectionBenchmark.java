@@ -0,0 +1,89 @@
+/*
+ * Part of Simbrain--a java-based neural network kit
+ * Copyright (C) 2005,2007 The Authors.  See http://www.simbrain.net/credits
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package org.simbrain.network.connections;
+
+import org.openjdk.jmh.annotations.*;
+import org.simbrain.network.core.Network;
+import org.simbrain.network.core.Neuron;
+import org.simbrain.network.core.Synapse;
+import org.simbrain.network.layouts.GridLayout;
+import org.simbrain.util.SimbrainConstants.Polarity;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time the construction of synapses between two sets of neurons by
+ * {@link Sparse#connectSparse(List, List, double, boolean, boolean, boolean)}
+ * and {@link RadialGaussian#connectRadialPolarized(List, List, double, double,
+ * double, double, double, double, boolean)}. The synapses are created but not
+ * added to the network. Each call uses the same seed, so that it makes the
+ * same connections.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConnectionBenchmark {
+
+    @Param({"100", "1000", "5000"})
+    public int numNeurons;
+
+    /**
+     * Connection density for sparse connections. For radial connections the
+     * distance constants are scaled by this value.
+     */
+    @Param({"0.01", "0.1"})
+    public double density;
+
+    @Param({"LinearRule", "IzhikevichRule"})
+    public String ruleType;
+
+    private List<Neuron> neurons;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Network network = new Network();
+        neurons = new ArrayList<>(numNeurons);
+        for (int i = 0; i < numNeurons; i++) {
+            Neuron neuron = new Neuron(network, ruleType);
+            neuron.setPolarity(i % 5 == 0 ? Polarity.INHIBITORY : Polarity.EXCITATORY);
+            neurons.add(neuron);
+        }
+        new GridLayout().layoutNeurons(neurons);
+    }
+
+    @Benchmark
+    public List<Synapse> connectSparse() {
+        return Sparse.connectSparse(neurons, neurons, density, false, false, false, 42);
+    }
+
+    @Benchmark
+    public List<Synapse> connectRadialPolarized() {
+        double scale = density / Sparse.DEFAULT_CONNECTION_DENSITY;
+        return RadialGaussian.connectRadialPolarized(neurons, neurons,
+            scale * RadialGaussian.DEFAULT_EE_CONST, scale * RadialGaussian.DEFAULT_EI_CONST,
+            scale * RadialGaussian.DEFAULT_IE_CONST, scale * RadialGaussian.DEFAULT_II_CONST,
+            scale * RadialGaussian.DEFAULT_DIST_CONST, RadialGaussian.DEFAULT_LAMBDA, false, 42);
+    }
+
+}
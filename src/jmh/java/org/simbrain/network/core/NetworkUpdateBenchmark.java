@@ -0,0 +1,106 @@
+/*
+ * Part of Simbrain--a java-based neural network kit
+ * Copyright (C) 2005,2007 The Authors.  See http://www.simbrain.net/credits
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package org.simbrain.network.core;
+
+import org.openjdk.jmh.annotations.*;
+import org.simbrain.network.connections.Sparse;
+import org.simbrain.network.update_actions.BufferedUpdate;
+import org.simbrain.network.update_actions.ConcurrentBufferedUpdate;
+import org.simbrain.network.update_actions.ParallelBufferedUpdate;
+import org.simbrain.network.update_actions.PriorityUpdate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time one {@link Network#update()} of a recurrent network of loose neurons
+ * and synapses under each of the whole-network update actions. Connections
+ * and initial activations are seeded, so every trial runs on the same
+ * network.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class NetworkUpdateBenchmark {
+
+    @Param({"100", "1000", "5000"})
+    public int numNeurons;
+
+    @Param({"0.01", "0.1"})
+    public double density;
+
+    @Param({"LinearRule", "SigmoidalRule", "IzhikevichRule"})
+    public String ruleType;
+
+    @Param({"Buffered", "Priority", "ConcurrentBuffered", "ParallelBuffered"})
+    public String updateAction;
+
+    private Network network;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        network = new Network();
+        List<Neuron> neurons = new ArrayList<>(numNeurons);
+        for (int i = 0; i < numNeurons; i++) {
+            Neuron neuron = new Neuron(network, ruleType);
+            network.addNeuron(neuron);
+            neurons.add(neuron);
+        }
+        Sparse.connectSparse(neurons, neurons, density, false, false, true, 42);
+        Random rand = new Random(42);
+        for (Neuron neuron : neurons) {
+            neuron.forceSetActivation(rand.nextDouble());
+        }
+
+        network.getUpdateManager().clear();
+        switch (updateAction) {
+        case "Buffered":
+            network.getUpdateManager().addAction(new BufferedUpdate(network));
+            break;
+        case "Priority":
+            network.getUpdateManager().addAction(new PriorityUpdate(network));
+            break;
+        case "ConcurrentBuffered":
+            network.getUpdateManager().addAction(ConcurrentBufferedUpdate.createConcurrentBufferedUpdate(network));
+            break;
+        case "ParallelBuffered":
+            network.getUpdateManager().addAction(new ParallelBufferedUpdate(network));
+            break;
+        default:
+            throw new IllegalArgumentException("Unknown update action: " + updateAction);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        network.getUpdateManager().clear();
+    }
+
+    @Benchmark
+    public double update() {
+        network.update();
+        return network.getTime();
+    }
+
+}
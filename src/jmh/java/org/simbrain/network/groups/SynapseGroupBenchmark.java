@@ -0,0 +1,103 @@
+/*
+ * Part of Simbrain--a java-based neural network kit
+ * Copyright (C) 2005,2007 The Authors.  See http://www.simbrain.net/credits
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package org.simbrain.network.groups;
+
+import org.openjdk.jmh.annotations.*;
+import org.simbrain.network.connections.Sparse;
+import org.simbrain.network.core.Network;
+import org.simbrain.network.core.Neuron;
+import org.simbrain.network.synapse_update_rules.STDPRule;
+import org.simbrain.util.SimbrainConstants.Polarity;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time {@link SynapseGroup#update()} for a recurrent group of spiking neurons
+ * whose synapses learn with {@link STDPRule}. Before each measurement
+ * iteration the network is run with random input so that the neurons have
+ * recent spike times; only the synapse group update is measured. Connections
+ * and inputs are seeded at the start of each trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class SynapseGroupBenchmark {
+
+    /**
+     * Number of network updates run before each iteration.
+     */
+    private static final int SETTLE_STEPS = 100;
+
+    @Param({"100", "1000"})
+    public int numNeurons;
+
+    @Param({"0.01", "0.1"})
+    public double density;
+
+    @Param({"IzhikevichRule", "IntegrateAndFireRule"})
+    public String ruleType;
+
+    private Network network;
+
+    private NeuronGroup neuronGroup;
+
+    private SynapseGroup synapseGroup;
+
+    /**
+     * Source of the inputs used to settle the network.
+     */
+    private Random rand;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        network = new Network();
+        neuronGroup = new NeuronGroup(network, numNeurons);
+        neuronGroup.setNeuronType(ruleType);
+        network.addGroup(neuronGroup);
+        Sparse connection = new Sparse(density, false, false);
+        connection.setSeed(42L);
+        synapseGroup = SynapseGroup.createSynapseGroup(neuronGroup, neuronGroup, connection);
+        STDPRule stdp = new STDPRule();
+        stdp.setLearningRate(0.001);
+        synapseGroup.setLearningRule(stdp, Polarity.BOTH);
+        network.addGroup(synapseGroup);
+        rand = new Random(42);
+    }
+
+    @Setup(Level.Iteration)
+    public void settle() {
+        for (int i = 0; i < SETTLE_STEPS; i++) {
+            for (Neuron neuron : neuronGroup.getNeuronListUnsafe()) {
+                neuron.setInputValue(20 * rand.nextDouble());
+            }
+            network.update();
+        }
+    }
+
+    @Benchmark
+    public SynapseGroup update() {
+        synapseGroup.update();
+        return synapseGroup;
+    }
+
+}
@@ -0,0 +1,101 @@
+/*
+ * Part of Simbrain--a java-based neural network kit
+ * Copyright (C) 2005,2007 The Authors.  See http://www.simbrain.net/credits
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package org.simbrain.network.trainers;
+
+import org.openjdk.jmh.annotations.*;
+import org.simbrain.network.core.Network;
+import org.simbrain.network.core.Neuron;
+import org.simbrain.network.core.Synapse;
+import org.simbrain.network.groups.NeuronGroup;
+import org.simbrain.network.neuron_update_rules.SigmoidalRule;
+import org.simbrain.network.subnetworks.BackpropNetwork;
+import org.simbrain.util.math.SquashingFunctionEnum;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time one {@link BackpropTrainer#apply()} (one epoch) on a three layer
+ * network trained on random data. The data and the initial weights are
+ * seeded, so every trial starts from the same network.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class BackpropTrainerBenchmark {
+
+    /**
+     * Number of neurons in each of the input and hidden layers.
+     */
+    @Param({"10", "100", "500"})
+    public int numNeurons;
+
+    @Param({"10", "100"})
+    public int numRows;
+
+    @Param({"LOGISTIC", "TANH"})
+    public String squashingFunction;
+
+    private BackpropTrainer trainer;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        int numOutputs = Math.max(1, numNeurons / 10);
+        BackpropNetwork network = new BackpropNetwork(new Network(), new int[]{numNeurons, numNeurons, numOutputs});
+        SigmoidalRule rule = new SigmoidalRule(SquashingFunctionEnum.valueOf(squashingFunction));
+        for (NeuronGroup layer : network.getNeuronGroupList().subList(1, 3)) {
+            layer.setNeuronType(rule);
+        }
+
+        Random rand = new Random(42);
+        for (NeuronGroup layer : network.getNeuronGroupList().subList(1, 3)) {
+            for (Neuron neuron : layer.getNeuronListUnsafe()) {
+                for (Synapse s : neuron.getFanIn()) {
+                    s.forceSetStrength(rand.nextDouble() - 0.5);
+                }
+            }
+        }
+        double[][] inputs = new double[numRows][numNeurons];
+        double[][] targets = new double[numRows][numOutputs];
+        for (int i = 0; i < numRows; i++) {
+            for (int j = 0; j < numNeurons; j++) {
+                inputs[i][j] = rand.nextDouble();
+            }
+            for (int j = 0; j < numOutputs; j++) {
+                targets[i][j] = rand.nextDouble();
+            }
+        }
+        network.getTrainingSet().setInputData(inputs);
+        network.getTrainingSet().setTargetData(targets);
+
+        trainer = new BackpropTrainer(network);
+        trainer.setUpdateMethod(BackpropTrainer.UpdateMethod.EPOCH);
+        trainer.initData();
+    }
+
+    @Benchmark
+    public double apply() {
+        trainer.apply();
+        return trainer.getError();
+    }
+
+}
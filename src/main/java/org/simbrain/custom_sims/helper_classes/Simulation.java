@@ -15,7 +15,9 @@ import org.simbrain.workspace.*;
 import org.simbrain.workspace.gui.SimbrainDesktop;
 import org.simbrain.world.odorworld.OdorWorld;
 import org.simbrain.world.odorworld.OdorWorldComponent;
+import org.simbrain.world.imageworld.SensorMatrix;
 import org.simbrain.world.odorworld.effectors.Effector;
+import org.simbrain.world.odorworld.sensors.GridSensor;
 import org.simbrain.world.odorworld.sensors.Hearing;
 import org.simbrain.world.odorworld.sensors.ObjectSensor;
 import org.simbrain.world.odorworld.sensors.SmellSensor;
@@ -287,6 +289,41 @@ public class Simulation {
         tryCoupling(sensoryProducer, sensoryConsumer);
     }
 
+    /**
+     * Couple a sensor matrix to a neuron group with a single array coupling,
+     * rather than one coupling per pixel.
+     *
+     * @return the coupling, or null if it could not be created
+     */
+    public Coupling<?> couple(SensorMatrix sensorMatrix, NeuronGroup ng) {
+        Producer sensoryProducer = CouplingUtils.getProducer(sensorMatrix, "getBrightness");
+        Consumer sensoryConsumer = CouplingUtils.getConsumer(ng, "setInputValues");
+        return tryCoupling(sensoryProducer, sensoryConsumer);
+    }
+
+    /**
+     * Couple a grid sensor to a neuron group with a single array coupling.
+     *
+     * @return the coupling, or null if it could not be created
+     */
+    public Coupling<?> couple(GridSensor sensor, NeuronGroup ng) {
+        Producer sensoryProducer = CouplingUtils.getProducer(sensor, "getValues");
+        Consumer sensoryConsumer = CouplingUtils.getConsumer(ng, "setInputValues");
+        return tryCoupling(sensoryProducer, sensoryConsumer);
+    }
+
+    /**
+     * Couple the activations of a neuron group to a time series plot, one
+     * series per neuron, with a single array coupling.
+     *
+     * @return the coupling, or null if it could not be created
+     */
+    public Coupling<?> couple(NeuronGroup ng, TimeSeriesModel tsm) {
+        Producer ngProducer = CouplingUtils.getProducer(ng, "getActivations");
+        Consumer tsConsumer = CouplingUtils.getConsumer(tsm, "addValues");
+        return tryCoupling(ngProducer, tsConsumer);
+    }
+
     /**
      * Couple a neuron to an effector on an odor world agent.
      */
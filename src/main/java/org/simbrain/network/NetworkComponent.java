@@ -21,13 +21,19 @@ import org.simbrain.network.core.*;
 import org.simbrain.network.groups.Group;
 import org.simbrain.network.gui.NetworkPanel;
 import org.simbrain.network.gui.nodes.NeuronArrayNode;
+import org.simbrain.network.util.io_utilities.NetworkBinaryDeserializer;
+import org.simbrain.network.util.io_utilities.NetworkBinarySerializer;
 import org.simbrain.util.Utils;
 import org.simbrain.workspace.AttributeContainer;
 import org.simbrain.workspace.WorkspaceComponent;
+import org.simbrain.workspace.updater.UpdateMetrics;
 
+import java.io.BufferedInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -124,17 +130,41 @@ public final class NetworkComponent extends WorkspaceComponent {
     }
 
     public static NetworkComponent open(final InputStream input, final String name, final String format) {
-        Network newNetwork = (Network) Utils.getSimbrainXStream().fromXML(input);
+        // Binary networks are recognized by their content, whatever the format
+        InputStream in = input.markSupported() ? input : new BufferedInputStream(input);
+        Network newNetwork;
+        try {
+            if (NetworkBinaryDeserializer.isBinaryNetwork(in)) {
+                newNetwork = NetworkBinaryDeserializer.open(in);
+            } else {
+                newNetwork = (Network) Utils.getSimbrainXStream().fromXML(in);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
         return new NetworkComponent(name, newNetwork);
     }
 
     @Override
     public void save(final OutputStream output, final String format) {
+        if (format != null && format.replaceFirst("^\\.", "").equalsIgnoreCase(NetworkBinarySerializer.FORMAT)) {
+            try {
+                NetworkBinarySerializer.save(network, output);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+            return;
+        }
         network.preSaveInit();
         Utils.getSimbrainXStream().toXML(network, output);
         network.postSaveReInit();
     }
 
+    @Override
+    public List<? extends String> getFormats() {
+        return Arrays.asList(getDefaultFormat(), NetworkBinarySerializer.FORMAT);
+    }
+
     /**
      * Returns a copy of this NetworkComponent.
      *
@@ -166,8 +196,14 @@ public final class NetworkComponent extends WorkspaceComponent {
         network.update();
     }
 
+    @Override
+    public void setUpdateMetrics(UpdateMetrics metrics) {
+        network.getUpdateManager().setMetrics(metrics);
+    }
+
     @Override
     public void closing() {
+        network.getUpdateManager().shutdownActions();
     }
 
     @Override
@@ -143,12 +143,21 @@ public class AllToAll extends ConnectionStrategy implements EditableObject {
      *                 connection class will be added.
      */
     public void connectNeurons(SynapseGroup synGroup) {
-        List<Synapse> syns = connectAllToAll(synGroup.getSourceNeurons(), synGroup.getTargetNeurons(), synGroup.isRecurrent(), selfConnectionAllowed, false);
-        // Set the capacity of the synapse group's list to accommodate the
-        // synapses this group will add.
-        synGroup.preAllocateSynapses(synGroup.getSourceNeuronGroup().size() * synGroup.getTargetNeuronGroup().size());
-        for (Synapse s : syns) {
-            synGroup.addNewSynapse(s);
+        List<Neuron> source = synGroup.getSourceNeurons();
+        List<Neuron> target = synGroup.getTargetNeurons();
+        boolean skipSelf = synGroup.isRecurrent() && !selfConnectionAllowed;
+        // Set the capacity of the synapse group's sets to exactly accommodate
+        // the synapses this group will add, and add them directly rather than
+        // through an intermediate list.
+        int numSyns = source.size() * target.size() - (skipSelf ? source.size() : 0);
+        synGroup.preAllocateSynapses(numSyns);
+        for (Neuron src : source) {
+            for (Neuron tar : target) {
+                if (skipSelf && src == tar) {
+                    continue;
+                }
+                synGroup.addNewSynapse(new Synapse(src, tar));
+            }
         }
     }
 
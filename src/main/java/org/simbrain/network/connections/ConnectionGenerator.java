@@ -0,0 +1,276 @@
+/*
+ * Part of Simbrain--a java-based neural network kit
+ * Copyright (C) 2005,2007 The Authors.  See http://www.simbrain.net/credits
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package org.simbrain.network.connections;
+
+import org.simbrain.network.core.Neuron;
+import org.simbrain.network.core.Synapse;
+import org.simbrain.network.groups.SynapseGroup;
+import umontreal.iro.lecuyer.rng.RandomStream;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+/**
+ * Generates connections between large sets of neurons in parallel. The source
+ * neurons are divided in to fixed size blocks which are sampled concurrently,
+ * each by its own {@link Sampler} and its own {@link SplittableRandom}. The
+ * generators are split from a single seeded generator in block order, so for a
+ * given seed the same connections are made whatever the number of threads.
+ * <p>
+ * Samplers only record the indices of the targets of each source neuron, in a
+ * compressed row format. Creating a synapse modifies the fan-in and fan-out of
+ * its neurons, so synapses are created afterwards on the calling thread, in to
+ * a list or synapse group allocated for the exact number of connections.
+ */
+public final class ConnectionGenerator {
+
+    /**
+     * Number of source neurons in each block.
+     */
+    private static final int BLOCK_SIZE = 256;
+
+    /**
+     * Chooses the targets of source neurons.
+     */
+    @FunctionalInterface
+    public interface Sampler {
+
+        /**
+         * Add the indices of the targets of a source neuron. Each target
+         * should be added at most once.
+         *
+         * @param source  index of the source neuron
+         * @param rand    random number generator of the current block
+         * @param targets list to add target indices to
+         */
+        void sample(int source, SplittableRandom rand, TargetList targets);
+    }
+
+    private ConnectionGenerator() {
+    }
+
+    /**
+     * Generate connections from a number of source neurons.
+     *
+     * @param numSources     number of source neurons
+     * @param seed           seed for the random number generators
+     * @param samplerFactory creates a sampler for each block of sources.
+     *                       Samplers are used by one thread at a time, so may
+     *                       keep scratch buffers.
+     * @return the connections made
+     */
+    public static Connections generate(final int numSources, final long seed, final Supplier<? extends Sampler> samplerFactory) {
+        final int numBlocks = (numSources + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        final SplittableRandom root = new SplittableRandom(seed);
+        final SplittableRandom[] rands = new SplittableRandom[numBlocks];
+        for (int b = 0; b < numBlocks; b++) {
+            rands[b] = root.split();
+        }
+
+        // Each block fills its part of the row pointers with counts relative
+        // to the start of the block
+        final int[] rowPtr = new int[numSources + 1];
+        final int[][] blockTargets = new int[numBlocks][];
+        IntStream.range(0, numBlocks).parallel().forEach(b -> {
+            Sampler sampler = samplerFactory.get();
+            TargetList targets = new TargetList();
+            int last = Math.min(numSources, (b + 1) * BLOCK_SIZE);
+            for (int i = b * BLOCK_SIZE; i < last; i++) {
+                sampler.sample(i, rands[b], targets);
+                rowPtr[i + 1] = targets.size();
+            }
+            blockTargets[b] = targets.toArray();
+        });
+
+        long total = 0;
+        for (int[] block : blockTargets) {
+            total += block.length;
+        }
+        if (total > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("Too many connections: " + total);
+        }
+        int[] targets = new int[(int) total];
+        int offset = 0;
+        for (int b = 0; b < numBlocks; b++) {
+            int last = Math.min(numSources, (b + 1) * BLOCK_SIZE);
+            for (int i = b * BLOCK_SIZE; i < last; i++) {
+                rowPtr[i + 1] += offset;
+            }
+            System.arraycopy(blockTargets[b], 0, targets, offset, blockTargets[b].length);
+            offset += blockTargets[b].length;
+            blockTargets[b] = null;
+        }
+        return new Connections(rowPtr, targets);
+    }
+
+    /**
+     * Add each target with a fixed probability, skipping over the targets
+     * which are not connected using geometrically distributed gaps so that
+     * the time taken is proportional to the number of connections made rather
+     * than the number of targets.
+     *
+     * @param numTargets  number of target neurons
+     * @param probability probability of connecting to each target
+     * @param exclude     index of a target to leave out (e.g. the source
+     *                    itself), or -1
+     * @param rand        the random number generator
+     * @param targets     list to add the chosen targets to
+     */
+    public static void sampleBernoulli(final int numTargets, final double probability, final int exclude, final SplittableRandom rand, final TargetList targets) {
+        if (probability <= 0) {
+            return;
+        }
+        if (probability >= 1) {
+            for (int j = 0; j < numTargets; j++) {
+                if (j != exclude) {
+                    targets.add(j);
+                }
+            }
+            return;
+        }
+        final double logComplement = Math.log1p(-probability);
+        long j = -1;
+        while (true) {
+            // 1 - nextDouble() is in (0, 1], so the log is finite
+            j += 1 + (long) (Math.log(1 - rand.nextDouble()) / logComplement);
+            if (j >= numTargets) {
+                return;
+            }
+            if (j != exclude) {
+                targets.add((int) j);
+            }
+        }
+    }
+
+    /**
+     * A growable list of target indices.
+     */
+    public static final class TargetList {
+
+        private int[] values = new int[64];
+
+        private int size;
+
+        public void add(final int target) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = target;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+
+    /**
+     * Connections in compressed row format: the targets of source i are
+     * <code>targets[rowPtr[i]]</code> to <code>targets[rowPtr[i + 1] -
+     * 1]</code>.
+     */
+    public static final class Connections {
+
+        private final int[] rowPtr;
+
+        private final int[] targets;
+
+        Connections(final int[] rowPtr, final int[] targets) {
+            this.rowPtr = rowPtr;
+            this.targets = targets;
+        }
+
+        /**
+         * @return the number of connections
+         */
+        public int size() {
+            return targets.length;
+        }
+
+        public int[] getRowPtr() {
+            return rowPtr;
+        }
+
+        public int[] getTargets() {
+            return targets;
+        }
+
+        /**
+         * Create a synapse for each connection. The synapses are not added to
+         * a network.
+         *
+         * @param source the source neurons, in the order they were sampled
+         * @param target the target neurons
+         * @return the new synapses, ordered by source
+         */
+        public List<Synapse> createSynapses(final List<Neuron> source, final List<Neuron> target) {
+            Neuron[] src = source.toArray(new Neuron[source.size()]);
+            Neuron[] tar = target.toArray(new Neuron[target.size()]);
+            List<Synapse> synapses = new ArrayList<>(targets.length);
+            for (int i = 0, n = rowPtr.length - 1; i < n; i++) {
+                for (int k = rowPtr[i]; k < rowPtr[i + 1]; k++) {
+                    synapses.add(new Synapse(src[i], tar[targets[k]]));
+                }
+            }
+            return synapses;
+        }
+
+        /**
+         * Create a synapse for each connection and add it to a synapse group,
+         * which is first pre-allocated for the number of connections. The
+         * group's source and target neurons must be those the connections
+         * were generated for.
+         *
+         * @param group the empty synapse group to add the synapses to
+         */
+        public void addTo(final SynapseGroup group) {
+            addTo(group, null);
+        }
+
+        /**
+         * Add the connections to a synapse group as in
+         * {@link #addTo(SynapseGroup)}, drawing synapse polarities and
+         * strengths from the given stream.
+         *
+         * @param group  the empty synapse group to add the synapses to
+         * @param stream the stream to draw from, or null for the group's
+         *               default generators
+         */
+        public void addTo(final SynapseGroup group, final RandomStream stream) {
+            List<Neuron> source = group.getSourceNeurons();
+            List<Neuron> target = group.getTargetNeurons();
+            Neuron[] src = source.toArray(new Neuron[source.size()]);
+            Neuron[] tar = target.toArray(new Neuron[target.size()]);
+            group.preAllocateSynapses(targets.length);
+            for (int i = 0, n = rowPtr.length - 1; i < n; i++) {
+                for (int k = rowPtr[i]; k < rowPtr[i + 1]; k++) {
+                    group.addNewSynapse(new Synapse(src[i], tar[targets[k]]), stream);
+                }
+            }
+        }
+    }
+
+}
@@ -28,6 +28,7 @@ import org.simbrain.util.math.ProbabilityDistribution;
 import org.simbrain.util.propertyeditor.EditableObject;
 
 import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * Maintains a specific strategy for creating connections between two groups
@@ -77,6 +78,13 @@ public abstract class ConnectionStrategy implements EditableObject {
             .polarity(SimbrainConstants.Polarity.INHIBITORY)
             .build();
 
+    /**
+     * Seed for the random number generator of strategies which make
+     * connections at random. If null a new seed is drawn each time connections
+     * are made.
+     */
+    private Long seed;
+
     /**
      * Apply connection to a synapse group using specified parameters.
      *
@@ -95,6 +103,29 @@ public abstract class ConnectionStrategy implements EditableObject {
      */
     public abstract List<Synapse> connectNeurons(Network network, List<Neuron> source, List<Neuron> target);
 
+    /**
+     * @return the seed to use for the next set of random connections: the
+     * fixed seed if one was set, otherwise a new random seed.
+     */
+    protected long nextSeed() {
+        return seed != null ? seed : ThreadLocalRandom.current().nextLong();
+    }
+
+    public Long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Set a seed so that the same random connections are made each time this
+     * strategy is applied to the same neurons, or null to make different
+     * connections each time.
+     *
+     * @param seed the seed, or null
+     */
+    public void setSeed(Long seed) {
+        this.seed = seed;
+    }
+
     public boolean isUseExcitatoryRandomization() {
         return useExcitatoryRandomization;
     }
@@ -23,11 +23,13 @@ import org.simbrain.network.core.Synapse;
 import org.simbrain.network.groups.SynapseGroup;
 import org.simbrain.util.SimbrainConstants.Polarity;
 import org.simbrain.util.UserParameter;
-import org.simbrain.util.math.ProbDistributions.UniformDistribution;
+import org.simbrain.util.math.SplittableRandomStream;
 import org.simbrain.util.propertyeditor.EditableObject;
+import umontreal.iro.lecuyer.rng.RandomStream;
 
-import java.util.*;
-import java.util.concurrent.*;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * This connection type makes four types of distance-based connection
@@ -80,6 +82,13 @@ public class RadialGaussian extends ConnectionStrategy implements EditableObject
 
     public static final double DEFAULT_LAMBDA = 200;
 
+    /**
+     * Pairs of neurons whose probability of connecting is below this are not
+     * considered, so at most about this fraction of all possible connections
+     * are left out.
+     */
+    private static final double NEGLIGIBLE_PROBABILITY = 1E-9;
+
     // TODO: Add a sparsity constraint, such that connections are still chosen stochastically
     // based on distance, but a specific number of connections are guaranteed to be made.
 
@@ -151,45 +160,42 @@ public class RadialGaussian extends ConnectionStrategy implements EditableObject
      * @return synapses
      */
     public static List<Synapse> connectRadialPolarized(final List<Neuron> source, final List<Neuron> target, double eeDistConst, double eiDistConst, double ieDistConst, double iiDistConst, double distConst, double lambda, boolean loose) {
-        // Pre-allocating assuming that if one is using this as a connector
-        // then they are probably not going to have greater than 25%
-        // connectivity
-        List<Synapse> synapses = new ArrayList<Synapse>(source.size() * target.size() / 4);
-        for (Neuron src : source) {
-            for (Neuron tar : target) {
-                double randVal = Math.random();
-                double probability;
-                if (src.getPolarity() == Polarity.EXCITATORY) {
-                    if (tar.getPolarity() == Polarity.EXCITATORY) {
-                        probability = calcConnectProb(src, tar, eeDistConst, lambda);
-                    } else if (tar.getPolarity() == Polarity.INHIBITORY) {
-                        probability = calcConnectProb(src, tar, eiDistConst, lambda);
-                    } else {
-                        probability = calcConnectProb(src, tar, distConst, lambda);
-                    }
-                } else if (src.getPolarity() == Polarity.INHIBITORY) {
-                    if (tar.getPolarity() == Polarity.EXCITATORY) {
-                        probability = calcConnectProb(src, tar, ieDistConst, lambda);
-                    } else if (tar.getPolarity() == Polarity.INHIBITORY) {
-                        probability = calcConnectProb(src, tar, iiDistConst, lambda);
-                    } else {
-                        probability = calcConnectProb(src, tar, distConst, lambda);
-                    }
-                } else {
-                    probability = calcConnectProb(src, tar, distConst, lambda);
-                }
-                if (randVal < probability) {
-                    Synapse s = new Synapse(src, tar);
-                    if(src.getPolarity() == Polarity.INHIBITORY) {
-                        s.forceSetStrength(-1);
-                    } else {
-                        s.forceSetStrength(1);
-                    }
-                    synapses.add(s);
-                    if (loose) {
-                        src.getNetwork().addSynapse(s);
-                    }
-                }
+        return connectRadialPolarized(source, target, eeDistConst, eiDistConst, ieDistConst, iiDistConst, distConst, lambda, loose, ThreadLocalRandom.current().nextLong());
+    }
+
+    /**
+     * Same as {@link #connectRadialPolarized(List, List, double, double,
+     * double, double, double, double, boolean)} but with a seed, so that the
+     * same connections are made given the same seed and neurons.
+     *
+     * @param source      the source neurons.
+     * @param target      the target neurons.
+     * @param eeDistConst the connection constant for connections between 2
+     *                    excitatory neurons.
+     * @param eiDistConst the connection constant for connection from an
+     *                    excitatory to an inhibitory neuron.
+     * @param ieDistConst the connection constant for connection from an
+     *                    inhibitory to an excitatory neuron.
+     * @param iiDistConst the connection constant for connections between 2
+     *                    inhibitory neurons.
+     * @param distConst   the connection constant for general connections. Used
+     *                    in cases where neurons have no explicit polarity.
+     * @param lambda      average connection distance.
+     * @param loose       whether to add the synapses to the network
+     * @param seed        seed for the random number generator
+     * @return synapses
+     */
+    public static List<Synapse> connectRadialPolarized(final List<Neuron> source, final List<Neuron> target, double eeDistConst, double eiDistConst, double ieDistConst, double iiDistConst, double distConst, double lambda, boolean loose, long seed) {
+        double[][] constants = polarityConstants(eeDistConst, eiDistConst, ieDistConst, iiDistConst, distConst);
+        List<Synapse> synapses = generateRadial(source, target, constants, lambda, seed).createSynapses(source, target);
+        for (Synapse s : synapses) {
+            if (s.getSource().getPolarity() == Polarity.INHIBITORY) {
+                s.forceSetStrength(-1);
+            } else {
+                s.forceSetStrength(1);
+            }
+            if (loose) {
+                s.getSource().getNetwork().addSynapse(s);
             }
         }
         return synapses;
@@ -205,26 +211,126 @@ public class RadialGaussian extends ConnectionStrategy implements EditableObject
      * @return array of synapses
      */
     public static List<Synapse> connectRadialNoPolarity(final List<Neuron> source, final List<Neuron> target, double distConst, double lambda, boolean loose) {
-        // Pre-allocating assuming that if one is using this as a connector
-        // then they are probably not going to have greater than 25%
-        // connectivity
-        List<Synapse> synapses = new ArrayList<Synapse>(source.size() * target.size() / 4);
-        for (Neuron src : source) {
-            for (Neuron tar : target) {
-                double randVal = Math.random();
-                double probability = calcConnectProb(src, tar, distConst, lambda);
-                if (randVal < probability) {
-                    Synapse s = new Synapse(src, tar);
-                    synapses.add(s);
-                    if (loose) {
-                        src.getNetwork().addSynapse(s);
-                    }
-                }
+        return connectRadialNoPolarity(source, target, distConst, lambda, loose, ThreadLocalRandom.current().nextLong());
+    }
+
+    /**
+     * @param source    the source neurons
+     * @param target    the target neurons
+     * @param distConst the connection constant for general connections. Used in
+     *                  cases where neurons have no explicit polarity.
+     * @param lambda    average connection distance.
+     * @param loose     whether to add the synapses to the network
+     * @param seed      seed for the random number generator
+     * @return array of synapses
+     */
+    public static List<Synapse> connectRadialNoPolarity(final List<Neuron> source, final List<Neuron> target, double distConst, double lambda, boolean loose, long seed) {
+        double[][] constants = polarityConstants(distConst, distConst, distConst, distConst, distConst);
+        List<Synapse> synapses = generateRadial(source, target, constants, lambda, seed).createSynapses(source, target);
+        if (loose) {
+            for (Synapse s : synapses) {
+                s.getSource().getNetwork().addSynapse(s);
             }
         }
         return synapses;
     }
 
+    /**
+     * Choose connections in parallel. Target neurons are put in a {@link
+     * SpatialGrid} and only those close enough to a source neuron for the
+     * connection probability to be at least {@link #NEGLIGIBLE_PROBABILITY}
+     * are considered.
+     *
+     * @param source    the source neurons
+     * @param target    the target neurons
+     * @param constants connection constants indexed by source then target
+     *                  polarity (see {@link #polarityIndex(Neuron)})
+     * @param lambda    average connection distance
+     * @param seed      seed for the random number generator
+     * @return the connections
+     */
+    private static ConnectionGenerator.Connections generateRadial(final List<Neuron> source, final List<Neuron> target, final double[][] constants, final double lambda, final long seed) {
+        double maxConst = 0;
+        for (double[] row : constants) {
+            for (double c : row) {
+                maxConst = Math.max(maxConst, c);
+            }
+        }
+        if (maxConst <= NEGLIGIBLE_PROBABILITY) {
+            return ConnectionGenerator.generate(source.size(), seed, () -> (i, rand, targets) -> {
+            });
+        }
+        // P(a, b) < NEGLIGIBLE_PROBABILITY beyond this distance
+        final double cutoff = lambda * Math.sqrt(Math.log(maxConst / NEGLIGIBLE_PROBABILITY));
+        final Positions src = new Positions(source);
+        final Positions tar = new Positions(target);
+        final SpatialGrid grid = new SpatialGrid(tar.x, tar.y, tar.z, cutoff);
+        return ConnectionGenerator.generate(source.size(), seed, () -> new ConnectionGenerator.Sampler() {
+            @Override
+            public void sample(int i, SplittableRandom rand, ConnectionGenerator.TargetList targets) {
+                final double[] srcConstants = constants[src.polarity[i]];
+                grid.forEachWithin(src.x[i], src.y[i], src.z[i], cutoff, j -> {
+                    double dx = src.x[i] - tar.x[j];
+                    double dy = src.y[i] - tar.y[j];
+                    double dz = src.z[i] - tar.z[j];
+                    double probability = connectProb(dx * dx + dy * dy + dz * dz, srcConstants[tar.polarity[j]], lambda);
+                    if (rand.nextDouble() < probability) {
+                        targets.add(j);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * @return connection constants indexed by source then target polarity
+     */
+    private static double[][] polarityConstants(double eeDistConst, double eiDistConst, double ieDistConst, double iiDistConst, double distConst) {
+        return new double[][]{{eeDistConst, eiDistConst, distConst}, {ieDistConst, iiDistConst, distConst}, {distConst, distConst, distConst}};
+    }
+
+    /**
+     * @return 0 for excitatory, 1 for inhibitory and 2 for non-polar neurons
+     */
+    private static int polarityIndex(Neuron n) {
+        if (n.getPolarity() == Polarity.EXCITATORY) {
+            return 0;
+        } else if (n.getPolarity() == Polarity.INHIBITORY) {
+            return 1;
+        }
+        return 2;
+    }
+
+    /**
+     * Coordinates and polarities of a list of neurons, copied in to arrays.
+     */
+    private static final class Positions {
+
+        final double[] x;
+
+        final double[] y;
+
+        final double[] z;
+
+        final int[] polarity;
+
+        Positions(List<Neuron> neurons) {
+            int n = neurons.size();
+            x = new double[n];
+            y = new double[n];
+            z = new double[n];
+            polarity = new int[n];
+            int i = 0;
+            for (Neuron neuron : neurons) {
+                x[i] = neuron.getX();
+                y[i] = neuron.getY();
+                z[i] = neuron.getZ();
+                polarity[i] = polarityIndex(neuron);
+                i++;
+            }
+        }
+    }
+
     /**
      * Default constructor.
      */
@@ -273,7 +379,7 @@ public class RadialGaussian extends ConnectionStrategy implements EditableObject
 
     public List<Synapse> connectNeurons(Network network, List source, List target) {
         List<Synapse> syns = connectRadialPolarized(source, target, eeDistConst,
-                eiDistConst, ieDistConst, iiDistConst, distConst, lambda, true);
+                eiDistConst, ieDistConst, iiDistConst, distConst, lambda, false, nextSeed());
         for(Synapse s : syns) {
             network.addSynapse(s);
         }
@@ -290,84 +396,21 @@ public class RadialGaussian extends ConnectionStrategy implements EditableObject
         this.synapseGroup = synGroup;
         synGroup.setConnectionManager(this);
         List<Neuron> source = synGroup.getSourceNeurons();
-        List<Neuron> target = synGroup.getTargetNeurons();
-        List<Synapse> synapses;
-        if (source.size() < 500) {
-            synapses = connectRadialPolarized(source, target, eeDistConst, eiDistConst, ieDistConst, iiDistConst, distConst, lambda, false);
-            for (Synapse s : synapses) {
-                synGroup.addNewSynapse(s);
-            }
-        } else {
-            List<Callable<Collection<Synapse>>> workers = new ArrayList<Callable<Collection<Synapse>>>();
-            int threads = Runtime.getRuntime().availableProcessors();
-            int idealShare = (int) Math.floor(source.size() / threads);
-            int remaining = source.size();
-            Iterator<Neuron> srcIter = source.iterator();
-            List<Neuron> srcChunk;
+        if (source.size() >= 500) {
+            // Large groups take their excitatory ratio from the polarity of
+            // the source neurons
             double runningPercentEx = 0;
-            for (int i = 0; i < threads; i++) {
-                srcChunk = new ArrayList<Neuron>((int) Math.ceil((idealShare * 2) / 0.75));
-                int share;
-                if (remaining < idealShare * 2) {
-                    share = remaining;
-                } else {
-                    share = idealShare;
-                }
-                int j = 0;
-                while (j < share) {
-                    Neuron n = srcIter.next();
-                    srcChunk.add(n);
-                    if (n.isPolarized()) {
-                        if (Polarity.EXCITATORY == n.getPolarity()) {
-                            runningPercentEx++;
-                        }
-                    }
-                    j++;
-                }
-                remaining -= j;
-                workers.add(new ConnectorService(srcChunk, target, false));
-            }
-            runningPercentEx /= source.size();
-            synGroup.setExcitatoryRatio(runningPercentEx);
-            ExecutorService ex = Executors.newFixedThreadPool(threads);
-            List<Future<Collection<Synapse>>> generatedSyns;
-            try {
-                generatedSyns = ex.invokeAll(workers);
-                ex.shutdown();
-                ex.awaitTermination(Long.MAX_VALUE, TimeUnit.SECONDS);
-            } catch (InterruptedException e) {
-                e.printStackTrace();
-                return;
-            }
-            int numSyns = 0;
-            for (Future<Collection<Synapse>> future : generatedSyns) {
-                try {
-                    numSyns += future.get().size();
-                } catch (InterruptedException | ExecutionException e) {
-                    e.printStackTrace();
-                }
-            }
-            synGroup.preAllocateSynapses(numSyns);
-            for (Future<Collection<Synapse>> future : generatedSyns) {
-                try {
-                    for (Synapse s : future.get()) {
-                        synGroup.addNewSynapse(s);
-                    }
-                } catch (InterruptedException | ExecutionException e) {
-                    e.printStackTrace();
+            for (Neuron n : source) {
+                if (n.isPolarized() && Polarity.EXCITATORY == n.getPolarity()) {
+                    runningPercentEx++;
                 }
             }
+            synGroup.setExcitatoryRatio(runningPercentEx / source.size());
         }
-
-//        if (synGroup.isRecurrent()) {
-//            connectionDensity = (double) synGroup.size() / (synGroup.getSourceNeuronGroup().size() * (synGroup.getSourceNeuronGroup().size() - 1));
-//        } else {
-//            connectionDensity = (double) synGroup.size() / (synGroup.getSourceNeuronGroup().size() * synGroup.getTargetNeuronGroup().size());
-//        }
-        source = null;
-        target = null;
-        synapses = null;
-        Runtime.getRuntime().gc();
+        double[][] constants = polarityConstants(eeDistConst, eiDistConst, ieDistConst, iiDistConst, distConst);
+        SplittableRandom random = new SplittableRandom(nextSeed());
+        RandomStream stream = new SplittableRandomStream(random.nextLong());
+        generateRadial(source, synGroup.getTargetNeurons(), constants, lambda, random.nextLong()).addTo(synGroup, stream);
     }
 
     /**
@@ -379,8 +422,18 @@ public class RadialGaussian extends ConnectionStrategy implements EditableObject
      * @return
      */
     private static double calcConnectProb(Neuron src, Neuron tar, double distConst, double lambda) {
-        double dist = -getRawDist(src, tar);
-        double exp = Math.exp(dist / (lambda * lambda));
+        return connectProb(getRawDist(src, tar), distConst, lambda);
+    }
+
+    /**
+     * @param distSq    the squared distance between two neurons.
+     * @param distConst the connection constant for the polarities of the two
+     *                  neurons.
+     * @param lambda    average connection distance.
+     * @return the probability of connecting the neurons
+     */
+    private static double connectProb(double distSq, double distConst, double lambda) {
+        double exp = Math.exp(-distSq / (lambda * lambda));
         if (exp == 1.0) { // Same location == same neuron: cheapest way to
             // prevent self connections
             exp = 0.0;
@@ -456,103 +509,14 @@ public class RadialGaussian extends ConnectionStrategy implements EditableObject
         this.lambda = lambda;
     }
 
-    private class ConnectorService implements Callable<Collection<Synapse>> {
-
-        private final Collection<Neuron> srcColl;
-
-        private final Collection<Neuron> targColl;
-
-        private final boolean loose;
-
-        public ConnectorService(final Collection<Neuron> srcColl, final Collection<Neuron> targColl, final boolean loose) {
-            this.srcColl = srcColl;
-            this.targColl = targColl;
-            this.loose = loose;
-        }
-
-        UniformDistribution rand =
-            UniformDistribution.builder()
-                .lowerBound(0)
-                .upperBound(1)
-                .build();
-
-        @Override
-        public Collection<Synapse> call() throws Exception {
-            // Attempting to pre-allocate... assumes that connection density
-            // will be less than #src * #tar * 0.2 or 20% connectivity
-            List<Synapse> synapses = new ArrayList<Synapse>((int) Math.ceil(srcColl.size() * targColl.size() * 0.2 * 0.75));
-            for (Neuron src : srcColl) {
-                for (Neuron tar : targColl) {
-                    double randVal = rand.nextRand();
-                    double probability;
-                    if (src.getPolarity() == Polarity.EXCITATORY) {
-                        if (tar.getPolarity() == Polarity.EXCITATORY) {
-                            probability = calcConnectProb(src, tar, eeDistConst, lambda);
-                        } else if (tar.getPolarity() == Polarity.INHIBITORY) {
-                            probability = calcConnectProb(src, tar, eiDistConst, lambda);
-                        } else {
-                            probability = calcConnectProb(src, tar, distConst, lambda);
-                        }
-                    } else if (src.getPolarity() == Polarity.INHIBITORY) {
-                        if (tar.getPolarity() == Polarity.EXCITATORY) {
-                            probability = calcConnectProb(src, tar, ieDistConst, lambda);
-                        } else if (tar.getPolarity() == Polarity.INHIBITORY) {
-                            probability = calcConnectProb(src, tar, iiDistConst, lambda);
-                        } else {
-                            probability = calcConnectProb(src, tar, distConst, lambda);
-                        }
-                    } else {
-                        probability = calcConnectProb(src, tar, distConst, lambda);
-                    }
-                    if (randVal < probability) {
-                        Synapse s = new Synapse(src, tar);
-                        synapses.add(s);
-                        if (loose) {
-                            src.getNetwork().addSynapse(s);
-                        }
-                    }
-                }
-            }
-            return synapses;
-        }
-
-    }
-
     public class DensityEstimator implements Runnable {
 
         private double estimateDensity;
 
         @Override
         public void run() {
-            int count = 0;
-            for (Neuron src : synapseGroup.getSourceNeurons()) {
-                for (Neuron tar : synapseGroup.getTargetNeurons()) {
-                    double randVal = Math.random();
-                    double probability;
-                    if (src.getPolarity() == Polarity.EXCITATORY) {
-                        if (tar.getPolarity() == Polarity.EXCITATORY) {
-                            probability = calcConnectProb(src, tar, eeDistConst, lambda);
-                        } else if (tar.getPolarity() == Polarity.INHIBITORY) {
-                            probability = calcConnectProb(src, tar, eiDistConst, lambda);
-                        } else {
-                            probability = calcConnectProb(src, tar, distConst, lambda);
-                        }
-                    } else if (src.getPolarity() == Polarity.INHIBITORY) {
-                        if (tar.getPolarity() == Polarity.EXCITATORY) {
-                            probability = calcConnectProb(src, tar, ieDistConst, lambda);
-                        } else if (tar.getPolarity() == Polarity.INHIBITORY) {
-                            probability = calcConnectProb(src, tar, iiDistConst, lambda);
-                        } else {
-                            probability = calcConnectProb(src, tar, distConst, lambda);
-                        }
-                    } else {
-                        probability = calcConnectProb(src, tar, distConst, lambda);
-                    }
-                    if (randVal < probability) {
-                        count++;
-                    }
-                }
-            }
+            double[][] constants = polarityConstants(eeDistConst, eiDistConst, ieDistConst, iiDistConst, distConst);
+            int count = generateRadial(synapseGroup.getSourceNeurons(), synapseGroup.getTargetNeurons(), constants, lambda, nextSeed()).size();
             if (synapseGroup.isRecurrent()) {
                 estimateDensity = (double) count / (synapseGroup.getSourceNeuronGroup().size() * (synapseGroup.getSourceNeuronGroup().size() - 1));
             } else {
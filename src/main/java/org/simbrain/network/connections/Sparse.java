@@ -22,10 +22,13 @@ import org.simbrain.network.core.Neuron;
 import org.simbrain.network.core.Synapse;
 import org.simbrain.network.groups.SynapseGroup;
 import org.simbrain.util.math.SimbrainMath;
+import org.simbrain.util.math.SplittableRandomStream;
 import org.simbrain.util.propertyeditor.EditableObject;
 import umontreal.iro.lecuyer.randvar.BinomialGen;
+import umontreal.iro.lecuyer.rng.RandomStream;
 
 import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * A superclass for all connectors whose primary parameter is related to base
@@ -150,7 +153,7 @@ public class Sparse extends ConnectionStrategy implements EditableObject {
      * @return the newly creates synapses connecting source to target
      */
     public List<Synapse> connectSparse(List<Neuron> sourceNeurons, List<Neuron> targetNeurons) {
-        return connectSparse(sourceNeurons, targetNeurons, connectionDensity, selfConnectionAllowed, equalizeEfferents, true);
+        return connectSparse(sourceNeurons, targetNeurons, connectionDensity, selfConnectionAllowed, equalizeEfferents, true, nextSeed());
     }
 
     /**
@@ -168,80 +171,75 @@ public class Sparse extends ConnectionStrategy implements EditableObject {
      * @return the new synapses
      */
     public static List<Synapse> connectSparse(List<Neuron> sourceNeurons, List<Neuron> targetNeurons, double sparsity, boolean selfConnectionAllowed, boolean equalizeEfferents, boolean looseSynapses) {
-        boolean recurrent = ConnectionUtilities.testRecurrence(sourceNeurons, targetNeurons);
-        Neuron source;
-        Neuron target;
-        Synapse synapse;
-        ArrayList<Synapse> syns = new ArrayList<Synapse>();
-        Random rand = new Random(System.nanoTime());
-        if (equalizeEfferents) {
-            ArrayList<Integer> targetList = new ArrayList<Integer>();
-            ArrayList<Integer> tListCopy;
-            for (int i = 0; i < targetNeurons.size(); i++) {
-                targetList.add(i);
-            }
-            int numSyns;
-            if (!selfConnectionAllowed && sourceNeurons == targetNeurons) {
-                numSyns = (int) (sparsity * sourceNeurons.size() * (targetNeurons.size() - 1));
-            } else {
-                numSyns = (int) (sparsity * sourceNeurons.size() * targetNeurons.size());
-            }
-            int synsPerSource = numSyns / sourceNeurons.size();
-            int targStart = 0;
-            int targEnd = synsPerSource;
-            if (synsPerSource > numSyns / 2) {
-                synsPerSource = numSyns - synsPerSource;
-                targStart = synsPerSource;
-                targEnd = targetList.size();
-            }
-
-            for (int i = 0; i < sourceNeurons.size(); i++) {
-                source = sourceNeurons.get(i);
-                if (!selfConnectionAllowed && recurrent) {
-                    tListCopy = new ArrayList<Integer>();
-                    for (int k = 0; k < targetList.size(); k++) {
-                        if (k == i) { // Exclude oneself as a possible target
-                            continue;
-                        }
-                        tListCopy.add(targetList.get(k));
-                    }
-                    randShuffleK(tListCopy, synsPerSource, rand);
-                } else {
-                    randShuffleK(targetList, synsPerSource, rand);
-                    tListCopy = targetList;
-                }
-
-                for (int j = targStart; j < targEnd; j++) {
-                    target = targetNeurons.get(tListCopy.get(j));
-                    synapse = new Synapse(source, target);
-                    if (looseSynapses) {
-                        source.getNetwork().addSynapse(synapse);
-                    }
-                    syns.add(synapse);
-                }
-            }
-        } else {
-            for (int i = 0; i < sourceNeurons.size(); i++) {
-                for (int j = 0; j < targetNeurons.size(); j++) {
-                    if (!selfConnectionAllowed && recurrent && i == j) {
-                        continue;
-                    } else {
-                        if (Math.random() < sparsity) {
-                            source = sourceNeurons.get(i);
-                            target = targetNeurons.get(j);
-                            synapse = new Synapse(source, target);
-                            if (looseSynapses) {
-                                source.getNetwork().addSynapse(synapse);
-                            }
-                            syns.add(synapse);
-                        }
-                    }
-                }
+        return connectSparse(sourceNeurons, targetNeurons, sparsity, selfConnectionAllowed, equalizeEfferents, looseSynapses, ThreadLocalRandom.current().nextLong());
+    }
 
+    /**
+     * Same as {@link #connectSparse(List, List, double, boolean, boolean,
+     * boolean)} but with a seed, so that the same connections are made given
+     * the same seed and neurons.
+     *
+     * @param sourceNeurons         source neurons
+     * @param targetNeurons         target neurons
+     * @param sparsity              sparsity of connection
+     * @param selfConnectionAllowed whether to allow self-connections
+     * @param equalizeEfferents     whether or not the number of efferents of each
+     *                              source neurons should be equalized.
+     * @param looseSynapses         are these loose synapses
+     * @param seed                  seed for the random number generator
+     * @return the new synapses
+     */
+    public static List<Synapse> connectSparse(List<Neuron> sourceNeurons, List<Neuron> targetNeurons, double sparsity, boolean selfConnectionAllowed, boolean equalizeEfferents, boolean looseSynapses, long seed) {
+        boolean recurrent = ConnectionUtilities.testRecurrence(sourceNeurons, targetNeurons);
+        List<Synapse> syns = generateSparse(sourceNeurons.size(), targetNeurons.size(), recurrent, sparsity, selfConnectionAllowed, equalizeEfferents, seed).createSynapses(sourceNeurons, targetNeurons);
+        if (looseSynapses) {
+            for (Synapse synapse : syns) {
+                synapse.getSource().getNetwork().addSynapse(synapse);
             }
         }
         return syns;
+    }
 
+    /**
+     * Choose sparse connections in parallel.
+     *
+     * @param numSrc                number of source neurons
+     * @param numTar                number of target neurons
+     * @param recurrent             whether the source and target neurons are
+     *                              the same, in the same order
+     * @param sparsity              sparsity of connection
+     * @param selfConnectionAllowed whether to allow self-connections
+     * @param equalizeEfferents     whether every source neuron should get the
+     *                              same number of targets
+     * @param seed                  seed for the random number generator
+     * @return the connections
+     */
+    private static ConnectionGenerator.Connections generateSparse(final int numSrc, final int numTar, boolean recurrent, final double sparsity, boolean selfConnectionAllowed, boolean equalizeEfferents, long seed) {
+        final boolean excludeSelf = recurrent && !selfConnectionAllowed;
+        if (!equalizeEfferents) {
+            return ConnectionGenerator.generate(numSrc, seed, () -> (i, rand, targets) -> ConnectionGenerator.sampleBernoulli(numTar, sparsity, excludeSelf ? i : -1, rand, targets));
+        }
+        final int numCandidates = excludeSelf ? numTar - 1 : numTar;
+        final int synsPerSource = numSrc == 0 ? 0 : Math.min(numCandidates, (int) ((long) (sparsity * numSrc * numCandidates) / numSrc));
+        return ConnectionGenerator.generate(numSrc, seed, () -> {
+            // Each block keeps a permutation of the candidate targets and
+            // shuffles its first few places for each source, which picks a
+            // uniformly random subset whatever order the permutation is in
+            final int[] candidates = new int[numCandidates];
+            for (int j = 0; j < numCandidates; j++) {
+                candidates[j] = j;
+            }
+            return (i, rand, targets) -> {
+                for (int k = 0; k < synsPerSource; k++) {
+                    int r = k + rand.nextInt(numCandidates - k);
+                    int tar = candidates[r];
+                    candidates[r] = candidates[k];
+                    candidates[k] = tar;
+                    // Candidates skip over the source itself
+                    targets.add(excludeSelf && tar >= i ? tar + 1 : tar);
+                }
+            };
+        });
     }
 
     /**
@@ -255,123 +253,82 @@ public class Sparse extends ConnectionStrategy implements EditableObject {
         boolean recurrent = synapseGroup.isRecurrent();
         int numSrc = synapseGroup.getSourceNeurons().size();
         int numTar = synapseGroup.getTargetNeurons().size();
-        setPermitDensityEditing(numSrc * numTar < 10E8);
         sourceNeurons = synapseGroup.getSourceNeurons().toArray(new Neuron[numSrc]);
         targetNeurons = recurrent ? sourceNeurons : synapseGroup.getTargetNeurons().toArray(new Neuron[numTar]);
+        // One seed drives the choice of targets as well as the polarity and
+        // strength of each synapse
+        SplittableRandom random = new SplittableRandom(nextSeed());
+        RandomStream stream = new SplittableRandomStream(random.nextLong());
+        ConnectionGenerator.Connections connections = generateSparse(numSrc, numTar, recurrent, connectionDensity, selfConnectionAllowed, equalizeEfferents, random.nextLong());
         // Are you initializing with the intention of editing later on?
         if (isPermitDensityEditing()) {
-            generateSparseOrdering(recurrent);
-            if (equalizeEfferents) {
-                connectEqualized(synapseGroup);
-            } else {
-                connectRandom(synapseGroup);
-            }
-        } else {
-            List<Synapse> syns = this.connectSparse(synapseGroup.getSourceNeurons(), synapseGroup.getTargetNeurons());
-            for (Synapse s : syns) {
-                synapseGroup.addNewSynapse(s);
-            }
+            generateSparseOrdering(connections, recurrent, random);
         }
-
-    }
-
-    @Override
-    public List<Synapse> connectNeurons(Network network, List<Neuron> source, List<Neuron> target) {
-        return connectSparse(source, target);
+        connections.addTo(synapseGroup, stream);
     }
 
     /**
-     * Populates the synapse group with synapses by making individual synaptic
-     * connections between the neurons in the synapse group's source and target
-     * groups. These synapses are initialized with default attributes and zero
-     * strength. Each source neuron will have exactly the same number of
-     * efferent synapses. This number being whichever satisfies the constraints
-     * given by the sparsity and whether or not the synapse group is recurrent
-     * and self connections are allowed.
+     * Build the orderings density edits add and remove connections in, from
+     * connections already made. Each source's ordering starts with its
+     * targets, so they are the first removed if the density is lowered, and
+     * goes on with the targets it is not connected to, which are added in
+     * that order if the density is raised. Both parts are shuffled.
      *
-     * @param synapseGroup
+     * @param connections the connections made
+     * @param recurrent   whether the source and target neurons are the same
+     * @param random      the random number generator to shuffle with
      */
-    private void connectEqualized(SynapseGroup synapseGroup) {
+    private void generateSparseOrdering(ConnectionGenerator.Connections connections, boolean recurrent, SplittableRandom random) {
+        int[] rowPtr = connections.getRowPtr();
+        int[] targets = connections.getTargets();
+        int numTar = targetNeurons.length;
+        boolean excludeSelf = recurrent && !selfConnectionAllowed;
+        sparseOrdering = new int[sourceNeurons.length][];
         currentOrderingIndices = new int[sourceNeurons.length];
-        int numConnectsPerSrc;
-        int expectedNumSyns;
-        if (synapseGroup.isRecurrent() && !selfConnectionAllowed) {
-            numConnectsPerSrc = (int) (connectionDensity * (sourceNeurons.length - 1));
-        } else {
-            numConnectsPerSrc = (int) (connectionDensity * targetNeurons.length);
-        }
-        expectedNumSyns = numConnectsPerSrc * sourceNeurons.length;
-        synapseGroup.preAllocateSynapses(expectedNumSyns);
+        boolean[] connected = new boolean[numTar];
         for (int i = 0, n = sourceNeurons.length; i < n; i++) {
-            currentOrderingIndices[i] = numConnectsPerSrc;
-            Neuron src = sourceNeurons[i];
-            Neuron tar;
-            for (int j = 0; j < numConnectsPerSrc; j++) {
-                tar = targetNeurons[sparseOrdering[i][j]];
-                Synapse s = new Synapse(src, tar);
-                synapseGroup.addNewSynapse(s);
+            int[] ordering = new int[excludeSelf ? numTar - 1 : numTar];
+            int numConnected = rowPtr[i + 1] - rowPtr[i];
+            int next = 0;
+            for (int k = rowPtr[i]; k < rowPtr[i + 1]; k++) {
+                ordering[next++] = targets[k];
+                connected[targets[k]] = true;
+            }
+            for (int j = 0; j < numTar; j++) {
+                if (!connected[j] && !(excludeSelf && j == i)) {
+                    ordering[next++] = j;
+                }
             }
+            for (int k = rowPtr[i]; k < rowPtr[i + 1]; k++) {
+                connected[targets[k]] = false;
+            }
+            shuffle(ordering, 0, numConnected, random);
+            shuffle(ordering, numConnected, ordering.length, random);
+            sparseOrdering[i] = ordering;
+            currentOrderingIndices[i] = numConnected;
         }
     }
 
     /**
-     * Populates the synapse group with synapses by making individual synaptic
-     * connections between the neurons in the synapse group's source and target
-     * groups. These synapses are initialized with default attributes and zero
-     * strength. The number of efferent synapses assigned to each source neuron
-     * is drawn from a binomial distribution with a mean of
-     * NumberOfTargetNeurons * sparsity
-     * <br>
-     * Assumes {@link #permitDensityEditing} is true.  Uses machinery for that.
-     * This is for _initialization_ (of a connection that will allow permitdensity
-     * editing), not re-editing.
-     *
+     * Shuffle part of an array in place.
      *
-     * @param synapseGroup
+     * @param values the array
+     * @param from   first index to shuffle, inclusive
+     * @param to     last index to shuffle, exclusive
+     * @param random the random number generator
      */
-    private void connectRandom(SynapseGroup synapseGroup) {
-        currentOrderingIndices = new int[sourceNeurons.length];
-        int numTars = synapseGroup.isRecurrent() && !selfConnectionAllowed ? (sourceNeurons.length - 1) : targetNeurons.length;
-        synapseGroup.clear(); // TODO: Zoe? Make
-        synapseGroup.preAllocateSynapses((int) (sourceNeurons.length * numTars * connectionDensity));
-        for (int i = 0, n = sourceNeurons.length; i < n; i++) {
-            currentOrderingIndices[i] = BinomialGen.nextInt(SimbrainMath.DEFAULT_RANDOM_STREAM, numTars, connectionDensity);
-            Neuron src = sourceNeurons[i];
-            Neuron tar;
-            int tarLen = targetNeurons.length - 1;
-            int[] o = null;
-            if (sourceNeurons == targetNeurons && !selfConnectionAllowed) {
-                o = SimbrainMath.randPermuteWithExclusion(0, tarLen + 1, i);
-            } else {
-                o = SimbrainMath.randPermute(0, tarLen + 1);
-            }
-            for (int j = 0; j < currentOrderingIndices[i]; j++) {
-                tar = targetNeurons[o[j]];
-                Synapse s = new Synapse(src, tar);
-                synapseGroup.addNewSynapse(s);
-            }
+    private static void shuffle(int[] values, int from, int to, SplittableRandom random) {
+        for (int k = to - 1; k > from; k--) {
+            int r = from + random.nextInt(k - from + 1);
+            int tmp = values[r];
+            values[r] = values[k];
+            values[k] = tmp;
         }
-
     }
 
-    /**
-     * @param recurrent
-     */
-    private void generateSparseOrdering(boolean recurrent) {
-        int srcLen = sourceNeurons.length;
-        if (recurrent && !selfConnectionAllowed) {
-            int tarLen = targetNeurons.length - 1;
-            sparseOrdering = new int[sourceNeurons.length][tarLen];
-            for (int i = 0; i < srcLen; i++) {
-                sparseOrdering[i] = SimbrainMath.randPermuteWithExclusion(0, tarLen + 1, i);
-            }
-        } else {
-            int tarLen = targetNeurons.length;
-            sparseOrdering = new int[sourceNeurons.length][tarLen];
-            for (int i = 0; i < srcLen; i++) {
-                sparseOrdering[i] = SimbrainMath.randPermute(0, tarLen);
-            }
-        }
+    @Override
+    public List<Synapse> connectNeurons(Network network, List<Neuron> source, List<Neuron> target) {
+        return connectSparse(source, target);
     }
 
     /**
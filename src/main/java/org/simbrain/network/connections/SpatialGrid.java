@@ -0,0 +1,171 @@
+/*
+ * Part of Simbrain--a java-based neural network kit
+ * Copyright (C) 2005,2007 The Authors.  See http://www.simbrain.net/credits
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package org.simbrain.network.connections;
+
+import java.util.function.IntConsumer;
+
+/**
+ * A uniform grid over a set of points in three dimensions, used to find the
+ * points within some distance of a location without testing every point. The
+ * points of each cell are stored contiguously, in index order.
+ */
+final class SpatialGrid {
+
+    /**
+     * The grid never has more than this many cells per point, so that sparse
+     * or widely spread points do not need a huge grid.
+     */
+    private static final int MAX_CELLS_PER_POINT = 4;
+
+    private final double[] x;
+
+    private final double[] y;
+
+    private final double[] z;
+
+    private final double minX, minY, minZ;
+
+    private final double cellSize;
+
+    private final int nx, ny, nz;
+
+    /**
+     * The points of cell c are <code>points[cellStart[c]]</code> to
+     * <code>points[cellStart[c + 1] - 1]</code>.
+     */
+    private final int[] cellStart;
+
+    private final int[] points;
+
+    /**
+     * Build a grid over the provided points.
+     *
+     * @param x           x coordinates of the points
+     * @param y           y coordinates of the points
+     * @param z           z coordinates of the points
+     * @param minCellSize smallest cell size to use, normally the largest
+     *                    distance that will be searched
+     */
+    SpatialGrid(final double[] x, final double[] y, final double[] z, final double minCellSize) {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        final int n = x.length;
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY, minZ = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY, maxZ = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < n; i++) {
+            minX = Math.min(minX, x[i]);
+            maxX = Math.max(maxX, x[i]);
+            minY = Math.min(minY, y[i]);
+            maxY = Math.max(maxY, y[i]);
+            minZ = Math.min(minZ, z[i]);
+            maxZ = Math.max(maxZ, z[i]);
+        }
+        if (n == 0) {
+            minX = maxX = minY = maxY = minZ = maxZ = 0;
+        }
+        this.minX = minX;
+        this.minY = minY;
+        this.minZ = minZ;
+
+        double size = Math.max(minCellSize, Double.MIN_NORMAL);
+        final double maxCells = Math.max(1.0, (double) n * MAX_CELLS_PER_POINT);
+        while (numCells(maxX - minX, size) * numCells(maxY - minY, size) * numCells(maxZ - minZ, size) > maxCells) {
+            size *= 2;
+        }
+        cellSize = size;
+        nx = (int) numCells(maxX - minX, size);
+        ny = (int) numCells(maxY - minY, size);
+        nz = (int) numCells(maxZ - minZ, size);
+
+        // Counting sort of the points by cell, which keeps them in index
+        // order within each cell
+        cellStart = new int[nx * ny * nz + 1];
+        int[] cellOf = new int[n];
+        for (int i = 0; i < n; i++) {
+            cellOf[i] = cellIndex(cell(x[i], minX, nx), cell(y[i], minY, ny), cell(z[i], minZ, nz));
+            cellStart[cellOf[i] + 1]++;
+        }
+        for (int c = 0; c < cellStart.length - 1; c++) {
+            cellStart[c + 1] += cellStart[c];
+        }
+        points = new int[n];
+        int[] fill = cellStart.clone();
+        for (int i = 0; i < n; i++) {
+            points[fill[cellOf[i]]++] = i;
+        }
+    }
+
+    /**
+     * Call an action on the index of every point within a distance of a
+     * location (inclusive).
+     *
+     * @param px       x coordinate of the location
+     * @param py       y coordinate of the location
+     * @param pz       z coordinate of the location
+     * @param distance the distance to search
+     * @param action   called with the index of each point found
+     */
+    void forEachWithin(final double px, final double py, final double pz, final double distance, final IntConsumer action) {
+        final double distSq = distance * distance;
+        final int x0 = cell(px - distance, minX, nx), x1 = cell(px + distance, minX, nx);
+        final int y0 = cell(py - distance, minY, ny), y1 = cell(py + distance, minY, ny);
+        final int z0 = cell(pz - distance, minZ, nz), z1 = cell(pz + distance, minZ, nz);
+        for (int cz = z0; cz <= z1; cz++) {
+            for (int cy = y0; cy <= y1; cy++) {
+                for (int cx = x0; cx <= x1; cx++) {
+                    int c = cellIndex(cx, cy, cz);
+                    for (int k = cellStart[c], end = cellStart[c + 1]; k < end; k++) {
+                        int p = points[k];
+                        double dx = x[p] - px;
+                        double dy = y[p] - py;
+                        double dz = z[p] - pz;
+                        if (dx * dx + dy * dy + dz * dz <= distSq) {
+                            action.accept(p);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return number of cells needed to cover an extent
+     */
+    private static double numCells(final double extent, final double size) {
+        return Math.floor(extent / size) + 1;
+    }
+
+    /**
+     * @return the cell containing a coordinate along one axis, clamped to the
+     * grid
+     */
+    private int cell(final double coord, final double min, final int count) {
+        double c = Math.floor((coord - min) / cellSize);
+        if (!(c >= 0)) {
+            return 0;
+        }
+        return c >= count ? count - 1 : (int) c;
+    }
+
+    private int cellIndex(final int cx, final int cy, final int cz) {
+        return (cz * ny + cy) * nx + cx;
+    }
+
+}
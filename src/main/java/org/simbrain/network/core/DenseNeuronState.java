@@ -0,0 +1,393 @@
+/*
+ * Part of Simbrain--a java-based neural network kit
+ * Copyright (C) 2005,2007 The Authors.  See http://www.simbrain.net/credits
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package org.simbrain.network.core;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * <b>DenseNeuronState</b> holds the main state variables of a set of neurons
+ * (activations, buffers, input values, spikes, etc.) in primitive arrays,
+ * one entry per neuron. These arrays are the only storage for those
+ * variables: a neuron is a view onto one index of a state (see
+ * {@link Neuron#getActivation()}), and never keeps a copy of them itself.
+ * <p>
+ * A neuron on its own has a state of size one. The neurons of a
+ * {@link org.simbrain.network.groups.NeuronGroup} in dense mode share one
+ * state for the whole group, so that large groups can be updated and
+ * committed with tight loops over contiguous memory rather than by visiting
+ * each neuron object.
+ */
+public class DenseNeuronState {
+
+    /**
+     * The neurons viewing this state, in index order. Restored by the neurons
+     * when a network is opened.
+     */
+    private transient Neuron[] neurons;
+
+    /**
+     * Whether this state holds the state of a single neuron on its own,
+     * rather than that of a group.
+     */
+    private final boolean standalone;
+
+    /**
+     * Activations. The main state variable.
+     */
+    final double[] activations;
+
+    /**
+     * Activations before the last change, used by learning rules.
+     */
+    final double[] lastActivations;
+
+    /**
+     * Temporary activation values for synchronous updating.
+     */
+    final double[] buffers;
+
+    /**
+     * External input values.
+     */
+    final double[] inputs;
+
+    /**
+     * Whether each neuron spiked on the last update.
+     */
+    final boolean[] spikes;
+
+    /**
+     * Temporary spike values for synchronous updating.
+     */
+    final boolean[] spikeBuffers;
+
+    /**
+     * Whether each neuron is clamped.
+     */
+    final boolean[] clamped;
+
+    /**
+     * Weighted synaptic inputs, filled in by {@link #gatherSynapticInputs()}
+     * and used by batch updates.
+     */
+    transient double[] synapticInputs;
+
+    /**
+     * Whether each neuron ignores its synaptic inputs on the current update,
+     * e.g. during a refractory period. Set by the update rule before a batch
+     * update (see {@link NeuronUpdateRule#maskSynapticInputs}) and read by
+     * {@link #gatherSynapticInputs(int, int)}.
+     */
+    transient boolean[] inputMask;
+
+    /**
+     * Inputs from compressed synapse groups (see
+     * {@link org.simbrain.network.groups.SynapseGroup#setCompressed(boolean)}),
+     * whose synapses are not in the neurons' fan-in lists. Computed by the
+     * owning group each update as a sparse matrix-vector product.
+     */
+    transient double[] matrixInputs;
+
+    /**
+     * Create a dense state for the provided neurons and move each neuron on
+     * to it. The current state of each neuron is copied in to the arrays.
+     *
+     * @param neuronList the neurons to back with this state
+     */
+    public DenseNeuronState(final List<Neuron> neuronList) {
+        this(neuronList.toArray(new Neuron[neuronList.size()]), false);
+        for (int i = 0; i < neurons.length; i++) {
+            neurons[i].moveTo(this, i);
+        }
+    }
+
+    /**
+     * Create the state of a single neuron on its own, with all values zero.
+     *
+     * @param neuron the neuron
+     */
+    DenseNeuronState(final Neuron neuron) {
+        this(new Neuron[]{neuron}, true);
+    }
+
+    private DenseNeuronState(final Neuron[] neurons, final boolean standalone) {
+        int size = neurons.length;
+        this.neurons = neurons;
+        this.standalone = standalone;
+        activations = new double[size];
+        lastActivations = new double[size];
+        buffers = new double[size];
+        inputs = new double[size];
+        spikes = new boolean[size];
+        spikeBuffers = new boolean[size];
+        clamped = new boolean[size];
+        synapticInputs = new double[size];
+        inputMask = new boolean[size];
+        matrixInputs = new double[size];
+    }
+
+    /**
+     * Re-create the arrays which are not saved.
+     *
+     * @return this state
+     */
+    private Object readResolve() {
+        neurons = new Neuron[activations.length];
+        synapticInputs = new double[activations.length];
+        inputMask = new boolean[activations.length];
+        matrixInputs = new double[activations.length];
+        return this;
+    }
+
+    /**
+     * Note the neuron viewing an index of this state. Used when a network is
+     * opened.
+     */
+    void restoreNeuron(final int index, final Neuron neuron) {
+        neurons[index] = neuron;
+    }
+
+    /**
+     * Copy the values at an index of this state to an index of another.
+     */
+    void copyTo(final int index, final DenseNeuronState other, final int otherIndex) {
+        other.activations[otherIndex] = activations[index];
+        other.lastActivations[otherIndex] = lastActivations[index];
+        other.buffers[otherIndex] = buffers[index];
+        other.inputs[otherIndex] = inputs[index];
+        other.spikes[otherIndex] = spikes[index];
+        other.spikeBuffers[otherIndex] = spikeBuffers[index];
+        other.clamped[otherIndex] = clamped[index];
+    }
+
+    /**
+     * Give each neuron a state of its own again, with the values it has in
+     * this one.
+     */
+    public void detach() {
+        for (int i = 0; i < neurons.length; i++) {
+            neurons[i].moveTo(new DenseNeuronState(neurons[i]), 0);
+        }
+    }
+
+    /**
+     * @return true if this is the state of a single neuron on its own rather
+     * than that of a group
+     */
+    public boolean isStandalone() {
+        return standalone;
+    }
+
+    /**
+     * Moves activations to last activations, buffer values to activations
+     * (for unclamped neurons) and spike buffers to spikes, the dense
+     * equivalent of calling {@link Neuron#setToBufferVals()} on each neuron.
+     * No property change events are fired; callers are responsible for
+     * notifying listeners.
+     */
+    public void commitBuffers() {
+        commitBuffers(0, activations.length);
+    }
+
+    /**
+     * Commit the buffers of a range of neurons as in {@link #commitBuffers()}.
+     * Disjoint ranges can be committed on different threads.
+     *
+     * @param from index of the first neuron (inclusive)
+     * @param to   index of the last neuron (exclusive)
+     */
+    public void commitBuffers(final int from, final int to) {
+        System.arraycopy(activations, from, lastActivations, from, to - from);
+        for (int i = from; i < to; i++) {
+            if (!clamped[i]) {
+                activations[i] = buffers[i];
+            }
+        }
+        System.arraycopy(spikeBuffers, from, spikes, from, to - from);
+    }
+
+    /**
+     * Note the neurons whose activation was changed by the last call to
+     * {@link #commitBuffers()} with their network, so that they are reported
+     * with its next batched event. Used in place of firing events while the
+     * network is batching events.
+     */
+    public void noteChangedActivations() {
+        for (int i = 0, n = activations.length; i < n; i++) {
+            if (activations[i] != lastActivations[i]) {
+                neurons[i].noteActivationChanged();
+            }
+        }
+    }
+
+    /**
+     * Set the activations of the first <code>values.length</code> neurons (or
+     * all of them if there are fewer), the dense equivalent of calling
+     * {@link Neuron#setActivation(double)} or
+     * {@link Neuron#forceSetActivation(double)} on each neuron. Used by array
+     * couplings. No property change events are fired.
+     *
+     * @param values the new activations
+     * @param force  whether to set the activations of clamped neurons
+     * @return true if any activation changed
+     */
+    public boolean setActivations(final double[] values, final boolean force) {
+        int n = Math.min(values.length, activations.length);
+        System.arraycopy(activations, 0, lastActivations, 0, n);
+        boolean changed = false;
+        for (int i = 0; i < n; i++) {
+            if ((force || !clamped[i]) && activations[i] != values[i]) {
+                activations[i] = values[i];
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Sum the post synaptic responses of each neuron's afferent synapses, and
+     * any inputs from compressed synapse groups, in to the synaptic input
+     * array. External input values are not included. Like
+     * {@link Neuron#getInput()} this calls {@link Synapse#calcPSR()} once per
+     * synapse, so it should be called once per update.
+     */
+    public void gatherSynapticInputs() {
+        gatherSynapticInputs(0, neurons.length);
+    }
+
+    /**
+     * Sum the synaptic inputs of a range of neurons as in
+     * {@link #gatherSynapticInputs()}. Neurons marked in the input mask get
+     * an input of 0 and their synapses are not visited, as when a neuron
+     * does not read its input. Disjoint ranges can be gathered on different
+     * threads.
+     *
+     * @param from index of the first neuron (inclusive)
+     * @param to   index of the last neuron (exclusive)
+     */
+    public void gatherSynapticInputs(final int from, final int to) {
+        for (int i = from; i < to; i++) {
+            if (inputMask[i]) {
+                synapticInputs[i] = 0;
+                continue;
+            }
+            List<Synapse> fanIn = neurons[i].getFanInUnsafe();
+            double wtdSum = matrixInputs[i];
+            for (int j = 0, m = fanIn.size(); j < m; j++) {
+                wtdSum += fanIn.get(j).calcPSR();
+            }
+            synapticInputs[i] = wtdSum;
+        }
+    }
+
+    /**
+     * Set all input values to 0.
+     */
+    public void clearInputs() {
+        Arrays.fill(inputs, 0);
+    }
+
+    /**
+     * @return the number of neurons backed by this state
+     */
+    public int size() {
+        return neurons.length;
+    }
+
+    /**
+     * @return the neurons viewing this state, in index order. This is the
+     * backing array and should not be modified.
+     */
+    public Neuron[] getNeurons() {
+        return neurons;
+    }
+
+    /**
+     * @return the backing activation array (not a copy)
+     */
+    public double[] getActivations() {
+        return activations;
+    }
+
+    /**
+     * @return the backing last activation array (not a copy)
+     */
+    public double[] getLastActivations() {
+        return lastActivations;
+    }
+
+    /**
+     * @return the backing buffer array (not a copy)
+     */
+    public double[] getBuffers() {
+        return buffers;
+    }
+
+    /**
+     * @return the backing input value array (not a copy)
+     */
+    public double[] getInputs() {
+        return inputs;
+    }
+
+    /**
+     * @return the backing spike array (not a copy)
+     */
+    public boolean[] getSpikes() {
+        return spikes;
+    }
+
+    /**
+     * @return the backing spike buffer array (not a copy)
+     */
+    public boolean[] getSpikeBuffers() {
+        return spikeBuffers;
+    }
+
+    /**
+     * @return the backing clamped array (not a copy)
+     */
+    public boolean[] getClamped() {
+        return clamped;
+    }
+
+    /**
+     * @return the backing synaptic input array (not a copy)
+     */
+    public double[] getSynapticInputs() {
+        return synapticInputs;
+    }
+
+    /**
+     * @return the backing input mask array (not a copy)
+     */
+    public boolean[] getInputMask() {
+        return inputMask;
+    }
+
+    /**
+     * @return the backing array of inputs from compressed synapse groups (not
+     * a copy)
+     */
+    public double[] getMatrixInputs() {
+        return matrixInputs;
+    }
+
+}
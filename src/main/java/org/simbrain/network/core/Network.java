@@ -33,6 +33,7 @@ import org.simbrain.util.math.SimbrainMath;
 import java.beans.PropertyChangeListener;
 import java.beans.PropertyChangeSupport;
 import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
@@ -163,6 +164,31 @@ public class Network {
      */
     private volatile boolean fireUpdates = true;
 
+    /**
+     * If true, neurons, synapses and groups do not fire events while the
+     * network updates. Instead, every {@link #updateFreq} updates, a single
+     * "elementsUpdated" event is fired with the neurons and synapses which
+     * changed (see {@link UpdatedElements}).
+     */
+    private boolean batchEvents = false;
+
+    /**
+     * True while an update runs with {@link #batchEvents} set.
+     */
+    private transient volatile boolean batching;
+
+    /**
+     * Neurons whose activation changed while events were batched, to be
+     * reported by the next "elementsUpdated" event. Each neuron is added
+     * once, when it first flags a change.
+     */
+    private transient Queue<Neuron> changedNeurons = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Synapses whose strength changed while events were batched.
+     */
+    private transient Queue<Synapse> changedSynapses = new ConcurrentLinkedQueue<>();
+
     /**
      * An internal id giving networks unique numbers within the same simbrain
      * session.
@@ -212,6 +238,11 @@ public class Network {
      */
     public void update() {
 
+        if (batchEvents) {
+            updateBatched();
+            return;
+        }
+
         changeSupport.firePropertyChange("updateCompleted", null, false);
 
         // Main update
@@ -225,6 +256,80 @@ public class Network {
 
     }
 
+    /**
+     * Update with events batched: element events are suppressed during the
+     * update, and the changed elements are reported together every {@link
+     * #updateFreq} updates.
+     */
+    private void updateBatched() {
+        batching = true;
+        try {
+            updateManager.invokeAllUpdates();
+            clearInputs();
+        } finally {
+            batching = false;
+        }
+        updateTime();
+        iterCount++;
+        if (isRedrawTime()) {
+            fireElementsUpdated();
+        }
+        setUpdateCompleted(true);
+    }
+
+    /**
+     * Fire one "elementsUpdated" event with the neurons and synapses changed
+     * since the last one, and refresh the labels of groups.
+     */
+    private void fireElementsUpdated() {
+        List<Neuron> neurons = new ArrayList<Neuron>();
+        for (Neuron neuron = changedNeurons.poll(); neuron != null; neuron = changedNeurons.poll()) {
+            if (neuron.takeActivationChanged()) {
+                neurons.add(neuron);
+            }
+        }
+        List<Synapse> synapses = new ArrayList<Synapse>();
+        for (Synapse synapse = changedSynapses.poll(); synapse != null; synapse = changedSynapses.poll()) {
+            if (synapse.takeStrengthChanged()) {
+                synapses.add(synapse);
+            }
+        }
+        changeSupport.firePropertyChange("elementsUpdated", null, new UpdatedElements(neurons, synapses));
+        for (Group group : getFlatGroupList()) {
+            group.fireLabelUpdated();
+        }
+    }
+
+    /**
+     * The neurons and synapses changed over a batch of updates. See {@link
+     * #setBatchEvents(boolean)}.
+     */
+    public static final class UpdatedElements {
+
+        /**
+         * Neurons whose activation changed.
+         */
+        private final List<Neuron> neurons;
+
+        /**
+         * Synapses whose strength changed.
+         */
+        private final List<Synapse> synapses;
+
+        private UpdatedElements(final List<Neuron> neurons, final List<Synapse> synapses) {
+            this.neurons = neurons;
+            this.synapses = synapses;
+        }
+
+        public List<Neuron> getNeurons() {
+            return neurons;
+        }
+
+        public List<Synapse> getSynapses() {
+            return synapses;
+        }
+    }
+
     /**
      * Update the priority list used for priority based update.
      */
@@ -960,11 +1065,50 @@ public class Network {
     }
 
     /**
-     * Returns a copy of this network based on its xml rep.
+     * Returns a deep copy of this network, made with the copy constructors of
+     * its elements (see {@link NetworkCopier}). Networks holding elements
+     * which can't be copied that way, such as subnetworks and neuron arrays,
+     * can be copied with {@link #copyFromXml()}.
      *
      * @return the copied network.
+     * @throws UnsupportedOperationException if the network holds elements
+     *                                       which can't be copied directly
      */
     public Network copy() {
+        if (!naList.isEmpty()) {
+            throw new UnsupportedOperationException("Networks with neuron arrays can't be copied directly.");
+        }
+        return NetworkCopier.copy(this);
+    }
+
+    /**
+     * Copy the name, time, update settings and id generators of another
+     * network to this one. Used when copying networks, after the elements
+     * have been added, since adding them uses up ids.
+     *
+     * @param other the network to copy settings from
+     */
+    void copySettings(final Network other) {
+        name = other.name;
+        time = other.time;
+        timeStep = other.timeStep;
+        timeType = other.timeType;
+        iterCount = other.iterCount;
+        updateFreq = other.updateFreq;
+        oneOffRun = other.oneOffRun;
+        fireUpdates = other.fireUpdates;
+        batchEvents = other.batchEvents;
+        neuronIdGenerator = new SimpleId(other.neuronIdGenerator);
+        synapseIdGenerator = new SimpleId(other.synapseIdGenerator);
+        groupIdGenerator = new SimpleId(other.groupIdGenerator);
+    }
+
+    /**
+     * Returns a copy of this network based on its xml rep.
+     *
+     * @return the copied network.
+     */
+    public Network copyFromXml() {
         preSaveInit();
         String xml_rep = Utils.getSimbrainXStream().toXML(this);
         postSaveReInit();
@@ -983,6 +1127,8 @@ public class Network {
         fireUpdates = true;
 
         changeSupport = new PropertyChangeSupport(this);
+        changedNeurons = new ConcurrentLinkedQueue<>();
+        changedSynapses = new ConcurrentLinkedQueue<>();
 
         // Initialize update manager
         updateManager.postUnmarshallingInit();
@@ -997,6 +1143,13 @@ public class Network {
             group.postUnmarshallingInit();
         }
 
+        // Restore array backed neuron state for dense neuron groups
+        for (Group group : this.getFlatGroupList()) {
+            if (group instanceof NeuronGroup) {
+                ((NeuronGroup) group).postUnmarshallingInit();
+            }
+        }
+
         // Re-populate fan-in / fan-out for loose synapses
         for (Synapse synapse : this.getSynapseList()) {
             synapse.postUnmarshallingInit();
@@ -1010,6 +1163,11 @@ public class Network {
      * operations occur in {@link #readResolve()}.
      */
     public void preSaveInit() {
+        for (Group group : this.getFlatGroupList()) {
+            if (group instanceof NeuronGroup) {
+                ((NeuronGroup) group).preSaveInit();
+            }
+        }
         for (SynapseGroup group : this.getSynapseGroups()) {
             group.preSaveInit();
         }
@@ -1022,6 +1180,11 @@ public class Network {
         for (SynapseGroup group : this.getSynapseGroups()) {
             group.postSaveReInit();
         }
+        for (Group group : this.getFlatGroupList()) {
+            if (group instanceof NeuronGroup) {
+                ((NeuronGroup) group).postSaveReInit();
+            }
+        }
     }
 
     /**
@@ -1509,6 +1672,79 @@ public class Network {
         this.fireUpdates = fireUpdates;
     }
 
+    public boolean isBatchEvents() {
+        return batchEvents;
+    }
+
+    /**
+     * Sets whether events are batched. When batched, neurons, synapses and
+     * groups don't fire events (nor box their old and new values) as they
+     * change during an update. Instead, every {@link #getUpdateFreq()}
+     * updates, one "elementsUpdated" event is fired whose new value is an
+     * {@link UpdatedElements} holding the neurons and synapses which changed,
+     * and the labels of groups are refreshed. Events fired outside of
+     * updates, e.g. when editing the network, are not affected. Meant for
+     * fast or headless runs.
+     *
+     * @param batchEvents true to batch events during updates
+     */
+    public void setBatchEvents(boolean batchEvents) {
+        this.batchEvents = batchEvents;
+        if (!batchEvents) {
+            // Drop changes which will no longer be reported
+            for (Neuron neuron = changedNeurons.poll(); neuron != null; neuron = changedNeurons.poll()) {
+                neuron.takeActivationChanged();
+            }
+            for (Synapse synapse = changedSynapses.poll(); synapse != null; synapse = changedSynapses.poll()) {
+                synapse.takeStrengthChanged();
+            }
+        }
+    }
+
+    /**
+     * Called by a neuron when it first flags an activation change while
+     * events are being recorded rather than fired.
+     *
+     * @param neuron the changed neuron
+     */
+    void neuronChanged(final Neuron neuron) {
+        if (batchEvents) {
+            changedNeurons.add(neuron);
+        }
+    }
+
+    /**
+     * Called by a synapse when it first flags a strength change while events
+     * are being recorded rather than fired.
+     *
+     * @param synapse the changed synapse
+     */
+    void synapseChanged(final Synapse synapse) {
+        if (batchEvents) {
+            changedSynapses.add(synapse);
+        }
+    }
+
+    /**
+     * Start or stop recording changes instead of firing events, as during a
+     * batched update. Meant for update actions which change elements from
+     * other threads; they are then responsible for firing the recorded
+     * events (see {@link Neuron#takeActivationChanged()}).
+     *
+     * @param batching true to record changes rather than fire events
+     */
+    public void setBatchingEvents(boolean batching) {
+        this.batching = batching;
+    }
+
+    /**
+     * @return true if an update is running with events batched, in which
+     * case elements should record changes rather than fire events
+     */
+    public boolean isBatchingEvents() {
+        return batching;
+    }
+
     public String getName() {
         return name;
     }
@@ -0,0 +1,213 @@
+/*
+ * Part of Simbrain--a java-based neural network kit
+ * Copyright (C) 2005,2007 The Authors.  See http://www.simbrain.net/credits
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package org.simbrain.network.core;
+
+import org.simbrain.network.groups.Group;
+import org.simbrain.network.groups.NeuronGroup;
+import org.simbrain.network.groups.SynapseGroup;
+import org.simbrain.network.neuron_update_rules.PointNeuronRule;
+import org.simbrain.network.update_actions.BufferedUpdate;
+import org.simbrain.network.update_actions.ConcurrentBufferedUpdate;
+import org.simbrain.network.update_actions.CustomUpdate;
+import org.simbrain.network.update_actions.ParallelBufferedUpdate;
+import org.simbrain.network.update_actions.PriorityUpdate;
+import org.simbrain.network.update_actions.SpikePropagationUpdate;
+import org.simbrain.network.update_actions.UpdateGroup;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Deep copies networks using the copy constructors and deep copy methods of
+ * their elements, rather than writing them to xml and parsing them back.
+ * Neurons, synapses and groups keep their ids and labels, neurons keep the
+ * order of their fan-in (which fixes the order in which inputs are summed),
+ * and update actions are re-created for the copy, so that the copy updates
+ * exactly as the original does.
+ * <p>
+ * Only networks made of loose neurons and synapses, plain neuron groups,
+ * synapse groups and text can be copied. Other groups, such as subnetworks
+ * and subclasses of neuron group, have state their copy constructors leave
+ * out, and networks holding them cause an
+ * {@link UnsupportedOperationException}.
+ */
+final class NetworkCopier {
+
+    /**
+     * The network being copied.
+     */
+    private final Network original;
+
+    /**
+     * The copy.
+     */
+    private final Network copy;
+
+    /**
+     * Copies of the neurons of the original network.
+     */
+    private final Map<Neuron, Neuron> neurons = new IdentityHashMap<Neuron, Neuron>();
+
+    /**
+     * Copies of the groups of the original network.
+     */
+    private final Map<Group, Group> groups = new IdentityHashMap<Group, Group>();
+
+    private NetworkCopier(final Network original) {
+        this.original = original;
+        this.copy = new Network();
+    }
+
+    /**
+     * Returns a deep copy of a network.
+     *
+     * @param network the network to copy
+     * @return the copy
+     * @throws UnsupportedOperationException if part of the network can't be
+     *                                       copied directly
+     */
+    static Network copy(final Network network) {
+        if (network.getClass() != Network.class) {
+            throw new UnsupportedOperationException(network.getClass().getSimpleName() + " can't be copied directly.");
+        }
+        NetworkCopier copier = new NetworkCopier(network);
+        copier.copyNeurons();
+        copier.copyGroups();
+        copier.copySynapses();
+        copier.orderFanIns();
+        for (NetworkTextObject text : network.getTextList()) {
+            copier.copy.addText(new NetworkTextObject(copier.copy, text));
+        }
+        copier.copyUpdateActions();
+        copier.copy.copySettings(network);
+        return copier.copy;
+    }
+
+    /**
+     * Copy the loose neurons.
+     */
+    private void copyNeurons() {
+        for (Neuron n : original.getNeuronList()) {
+            Neuron c = new Neuron(copy, n);
+            copy.addNeuron(c);
+            c.setId(n.getId());
+            neurons.put(n, c);
+        }
+    }
+
+    /**
+     * Copy the groups, in order, so that synapse groups follow their source
+     * and target groups.
+     */
+    private void copyGroups() {
+        for (Group group : original.getGroupList()) {
+            Group c;
+            if (group.getClass() == NeuronGroup.class) {
+                NeuronGroup ng = (NeuronGroup) group;
+                NeuronGroup ngCopy = ng.deepCopy(copy);
+                copy.addGroup(ngCopy);
+                List<Neuron> originals = ng.getNeuronListUnsafe();
+                List<Neuron> copies = ngCopy.getNeuronListUnsafe();
+                for (int i = 0; i < originals.size(); i++) {
+                    copies.get(i).setId(originals.get(i).getId());
+                    neurons.put(originals.get(i), copies.get(i));
+                }
+                c = ngCopy;
+            } else if (group.getClass() == SynapseGroup.class) {
+                SynapseGroup sg = (SynapseGroup) group;
+                SynapseGroup sgCopy = sg.deepCopy((NeuronGroup) groups.get(sg.getSourceNeuronGroup()), (NeuronGroup) groups.get(sg.getTargetNeuronGroup()));
+                copy.addGroup(sgCopy);
+                c = sgCopy;
+            } else {
+                throw new UnsupportedOperationException(group.getClass().getSimpleName() + " " + group.getLabel() + " can't be copied directly.");
+            }
+            c.setId(group.getId());
+            c.setLabel(group.getLabel());
+            c.setStateInfo(group.getStateInfo());
+            groups.put(group, c);
+        }
+    }
+
+    /**
+     * Copy the loose synapses.
+     */
+    private void copySynapses() {
+        for (Synapse s : original.getSynapseList()) {
+            Synapse c = new Synapse(copy, neurons.get(s.getSource()), neurons.get(s.getTarget()), s.getLearningRule().deepCopy(), s);
+            copy.addSynapse(c);
+            c.setId(s.getId());
+        }
+    }
+
+    /**
+     * Put the fan-in of each copied neuron in the order of the original, and
+     * set up rules which keep lists of the fan-in.
+     */
+    private void orderFanIns() {
+        for (Map.Entry<Neuron, Neuron> entry : neurons.entrySet()) {
+            Neuron n = entry.getKey();
+            Neuron c = entry.getValue();
+            List<Synapse> fanIn = new ArrayList<Synapse>(n.getFanInUnsafe().size());
+            for (Synapse s : n.getFanInUnsafe()) {
+                fanIn.add(neurons.get(s.getSource()).getFanOutUnsafe().get(c));
+            }
+            c.orderFanIn(fanIn);
+            if (c.getUpdateRule() instanceof PointNeuronRule) {
+                ((PointNeuronRule) c.getUpdateRule()).init(c);
+            }
+        }
+    }
+
+    /**
+     * Replace the update actions of the copy with copies of those of the
+     * original.
+     */
+    private void copyUpdateActions() {
+        NetworkUpdateManager manager = copy.getUpdateManager();
+        manager.clear();
+        for (NetworkUpdateAction action : original.getUpdateManager().getActionList()) {
+            manager.addAction(copyAction(action));
+        }
+    }
+
+    /**
+     * Returns a copy of an update action which acts on the copy of the
+     * network.
+     */
+    private NetworkUpdateAction copyAction(final NetworkUpdateAction action) {
+        if (action.getClass() == BufferedUpdate.class) {
+            return new BufferedUpdate(copy);
+        } else if (action.getClass() == PriorityUpdate.class) {
+            return new PriorityUpdate(copy);
+        } else if (action.getClass() == SpikePropagationUpdate.class) {
+            return new SpikePropagationUpdate(copy);
+        } else if (action.getClass() == ParallelBufferedUpdate.class) {
+            return new ParallelBufferedUpdate(copy, ((ParallelBufferedUpdate) action).getNumThreads());
+        } else if (action.getClass() == ConcurrentBufferedUpdate.class) {
+            return ConcurrentBufferedUpdate.createConcurrentBufferedUpdate(copy);
+        } else if (action.getClass() == UpdateGroup.class) {
+            return new UpdateGroup(groups.get(((UpdateGroup) action).getGroup()));
+        } else if (action.getClass() == CustomUpdate.class) {
+            return new CustomUpdate(copy, ((CustomUpdate) action).getScriptString());
+        }
+        throw new UnsupportedOperationException("Update action " + action.getDescription() + " can't be copied directly.");
+    }
+}
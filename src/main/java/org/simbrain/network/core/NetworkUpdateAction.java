@@ -45,4 +45,12 @@ public interface NetworkUpdateAction {
      */
     public String getLongDescription();
 
+    /**
+     * Release any resources held by this action, such as threads or
+     * listeners. Called when the action is removed from the update manager or
+     * the network is closed. The action may be invoked again afterwards.
+     */
+    default void shutdown() {
+    }
+
 }
@@ -20,6 +20,7 @@ package org.simbrain.network.core;
 
 import org.simbrain.network.groups.Group;
 import org.simbrain.network.update_actions.*;
+import org.simbrain.workspace.updater.UpdateMetrics;
 
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
@@ -73,6 +74,12 @@ public class NetworkUpdateManager {
      */
     private final Network network;
 
+    /**
+     * Metrics in which to record the time taken by each action, or null if
+     * actions are not timed.
+     */
+    private transient volatile UpdateMetrics metrics;
+
     /**
      * Construct a new update manager.
      */
@@ -84,7 +91,25 @@ public class NetworkUpdateManager {
     }
 
     public void invokeAllUpdates() {
-        actionList.forEach(NetworkUpdateAction::invoke);
+        if (metrics == null) {
+            actionList.forEach(NetworkUpdateAction::invoke);
+            return;
+        }
+        for (NetworkUpdateAction action : actionList) {
+            long start = System.nanoTime();
+            action.invoke();
+            metrics.record(UpdateMetrics.Category.NETWORK_ACTION, network.getName() + ": " + action.getDescription(), System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Set the metrics in which to record the time taken by each action, or
+     * null to stop timing them.
+     *
+     * @param metrics the metrics to record in
+     */
+    public void setMetrics(UpdateMetrics metrics) {
+        this.metrics = metrics;
     }
 
     /**
@@ -105,6 +130,11 @@ public class NetworkUpdateManager {
                 break;
             }
         }
+        for (int i = 0; i < actionList.size(); i++) {
+            if (actionList.get(i) instanceof ParallelBufferedUpdate) {
+                actionList.set(i, new ParallelBufferedUpdate(network));
+            }
+        }
 
         for (NetworkUpdateAction action : getActionList()) {
             if (action instanceof CustomUpdate) {
@@ -145,7 +175,8 @@ public class NetworkUpdateManager {
         // By default these guys are always available
         availableActionList.add(new BufferedUpdate(network));
         availableActionList.add(new PriorityUpdate(network));
-        availableActionList.add(ConcurrentBufferedUpdate.createConcurrentBufferedUpdate(network));
+        availableActionList.add(new ParallelBufferedUpdate(network));
+        availableActionList.add(new SpikePropagationUpdate(network));
 
         // Add update actions for all groups available
         for (Group group : network.getGroupList()) {
@@ -224,16 +255,41 @@ public class NetworkUpdateManager {
         }
     }
 
+    /**
+     * Add the specified action to the update manager at the specified position
+     * in the update sequence.
+     *
+     * @param action the action to add
+     * @param index  the position at which to insert it
+     */
+    public void addAction(NetworkUpdateAction action, int index) {
+        actionList.add(index, action);
+        for (Listener listener : listeners) {
+            listener.actionAdded(action);
+        }
+    }
+
     /**
      * Remove the specified action from the update manager.
      */
     public void removeAction(NetworkUpdateAction action) {
         actionList.remove(action);
+        action.shutdown();
         for (Listener listener : listeners) {
             listener.actionRemoved(action);
         }
     }
 
+    /**
+     * Release resources held by update actions, such as the worker threads
+     * of a {@link ParallelBufferedUpdate}. Called when the network is closed.
+     */
+    public void shutdownActions() {
+        for (NetworkUpdateAction action : actionList) {
+            action.shutdown();
+        }
+    }
+
     /**
      * Remove all actions completely.
      */
@@ -242,6 +298,7 @@ public class NetworkUpdateManager {
             for (Listener l : listeners) {
                 l.actionRemoved(action);
             }
+            action.shutdown();
         }
         actionList.clear();
     }
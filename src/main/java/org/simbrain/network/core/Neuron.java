@@ -23,6 +23,7 @@ import org.simbrain.network.groups.Group;
 import org.simbrain.network.neuron_update_rules.*;
 import org.simbrain.network.neuron_update_rules.interfaces.BiasedUpdateRule;
 import org.simbrain.network.neuron_update_rules.interfaces.BoundedUpdateRule;
+import org.simbrain.network.util.io_utilities.NeuronColumns;
 import org.simbrain.util.SimbrainConstants.Polarity;
 import org.simbrain.util.UserParameter;
 import org.simbrain.util.propertyeditor.EditableObject;
@@ -75,13 +76,6 @@ public class Neuron implements EditableObject, AttributeContainer {
         useSetter = true, order = 2)
     private String label = "";
 
-    /**
-     * Activation value of the neuron. The main state variable.
-     */
-    @UserParameter(label = "Activation", description = "Main activation property",
-        increment = .5, probDist = "Normal", order = 1)
-    private double activation;
-
     /**
      * The default increment of a neuron using this rule.
      */
@@ -97,31 +91,6 @@ public class Neuron implements EditableObject, AttributeContainer {
         order = 6)
     protected double increment = DEFAULT_INCREMENT;
 
-    /**
-     * Whether or not this neuron has spiked. Specifically if the result of
-     * integration of a spiking neuron update rule at time t, produced an action
-     * potential at time t+1. True on t+1 in that case. Always false for
-     * non-spiking neuron update rules.
-     */
-    private boolean spike;
-
-    /**
-     * Temporary activation value for synchronous updating.
-     */
-    private double buffer;
-
-    /**
-     * A temporary spike value, set so that neuron's spiking behavior can be
-     * synchronously updated.
-     */
-    private boolean spkBuffer;
-
-    /**
-     * Value of any external inputs to neuron. See description at
-     * {@link #setInputValue(double)}
-     */
-    private double inputValue;
-
     /**
      * Reference to network this neuron is part of.
      */
@@ -160,16 +129,6 @@ public class Neuron implements EditableObject, AttributeContainer {
      */
     private double z;
 
-    /**
-     * If true then do not update this neuron.
-     */
-    @UserParameter(
-            label = "Clamped",
-            description = "In general, a clamped neuron will not change over time; it is \"clamped\" "
-                    + "to its current value.",
-            order = 3)
-    private boolean clamped;
-
     /**
      * The polarity of this neuron (excitatory, inhibitory, or none, which is
      * null). Used in synapse randomization, and in adding synapses.
@@ -183,11 +142,6 @@ public class Neuron implements EditableObject, AttributeContainer {
      */
     private double targetValue;
 
-    /**
-     * Memory of last activation.
-     */
-    private double lastActivation;
-
     /**
      * Parent group, if any (null if none).
      */
@@ -211,6 +165,27 @@ public class Neuron implements EditableObject, AttributeContainer {
      */
     private transient PropertyChangeSupport changeSupport = new PropertyChangeSupport(this);
 
+    /**
+     * Set when the activation changes while the parent network is batching
+     * events (see {@link Network#setBatchEvents(boolean)}), and cleared when
+     * the batched event is fired.
+     */
+    private transient boolean activationChanged;
+
+    /**
+     * State this neuron is a view onto: the activation, last activation,
+     * buffer, input value, spike, spike buffer and clamping of this neuron
+     * are stored at {@link #denseIndex} of its arrays. A state of this
+     * neuron's own, unless the neuron is in a dense neuron group. See
+     * {@link DenseNeuronState}.
+     */
+    private DenseNeuronState denseState = new DenseNeuronState(this);
+
+    /**
+     * Index of this neuron in {@link #denseState}.
+     */
+    private int denseIndex;
+
     /**
      * Construct a neuron with all default values in the specified network.
      * Sometimes used as the basis for a template neuron which will be edited
@@ -261,8 +236,16 @@ public class Neuron implements EditableObject, AttributeContainer {
         setIncrement(n.getIncrement());
         forceSetActivation(n.getActivation());
         setInputValue(n.getInputValue());
+        setBuffer(n.getBuffer());
+        setLastActivation(n.getLastActivation());
+        setSpike(n.isSpike());
+        setSpkBuffer(n.getSpkBuffer());
+        setTargetValue(n.getTargetValue());
+        setAuxValue(n.getAuxValue());
+        setPolarity(n.getPolarity());
         setX(n.getX());
         setY(n.getY());
+        setZ(n.getZ());
         setUpdatePriority(n.getUpdatePriority());
         setLabel(n.getLabel());
     }
@@ -284,6 +267,12 @@ public class Neuron implements EditableObject, AttributeContainer {
         changeSupport = new PropertyChangeSupport(this);
         fanOut = new HashMap<Neuron, Synapse>();
         fanIn = new ArrayList<Synapse>();
+        if (denseState == null) {
+            denseState = new DenseNeuronState(this);
+            denseIndex = 0;
+        } else {
+            denseState.restoreNeuron(denseIndex, this);
+        }
         if (polarity == null) {
             polarity = Polarity.BOTH;
         }
@@ -377,13 +366,13 @@ public class Neuron implements EditableObject, AttributeContainer {
      */
     @Consumable(idMethod = "getId", defaultVisibility = false)
     public void setActivation(final double act) {
-        lastActivation = getActivation();
+        double oldActivation = getActivation();
+        setLastActivation(oldActivation);
         if (isClamped()) {
             return;
-        } else {
-            activation = act;
         }
-        changeSupport.firePropertyChange("activation", lastActivation, act);
+        denseState.activations[denseIndex] = act;
+        fireActivationChanged(oldActivation, act);
     }
 
     /**
@@ -407,14 +396,57 @@ public class Neuron implements EditableObject, AttributeContainer {
      */
     @Consumable(idMethod = "getId")
     public void forceSetActivation(final double act) {
-        lastActivation = getActivation();
-        activation = act;
-        changeSupport.firePropertyChange("activation", lastActivation, act);
+        double oldActivation = getActivation();
+        setLastActivation(oldActivation);
+        denseState.activations[denseIndex] = act;
+        fireActivationChanged(oldActivation, act);
+    }
+
+    /**
+     * Notify listeners of a change in activation, or just note the change if
+     * the network is batching events.
+     */
+    private void fireActivationChanged(final double oldActivation, final double act) {
+        if (parent != null && parent.isBatchingEvents()) {
+            if (act != oldActivation) {
+                noteActivationChanged();
+            }
+        } else {
+            changeSupport.firePropertyChange("activation", oldActivation, act);
+        }
+    }
+
+    /**
+     * Note a change in activation while the network is batching events, so
+     * that it is reported with the next batched event.
+     */
+    void noteActivationChanged() {
+        if (!activationChanged) {
+            activationChanged = true;
+            parent.neuronChanged(this);
+        }
     }
 
+    /**
+     * Clear the record of an activation change made while the network was
+     * batching events.
+     *
+     * @return true if the activation changed since the last call
+     */
+    public boolean takeActivationChanged() {
+        boolean changed = activationChanged;
+        activationChanged = false;
+        return changed;
+    }
+
+    /**
+     * @return the activation of this neuron, its main state variable
+     */
     @Producible(idMethod = "getId")
+    @UserParameter(label = "Activation", description = "Main activation property",
+        increment = .5, probDist = "Normal", order = 1)
     public double getActivation() {
-        return activation;
+        return denseState.activations[denseIndex];
     }
 
     public String getId() {
@@ -513,6 +545,21 @@ public class Neuron implements EditableObject, AttributeContainer {
         }
     }
 
+    /**
+     * Put the fan-in of this neuron in the provided order, which must contain
+     * the same synapses. Inputs are summed in fan-in order, so copies of a
+     * network only update identically if their fan-ins are in the same order.
+     *
+     * @param synapses the synapses of the fan-in, in the new order
+     */
+    void orderFanIn(final List<Synapse> synapses) {
+        if (synapses.size() != fanIn.size()) {
+            throw new IllegalArgumentException("Not the fan-in of neuron " + id);
+        }
+        fanIn.clear();
+        fanIn.addAll(synapses);
+    }
+
     /**
      * Sums the weighted signals that are sent to this node. This sums all the
      * weighted inputs to a neuron in a connectionist sense. No spike responders
@@ -522,7 +569,8 @@ public class Neuron implements EditableObject, AttributeContainer {
      * @return weighted input to this node
      */
     public double getWeightedInputs() {
-        double wtdSum = inputValue;
+        double wtdSum = getInputValue();
+        wtdSum += denseState.matrixInputs[denseIndex];
         for (int i = 0, n = fanIn.size(); i < n; i++) {
             wtdSum += fanIn.get(i).calcWeightedSum();
         }
@@ -540,7 +588,8 @@ public class Neuron implements EditableObject, AttributeContainer {
      * @return total input to this neuron from other neurons
      */
     public double getInput() {
-        double wtdSum = inputValue;
+        double wtdSum = getInputValue();
+        wtdSum += denseState.matrixInputs[denseIndex];
         for (int i = 0, n = fanIn.size(); i < n; i++) {
             wtdSum += fanIn.get(i).calcPSR();
         }
@@ -677,22 +726,22 @@ public class Neuron implements EditableObject, AttributeContainer {
      * @param d temporary value
      */
     public void setBuffer(final double d) {
-        lastActivation = getActivation();
-        buffer = d;
+        setLastActivation(getActivation());
+        denseState.buffers[denseIndex] = d;
     }
 
     /**
      * @return Returns the current value in the buffer.
      */
     public double getBuffer() {
-        return buffer;
+        return denseState.buffers[denseIndex];
     }
 
     /**
      * @return Returns the inputValue.
      */
     public double getInputValue() {
-        return inputValue;
+        return denseState.inputs[denseIndex];
     }
 
     /**
@@ -705,7 +754,7 @@ public class Neuron implements EditableObject, AttributeContainer {
      */
     @Consumable(idMethod = "getId")
     public void setInputValue(final double inputValue) {
-        this.inputValue = inputValue;
+        denseState.inputs[denseIndex] = inputValue;
     }
 
     /**
@@ -951,8 +1000,16 @@ public class Neuron implements EditableObject, AttributeContainer {
         }
     }
 
+    /**
+     * @return true if this neuron is clamped, in which case it is not updated
+     */
+    @UserParameter(
+            label = "Clamped",
+            description = "In general, a clamped neuron will not change over time; it is \"clamped\" "
+                    + "to its current value.",
+            order = 3)
     public boolean isClamped() {
-        return clamped;
+        return denseState.clamped[denseIndex];
     }
 
     /**
@@ -961,7 +1018,7 @@ public class Neuron implements EditableObject, AttributeContainer {
      * @param clamped Whether this neuron is to be clamped.
      */
     public void setClamped(final boolean clamped) {
-        this.clamped = clamped;
+        denseState.clamped[denseIndex] = clamped;
         changeSupport.firePropertyChange("clamped", null, clamped);
     }
 
@@ -1162,23 +1219,112 @@ public class Neuron implements EditableObject, AttributeContainer {
     }
 
     public boolean isSpike() {
-        return spike;
+        return denseState.spikes[denseIndex];
     }
 
     public void setSpike(boolean spike) {
-        this.spike = spike;
+        denseState.spikes[denseIndex] = spike;
     }
 
     public boolean getSpkBuffer() {
-        return spkBuffer;
+        return denseState.spikeBuffers[denseIndex];
     }
 
     public void setSpkBuffer(boolean spkBuffer) {
-        this.spkBuffer = spkBuffer;
+        denseState.spikeBuffers[denseIndex] = spkBuffer;
     }
 
     public double getLastActivation() {
-        return lastActivation;
+        return denseState.lastActivations[denseIndex];
+    }
+
+    void setLastActivation(double lastActivation) {
+        denseState.lastActivations[denseIndex] = lastActivation;
+    }
+
+    /**
+     * Copy the state of this neuron, apart from its update rule, to a row of
+     * a set of columns for the binary network format.
+     *
+     * @param columns the columns to write to
+     * @param row     the row to write
+     */
+    public void writeColumns(final NeuronColumns columns, final int row) {
+        columns.activation[row] = getActivation();
+        columns.buffer[row] = getBuffer();
+        columns.lastActivation[row] = getLastActivation();
+        columns.inputValue[row] = getInputValue();
+        columns.increment[row] = increment;
+        columns.targetValue[row] = targetValue;
+        columns.auxValue[row] = auxValue;
+        columns.x[row] = x;
+        columns.y[row] = y;
+        columns.z[row] = z;
+        columns.updatePriority[row] = updatePriority;
+        columns.polarity[row] = (byte) (polarity == null ? Polarity.BOTH : polarity).ordinal();
+        columns.flags[row] = (byte) ((isSpike() ? NeuronColumns.SPIKE : 0) | (getSpkBuffer() ? NeuronColumns.SPIKE_BUFFER : 0) | (isClamped() ? NeuronColumns.CLAMPED : 0));
+        columns.id[row] = id;
+        columns.label[row] = label;
+    }
+
+    /**
+     * Restore the state of this neuron from a row of a set of columns, and
+     * its update rule. Values are set directly, without the side effects of
+     * the individual setters, and the rule is used as is rather than copied,
+     * so it must not be shared with other neurons.
+     *
+     * @param columns    the columns to read from
+     * @param row        the row to read
+     * @param updateRule the update rule of this neuron
+     */
+    public void readColumns(final NeuronColumns columns, final int row, final NeuronUpdateRule updateRule) {
+        this.updateRule = updateRule;
+        denseState.activations[denseIndex] = columns.activation[row];
+        denseState.buffers[denseIndex] = columns.buffer[row];
+        denseState.lastActivations[denseIndex] = columns.lastActivation[row];
+        denseState.inputs[denseIndex] = columns.inputValue[row];
+        increment = columns.increment[row];
+        targetValue = columns.targetValue[row];
+        auxValue = columns.auxValue[row];
+        x = columns.x[row];
+        y = columns.y[row];
+        z = columns.z[row];
+        updatePriority = columns.updatePriority[row];
+        polarity = Polarity.values()[columns.polarity[row]];
+        denseState.spikes[denseIndex] = (columns.flags[row] & NeuronColumns.SPIKE) != 0;
+        denseState.spikeBuffers[denseIndex] = (columns.flags[row] & NeuronColumns.SPIKE_BUFFER) != 0;
+        denseState.clamped[denseIndex] = (columns.flags[row] & NeuronColumns.CLAMPED) != 0;
+        id = columns.id[row];
+        label = columns.label[row];
+    }
+
+    /**
+     * Make this neuron a view onto index <code>index</code> of another dense
+     * state, copying its values there. Called by {@link DenseNeuronState}.
+     *
+     * @param state the dense state to move to
+     * @param index the index of this neuron in the state arrays
+     */
+    void moveTo(final DenseNeuronState state, final int index) {
+        denseState.copyTo(denseIndex, state, index);
+        denseState = state;
+        denseIndex = index;
+    }
+
+    /**
+     * @return the dense state of the group this neuron is a view onto, or
+     * null if the neuron has a state of its own.
+     */
+    public DenseNeuronState getDenseState() {
+        return denseState.isStandalone() ? null : denseState;
+    }
+
+    /**
+     * @return the index of this neuron in its dense state. Only meaningful
+     * when {@link #getDenseState()} is not null.
+     */
+    public int getDenseIndex() {
+        return denseIndex;
     }
 
     /**
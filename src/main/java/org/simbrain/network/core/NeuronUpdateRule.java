@@ -75,6 +75,62 @@ public abstract class NeuronUpdateRule implements CopyableObject, AttributeConta
      */
     public abstract void update(Neuron neuron);
 
+    /**
+     * Apply the update rule to a contiguous range of neurons backed by a
+     * {@link DenseNeuronState}, writing new values to the state's buffer and
+     * spike buffer arrays. Rules which override this (see
+     * {@link #isBatchUpdateSupported()}) integrate the whole range in one
+     * loop over primitive arrays, reading each neuron's own parameters from
+     * its own copy of the rule, so that there is no per-neuron virtual
+     * dispatch. All neurons in the range must use the same rule class.
+     * <p>
+     * The default implementation just calls {@link Neuron#update()} on each
+     * neuron, in which case synaptic inputs are computed by the neurons
+     * themselves and the synapticInputs array is ignored.
+     *
+     * @param state          the dense state backing the neurons
+     * @param synapticInputs weighted synaptic inputs (sum of post synaptic
+     *                       responses) to each neuron, not including external
+     *                       input values
+     * @param from           index of the first neuron to update (inclusive)
+     * @param to             index of the last neuron to update (exclusive)
+     */
+    public void updateBatch(DenseNeuronState state, double[] synapticInputs, int from, int to) {
+        Neuron[] neurons = state.getNeurons();
+        for (int i = from; i < to; i++) {
+            neurons[i].update();
+        }
+    }
+
+    /**
+     * Mark the neurons in a range which do not read their synaptic inputs on
+     * this update in the state's input mask (see {@link
+     * DenseNeuronState#getInputMask()}), so that a batch update does not
+     * gather them. Called before the inputs are gathered for {@link
+     * #updateBatch(DenseNeuronState, double[], int, int)}. Gathering calls
+     * {@link Synapse#calcPSR()}, which advances spike responders, so a rule
+     * which skips {@link Neuron#getInput()} in {@link #update(Neuron)} should
+     * mask the same neurons here. By default no neuron is masked.
+     *
+     * @param state the dense state backing the neurons
+     * @param from  index of the first neuron (inclusive)
+     * @param to    index of the last neuron (exclusive)
+     */
+    public void maskSynapticInputs(DenseNeuronState state, int from, int to) {
+        Arrays.fill(state.getInputMask(), from, to, false);
+    }
+
+    /**
+     * Returns true if this rule has a specialized implementation of
+     * {@link #updateBatch(DenseNeuronState, double[], int, int)} which reads
+     * pre-computed synaptic inputs.
+     *
+     * @return true if batch updates are supported
+     */
+    public boolean isBatchUpdateSupported() {
+        return false;
+    }
+
     /**
      * Returns a deep copy of the update rule.
      *
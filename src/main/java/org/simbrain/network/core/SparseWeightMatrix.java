@@ -0,0 +1,179 @@
+/*
+ * Part of Simbrain--a java-based neural network kit
+ * Copyright (C) 2005,2007 The Authors.  See http://www.simbrain.net/credits
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package org.simbrain.network.core;
+
+/**
+ * <b>SparseWeightMatrix</b> is a compressed sparse row (CSR) weight matrix.
+ * Rows correspond to source neurons and columns to target neurons, using the
+ * same source-major layout as
+ * {@link org.simbrain.network.groups.SynapseGroup#getRowCompressedMatrixRepresentation()}.
+ * The outgoing weights of source neuron <code>i</code> are stored in
+ * <code>weights[rowPtr[i]]</code> to <code>weights[rowPtr[i + 1] - 1]</code>,
+ * and the target indices of those weights, in increasing order, in the same
+ * positions of <code>colIdx</code>.
+ */
+public class SparseWeightMatrix {
+
+    /**
+     * Number of rows (source neurons).
+     */
+    private final int numRows;
+
+    /**
+     * Number of columns (target neurons).
+     */
+    private final int numCols;
+
+    /**
+     * Start of each row in {@link #colIdx} and {@link #weights}. Has length
+     * numRows + 1, the last entry being the number of non-zero entries.
+     */
+    final int[] rowPtr;
+
+    /**
+     * Column (target) index of each entry.
+     */
+    final int[] colIdx;
+
+    /**
+     * Value of each entry.
+     */
+    final double[] weights;
+
+    /**
+     * Create a sparse matrix from its compressed row arrays. The arrays are
+     * used directly, not copied.
+     *
+     * @param numRows number of rows (source neurons)
+     * @param numCols number of columns (target neurons)
+     * @param rowPtr  start of each row, length numRows + 1
+     * @param colIdx  column index of each entry, sorted within each row
+     * @param weights value of each entry
+     */
+    public SparseWeightMatrix(final int numRows, final int numCols, final int[] rowPtr, final int[] colIdx, final double[] weights) {
+        if (rowPtr.length != numRows + 1) {
+            throw new IllegalArgumentException("Row pointer array must have length numRows + 1");
+        }
+        if (colIdx.length != weights.length || rowPtr[numRows] != weights.length) {
+            throw new IllegalArgumentException("Column index and weight arrays must have one entry per non-zero value");
+        }
+        this.numRows = numRows;
+        this.numCols = numCols;
+        this.rowPtr = rowPtr;
+        this.colIdx = colIdx;
+        this.weights = weights;
+    }
+
+    /**
+     * Copy constructor. The arrays are copied.
+     *
+     * @param toCopy the matrix to copy
+     */
+    public SparseWeightMatrix(final SparseWeightMatrix toCopy) {
+        this(toCopy.numRows, toCopy.numCols, toCopy.rowPtr.clone(), toCopy.colIdx.clone(), toCopy.weights.clone());
+    }
+
+    /**
+     * Sparse transposed matrix-vector product, accumulated in to the output.
+     * For every row i and entry (i, j), adds <code>rowValues[i] * w(i,
+     * j)</code> to <code>out[j]</code>. Rows whose value is zero are skipped,
+     * so this is cheap when few source neurons are active.
+     *
+     * @param rowValues one value per row, e.g. source activations
+     * @param out       one value per column, e.g. target net inputs
+     */
+    public void multiplyAdd(final double[] rowValues, final double[] out) {
+        for (int i = 0; i < numRows; i++) {
+            final double val = rowValues[i];
+            if (val == 0) {
+                continue;
+            }
+            for (int k = rowPtr[i], end = rowPtr[i + 1]; k < end; k++) {
+                out[colIdx[k]] += val * weights[k];
+            }
+        }
+    }
+
+    /**
+     * Add the weights of one row to the output, i.e. the contribution of a
+     * single source neuron with a value of 1 (e.g. a spike).
+     *
+     * @param row the row to add
+     * @param out one value per column
+     */
+    public void addRow(final int row, final double[] out) {
+        for (int k = rowPtr[row], end = rowPtr[row + 1]; k < end; k++) {
+            out[colIdx[k]] += weights[k];
+        }
+    }
+
+    /**
+     * Multiply all the weights by a scalar, in place.
+     *
+     * @param scalar the scalar
+     */
+    public void scale(final double scalar) {
+        for (int k = 0; k < weights.length; k++) {
+            weights[k] *= scalar;
+        }
+    }
+
+    /**
+     * @return the number of rows (source neurons)
+     */
+    public int getNumRows() {
+        return numRows;
+    }
+
+    /**
+     * @return the number of columns (target neurons)
+     */
+    public int getNumCols() {
+        return numCols;
+    }
+
+    /**
+     * @return the number of stored (non-zero) entries
+     */
+    public int getNumNonZero() {
+        return weights.length;
+    }
+
+    /**
+     * @return the backing row pointer array (not a copy)
+     */
+    public int[] getRowPtr() {
+        return rowPtr;
+    }
+
+    /**
+     * @return the backing column index array (not a copy)
+     */
+    public int[] getColIdx() {
+        return colIdx;
+    }
+
+    /**
+     * @return the backing weight array (not a copy)
+     */
+    public double[] getWeights() {
+        return weights;
+    }
+
+}
@@ -0,0 +1,175 @@
+/*
+ * Part of Simbrain--a java-based neural network kit
+ * Copyright (C) 2005,2007 The Authors.  See http://www.simbrain.net/credits
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package org.simbrain.network.core;
+
+import java.util.Arrays;
+
+/**
+ * <b>SpikeAccumulator</b> holds the summed post synaptic responses of a set of
+ * target neurons for event-driven spike propagation. Rather than each synapse
+ * computing its own jump-and-decay response on every update, the spikes of
+ * source neurons are pushed along their outgoing weights (a row of a {@link
+ * SparseWeightMatrix}) in to a ring of delay buffers, and a single decay is
+ * applied per target neuron per update. Work per update is thus proportional
+ * to the number of spikes times their fan-out, plus one pass over the
+ * targets, rather than to the number of synapses.
+ * <p>
+ * Responses are summed linearly, so a jump arriving while a previous response
+ * has not yet decayed adds to it, whereas a single
+ * {@link org.simbrain.network.synapse_update_rules.spikeresponders.JumpAndDecay}
+ * responder resets to the jump height.
+ */
+public class SpikeAccumulator {
+
+    /**
+     * Weights along which spikes are propagated. Rows are source neurons and
+     * columns are target neurons.
+     */
+    private final SparseWeightMatrix weights;
+
+    /**
+     * Ring of pending (delayed) weight sums, one array per step of delay.
+     */
+    private final double[][] pending;
+
+    /**
+     * Index in {@link #pending} of the buffer that is applied on the next
+     * advance.
+     */
+    private int head;
+
+    /**
+     * Delay in updates between a spike and its response.
+     */
+    private final int delay;
+
+    /**
+     * Summed post synaptic response of each target neuron.
+     */
+    private final double[] responses;
+
+    /**
+     * Resting response of each target neuron, the base line times the number
+     * of afferent synapses.
+     */
+    private final double[] baseLines;
+
+    /**
+     * Multiplies the weights to get the jump in response to a spike.
+     */
+    private final double jumpHeight;
+
+    /**
+     * Time constant of decay.
+     */
+    private final double timeConstant;
+
+    /**
+     * Create an accumulator for spikes propagated along the provided weights.
+     *
+     * @param weights      source-to-target weights
+     * @param delay        number of updates between a spike and its response
+     * @param jumpHeight   jump height, multiplied by the weight
+     * @param baseLine     response of each synapse in the absence of spikes
+     * @param timeConstant time constant of decay
+     */
+    public SpikeAccumulator(final SparseWeightMatrix weights, final int delay, final double jumpHeight, final double baseLine, final double timeConstant) {
+        this.weights = weights;
+        this.delay = delay;
+        this.jumpHeight = jumpHeight;
+        this.timeConstant = timeConstant;
+        int numTargets = weights.getNumCols();
+        pending = new double[delay + 1][numTargets];
+        responses = new double[numTargets];
+        baseLines = new double[numTargets];
+        for (int col : weights.colIdx) {
+            baseLines[col] += baseLine;
+        }
+    }
+
+    /**
+     * Copy an accumulator, including its pending spikes and current
+     * responses.
+     *
+     * @param toCopy  the accumulator to copy
+     * @param weights copy of the weights of the accumulator
+     */
+    public SpikeAccumulator(final SpikeAccumulator toCopy, final SparseWeightMatrix weights) {
+        this.weights = weights;
+        this.delay = toCopy.delay;
+        this.jumpHeight = toCopy.jumpHeight;
+        this.timeConstant = toCopy.timeConstant;
+        this.head = toCopy.head;
+        pending = new double[toCopy.pending.length][];
+        for (int i = 0; i < pending.length; i++) {
+            pending[i] = toCopy.pending[i].clone();
+        }
+        responses = toCopy.responses.clone();
+        baseLines = toCopy.baseLines.clone();
+    }
+
+    /**
+     * Register a spike by the given source neuron. Its weights will be
+     * applied to the responses after the delay.
+     *
+     * @param source index of the spiking source neuron
+     */
+    public void addSpike(final int source) {
+        weights.addRow(source, pending[(head + delay) % pending.length]);
+    }
+
+    /**
+     * Advance one update: decay all responses toward their base lines and add
+     * the jumps whose delay has elapsed.
+     *
+     * @param timeStep the network time step
+     */
+    public void advance(final double timeStep) {
+        final double[] arrived = pending[head];
+        final double rate = timeStep / timeConstant;
+        for (int j = 0, n = responses.length; j < n; j++) {
+            responses[j] += rate * (baseLines[j] - responses[j]) + jumpHeight * arrived[j];
+        }
+        Arrays.fill(arrived, 0);
+        head = (head + 1) % pending.length;
+    }
+
+    /**
+     * Clear all responses and pending spikes.
+     */
+    public void clear() {
+        Arrays.fill(responses, 0);
+        for (double[] buffer : pending) {
+            Arrays.fill(buffer, 0);
+        }
+    }
+
+    /**
+     * @return summed post synaptic response of each target neuron. This is
+     * the backing array, not a copy.
+     */
+    public double[] getResponses() {
+        return responses;
+    }
+
+    public int getDelay() {
+        return delay;
+    }
+
+}
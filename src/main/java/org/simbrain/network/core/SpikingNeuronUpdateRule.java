@@ -118,4 +118,15 @@ public abstract class SpikingNeuronUpdateRule extends NeuronUpdateRule {
         this.appliedInput = appliedInput;
     }
 
+    /**
+     * Copy the last spike time and applied input of this rule to a copy of it.
+     * Used by the deepCopy methods of subclasses.
+     *
+     * @param copy the copy of this rule
+     */
+    protected void copySpikingState(final SpikingNeuronUpdateRule copy) {
+        copy.lastSpikeTime = lastSpikeTime;
+        copy.appliedInput = appliedInput;
+    }
+
 }
@@ -206,6 +206,13 @@ public class Synapse implements EditableObject, AttributeContainer {
      */
     private transient PropertyChangeSupport changeSupport = new PropertyChangeSupport(this);
 
+    /**
+     * Set when the strength changes while the parent network is batching
+     * events (see {@link Network#setBatchEvents(boolean)}), and cleared when
+     * the batched event is fired.
+     */
+    private transient boolean strengthChanged;
+
     /** Initialize properties */
     static {
         Properties properties = Utils.getSimbrainProperties();
@@ -333,6 +340,30 @@ public class Synapse implements EditableObject, AttributeContainer {
      * @param s Synapse to used as a template for constructing a new synapse.
      */
     public Synapse(final Synapse s) {
+        this(s, s.isTemplate);
+    }
+
+    /**
+     * Construct a synapse with the settings of a prototype which is not
+     * attached to its source and target neurons, so it takes no part in
+     * updates. Used to present weights which are not stored in synapse
+     * objects, see {@link SynapseGroup#getAllSynapses()}.
+     *
+     * @param prototype synapse to take settings from
+     * @param source    source neuron
+     * @param target    target neuron
+     */
+    protected Synapse(final Synapse prototype, final Neuron source, final Neuron target) {
+        this(prototype, false);
+        this.source = source;
+        this.target = target;
+        parentNetwork = source.getNetwork();
+    }
+
+    /**
+     * Copy the settings of a synapse, marking the copy as a template or not.
+     */
+    private Synapse(final Synapse s, final boolean isTemplate) {
         setLearningRule(s.getLearningRule().deepCopy());
         forceSetStrength(s.getStrength());
         setUpperBound(s.getUpperBound());
@@ -341,9 +372,15 @@ public class Synapse implements EditableObject, AttributeContainer {
         setSpikeResponder(s.getSpikeResponder());
         setEnabled(s.isEnabled());
         setDelay(s.getDelay());
+        if (s.delayManager != null) {
+            delayManager = s.delayManager.clone();
+        }
+        dlyPtr = s.dlyPtr;
+        dlyVal = s.dlyVal;
+        psr = s.psr;
         this.frozen = s.frozen;
         s.initSpikeResponder();
-        isTemplate = s.isTemplate;
+        this.isTemplate = isTemplate;
     }
 
     /**
@@ -1089,7 +1126,26 @@ public class Synapse implements EditableObject, AttributeContainer {
      * Label update needs to be reflected in GUI.
      */
     public void fireStrengthUpdated() {
+        if (parentNetwork != null && parentNetwork.isBatchingEvents()) {
+            if (!strengthChanged) {
+                strengthChanged = true;
+                parentNetwork.synapseChanged(this);
+            }
+            return;
+        }
         changeSupport.firePropertyChange("strength", null , null);
     }
 
+    /**
+     * Clear the record of a strength change made while the network was
+     * batching events.
+     *
+     * @return true if the strength changed since the last call
+     */
+    public boolean takeStrengthChanged() {
+        boolean changed = strengthChanged;
+        strengthChanged = false;
+        return changed;
+    }
+
 }
@@ -191,7 +191,7 @@ public final class NetworkDesktopComponent extends GuiComponent<NetworkComponent
     private boolean showUncompressedSynapseGroupWarning() {
         boolean showPanel = false;
         for (SynapseGroup group : networkPanel.getNetwork().getSynapseGroups()) {
-            if (group.getAllSynapses().size() > saveWarningThreshold) {
+            if (group.size() > saveWarningThreshold) {
                 if (!group.isUseGroupLevelSettings()) {
                     showPanel = true;
                 }
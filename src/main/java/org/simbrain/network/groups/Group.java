@@ -133,6 +133,10 @@ public abstract class Group implements CopyableObject, AttributeContainer {
         return id;
     }
 
+    public void setId(String id) {
+        this.id = id;
+    }
+
 
     @Producible(idMethod = "getId", defaultVisibility = false)
     public String getLabel() {
@@ -223,6 +227,10 @@ public abstract class Group implements CopyableObject, AttributeContainer {
      * Label update needs to be reflected in GUI.
      */
     public void fireLabelUpdated() {
+        // Labels of all groups are refreshed when batched events are fired
+        if (parentNetwork.isBatchingEvents()) {
+            return;
+        }
         changeSupport.firePropertyChange("label", null , null);
     }
 
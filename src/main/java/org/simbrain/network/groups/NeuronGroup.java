@@ -17,6 +17,7 @@
  */
 package org.simbrain.network.groups;
 
+import org.simbrain.network.core.DenseNeuronState;
 import org.simbrain.network.core.Network;
 import org.simbrain.network.core.Neuron;
 import org.simbrain.network.core.NeuronUpdateRule;
@@ -35,6 +36,7 @@ import org.simbrain.workspace.Consumable;
 import org.simbrain.workspace.Producible;
 
 import java.awt.geom.Point2D;
+import java.beans.PropertyChangeSupport;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
@@ -171,6 +173,31 @@ public class NeuronGroup extends Group implements CopyableGroup<NeuronGroup> {
      */
     private int[] subsamplingIndices = {};
 
+    /**
+     * Whether this group stores the state of its neurons (activations,
+     * buffers, inputs, spikes) in primitive arrays. See {@link #setDenseMode}.
+     */
+    private boolean denseMode = false;
+
+    /**
+     * The primitive array state backing the neurons in this group when
+     * {@link #denseMode} is true, else null.
+     */
+    private transient DenseNeuronState denseState;
+
+    /**
+     * Set when neurons are added in dense mode, so that the dense state is
+     * rebuilt once when it is next needed rather than once per neuron.
+     */
+    private transient boolean denseStateStale;
+
+    /**
+     * The rule used for batch updates of the dense state during a
+     * partitioned update, or null if the neurons are updated one at a time
+     * (see {@link #beginPartitionedUpdate()}).
+     */
+    private transient NeuronUpdateRule partitionRule;
+
     /**
      * Construct a new neuron group from a list of neurons.
      *
@@ -258,7 +285,22 @@ public class NeuronGroup extends Group implements CopyableGroup<NeuronGroup> {
         this.setLabel(toCopy.getLabel());
         this.setLayout(toCopy.getLayout());
         this.updateRule = toCopy.updateRule;
-        resetSubsamplingIndices();
+        this.isSpikingNeuronGroup = toCopy.isSpikingNeuronGroup;
+        this.gridThreshold = toCopy.gridThreshold;
+        this.betweenNeuronInterval = toCopy.betweenNeuronInterval;
+        this.recordAsSpikes = toCopy.recordAsSpikes;
+        if (toCopy.testData != null) {
+            testData = new double[toCopy.testData.length][];
+            for (int i = 0; i < testData.length; i++) {
+                testData[i] = toCopy.testData[i].clone();
+            }
+        }
+        this.inputMode = toCopy.inputMode;
+        this.inputIndex = toCopy.inputIndex;
+        this.numSubSamples = toCopy.numSubSamples;
+        this.subsamplingIndices = toCopy.subsamplingIndices.clone();
+        this.subSampledValues = toCopy.subSampledValues == null ? null : toCopy.subSampledValues.clone();
+        setDenseMode(toCopy.isDenseMode());
     }
 
     @Override
@@ -286,6 +328,7 @@ public class NeuronGroup extends Group implements CopyableGroup<NeuronGroup> {
             }
         }
         stopRecording();
+        releaseDenseState();
         neuronList.clear();
         Runtime.getRuntime().gc();
         changeSupport.firePropertyChange("delete", this, null);
@@ -305,6 +348,8 @@ public class NeuronGroup extends Group implements CopyableGroup<NeuronGroup> {
             }
             // Surrounded by checks, so actually safe.
             readNextInputUnsafe();
+        } else if (getDenseState() != null) {
+            updateDense();
         } else {
             Network.updateNeurons(neuronList);
         }
@@ -314,6 +359,242 @@ public class NeuronGroup extends Group implements CopyableGroup<NeuronGroup> {
         fireLabelUpdated();
     }
 
+    /**
+     * Update used in dense mode. If every neuron uses the same update rule
+     * class and that rule supports batch updates, synaptic inputs are
+     * gathered in to an array and the whole group is integrated with
+     * {@link NeuronUpdateRule#updateBatch}. Otherwise neuron update rules are
+     * applied as usual, but read and write the group's primitive arrays
+     * through the neurons. In either case the buffered values are committed
+     * in a single pass without per-neuron events, and one "neurons updated"
+     * event is fired for the whole group instead, or if the network is
+     * batching events the changed neurons are noted for its next batched
+     * event.
+     */
+    private void updateDense() {
+        beginPartitionedUpdate();
+        int size = denseState.size();
+        updatePartition(0, size);
+        commitPartition(0, size);
+        endPartitionedUpdate();
+    }
+
+    /**
+     * Prepare to update this group in ranges of neurons, which can be handled
+     * on different threads: {@link #updatePartition(int, int)} computes the
+     * buffers of a range, and once every range is computed {@link
+     * #commitPartition(int, int)} commits them. {@link
+     * #endPartitionedUpdate()} is then called on this thread. Update actions
+     * use this to split a group across threads the same way the group updates
+     * itself; input mode, recording and label events are left to the caller.
+     */
+    public void beginPartitionedUpdate() {
+        updateMatrixInputs();
+        partitionRule = getDenseState() == null ? null : getBatchRule();
+    }
+
+    /**
+     * Compute the buffers of a range of this group's neurons, with a batch
+     * update of the dense state where possible.
+     *
+     * @param from index of the first neuron (inclusive)
+     * @param to   index of the last neuron (exclusive)
+     */
+    public void updatePartition(final int from, final int to) {
+        if (partitionRule != null) {
+            partitionRule.maskSynapticInputs(denseState, from, to);
+            denseState.gatherSynapticInputs(from, to);
+            partitionRule.updateBatch(denseState, denseState.getSynapticInputs(), from, to);
+        } else {
+            for (int i = from; i < to; i++) {
+                neuronList.get(i).update();
+            }
+        }
+    }
+
+    /**
+     * Commit the buffers of a range of this group's neurons.
+     *
+     * @param from index of the first neuron (inclusive)
+     * @param to   index of the last neuron (exclusive)
+     */
+    public void commitPartition(final int from, final int to) {
+        if (denseState != null) {
+            denseState.commitBuffers(from, to);
+        } else {
+            for (int i = from; i < to; i++) {
+                neuronList.get(i).setToBufferVals();
+            }
+        }
+    }
+
+    /**
+     * Finish a partitioned update. Dense groups commit their buffers without
+     * per-neuron events, so they fire one "neurons updated" event for the
+     * whole group, or if the network is batching events note the changed
+     * neurons for its next batched event.
+     */
+    public void endPartitionedUpdate() {
+        partitionRule = null;
+        if (denseState == null) {
+            return;
+        }
+        if (getParentNetwork().isBatchingEvents()) {
+            denseState.noteChangedActivations();
+        } else if (getParentNetwork().isFireUpdates()) {
+            getParentNetwork().fireNeuronsUpdated(neuronList);
+        }
+    }
+
+    /**
+     * Compute the inputs from incoming compressed synapse groups (see
+     * {@link SynapseGroup#setCompressed(boolean)}) in to the dense state.
+     * Called at the start of a dense update, and by update actions which
+     * update the neurons of dense groups directly. Does nothing if the group
+     * is not in dense mode.
+     */
+    public void updateMatrixInputs() {
+        if (getDenseState() == null) {
+            return;
+        }
+        double[] matrixInputs = denseState.getMatrixInputs();
+        Arrays.fill(matrixInputs, 0);
+        for (SynapseGroup sg : incomingSgs) {
+            if (sg.isCompressed()) {
+                sg.addCompressedInputs(matrixInputs);
+            }
+        }
+    }
+
+    /**
+     * Returns the update rule to use for a batch update of the dense state,
+     * or null if the neurons do not all share one update rule class or the
+     * rule does not support batch updates. Rules can be changed on
+     * individual neurons at any time, so this is checked on each update.
+     *
+     * @return the shared rule, or null if batch update can't be used
+     */
+    private NeuronUpdateRule getBatchRule() {
+        Neuron[] neurons = denseState.getNeurons();
+        if (neurons.length == 0) {
+            return null;
+        }
+        NeuronUpdateRule rule = neurons[0].getUpdateRule();
+        if (!rule.isBatchUpdateSupported()) {
+            return null;
+        }
+        Class<?> ruleClass = rule.getClass();
+        for (int i = 1; i < neurons.length; i++) {
+            if (neurons[i].getUpdateRule().getClass() != ruleClass) {
+                return null;
+            }
+        }
+        return rule;
+    }
+
+    /**
+     * Sets whether this group is in dense mode. In dense mode the main state
+     * variables of the neurons in this group (activation, buffer, input value,
+     * spike, clamping) are stored in primitive arrays owned by the group,
+     * rather than in arrays of each neuron's own. This reduces memory traffic
+     * when updating very large groups. Existing update rules work unchanged.
+     * Compressed synapse groups require a dense target group, so leaving
+     * dense mode expands any incoming compressed synapse groups.
+     *
+     * @param denseMode true to store neuron state in the group's arrays, false
+     *                  to store it per neuron
+     */
+    public void setDenseMode(boolean denseMode) {
+        this.denseMode = denseMode;
+        if (denseMode) {
+            rebuildDenseState();
+        } else {
+            for (SynapseGroup sg : incomingSgs) {
+                sg.setCompressed(false);
+            }
+            releaseDenseState();
+        }
+    }
+
+    /**
+     * Re-create the synapses of any compressed synapse groups attached to this
+     * group. Called before neurons are removed, since the compressed weights
+     * are indexed by position in the group.
+     */
+    private void expandCompressedSynapseGroups() {
+        for (SynapseGroup sg : incomingSgs) {
+            sg.setCompressed(false);
+        }
+        for (SynapseGroup sg : outgoingSgs) {
+            sg.setCompressed(false);
+        }
+    }
+
+    public boolean isDenseMode() {
+        return denseMode;
+    }
+
+    /**
+     * @return the array state backing this group's neurons, or null if the
+     * group is not in dense mode.
+     */
+    public DenseNeuronState getDenseState() {
+        if (denseStateStale) {
+            rebuildDenseState();
+        }
+        return denseState;
+    }
+
+    /**
+     * Re-create the dense state, e.g. after neurons have been added or
+     * removed.
+     */
+    private void rebuildDenseState() {
+        releaseDenseState();
+        denseStateStale = false;
+        if (!neuronList.isEmpty()) {
+            denseState = new DenseNeuronState(neuronList);
+        }
+    }
+
+    /**
+     * Give each neuron a state of its own again and drop the group's arrays.
+     */
+    private void releaseDenseState() {
+        if (denseState != null) {
+            denseState.detach();
+            denseState = null;
+        }
+    }
+
+    /**
+     * Perform operations required before saving a neuron group. In dense mode
+     * each neuron is given a state of its own, so that it is saved with the
+     * neuron.
+     */
+    public void preSaveInit() {
+        releaseDenseState();
+    }
+
+    /**
+     * Returns the group to a usable state after a save is performed.
+     */
+    public void postSaveReInit() {
+        if (denseMode) {
+            rebuildDenseState();
+        }
+    }
+
+    /**
+     * Perform operations required after opening a neuron group.
+     */
+    public void postUnmarshallingInit() {
+        changeSupport = new PropertyChangeSupport(this);
+        if (denseMode) {
+            rebuildDenseState();
+        }
+    }
+
     /**
      * Node positions within group changed and GUI should be notified of this
      * change.
@@ -649,6 +930,12 @@ public class NeuronGroup extends Group implements CopyableGroup<NeuronGroup> {
         if (fireEvent) {
             resetSubsamplingIndices();
         }
+        if (denseMode) {
+            // Neurons already in the group keep viewing the old arrays, and
+            // the new one its own fields, until the state is rebuilt
+            denseStateStale = true;
+        }
+        fireNeuronListChanged();
     }
 
     /**
@@ -666,17 +953,33 @@ public class NeuronGroup extends Group implements CopyableGroup<NeuronGroup> {
      * @param toDelete the neuron to delete
      */
     public void removeNeuron(Neuron toDelete) {
+        expandCompressedSynapseGroups();
+        releaseDenseState();
         neuronList.remove(toDelete);
         if (isEmpty()) {
             delete();
+        } else if (denseMode) {
+            rebuildDenseState();
         }
         resetSubsamplingIndices();
+        fireNeuronListChanged();
+    }
+
+    /**
+     * Notify listeners that neurons were added to or removed from this group.
+     */
+    private void fireNeuronListChanged() {
+        if (changeSupport != null) {
+            changeSupport.firePropertyChange("neuronListChanged", null, null);
+        }
     }
 
     /**
      * Removes all neurons with no incoming or outgoing synapses from the group.
      */
     public void prune() {
+        expandCompressedSynapseGroups();
+        releaseDenseState();
         Iterator<Neuron> reaper = neuronList.iterator();
         while (reaper.hasNext()) {
             Neuron n = reaper.next();
@@ -684,6 +987,10 @@ public class NeuronGroup extends Group implements CopyableGroup<NeuronGroup> {
                 reaper.remove();
             }
         }
+        if (denseMode) {
+            rebuildDenseState();
+        }
+        fireNeuronListChanged();
     }
 
     @Override
@@ -710,6 +1017,10 @@ public class NeuronGroup extends Group implements CopyableGroup<NeuronGroup> {
      */
     @Consumable(idMethod = "getId")
     public void setInputValues(double[] inputs) {
+        if (getDenseState() != null) {
+            System.arraycopy(inputs, 0, denseState.getInputs(), 0, Math.min(inputs.length, size()));
+            return;
+        }
         for (int i = 0, n = size(); i < n; i++) {
             if (i >= inputs.length) {
                 break;
@@ -723,12 +1034,20 @@ public class NeuronGroup extends Group implements CopyableGroup<NeuronGroup> {
      * of the items in the array matches the order of items in the neuronlist.
      * <p>
      * Does not throw an exception if the provided input array and neuron list
-     * do not match in size.
+     * do not match in size. In dense mode the values are copied in one pass
+     * and, if any of them changed, a single neurons updated event is fired
+     * rather than one event per neuron.
      *
      * @param inputs the input vector as a double array.
      */
     @Consumable(idMethod = "getId")
     public void setActivations(double[] inputs) {
+        if (getDenseState() != null) {
+            if (denseState.setActivations(inputs, false)) {
+                getParentNetwork().fireNeuronsUpdated(neuronList);
+            }
+            return;
+        }
         for (int i = 0, n = size(); i < n; i++) {
             if (i >= inputs.length) {
                 break;
@@ -743,12 +1062,20 @@ public class NeuronGroup extends Group implements CopyableGroup<NeuronGroup> {
      * neuronlist.
      * <p>
      * Does not throw an exception if the provided input array and neuron list
-     * do not match in size.
+     * do not match in size. In dense mode the values are copied in one pass
+     * and, if any of them changed, a single neurons updated event is fired
+     * rather than one event per neuron.
      *
      * @param inputs the input vector as a double array.
      */
     @Consumable(idMethod = "getId")
     public void forceSetActivations(double[] inputs) {
+        if (getDenseState() != null) {
+            if (denseState.setActivations(inputs, true)) {
+                getParentNetwork().fireNeuronsUpdated(neuronList);
+            }
+            return;
+        }
         for (int i = 0, n = size(); i < n; i++) {
             if (i >= inputs.length) {
                 break;
@@ -764,6 +1091,9 @@ public class NeuronGroup extends Group implements CopyableGroup<NeuronGroup> {
      */
     @Producible(idMethod = "getId", arrayDescriptionMethod = "getLabelArray")
     public double[] getActivations() {
+        if (getDenseState() != null) {
+            return denseState.getActivations().clone();
+        }
         double[] retArray = new double[neuronList.size()];
         int i = 0;
         for (Neuron neuron : neuronList) {
@@ -1412,7 +1742,10 @@ public class NeuronGroup extends Group implements CopyableGroup<NeuronGroup> {
      * Clear the neuron list.
      */
     public void clearNeuronList() {
+        expandCompressedSynapseGroups();
+        releaseDenseState();
         neuronList.clear();
+        fireNeuronListChanged();
     }
 
     /**
@@ -1563,11 +1896,14 @@ public class NeuronGroup extends Group implements CopyableGroup<NeuronGroup> {
      * Release the neurons as loose neurons.
      */
     public void releaseNeurons() {
+        expandCompressedSynapseGroups();
+        releaseDenseState();
         for (Neuron neuron : neuronList) {
             getParentNetwork().addNeuron(neuron);
         }
         neuronList.clear();
         stopRecording();
+        fireNeuronListChanged();
         // NOT YET WORKING.
         //TODO: Fire special event which results in new pnodes being created in the canvas.
     }
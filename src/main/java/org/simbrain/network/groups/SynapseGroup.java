@@ -15,14 +15,23 @@ package org.simbrain.network.groups;
 import org.simbrain.network.connections.ConnectionStrategy;
 import org.simbrain.network.connections.ConnectionUtilities;
 import org.simbrain.network.connections.Sparse;
+import org.simbrain.network.core.DenseNeuronState;
 import org.simbrain.network.core.Network;
+import org.simbrain.network.core.NetworkUpdateAction;
+import org.simbrain.network.core.NetworkUpdateManager;
 import org.simbrain.network.core.Neuron;
+import org.simbrain.network.core.SparseWeightMatrix;
+import org.simbrain.network.core.SpikeAccumulator;
 import org.simbrain.network.core.Synapse;
 import org.simbrain.network.core.SynapseUpdateRule;
 import org.simbrain.network.synapse_update_rules.StaticSynapseRule;
+import org.simbrain.network.synapse_update_rules.spikeresponders.JumpAndDecay;
+import org.simbrain.network.synapse_update_rules.spikeresponders.NonResponder;
 import org.simbrain.network.synapse_update_rules.spikeresponders.SpikeResponder;
+import org.simbrain.network.util.SimnetUtils;
 import org.simbrain.network.util.io_utilities.GroupDeserializer;
 import org.simbrain.network.util.io_utilities.GroupSerializer;
+import org.simbrain.network.update_actions.SpikePropagationUpdate;
 import org.simbrain.network.util.io_utilities.GroupSerializer.Precision;
 import org.simbrain.util.SimbrainConstants;
 import org.simbrain.util.SimbrainConstants.Polarity;
@@ -30,6 +39,7 @@ import org.simbrain.util.Utils;
 import org.simbrain.util.math.ProbDistributions.UniformDistribution;
 import org.simbrain.util.math.ProbabilityDistribution;
 import org.simbrain.util.propertyeditor.EditableObject;
+import umontreal.iro.lecuyer.rng.RandomStream;
 
 import java.beans.PropertyChangeSupport;
 import java.io.FileWriter;
@@ -243,6 +253,36 @@ public class SynapseGroup extends Group {
      */
     private boolean useFullRepOnSave = false;
 
+    /**
+     * If true the weights of this group are stored in {@link #sparseMatrix}
+     * rather than in synapse objects. See {@link #setCompressed(boolean)}.
+     */
+    private boolean compressed = false;
+
+    /**
+     * Compressed sparse row weights used when {@link #compressed} is true.
+     * Rows are source neurons and columns are target neurons.
+     */
+    private transient SparseWeightMatrix sparseMatrix;
+
+    /**
+     * Scratch array of source activations, used by compressed groups whose
+     * source group is not in dense mode.
+     */
+    private transient double[] sourceActivations;
+
+    /**
+     * If true this group is compressed and spikes are propagated through it
+     * by event. See {@link #setEventDriven(boolean)}.
+     */
+    private boolean eventDriven = false;
+
+    /**
+     * Summed post synaptic responses of the target neurons, used when
+     * {@link #eventDriven} is true.
+     */
+    private transient SpikeAccumulator spikeAccumulator;
+
     /**
      * Completely creates a synapse group between the two neuron groups with all
      * default parameters. This method creates the individual connections.
@@ -398,6 +438,74 @@ public class SynapseGroup extends Group {
         }
     }
 
+    /**
+     * Returns a deep copy of this group between copies of its source and
+     * target groups, which must have their neurons in the same order as the
+     * originals. Synapses are copied with their learning rules, spike
+     * responders and ids; compressed and event-driven groups are copied in
+     * compressed form, along with any spikes in transit. The copy is not added
+     * to the network.
+     *
+     * @param newSource copy of the source neuron group
+     * @param newTarget copy of the target neuron group
+     * @return the copy
+     */
+    public SynapseGroup deepCopy(final NeuronGroup newSource, final NeuronGroup newTarget) {
+        SynapseGroup copy = new SynapseGroup(newSource, newTarget, connectionManager);
+        copy.setLabel(getLabel());
+        copy.excitatoryPrototype = Synapse.copyTemplateSynapse(excitatoryPrototype);
+        copy.inhibitoryPrototype = Synapse.copyTemplateSynapse(inhibitoryPrototype);
+        copy.exciteRand = exciteRand == null ? null : exciteRand.deepCopy();
+        copy.inhibRand = inhibRand == null ? null : inhibRand.deepCopy();
+        copy.displaySynapses = displaySynapses;
+        copy.inStatic = inStatic;
+        copy.exStatic = exStatic;
+        copy.useGroupLevelSettings = useGroupLevelSettings;
+        copy.useFullRepOnSave = useFullRepOnSave;
+        newSource.addOutgoingSg(copy);
+        newTarget.addIncomingSg(copy);
+        if (compressed) {
+            copy.sparseMatrix = new SparseWeightMatrix(sparseMatrix);
+            copy.compressed = true;
+            if (eventDriven) {
+                copy.spikeAccumulator = new SpikeAccumulator(spikeAccumulator, copy.sparseMatrix);
+                copy.eventDriven = true;
+            }
+        } else {
+            Network newParent = newSource.getParentNetwork();
+            Map<Neuron, Neuron> neurons = new HashMap<Neuron, Neuron>();
+            mapNeurons(sourceNeuronGroup, newSource, neurons);
+            mapNeurons(targetNeuronGroup, newTarget, neurons);
+            for (Synapse s : exSynapseSet) {
+                Synapse c = new Synapse(newParent, neurons.get(s.getSource()), neurons.get(s.getTarget()), s.getLearningRule().deepCopy(), s);
+                copy.addExcitatorySynapseUnsafe(c);
+                c.setId(s.getId());
+            }
+            for (Synapse s : inSynapseSet) {
+                Synapse c = new Synapse(newParent, neurons.get(s.getSource()), neurons.get(s.getTarget()), s.getLearningRule().deepCopy(), s);
+                copy.addInhibitorySynapseUnsafe(c);
+                c.setId(s.getId());
+            }
+        }
+        copy.excitatoryRatio = excitatoryRatio;
+        return copy;
+    }
+
+    /**
+     * Map each neuron of a group to the neuron at the same index in a copy of
+     * it.
+     */
+    private static void mapNeurons(NeuronGroup group, NeuronGroup copy, Map<Neuron, Neuron> map) {
+        List<Neuron> originals = group.getNeuronListUnsafe();
+        List<Neuron> copies = copy.getNeuronListUnsafe();
+        if (originals.size() != copies.size()) {
+            throw new IllegalArgumentException("Neuron group " + copy.getLabel() + " is not a copy of " + group.getLabel() + ".");
+        }
+        for (int i = 0; i < originals.size(); i++) {
+            map.put(originals.get(i), copies.get(i));
+        }
+    }
+
     /**
      * Pre-allocates, that is sets the initial capacity of the arraylist
      * containing this synapse group's synapses. This allows expectedNumber of
@@ -435,6 +543,9 @@ public class SynapseGroup extends Group {
      * be called to sort synapses into their appropriate sets.
      */
     public void revalidateSynapseSets() {
+        if (compressed) {
+            return;
+        }
         Iterator<Synapse> exIterator = exSynapseSet.iterator();
         ArrayList<Synapse> exSwitches = new ArrayList<Synapse>(exSynapseSet.size());
         while (exIterator.hasNext()) {
@@ -498,11 +609,17 @@ public class SynapseGroup extends Group {
 
     @Override
     public int size() {
+        if (compressed) {
+            return sparseMatrix.getNumNonZero();
+        }
         return exSynapseSet.size() + inSynapseSet.size();
     }
 
     @Override
     public boolean isEmpty() {
+        if (compressed) {
+            return sparseMatrix.getNumNonZero() == 0;
+        }
         return exSynapseSet.isEmpty() && inSynapseSet.isEmpty();
     }
 
@@ -600,6 +717,7 @@ public class SynapseGroup extends Group {
      * Removes all synapses with weight 0 from the group.
      */
     public void prune() {
+        expand();
         for (Synapse s : this.getAllSynapses()) {
             if (s.getStrength() == 0) {
                 removeSynapse(s);
@@ -612,6 +730,12 @@ public class SynapseGroup extends Group {
      * synapses in this group.
      */
     public void clear() {
+        boolean wasEventDriven = eventDriven;
+        compressed = false;
+        eventDriven = false;
+        sparseMatrix = null;
+        sourceActivations = null;
+        spikeAccumulator = null;
         for (Synapse toDelete : exSynapseSet) {
             // Remove references to this synapse from parent neurons
             toDelete.getSource().removeEfferent(toDelete);
@@ -630,6 +754,9 @@ public class SynapseGroup extends Group {
         }
         exSynapseSet.clear();
         inSynapseSet.clear();
+        if (wasEventDriven) {
+            fireEventDrivenChanged();
+        }
     }
 
     /**
@@ -642,19 +769,33 @@ public class SynapseGroup extends Group {
      *                based on the parameters of this group.
      */
     public void addNewSynapse(final Synapse synapse) {
+        addNewSynapse(synapse, null);
+    }
+
+    /**
+     * Adds a new synapse as in {@link #addNewSynapse(Synapse)}, drawing its
+     * polarity and strength from the given stream so that connection
+     * strategies with a fixed seed are reproducible.
+     *
+     * @param synapse the blank synapse to be added and assigned new values
+     *                based on the parameters of this group.
+     * @param stream  the stream to draw from, or null for the default
+     *                generators
+     */
+    public void addNewSynapse(final Synapse synapse, final RandomStream stream) {
         if (synapse.getSource().isPolarized()) {
             if (Polarity.EXCITATORY.equals(synapse.getSource().getPolarity())) {
-                addNewExcitatorySynapse(synapse);
+                addNewExcitatorySynapse(synapse, stream);
             } else if (Polarity.INHIBITORY.equals(synapse.getSource().getPolarity())) {
-                addNewInhibitorySynapse(synapse);
+                addNewInhibitorySynapse(synapse, stream);
             }
         } else {
-            double rand = Math.random();
+            double rand = stream == null ? Math.random() : stream.nextDouble();
             double correctionTerm = size() == 0 ? 0 : excitatoryRatio - (exSynapseSet.size() / (double) size());
             if (rand < (excitatoryRatio + correctionTerm)) {
-                addNewExcitatorySynapse(synapse);
+                addNewExcitatorySynapse(synapse, stream);
             } else {
-                addNewInhibitorySynapse(synapse);
+                addNewInhibitorySynapse(synapse, stream);
             }
         }
     }
@@ -665,10 +806,22 @@ public class SynapseGroup extends Group {
      *                of this group.
      */
     public void addNewExcitatorySynapse(final Synapse synapse) {
+        addNewExcitatorySynapse(synapse, null);
+    }
+
+    /**
+     * @param synapse the blank excitatory synapse which will be added to the
+     *                group and have its parameters set based on the parameters
+     *                of this group.
+     * @param stream  the stream to draw the strength from, or null for the
+     *                randomizer's default generator
+     */
+    public void addNewExcitatorySynapse(final Synapse synapse, final RandomStream stream) {
+        expand();
         synapse.setId(getParentNetwork().getSynapseIdGenerator().getId());
         synapse.setParentGroup(this);
         if (exciteRand != null) {
-            synapse.setStrength(exciteRand.getRandom());
+            synapse.setStrength(stream == null ? exciteRand.getRandom() : exciteRand.getRandom(stream));
         } else {
             synapse.setStrength(ConnectionUtilities.DEFAULT_EXCITATORY_STRENGTH);
         }
@@ -690,10 +843,22 @@ public class SynapseGroup extends Group {
      *                of this group.
      */
     public void addNewInhibitorySynapse(final Synapse synapse) {
+        addNewInhibitorySynapse(synapse, null);
+    }
+
+    /**
+     * @param synapse the blank inhibitory synapse which will be added to the
+     *                group and have its parameters set based on the parameters
+     *                of this group.
+     * @param stream  the stream to draw the strength from, or null for the
+     *                randomizer's default generator
+     */
+    public void addNewInhibitorySynapse(final Synapse synapse, final RandomStream stream) {
+        expand();
         synapse.setId(getParentNetwork().getSynapseIdGenerator().getId());
         synapse.setParentGroup(this);
         if (inhibRand != null) {
-            synapse.setStrength(inhibRand.getRandom());
+            synapse.setStrength(stream == null ? inhibRand.getRandom() : inhibRand.getRandom(stream));
         } else {
             synapse.setStrength(ConnectionUtilities.DEFAULT_INHIBITORY_STRENGTH);
         }
@@ -743,6 +908,7 @@ public class SynapseGroup extends Group {
      * @param synapse the synapse to add.
      */
     public void addExcitatorySynapseUnsafe(final Synapse synapse) {
+        expand();
         exSynapseSet.add(synapse);
         excitatoryRatio = exSynapseSet.size() / (double) size();
         if (getParentNetwork() != null) {
@@ -760,6 +926,7 @@ public class SynapseGroup extends Group {
      * @param synapse the synapse to add.
      */
     public void addInhibitorySynapseUnsafe(final Synapse synapse) {
+        expand();
         inSynapseSet.add(synapse);
         excitatoryRatio = exSynapseSet.size() / (double) size();
         if (getParentNetwork() != null) {
@@ -788,6 +955,7 @@ public class SynapseGroup extends Group {
         if (excitatoryRatio > 1 || excitatoryRatio < 0) {
             throw new IllegalArgumentException("The parameter" + " 'excitatoryRatio' passed to setExcitatoryRatio" + " must be on [0, 1]");
         }
+        expand();
 
         // Return if there is no change or the group is empty.
         if (excitatoryRatio == getExcitatoryRatioPrecise()) {
@@ -865,34 +1033,143 @@ public class SynapseGroup extends Group {
      * excitatory synapses divided by the total.
      */
     public double getExcitatoryRatioPrecise() {
-        return exSynapseSet.size() / (double) size();
+        return getNumExcitatory() / (double) size();
+    }
+
+    /**
+     * @return the number of excitatory synapses. For compressed groups weights
+     * of zero or above count as excitatory.
+     */
+    private int getNumExcitatory() {
+        if (compressed) {
+            int numEx = 0;
+            for (double w : sparseMatrix.getWeights()) {
+                if (w >= 0) {
+                    numEx++;
+                }
+            }
+            return numEx;
+        }
+        return exSynapseSet.size();
     }
 
     /**
      * @return a flat list representation of all the synapses in this synapse
-     * group. This list is a defensive copy.
+     * group. This list is a defensive copy. A compressed group holds no
+     * synapse objects, so for it new synapses are built from its weights on
+     * each call, see {@link #addCompressedSynapses(Collection, boolean)}.
      */
     public List<Synapse> getAllSynapses() {
-        ArrayList<Synapse> flatList = new ArrayList<Synapse>(size());
-        flatList.addAll(getExcitatorySynapses());
-        flatList.addAll(getInhibitorySynapses());
+        if (compressed) {
+            List<Synapse> flatList = new ArrayList<Synapse>(sparseMatrix.getNumNonZero());
+            addCompressedSynapses(flatList, true);
+            addCompressedSynapses(flatList, false);
+            return flatList;
+        }
+        ArrayList<Synapse> flatList = new ArrayList<Synapse>(exSynapseSet.size() + inSynapseSet.size());
+        flatList.addAll(exSynapseSet);
+        flatList.addAll(inSynapseSet);
         return flatList;
     }
 
+    /**
+     * @return a copy of the set of excitatory synapses. For compressed groups
+     * these are built from the weights of zero or above.
+     */
     public Set<Synapse> getExcitatorySynapses() {
+        if (compressed) {
+            Set<Synapse> synapses = new HashSet<Synapse>();
+            addCompressedSynapses(synapses, true);
+            return synapses;
+        }
         return new HashSet<Synapse>(exSynapseSet);
     }
 
+    /**
+     * @return a copy of the set of inhibitory synapses. For compressed groups
+     * these are built from the negative weights.
+     */
     public Set<Synapse> getInhibitorySynapses() {
+        if (compressed) {
+            Set<Synapse> synapses = new HashSet<Synapse>();
+            addCompressedSynapses(synapses, false);
+            return synapses;
+        }
         return new HashSet<Synapse>(inSynapseSet);
     }
 
+    /**
+     * Add synapses presenting the weights of this compressed group to a
+     * collection. The synapses take their settings from the prototype of
+     * their polarity, as they do in {@link #expand()}, and hold the weights
+     * as they were when this was called. They are not attached to their
+     * source and target neurons, so they take no part in updates, but setting
+     * their strength sets the weight in the sparse matrix.
+     *
+     * @param synapses   the collection to add to
+     * @param excitatory true to add weights of zero or above, false to add
+     *                   negative weights
+     */
+    private void addCompressedSynapses(Collection<Synapse> synapses, boolean excitatory) {
+        List<Neuron> srcList = sourceNeuronGroup.getNeuronListUnsafe();
+        List<Neuron> tarList = targetNeuronGroup.getNeuronListUnsafe();
+        int[] rowPtr = sparseMatrix.getRowPtr();
+        int[] colIdx = sparseMatrix.getColIdx();
+        double[] weights = sparseMatrix.getWeights();
+        Synapse prototype = excitatory ? excitatoryPrototype : inhibitoryPrototype;
+        for (int row = 0; row < sparseMatrix.getNumRows(); row++) {
+            for (int k = rowPtr[row]; k < rowPtr[row + 1]; k++) {
+                if ((weights[k] >= 0) == excitatory) {
+                    CompressedSynapse synapse = new CompressedSynapse(prototype, srcList.get(row), tarList.get(colIdx[k]), weights, k);
+                    synapse.setParentGroup(this);
+                    synapses.add(synapse);
+                }
+            }
+        }
+    }
+
+    /**
+     * A synapse presenting one weight of a compressed group, see
+     * {@link #addCompressedSynapses(Collection, boolean)}.
+     */
+    private static class CompressedSynapse extends Synapse {
+
+        /**
+         * Weights of the sparse matrix.
+         */
+        private final double[] weights;
+
+        /**
+         * Index of this synapse's weight.
+         */
+        private final int index;
+
+        CompressedSynapse(Synapse prototype, Neuron source, Neuron target, double[] weights, int index) {
+            super(prototype, source, target);
+            this.weights = weights;
+            this.index = index;
+            forceSetStrength(weights[index]);
+        }
+
+        @Override
+        public void forceSetStrength(double wt) {
+            super.forceSetStrength(wt);
+            // Null while the superclass constructor copies the prototype
+            if (weights != null) {
+                weights[index] = wt;
+            }
+        }
+    }
+
     /**
      * Return weight strengths as a double vector.
      *
      * @return weights
      */
     public double[] getWeightVector() {
+        if (compressed) {
+            return sparseMatrix.getWeights().clone();
+        }
         double[] retArray = new double[size()];
         int i = 0;
         for (Synapse synapse : exSynapseSet) {
@@ -908,6 +1185,9 @@ public class SynapseGroup extends Group {
      * @return the strengths of all the inhibitory synapses as a double array
      */
     public double[] getInhibitoryStrengths() {
+        if (compressed) {
+            return Arrays.stream(sparseMatrix.getWeights()).filter(w -> w < 0).toArray();
+        }
         double[] retArray = new double[inSynapseSet.size()];
         int i = 0;
         for (Synapse synapse : inSynapseSet) {
@@ -920,6 +1200,9 @@ public class SynapseGroup extends Group {
      * @return the strengths of all the excitatory synapses as a double array
      */
     public double[] getExcitatoryStrengths() {
+        if (compressed) {
+            return Arrays.stream(sparseMatrix.getWeights()).filter(w -> w >= 0).toArray();
+        }
         double[] retArray = new double[exSynapseSet.size()];
         int i = 0;
         for (Synapse synapse : exSynapseSet) {
@@ -940,6 +1223,17 @@ public class SynapseGroup extends Group {
      */
     public double[][] getWeightMatrix() {
         double[][] weightMatrix = new double[getSourceNeurons().size()][getTargetNeurons().size()];
+        if (compressed) {
+            int[] rowPtr = sparseMatrix.getRowPtr();
+            int[] colIdx = sparseMatrix.getColIdx();
+            double[] weights = sparseMatrix.getWeights();
+            for (int row = 0; row < sparseMatrix.getNumRows(); row++) {
+                for (int k = rowPtr[row]; k < rowPtr[row + 1]; k++) {
+                    weightMatrix[row][colIdx[k]] = weights[k];
+                }
+            }
+            return weightMatrix;
+        }
         int i = 0;
         int j = 0;
         // Create numbers for neurons... less expensive than constant
@@ -979,6 +1273,18 @@ public class SynapseGroup extends Group {
      */
     public double[][] getNumericIndices() {
         double[][] pairs = new double[size()][3];
+        if (compressed) {
+            // Rows are sources and columns are sorted, so already in order
+            int[] rowPtr = sparseMatrix.getRowPtr();
+            int[] colIdx = sparseMatrix.getColIdx();
+            double[] weights = sparseMatrix.getWeights();
+            for (int row = 0; row < sparseMatrix.getNumRows(); row++) {
+                for (int k = rowPtr[row]; k < rowPtr[row + 1]; k++) {
+                    pairs[k] = new double[] {row, colIdx[k], weights[k]};
+                }
+            }
+            return pairs;
+        }
         int i = 0;
         int j = 0;
         // Create numbers for neurons... less expensive than constant
@@ -1239,6 +1545,7 @@ public class SynapseGroup extends Group {
      * #revalidateSynapseSets()} first.
      */
     public void randomizeExcitatoryConnections() {
+        expand();
         ConnectionUtilities.randomizeExcitatorySynapsesUnsafe(exSynapseSet, exciteRand);
     }
 
@@ -1250,6 +1557,7 @@ public class SynapseGroup extends Group {
      * #revalidateSynapseSets()} first.
      */
     public void randomizeInhibitoryConnections() {
+        expand();
         ConnectionUtilities.randomizeInhibitorySynapsesUnsafe(inSynapseSet, inhibRand);
     }
 
@@ -1312,7 +1620,7 @@ public class SynapseGroup extends Group {
      * @return the ratio of synapses in this group that are excitatory.
      */
     public double calculateExcitatoryRatio() {
-        excitatoryRatio = exSynapseSet.size() / (double) size();
+        excitatoryRatio = getNumExcitatory() / (double) size();
         if (Double.isNaN(excitatoryRatio)) {
             return 0;
         }
@@ -1512,7 +1820,8 @@ public class SynapseGroup extends Group {
     }
 
     public double getIncrement(Polarity polarity) {
-        return getProperty(Synapse::getIncrement, polarity);
+        Double increment = getProperty(Synapse::getIncrement, polarity);
+        return increment == null ? Double.NaN : increment;
     }
 
     public String getLearningRuleDescription(Polarity polarity) {
@@ -1564,17 +1873,19 @@ public class SynapseGroup extends Group {
                 return action.apply(inhibitoryPrototype);
             }
         } else {
-            synapses = getAllSynapses();
-            if (synapses.isEmpty()) {
-                return null;
+            if (compressed || isEmpty()) {
+                // Compressed synapses conform to the prototypes
+                T exValue = action.apply(excitatoryPrototype);
+                return Objects.equals(exValue, action.apply(inhibitoryPrototype)) ? exValue : null;
             }
+            synapses = getAllSynapses();
         }
 
         // Return null if they are inconsistent, or the value if they are consistent
         Iterator<Synapse> synIter = synapses.iterator();
         T first = action.apply(synIter.next());
         while (synIter.hasNext()) {
-            if (!first.equals(action.apply(synIter.next()))) {
+            if (!Objects.equals(first, action.apply(synIter.next()))) {
                 return null;
             }
         }
@@ -1591,6 +1902,7 @@ public class SynapseGroup extends Group {
      * @param polarity which synapses to apply the lambda to
      */
     public void setProperty(Consumer<Synapse> action, Polarity polarity) {
+        expand();
         if(polarity == Polarity.EXCITATORY) {
             exSynapseSet.stream().forEach(action);
             action.accept(excitatoryPrototype);
@@ -1624,11 +1936,11 @@ public class SynapseGroup extends Group {
      * pre-save init.
      */
     public void preSaveInit() {
-        if (isUseFullRepOnSave()) {
+        if (isUseFullRepOnSave() && !compressed) {
             preSaveInitFull();
             return;
         }
-        if (isUseGroupLevelSettings()) {
+        if (isUseGroupLevelSettings() || compressed) {
             long[] rowCompression = getRowCompressedMatrixRepresentation();
             // long start = System.nanoTime();
             // System.out.println("Begin Serialization... ");
@@ -1649,6 +1961,29 @@ public class SynapseGroup extends Group {
         }
     }
 
+    /**
+     * Pre-save init for the binary network format (see {@link
+     * org.simbrain.network.util.io_utilities.NetworkBinarySerializer}). Group
+     * level weights are stored using the layout of {@link
+     * #getSparseCode(Precision)}, and synapses with individual settings using
+     * the full representation, so that no synapse objects are serialized.
+     *
+     * @param precision precision of the stored weights
+     */
+    public void preSaveInitBinary(Precision precision) {
+        if (isUseGroupLevelSettings() || compressed) {
+            compressedMatrixRep = getSparseCode(precision).array();
+            fullSynapseRep = null;
+            inTemp = inSynapseSet;
+            exTemp = exSynapseSet;
+            inSynapseSet = null;
+            exSynapseSet = null;
+        } else {
+            compressedMatrixRep = null;
+            preSaveInitFull();
+        }
+    }
+
     /**
      * The pre-save init to be used when {@link #fullSynapseRep} is set to true.
      */
@@ -1695,12 +2030,14 @@ public class SynapseGroup extends Group {
      * process sets the synapse sets to null.
      */
     public void postSaveReInit() {
-        if (isUseGroupLevelSettings()) {
+        if (inTemp != null || exTemp != null) {
             inSynapseSet = inTemp;
             exSynapseSet = exTemp;
             inTemp = null;
             exTemp = null;
         }
+        compressedMatrixRep = null;
+        fullSynapseRep = null;
     }
 
     /**
@@ -1710,8 +2047,14 @@ public class SynapseGroup extends Group {
 
         changeSupport = new PropertyChangeSupport(this);
 
+        // Synapses are re-created below and compressed again at the end
+        boolean wasCompressed = compressed;
+        boolean wasEventDriven = eventDriven;
+        compressed = false;
+        eventDriven = false;
+
         // Rebuild weight matrix if needed.
-        if (this.isUseGroupLevelSettings() && compressedMatrixRep != null) {
+        if ((this.isUseGroupLevelSettings() || wasCompressed) && compressedMatrixRep != null) {
             exSynapseSet = new HashSet<Synapse>();
             inSynapseSet = new HashSet<Synapse>();
             GroupDeserializer.reconstructCompressedSynapseStrengths(this.compressedMatrixRep, this);
@@ -1765,6 +2108,460 @@ public class SynapseGroup extends Group {
         if (connectionManager instanceof Sparse) {
             ((Sparse) connectionManager).setPermitDensityEditing(false);
         }
+        if (wasEventDriven) {
+            makeEventDriven();
+        } else if (wasCompressed) {
+            compress();
+        }
+    }
+
+    /**
+     * Sets whether the weights of this group are stored in a compressed
+     * sparse row matrix instead of in individual synapse objects. When
+     * compressed, the synapses are removed from the network and the net input
+     * to the target group is computed as a single sparse matrix-vector product
+     * on each update, which greatly reduces memory use for large groups. The
+     * target group is put in dense mode, since the products are accumulated
+     * in its arrays. Update rules which read individual afferent synapses
+     * (rather than net input) will not see compressed weights.
+     * <p>
+     * Only groups whose synapses are enabled, static or frozen, have no delay
+     * and use no spike responder can be compressed. The synapses a compressed
+     * group reports (see {@link #getAllSynapses()}) are built from its weights
+     * and are not part of the network; real synapses are only created again
+     * when this is set to false, or when the group is
+     * edited in a way that needs them (e.g. synapse properties are set or
+     * synapses are added), in which case the group returns to the
+     * uncompressed form with its synapses conforming to the prototype
+     * synapses and given new ids.
+     *
+     * @param compressed true to store weights in a sparse matrix, false to
+     *                   store them in synapse objects
+     * @throws IllegalStateException if the synapses can't be compressed
+     */
+    public void setCompressed(boolean compressed) {
+        if (compressed == this.compressed) {
+            return;
+        }
+        if (compressed) {
+            compress();
+        } else {
+            expand();
+        }
+    }
+
+    public boolean isCompressed() {
+        return compressed;
+    }
+
+    /**
+     * @return the compressed weights of this group, or null if it is not
+     * compressed
+     */
+    public SparseWeightMatrix getSparseMatrix() {
+        return sparseMatrix;
+    }
+
+    /**
+     * Returns the weights of this group as a compressed sparse row matrix,
+     * without building a dense matrix. If the group is compressed this is its
+     * backing matrix, otherwise a copy of the current weights.
+     *
+     * @return the weights, with rows indexed by source neuron and columns by
+     * target neuron
+     */
+    public SparseWeightMatrix getWeightsAsSparseMatrix() {
+        if (compressed) {
+            return sparseMatrix;
+        }
+        return toSparseMatrix(getAllSynapses());
+    }
+
+    /**
+     * Scale the weights of a recurrent group so that its weight matrix has
+     * the given spectral radius (largest eigenvalue modulus). The spectral
+     * radius is estimated from the sparse weights, see
+     * {@link SimnetUtils#findSpectralRadius(SparseWeightMatrix)}, so this takes
+     * time in proportion to the number of synapses rather than the cube of
+     * the number of neurons. Does nothing if all the weights are zero.
+     *
+     * @param spectralRadius the desired spectral radius
+     */
+    public void scaleSpectralRadius(double spectralRadius) {
+        if (!isRecurrent()) {
+            throw new IllegalStateException("Only the weights of a recurrent synapse group have a spectral radius.");
+        }
+        double current = SimnetUtils.findSpectralRadius(getWeightsAsSparseMatrix());
+        if (current == 0) {
+            return;
+        }
+        double scale = spectralRadius / current;
+        if (compressed) {
+            sparseMatrix.scale(scale);
+        } else {
+            for (Synapse synapse : getAllSynapses()) {
+                synapse.forceSetStrength(synapse.getStrength() * scale);
+            }
+        }
+    }
+
+    /**
+     * Add the weighted inputs from this compressed group to the provided
+     * array, one entry per target neuron, as a sparse matrix-vector product
+     * of the weights and the current source activations.
+     *
+     * @param targetInputs inputs to the target neurons, in target group order
+     */
+    public void addCompressedInputs(double[] targetInputs) {
+        if (eventDriven) {
+            double[] responses = spikeAccumulator.getResponses();
+            for (int j = 0; j < responses.length; j++) {
+                targetInputs[j] += responses[j];
+            }
+            return;
+        }
+        DenseNeuronState srcState = sourceNeuronGroup.getDenseState();
+        double[] activations;
+        if (srcState != null) {
+            activations = srcState.getActivations();
+        } else {
+            List<Neuron> srcList = sourceNeuronGroup.getNeuronListUnsafe();
+            if (sourceActivations == null || sourceActivations.length != srcList.size()) {
+                sourceActivations = new double[srcList.size()];
+            }
+            for (int i = 0, n = srcList.size(); i < n; i++) {
+                sourceActivations[i] = srcList.get(i).getActivation();
+            }
+            activations = sourceActivations;
+        }
+        sparseMatrix.multiplyAdd(activations, targetInputs);
+    }
+
+    /**
+     * Move the weights of this group's synapses in to a compressed sparse row
+     * matrix and remove the synapses from the network.
+     */
+    private void compress() {
+        List<Synapse> synapses = getAllSynapses();
+        for (Synapse s : synapses) {
+            if (!s.isEnabled() || s.getDelay() != 0 || !(s.getSpikeResponder() instanceof NonResponder) || !(s.isFrozen() || s.getLearningRule() instanceof StaticSynapseRule)) {
+                throw new IllegalStateException("Synapse group " + getLabel() + " cannot be compressed. All synapses must be" + " enabled, static or frozen, have no delay and no spike responder.");
+            }
+        }
+        conformPrototypes(synapses);
+        buildSparseMatrix(synapses);
+    }
+
+    /**
+     * Copy the settings shared by the provided synapses (all of this group's
+     * synapses) to the prototype synapses, so that synapses re-created from
+     * the sparse matrix by {@link #expand()} get the settings they had when
+     * the group was compressed. As in {@link #expand()}, synapses with
+     * negative weights are matched with the inhibitory prototype and the rest
+     * with the excitatory prototype. Only strengths are stored per synapse, so
+     * all other settings must agree among the synapses of each polarity.
+     *
+     * @param synapses the synapses of this group
+     * @throws IllegalStateException if synapses of one polarity differ in
+     *                               anything other than strength
+     */
+    private void conformPrototypes(List<Synapse> synapses) {
+        Synapse exReference = null;
+        Synapse inReference = null;
+        for (Synapse s : synapses) {
+            Synapse reference;
+            if (s.getStrength() < 0) {
+                reference = inReference == null ? (inReference = s) : inReference;
+            } else {
+                reference = exReference == null ? (exReference = s) : exReference;
+            }
+            if (!isSameSettings(reference, s)) {
+                throw new IllegalStateException("Synapse group " + getLabel() + " cannot be compressed because its synapses" + " have different settings. Only synapse strengths are stored in compressed form.");
+            }
+        }
+        if (exReference != null) {
+            copySettings(exReference, excitatoryPrototype);
+        }
+        if (inReference != null) {
+            copySettings(inReference, inhibitoryPrototype);
+        }
+    }
+
+    /**
+     * @return true if the two synapses agree in everything {@link #expand()}
+     * takes from the prototypes
+     */
+    private static boolean isSameSettings(Synapse a, Synapse b) {
+        if (a.isFrozen() != b.isFrozen() || a.isEnabled() != b.isEnabled() || a.getDelay() != b.getDelay() || a.getIncrement() != b.getIncrement() || a.getUpperBound() != b.getUpperBound() || a.getLowerBound() != b.getLowerBound() || a.getLearningRule().getClass() != b.getLearningRule().getClass() || a.getSpikeResponder().getClass() != b.getSpikeResponder().getClass()) {
+            return false;
+        }
+        if (a.getSpikeResponder() instanceof JumpAndDecay) {
+            JumpAndDecay jadA = (JumpAndDecay) a.getSpikeResponder();
+            JumpAndDecay jadB = (JumpAndDecay) b.getSpikeResponder();
+            return jadA.getJumpHeight() == jadB.getJumpHeight() && jadA.getBaseLine() == jadB.getBaseLine() && jadA.getTimeConstant() == jadB.getTimeConstant();
+        }
+        return true;
+    }
+
+    /**
+     * Copy everything {@link #expand()} takes from a prototype, from a synapse
+     * to that prototype.
+     */
+    private static void copySettings(Synapse from, Synapse prototype) {
+        prototype.setLearningRule(from.getLearningRule().deepCopy());
+        prototype.setFrozen(from.isFrozen());
+        prototype.setEnabled(from.isEnabled());
+        prototype.setDelay(from.getDelay());
+        prototype.setIncrement(from.getIncrement());
+        prototype.setUpperBound(from.getUpperBound());
+        prototype.setLowerBound(from.getLowerBound());
+        prototype.setSpikeResponder(from.getSpikeResponder());
+    }
+
+    /**
+     * Sets whether spikes are propagated through this group by event. In
+     * event-driven mode the group is compressed (see
+     * {@link #setCompressed(boolean)}), and on each update only the outgoing
+     * weights of source neurons which spiked are visited, their jumps being
+     * added to per-target responses (after any delay) which decay once per
+     * update. This is much faster than having every synapse compute its own
+     * response when few source neurons spike on each update. A
+     * {@link SpikePropagationUpdate} is added to the start of the network's
+     * update sequence if there is not one already.
+     * <p>
+     * Requires a spiking source group, and synapses which are enabled, static
+     * or frozen, and share one delay and one jump and decay spike responder.
+     * Responses to spikes are summed, so a spike arriving before the response
+     * to a previous spike has decayed adds to it rather than resetting it.
+     *
+     * @param eventDriven true to propagate spikes by event
+     * @throws IllegalStateException if the group does not meet the
+     *                               requirements above
+     */
+    public void setEventDriven(boolean eventDriven) {
+        if (eventDriven == this.eventDriven) {
+            return;
+        }
+        if (eventDriven) {
+            expand();
+            makeEventDriven();
+            NetworkUpdateManager updateManager = getParentNetwork().getUpdateManager();
+            for (NetworkUpdateAction action : updateManager.getActionList()) {
+                if (action instanceof SpikePropagationUpdate) {
+                    return;
+                }
+            }
+            updateManager.addAction(new SpikePropagationUpdate(getParentNetwork()), 0);
+        } else {
+            expand();
+        }
+    }
+
+    public boolean isEventDriven() {
+        return eventDriven;
+    }
+
+    /**
+     * Compress the synapses of this group and set up event-driven
+     * propagation of spikes.
+     */
+    private void makeEventDriven() {
+        for (Neuron n : sourceNeuronGroup.getNeuronListUnsafe()) {
+            if (!n.getUpdateRule().isSpikingNeuron()) {
+                throw new IllegalStateException("Synapse group " + getLabel() + " cannot be event-driven because its source neurons are not spiking neurons.");
+            }
+        }
+        List<Synapse> synapses = getAllSynapses();
+        if (synapses.isEmpty()) {
+            throw new IllegalStateException("Synapse group " + getLabel() + " has no synapses.");
+        }
+        JumpAndDecay responder = null;
+        int delay = synapses.get(0).getDelay();
+        for (Synapse s : synapses) {
+            boolean valid = s.isEnabled() && s.getDelay() == delay && (s.isFrozen() || s.getLearningRule() instanceof StaticSynapseRule) && s.getSpikeResponder() instanceof JumpAndDecay;
+            if (valid) {
+                JumpAndDecay jad = (JumpAndDecay) s.getSpikeResponder();
+                if (responder == null) {
+                    responder = jad;
+                } else {
+                    valid = jad.getJumpHeight() == responder.getJumpHeight() && jad.getBaseLine() == responder.getBaseLine() && jad.getTimeConstant() == responder.getTimeConstant();
+                }
+            }
+            if (!valid) {
+                throw new IllegalStateException("Synapse group " + getLabel() + " cannot be event-driven. All synapses must be" + " enabled, static or frozen, and share one delay and one jump and decay spike responder.");
+            }
+        }
+        conformPrototypes(synapses);
+        buildSparseMatrix(synapses);
+        spikeAccumulator = new SpikeAccumulator(sparseMatrix, delay, responder.getJumpHeight(), responder.getBaseLine(), responder.getTimeConstant());
+        eventDriven = true;
+        fireEventDrivenChanged();
+    }
+
+    /**
+     * Notify listeners, such as {@link SpikePropagationUpdate}, that this
+     * group started or stopped propagating spikes by event.
+     */
+    private void fireEventDrivenChanged() {
+        changeSupport.firePropertyChange("eventDrivenChanged", null, null);
+    }
+
+    /**
+     * Propagate the spikes of source neurons which spiked on the last update
+     * and advance the responses of the target neurons by one time step. Does
+     * nothing if the group is not event-driven. Called by
+     * {@link SpikePropagationUpdate}.
+     */
+    public void propagateSpikes() {
+        if (!eventDriven) {
+            return;
+        }
+        int numSrc = sparseMatrix.getNumRows();
+        DenseNeuronState srcState = sourceNeuronGroup.getDenseState();
+        if (srcState != null) {
+            boolean[] spikes = srcState.getSpikes();
+            for (int i = 0; i < numSrc; i++) {
+                if (spikes[i]) {
+                    spikeAccumulator.addSpike(i);
+                }
+            }
+        } else {
+            List<Neuron> srcList = sourceNeuronGroup.getNeuronListUnsafe();
+            for (int i = 0; i < numSrc; i++) {
+                if (srcList.get(i).isSpike()) {
+                    spikeAccumulator.addSpike(i);
+                }
+            }
+        }
+        spikeAccumulator.advance(getParentNetwork().getTimeStep());
+    }
+
+    /**
+     * Move the weights of the provided synapses (all of this group's synapses)
+     * in to a compressed sparse row matrix, remove the synapses from the
+     * network, and put the target group in dense mode.
+     *
+     * @param synapses the synapses of this group
+     */
+    private void buildSparseMatrix(List<Synapse> synapses) {
+        SparseWeightMatrix matrix = toSparseMatrix(synapses);
+
+        // Remove the synapses themselves
+        for (Synapse toDelete : synapses) {
+            toDelete.getSource().removeEfferent(toDelete);
+            toDelete.getTarget().removeAfferent(toDelete);
+            if (isDisplaySynapses()) {
+                toDelete.getNetwork().fireSynapseRemoved(toDelete);
+            }
+        }
+        exSynapseSet = new HashSet<Synapse>();
+        inSynapseSet = new HashSet<Synapse>();
+
+        sparseMatrix = matrix;
+        compressed = true;
+        if (!targetNeuronGroup.isDenseMode()) {
+            targetNeuronGroup.setDenseMode(true);
+        }
+    }
+
+    /**
+     * Copy the weights of the provided synapses in to a compressed sparse row
+     * matrix, with rows indexed by source neuron and columns by target neuron.
+     *
+     * @param synapses synapses of this group
+     * @return the matrix
+     */
+    private SparseWeightMatrix toSparseMatrix(Collection<Synapse> synapses) {
+        List<Neuron> srcList = sourceNeuronGroup.getNeuronListUnsafe();
+        List<Neuron> tarList = targetNeuronGroup.getNeuronListUnsafe();
+        Map<Neuron, Integer> srcMap = new HashMap<Neuron, Integer>((int) (srcList.size() / 0.75));
+        Map<Neuron, Integer> tarMap = new HashMap<Neuron, Integer>((int) (tarList.size() / 0.75));
+        for (int i = 0; i < srcList.size(); i++) {
+            srcMap.put(srcList.get(i), i);
+        }
+        for (int j = 0; j < tarList.size(); j++) {
+            tarMap.put(tarList.get(j), j);
+        }
+        int numSrc = srcList.size();
+        int numTar = tarList.size();
+        int numSyns = synapses.size();
+
+        // Order the synapses by target with a counting sort, so that when rows
+        // are filled in that order their column indices end up sorted.
+        int[] tarPtr = new int[numTar + 1];
+        for (Synapse s : synapses) {
+            tarPtr[tarMap.get(s.getTarget()) + 1]++;
+        }
+        for (int j = 0; j < numTar; j++) {
+            tarPtr[j + 1] += tarPtr[j];
+        }
+        int[] srcIndices = new int[numSyns];
+        int[] tarIndices = new int[numSyns];
+        double[] strengths = new double[numSyns];
+        for (Synapse s : synapses) {
+            int j = tarMap.get(s.getTarget());
+            int k = tarPtr[j]++;
+            srcIndices[k] = srcMap.get(s.getSource());
+            tarIndices[k] = j;
+            strengths[k] = s.getStrength();
+        }
+
+        // Fill the rows
+        int[] rowPtr = new int[numSrc + 1];
+        for (int k = 0; k < numSyns; k++) {
+            rowPtr[srcIndices[k] + 1]++;
+        }
+        for (int i = 0; i < numSrc; i++) {
+            rowPtr[i + 1] += rowPtr[i];
+        }
+        int[] rowFill = Arrays.copyOf(rowPtr, numSrc);
+        int[] colIdx = new int[numSyns];
+        double[] weights = new double[numSyns];
+        for (int k = 0; k < numSyns; k++) {
+            int p = rowFill[srcIndices[k]]++;
+            colIdx[p] = tarIndices[k];
+            weights[p] = strengths[k];
+        }
+        return new SparseWeightMatrix(numSrc, numTar, rowPtr, colIdx, weights);
+    }
+
+    /**
+     * If this group is compressed, re-create its synapses from the sparse
+     * matrix. Synapses with negative weights are made inhibitory and the rest
+     * excitatory, and all other synapse properties are taken from the
+     * prototype synapses. Does nothing if the group is not compressed.
+     */
+    private void expand() {
+        if (!compressed) {
+            return;
+        }
+        SparseWeightMatrix matrix = sparseMatrix;
+        boolean wasEventDriven = eventDriven;
+        compressed = false;
+        eventDriven = false;
+        sparseMatrix = null;
+        sourceActivations = null;
+        spikeAccumulator = null;
+        List<Neuron> srcList = sourceNeuronGroup.getNeuronListUnsafe();
+        List<Neuron> tarList = targetNeuronGroup.getNeuronListUnsafe();
+        int[] rowPtr = matrix.getRowPtr();
+        int[] colIdx = matrix.getColIdx();
+        double[] weights = matrix.getWeights();
+        preAllocateSynapses(matrix.getNumNonZero());
+        for (int row = 0; row < matrix.getNumRows(); row++) {
+            for (int k = rowPtr[row]; k < rowPtr[row + 1]; k++) {
+                Synapse synapse = new Synapse(srcList.get(row), tarList.get(colIdx[k]));
+                if (weights[k] < 0) {
+                    addNewInhibitorySynapse(synapse);
+                } else {
+                    addNewExcitatorySynapse(synapse);
+                }
+                synapse.forceSetStrength(weights[k]);
+            }
+        }
+        if (wasEventDriven) {
+            fireEventDrivenChanged();
+        }
     }
 
     /**
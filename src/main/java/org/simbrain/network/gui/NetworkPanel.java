@@ -538,6 +538,15 @@ public class NetworkPanel extends JPanel {
                 } else if ("updateCompleted".equals(evt.getPropertyName())) {
                     NetworkPanel.this.setUpdateComplete((Boolean) evt.getNewValue());
                     repaint();
+                } else if ("elementsUpdated".equals(evt.getPropertyName())) {
+                    if (!isGuiOn()) {
+                        return;
+                    }
+                    Network.UpdatedElements updated = (Network.UpdatedElements) evt.getNewValue();
+                    NetworkPanel.this.updateNeuronNodes(updated.getNeurons());
+                    NetworkPanel.this.updateSynapseNodes(updated.getSynapses());
+                    NetworkPanel.this.setUpdateComplete(true);
+                    repaint();
                 }
             }
         );
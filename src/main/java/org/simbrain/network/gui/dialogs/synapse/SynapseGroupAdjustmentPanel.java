@@ -431,8 +431,8 @@ public class SynapseGroupAdjustmentPanel extends JPanel {
         public void update() {
             calcStats();
             numSynapses.setText(Integer.toString(synapseGroup.size()));
-            exSynapses.setText(Integer.toString(synapseGroup.getExcitatorySynapses().size()));
-            inSynapses.setText(Integer.toString(synapseGroup.getInhibitorySynapses().size()));
+            exSynapses.setText(Integer.toString(synapseGroup.getExcitatoryStrengths().length));
+            inSynapses.setText(Integer.toString(synapseGroup.getInhibitoryStrengths().length));
             meanLabel.setText(Double.toString(SimbrainMath.roundDouble(mean, 4)));
             medianLabel.setText(Double.toString(SimbrainMath.roundDouble(median, 4)));
             stdDevLabel.setText(Double.toString(SimbrainMath.roundDouble(stdDev, 4)));
@@ -461,57 +461,62 @@ public class SynapseGroupAdjustmentPanel extends JPanel {
         }
 
         /**
-         *
+         * Calculate the statistics of the strengths of the synapses in the
+         * current view. The strengths are read from the group, so this works
+         * for compressed groups too.
          */
         public void calcStats() {
-            Collection<Synapse> synapses = getCurrentlyEditableSynapses();
-            mean = getMean(synapses);
-            median = getMedian(synapses);
-            stdDev = getStdDev(synapses);
+            double[] strengths = getCurrentStrengths();
+            mean = getMean(strengths);
+            median = getMedian(strengths);
+            stdDev = getStdDev(strengths);
+        }
+
+        /**
+         * @return the strengths of the synapses in the current view, as
+         * absolute values for the overlay view
+         */
+        private double[] getCurrentStrengths() {
+            switch (synapseView) {
+                case ALL:
+                    return synapseGroup.getWeightVector();
+                case OVERLAY:
+                    return Arrays.stream(synapseGroup.getWeightVector()).map(Math::abs).toArray();
+                case EXCITATORY:
+                    return synapseGroup.getExcitatoryStrengths();
+                case INHIBITORY:
+                    return synapseGroup.getInhibitoryStrengths();
+                default:
+                    throw new IllegalArgumentException("No such synapse view.");
+            }
         }
 
         /**
-         * @param synapses
+         * @param strengths
          * @return
          */
-        public double getMean(Collection<Synapse> synapses) {
-            double tot = 0;
-            if (synapses.size() == 0) {
+        public double getMean(double[] strengths) {
+            if (strengths.length == 0) {
                 return 0;
             }
-            if (SynapseView.OVERLAY.equals(synapseView)) {
-                for (Synapse s : synapses) {
-                    tot += Math.abs(s.getStrength());
-                }
-            } else {
-                for (Synapse s : synapses) {
-                    tot += s.getStrength();
-                }
+            double tot = 0;
+            for (double w : strengths) {
+                tot += w;
             }
-            return tot / synapses.size();
+            return tot / strengths.length;
         }
 
         /**
-         * @param synapses
+         * @param strengths
          * @return
          */
-        public double getMedian(Collection<Synapse> synapses) {
-            double[] vals = new double[synapses.size()];
-            int index = 0;
-            if (synapses.size() == 0) {
+        public double getMedian(double[] strengths) {
+            if (strengths.length == 0) {
                 return 0;
             }
-            if (SynapseView.OVERLAY.equals(synapseView)) {
-                for (Synapse s : synapses) {
-                    vals[index++] = Math.abs(s.getStrength());
-                }
-            } else {
-                for (Synapse s : synapses) {
-                    vals[index++] = s.getStrength();
-                }
-            }
+            double[] vals = strengths.clone();
             Arrays.sort(vals);
-            if (synapses.size() % 2 == 0) {
+            if (vals.length % 2 == 0) {
                 return (vals[vals.length / 2 - 1] + vals[vals.length / 2]) / 2;
             } else {
                 return vals[vals.length / 2];
@@ -519,24 +524,18 @@ public class SynapseGroupAdjustmentPanel extends JPanel {
         }
 
         /**
-         * @param synapses
+         * @param strengths
          * @return
          */
-        public double getStdDev(Collection<Synapse> synapses) {
-            double tot = 0;
-            if (synapses.isEmpty()) {
+        public double getStdDev(double[] strengths) {
+            if (strengths.length == 0) {
                 return 0;
             }
-            if (SynapseView.OVERLAY.equals(synapseView)) {
-                for (Synapse s : synapses) {
-                    tot += (mean - Math.abs(s.getStrength())) * (mean - Math.abs(s.getStrength()));
-                }
-            } else {
-                for (Synapse s : synapses) {
-                    tot += (mean - s.getStrength()) * (mean - s.getStrength());
-                }
+            double tot = 0;
+            for (double w : strengths) {
+                tot += (mean - w) * (mean - w);
             }
-            return Math.sqrt(tot / synapses.size());
+            return Math.sqrt(tot / strengths.length);
         }
 
     }
@@ -171,6 +171,8 @@ public abstract class AbstractSigmoidalRule extends NeuronUpdateRule implements
         sr.setSlope(getSlope());
         sr.setAddNoise(getAddNoise());
         sr.noiseGenerator = noiseGenerator.deepCopy();
+        sr.upperBound = upperBound;
+        sr.lowerBound = lowerBound;
         return sr;
     }
 
@@ -18,6 +18,7 @@
  */
 package org.simbrain.network.neuron_update_rules;
 
+import org.simbrain.network.core.DenseNeuronState;
 import org.simbrain.network.core.Neuron;
 import org.simbrain.network.core.SpikingNeuronUpdateRule;
 import org.simbrain.network.neuron_update_rules.interfaces.NoisyUpdateRule;
@@ -257,6 +258,70 @@ public class AdExIFRule extends SpikingNeuronUpdateRule implements NoisyUpdateRu
             }
         }
 
+        boolean spiked = integrate(dt, refractory);
+        neuron.setSpkBuffer(spiked);
+        setHasSpiked(spiked, neuron);
+
+        // Set the buffer to the membrane potential
+        neuron.setBuffer(v_mem);
+
+    }
+
+    @Override
+    public void updateBatch(DenseNeuronState state, double[] synapticInputs, int from, int to) {
+        if (from >= to) {
+            return;
+        }
+        final Neuron[] neurons = state.getNeurons();
+        final double[] activations = state.getActivations();
+        final double[] buffers = state.getBuffers();
+        final boolean[] spikeBuffers = state.getSpikeBuffers();
+        final boolean[] clamped = state.getClamped();
+        final double dt = neurons[from].getNetwork().getTimeStep();
+        final double time = neurons[from].getNetwork().getTime();
+        for (int i = from; i < to; i++) {
+            if (clamped[i]) {
+                continue;
+            }
+            AdExIFRule rule = (AdExIFRule) neurons[i].getUpdateRule();
+            if (rule.v_mem >= rule.v_Peak) {
+                rule.v_mem = rule.v_Reset;
+                activations[i] = rule.v_Reset;
+            }
+            final boolean refractory = rule.getLastSpikeTime() + rule.refractoryPeriod >= time;
+            rule.v_mem = activations[i];
+            if (neurons[i].getPolarity() == SimbrainConstants.Polarity.INHIBITORY) {
+                rule.ei[0] = 0;
+                rule.ei[1] = synapticInputs[i];
+            } else {
+                rule.ei[0] = synapticInputs[i];
+                rule.ei[1] = 0;
+            }
+            boolean spiked = rule.integrate(dt, refractory);
+            spikeBuffers[i] = spiked;
+            if (spiked) {
+                rule.setLastSpikeTime(time);
+            }
+            buffers[i] = rule.v_mem;
+        }
+    }
+
+    @Override
+    public boolean isBatchUpdateSupported() {
+        return getClass() == AdExIFRule.class;
+    }
+
+    /**
+     * Integrate membrane potential and adaptation over one time step using
+     * the currents in {@link #ei}, leaving the new membrane potential in
+     * {@link #v_mem}.
+     *
+     * @param dt         integration time step
+     * @param refractory whether the neuron is in its refractory period
+     * @return true if the neuron spiked
+     */
+    private boolean integrate(final double dt, final boolean refractory) {
+
         // Calculate incoming excitatory and inhibitory voltage changes
         double iSyn_ex = g_e_bar * ei[0] * (exReversal - v_mem);
         double iSyn_in = -g_i_bar * ei[1] * (inReversal - v_mem);
@@ -290,21 +355,9 @@ public class AdExIFRule extends SpikingNeuronUpdateRule implements NoisyUpdateRu
         if (v_mem >= v_Peak) {
             v_mem = v_Peak;
             w = w + (b * CURRENT_CONVERTER);
-            if (!refractory) {
-                neuron.setSpkBuffer(true);
-                setHasSpiked(true, neuron);
-            } else {
-                neuron.setSpkBuffer(false);
-                setHasSpiked(false, neuron);
-            }
-        } else {
-            neuron.setSpkBuffer(false);
-            setHasSpiked(false, neuron);
+            return !refractory;
         }
-
-        // Set the buffer to the membrane potential
-        neuron.setBuffer(v_mem);
-
+        return false;
     }
 
     @Override
@@ -323,6 +376,14 @@ public class AdExIFRule extends SpikingNeuronUpdateRule implements NoisyUpdateRu
         cpy.v_Reset = this.v_Reset;
         cpy.v_Th = this.v_Th;
         cpy.w = this.w;
+        cpy.v_Peak = this.v_Peak;
+        cpy.g_e_bar = this.g_e_bar;
+        cpy.g_i_bar = this.g_i_bar;
+        cpy.exReversal = this.exReversal;
+        cpy.inReversal = this.inReversal;
+        cpy.i_bg = this.i_bg;
+        cpy.refractoryPeriod = this.refractoryPeriod;
+        copySpikingState(cpy);
         return cpy;
     }
 
@@ -80,6 +80,7 @@ public class BinaryRule extends NeuronUpdateRule {
         bn.setThreshold(getThreshold());
         bn.setCeiling(getUpperBound());
         bn.setFloor(getLowerBound());
+        bn.setBias(getBias());
         return bn;
     }
 
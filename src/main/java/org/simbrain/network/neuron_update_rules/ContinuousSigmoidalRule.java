@@ -102,6 +102,8 @@ public class ContinuousSigmoidalRule extends AbstractSigmoidalRule {
         sn = (ContinuousSigmoidalRule) super.baseDeepCopy(sn);
         sn.setTimeConstant(getTimeConstant());
         sn.setLeakConstant(getLeakConstant());
+        sn.netActivation = netActivation;
+        sn.inputTerm = inputTerm;
         return sn;
     }
 
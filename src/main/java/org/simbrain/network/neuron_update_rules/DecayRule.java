@@ -171,6 +171,7 @@ public class DecayRule extends NeuronUpdateRule implements BoundedUpdateRule, Cl
         dn.setLowerBound(getLowerBound());
         dn.setAddNoise(getAddNoise());
         dn.noiseGenerator = noiseGenerator.deepCopy();
+        dn.setBaseLine(getBaseLine());
         return dn;
     }
 
@@ -109,6 +109,8 @@ public class FitzhughNagumo extends SpikingNeuronUpdateRule implements NoisyUpda
         in.setThreshold(getThreshold());
         in.setAddNoise(getAddNoise());
         in.setNoiseGenerator(noiseGenerator.deepCopy());
+        in.iBg = iBg;
+        copySpikingState(in);
         return in;
     }
 
@@ -320,16 +320,19 @@ public class HodgkinHuxleyRule extends NeuronUpdateRule implements NoisyUpdateRu
     @Override
     public NeuronUpdateRule deepCopy() {
         HodgkinHuxleyRule hhr = new HodgkinHuxleyRule();
-        hhr.set_vClampValue(this.get_vClampValue());
+        hhr.vClampValue = this.vClampValue;
         hhr.setAddNoise(this.getAddNoise());
         hhr.setCm(this.getCm());
-        hhr.setEk(this.getEk());
-        hhr.setEna(this.getEna());
-        hhr.setNoiseGenerator(this.getNoiseGenerator());
+        hhr.vk = this.vk;
+        hhr.vna = this.vna;
+        hhr.setNoiseGenerator(this.getNoiseGenerator().deepCopy());
         hhr.setPerKChannels(this.getPerKChannels());
         hhr.setPerNaChannels(this.getPerNaChannels());
         hhr.setTemp(this.getTemp());
         hhr.setVClampOn(this.getVClampOn());
+        hhr.n = this.n;
+        hhr.m = this.m;
+        hhr.h = this.h;
         return hhr;
     }
 
@@ -18,6 +18,7 @@
  */
 package org.simbrain.network.neuron_update_rules;
 
+import org.simbrain.network.core.DenseNeuronState;
 import org.simbrain.network.core.Neuron;
 import org.simbrain.network.core.SpikingNeuronUpdateRule;
 import org.simbrain.network.neuron_update_rules.interfaces.NoisyUpdateRule;
@@ -156,23 +157,95 @@ public class IntegrateAndFireRule extends SpikingNeuronUpdateRule implements Noi
         ifn.setAddNoise(getAddNoise());
         ifn.noiseGenerator = noiseGenerator.deepCopy();
         ifn.randSpkChance = randSpkChance;
+        ifn.refractoryPeriod = refractoryPeriod;
+        ifn.memPotential = memPotential;
+        copySpikingState(ifn);
         return ifn;
     }
 
     @Override
     public void update(Neuron neuron) {
+        double time = neuron.getNetwork().getTime();
+        // Inputs are not read during the refractory period
+        double input = time < (getLastSpikeTime() + refractoryPeriod) ? 0 : neuron.getInput();
+        boolean spiked = integrate(neuron.getActivation(), input, time, neuron.getNetwork().getTimeStep());
+        neuron.setSpkBuffer(spiked);
+        setHasSpiked(spiked, neuron);
+        neuron.setBuffer(memPotential);
+    }
+
+    @Override
+    public void updateBatch(DenseNeuronState state, double[] synapticInputs, int from, int to) {
+        if (from >= to) {
+            return;
+        }
+        final Neuron[] neurons = state.getNeurons();
+        final double[] activations = state.getActivations();
+        final double[] inputs = state.getInputs();
+        final double[] buffers = state.getBuffers();
+        final boolean[] spikeBuffers = state.getSpikeBuffers();
+        final boolean[] clamped = state.getClamped();
+        final double timeStep = neurons[from].getNetwork().getTimeStep();
+        final double time = neurons[from].getNetwork().getTime();
+        for (int i = from; i < to; i++) {
+            if (clamped[i]) {
+                continue;
+            }
+            IntegrateAndFireRule rule = (IntegrateAndFireRule) neurons[i].getUpdateRule();
+            boolean spiked = rule.integrate(activations[i], synapticInputs[i] + inputs[i], time, timeStep);
+            spikeBuffers[i] = spiked;
+            if (spiked) {
+                rule.setLastSpikeTime(time);
+            }
+            buffers[i] = rule.memPotential;
+        }
+    }
+
+    /**
+     * Masks neurons in their refractory period, which do not read their
+     * inputs, and clamped neurons, which are not updated.
+     */
+    @Override
+    public void maskSynapticInputs(DenseNeuronState state, int from, int to) {
+        if (from >= to) {
+            return;
+        }
+        final Neuron[] neurons = state.getNeurons();
+        final boolean[] clamped = state.getClamped();
+        final boolean[] mask = state.getInputMask();
+        final double time = neurons[from].getNetwork().getTime();
+        for (int i = from; i < to; i++) {
+            IntegrateAndFireRule rule = (IntegrateAndFireRule) neurons[i].getUpdateRule();
+            mask[i] = clamped[i] || time < (rule.getLastSpikeTime() + rule.refractoryPeriod);
+        }
+    }
+
+    @Override
+    public boolean isBatchUpdateSupported() {
+        return getClass() == IntegrateAndFireRule.class;
+    }
+
+    /**
+     * Integrate the membrane potential over one time step, leaving the new
+     * value in {@link #memPotential}.
+     *
+     * @param activation current membrane potential
+     * @param input      total input to the neuron
+     * @param time       current network time
+     * @param timeStep   network time step
+     * @return true if the neuron spiked
+     */
+    private boolean integrate(double activation, double input, double time, double timeStep) {
 
         // Incoming current is 0 during the refractory period, otherwise it's
         // equal to input and background current
-        double synCurrent = neuron.getNetwork().getTime() < (getLastSpikeTime() + refractoryPeriod) ? 0 : neuron.getInput() + backgroundCurrent;
+        double synCurrent = time < (getLastSpikeTime() + refractoryPeriod) ? 0 : input + backgroundCurrent;
 
         if (addNoise) {
             synCurrent += noiseGenerator.getRandom();
         }
 
-        double timeStep = neuron.getNetwork().getTimeStep();
-
-        memPotential = neuron.getActivation();
+        memPotential = activation;
 
         /*
          * Formula:
@@ -189,20 +262,15 @@ public class IntegrateAndFireRule extends SpikingNeuronUpdateRule implements Noi
 
         memPotential += dVm;
 
-        if(ThreadLocalRandom.current().nextDouble() < randSpkChance*neuron.getNetwork().getTimeStep()) {
+        if(ThreadLocalRandom.current().nextDouble() < randSpkChance * timeStep) {
             memPotential = threshold+1;
         }
 
-        if ((memPotential >= threshold) && (neuron.getNetwork().getTime() > (getLastSpikeTime() + refractoryPeriod))) {
-            neuron.setSpkBuffer(true);
-            setHasSpiked(true, neuron);
+        if ((memPotential >= threshold) && (time > (getLastSpikeTime() + refractoryPeriod))) {
             memPotential = resetPotential;
-        } else {
-            neuron.setSpkBuffer(false);
-            setHasSpiked(false, neuron);
+            return true;
         }
-
-        neuron.setBuffer(memPotential);
+        return false;
     }
 
     @Override
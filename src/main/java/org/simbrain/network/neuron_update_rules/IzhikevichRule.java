@@ -18,6 +18,7 @@
  */
 package org.simbrain.network.neuron_update_rules;
 
+import org.simbrain.network.core.DenseNeuronState;
 import org.simbrain.network.core.Neuron;
 import org.simbrain.network.core.SpikingNeuronUpdateRule;
 import org.simbrain.network.neuron_update_rules.interfaces.NoisyUpdateRule;
@@ -131,15 +132,64 @@ public class IzhikevichRule extends SpikingNeuronUpdateRule implements NoisyUpda
         in.setiBg(getiBg());
         in.setAddNoise(getAddNoise());
         in.noiseGenerator = noiseGenerator.deepCopy();
+        in.setThreshold(getThreshold());
+        in.setRefractoryPeriod(getRefractoryPeriod());
+        in.recovery = recovery;
+        copySpikingState(in);
         return in;
     }
 
     @Override
     public void update(final Neuron neuron) {
         timeStep = neuron.getNetwork().getTimeStep();
-        final double activation = neuron.getActivation();
-        double inputs = 0;
-        inputs = neuron.getInput();
+        boolean spiked = integrate(neuron.getActivation(), neuron.getInput());
+        neuron.setSpkBuffer(spiked);
+        setHasSpiked(spiked, neuron);
+        neuron.setBuffer(val);
+    }
+
+    @Override
+    public void updateBatch(DenseNeuronState state, double[] synapticInputs, int from, int to) {
+        if (from >= to) {
+            return;
+        }
+        final Neuron[] neurons = state.getNeurons();
+        final double[] activations = state.getActivations();
+        final double[] inputs = state.getInputs();
+        final double[] buffers = state.getBuffers();
+        final boolean[] spikeBuffers = state.getSpikeBuffers();
+        final boolean[] clamped = state.getClamped();
+        final double dt = neurons[from].getNetwork().getTimeStep();
+        final double time = neurons[from].getNetwork().getTime();
+        for (int i = from; i < to; i++) {
+            if (clamped[i]) {
+                continue;
+            }
+            IzhikevichRule rule = (IzhikevichRule) neurons[i].getUpdateRule();
+            rule.timeStep = dt;
+            boolean spiked = rule.integrate(activations[i], synapticInputs[i] + inputs[i]);
+            spikeBuffers[i] = spiked;
+            if (spiked) {
+                rule.setLastSpikeTime(time);
+            }
+            buffers[i] = rule.val;
+        }
+    }
+
+    @Override
+    public boolean isBatchUpdateSupported() {
+        return getClass() == IzhikevichRule.class;
+    }
+
+    /**
+     * Integrate membrane potential and recovery over one time step, leaving
+     * the new membrane potential in {@link #val}.
+     *
+     * @param activation current membrane potential
+     * @param inputs     total input to the neuron
+     * @return true if the neuron spiked
+     */
+    private boolean integrate(final double activation, double inputs) {
         if (addNoise) {
             inputs += noiseGenerator.getRandom();
         }
@@ -151,14 +201,9 @@ public class IzhikevichRule extends SpikingNeuronUpdateRule implements NoisyUpda
         if (val >= threshold) {
             val = c;
             recovery += d;
-            neuron.setSpkBuffer(true);
-            setHasSpiked(true, neuron);
-        } else {
-            neuron.setSpkBuffer(false);
-            setHasSpiked(false, neuron);
+            return true;
         }
-
-        neuron.setBuffer(val);
+        return false;
     }
 
     @Override
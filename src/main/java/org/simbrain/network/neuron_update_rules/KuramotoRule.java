@@ -132,6 +132,7 @@ public class KuramotoRule extends NeuronUpdateRule implements BiasedUpdateRule,
         kr.setUpperBound(getUpperBound());
         kr.setLowerBound(getLowerBound());
         kr.noiseGenerator = noiseGenerator.deepCopy();
+        kr.setNaturalFrequency(getNaturalFrequency());
         return kr;
     }
 
@@ -18,6 +18,7 @@
  */
 package org.simbrain.network.neuron_update_rules;
 
+import org.simbrain.network.core.DenseNeuronState;
 import org.simbrain.network.core.Network.TimeType;
 import org.simbrain.network.core.Neuron;
 import org.simbrain.network.core.NeuronUpdateRule;
@@ -101,6 +102,34 @@ public class LinearRule extends NeuronUpdateRule implements BiasedUpdateRule, Di
         neuron.setBuffer(val);
     }
 
+    @Override
+    public void updateBatch(DenseNeuronState state, double[] synapticInputs, int from, int to) {
+        final Neuron[] neurons = state.getNeurons();
+        final double[] inputs = state.getInputs();
+        final double[] buffers = state.getBuffers();
+        final boolean[] clamped = state.getClamped();
+        for (int i = from; i < to; i++) {
+            if (clamped[i]) {
+                continue;
+            }
+            LinearRule rule = (LinearRule) neurons[i].getUpdateRule();
+            double val = (rule.slope * (synapticInputs[i] + inputs[i])) + rule.bias;
+            if (rule.addNoise) {
+                val += rule.noiseGenerator.getRandom();
+            }
+            if (rule.clipping) {
+                val = rule.clip(val);
+            }
+            buffers[i] = val;
+        }
+    }
+
+    @Override
+    public boolean isBatchUpdateSupported() {
+        // Subclasses override update, so they use the default batch update
+        return getClass() == LinearRule.class;
+    }
+
     @Override
     public double clip(double val) {
         if (val > getUpperBound()) {
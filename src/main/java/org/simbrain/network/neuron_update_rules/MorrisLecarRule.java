@@ -244,7 +244,7 @@ public class MorrisLecarRule extends SpikingNeuronUpdateRule implements NoisyUpd
         cpy.vRest_L = this.vRest_L;
         cpy.w_K = this.w_K;
         cpy.noiseGenerator = noiseGenerator.deepCopy();
-
+        copySpikingState(cpy);
         return cpy;
     }
 
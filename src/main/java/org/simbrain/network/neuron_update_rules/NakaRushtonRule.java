@@ -153,6 +153,10 @@ public class NakaRushtonRule extends NeuronUpdateRule implements BoundedUpdateRu
         rn.setAdaptationParameter(getAdaptationParameter());
         rn.setAdaptationTimeConstant(getAdaptationTimeConstant());
         rn.noiseGenerator = noiseGenerator.deepCopy();
+        rn.setTimeConstant(getTimeConstant());
+        rn.setLowerBound(getLowerBound());
+        rn.s = s;
+        rn.a = a;
         return rn;
     }
 
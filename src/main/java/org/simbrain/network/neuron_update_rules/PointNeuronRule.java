@@ -279,7 +279,29 @@ public class PointNeuronRule extends NeuronUpdateRule implements BiasedUpdateRul
     public PointNeuronRule deepCopy() {
         PointNeuronRule cn = new PointNeuronRule();
         cn.setBias(bias);
-        // TODO
+        cn.netTimeConstant = netTimeConstant;
+        cn.excitatoryMaxConductance = excitatoryMaxConductance;
+        cn.excitatoryConductance = excitatoryConductance;
+        cn.inhibitoryMaxConductance = inhibitoryMaxConductance;
+        cn.inhibitoryConductance = inhibitoryConductance;
+        cn.membranePotential = membranePotential;
+        cn.excitatoryReversal = excitatoryReversal;
+        cn.leakReversal = leakReversal;
+        cn.leakMaxConductance = leakMaxConductance;
+        cn.leakConductance = leakConductance;
+        cn.netCurrent = netCurrent;
+        cn.potentialTimeConstant = potentialTimeConstant;
+        cn.excitatoryCurrent = excitatoryCurrent;
+        cn.leakCurrent = leakCurrent;
+        cn.inhibitoryCurrent = inhibitoryCurrent;
+        cn.inhibitoryReversal = inhibitoryReversal;
+        cn.outputFunction = outputFunction;
+        cn.gain = gain;
+        cn.thresholdPotential = thresholdPotential;
+        cn.duration = duration;
+        cn.refractoryPotential = refractoryPotential;
+        // The input lists refer to the synapses of the original neuron. They
+        // are rebuilt from the fan-in of the new neuron by init.
         return cn;
     }
 
@@ -53,7 +53,9 @@ public class ProductRule extends LinearRule {
         pr.setAddNoise(getAddNoise());
         pr.setUpperBound(getUpperBound());
         pr.setLowerBound(getLowerBound());
-        pr.setNoiseGenerator(getNoiseGenerator());
+        pr.setNoiseGenerator(getNoiseGenerator().deepCopy());
+        pr.setBias(getBias());
+        pr.setSlope(getSlope());
         return pr;
     }
 
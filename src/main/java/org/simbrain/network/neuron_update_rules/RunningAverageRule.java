@@ -63,6 +63,7 @@ public class RunningAverageRule extends NeuronUpdateRule {
     public RunningAverageRule deepCopy() {
         RunningAverageRule cn = new RunningAverageRule();
         cn.setRateConstant(getRateConstant());
+        cn.val = val;
         return cn;
     }
 
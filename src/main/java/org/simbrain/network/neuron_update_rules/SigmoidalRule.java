@@ -19,6 +19,7 @@
 package org.simbrain.network.neuron_update_rules;
 
 import org.jblas.DoubleMatrix;
+import org.simbrain.network.core.DenseNeuronState;
 import org.simbrain.network.core.Network.TimeType;
 import org.simbrain.network.core.Neuron;
 import org.simbrain.util.math.SquashingFunctionEnum;
@@ -70,6 +71,30 @@ public class SigmoidalRule extends AbstractSigmoidalRule implements TransferFunc
         neuron.setBuffer(val);
     }
 
+    @Override
+    public final void updateBatch(DenseNeuronState state, double[] synapticInputs, int from, int to) {
+        final Neuron[] neurons = state.getNeurons();
+        final double[] inputs = state.getInputs();
+        final double[] buffers = state.getBuffers();
+        final boolean[] clamped = state.getClamped();
+        for (int i = from; i < to; i++) {
+            if (clamped[i]) {
+                continue;
+            }
+            SigmoidalRule rule = (SigmoidalRule) neurons[i].getUpdateRule();
+            double val = synapticInputs[i] + inputs[i] + rule.bias;
+            if (rule.addNoise) {
+                val += rule.noiseGenerator.getRandom();
+            }
+            buffers[i] = rule.sFunction.valueOf(val, rule.upperBound, rule.lowerBound, rule.slope);
+        }
+    }
+
+    @Override
+    public final boolean isBatchUpdateSupported() {
+        return true;
+    }
+
     @Override
     public final SigmoidalRule deepCopy() {
         SigmoidalRule sr = new SigmoidalRule();
@@ -57,6 +57,9 @@ public class SpikingThresholdRule extends SpikingNeuronUpdateRule implements Noi
     public SpikingThresholdRule deepCopy() {
         SpikingThresholdRule neuron = new SpikingThresholdRule();
         neuron.setThreshold(getThreshold());
+        neuron.setAddNoise(addNoise);
+        neuron.setNoiseGenerator(noiseGenerator.deepCopy());
+        copySpikingState(neuron);
         return neuron;
     }
 
@@ -159,7 +159,11 @@ public class TimedAccumulatorRule extends SpikingThresholdRule {
         tar.setCurrentState(currentState);
         tar.setMaxState(maxState);
         tar.setKappa(kappa);
-        tar.setLastSpikeTime(getLastSpikeTime());
+        tar.setB(b);
+        tar.setThreshold(getThreshold());
+        tar.setAddNoise(getAddNoise());
+        tar.setNoiseGenerator(getNoiseGenerator().deepCopy());
+        copySpikingState(tar);
         return tar;
     }
 
@@ -69,6 +69,7 @@ public class LogisticRule extends ActivityGenerator implements BoundedUpdateRule
         ln.setGrowthRate(getGrowthRate());
         ln.setUpperBound(ceiling);
         ln.setLowerBound(floor);
+        copySpikingState(ln);
         return ln;
     }
 
@@ -61,6 +61,9 @@ public class RandomNeuronRule extends ActivityGenerator implements BoundedUpdate
     public RandomNeuronRule deepCopy() {
         RandomNeuronRule rn = new RandomNeuronRule();
         rn.randomizer = randomizer.deepCopy();
+        rn.ceiling = ceiling;
+        rn.floor = floor;
+        copySpikingState(rn);
         return rn;
     }
 
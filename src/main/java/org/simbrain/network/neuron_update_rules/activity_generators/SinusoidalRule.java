@@ -83,6 +83,9 @@ public class SinusoidalRule extends ActivityGenerator implements BoundedUpdateRu
         sn.setFrequency(getFrequency());
         sn.setAddNoise(getAddNoise());
         sn.noiseGenerator = noiseGenerator.deepCopy();
+        sn.setUpperBound(getUpperBound());
+        sn.setLowerBound(getLowerBound());
+        copySpikingState(sn);
         return sn;
     }
 
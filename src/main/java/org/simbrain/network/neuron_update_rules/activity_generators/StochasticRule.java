@@ -57,6 +57,7 @@ public class StochasticRule extends ActivityGenerator {
     public StochasticRule deepCopy() {
         StochasticRule sn = new StochasticRule();
         sn.setFiringProbability(getFiringProbability());
+        copySpikingState(sn);
         return sn;
     }
 
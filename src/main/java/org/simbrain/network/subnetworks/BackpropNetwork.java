@@ -32,7 +32,7 @@ public class BackpropNetwork extends FeedForward implements Trainable {
     /**
      * Training set.
      */
-    private final TrainingSet trainingSet = new TrainingSet();
+    private TrainingSet trainingSet = new TrainingSet();
 
     /**
      * Construct a new backprop network.
@@ -62,6 +62,17 @@ public class BackpropNetwork extends FeedForward implements Trainable {
         return trainingSet;
     }
 
+    /**
+     * Replace the training set, for example with a
+     * {@link org.simbrain.network.trainers.MappedTrainingSet} for data too
+     * large to hold in memory.
+     *
+     * @param trainingSet the new training set
+     */
+    public void setTrainingSet(TrainingSet trainingSet) {
+        this.trainingSet = trainingSet;
+    }
+
     @Override
     public Group getNetwork() {
         return this;
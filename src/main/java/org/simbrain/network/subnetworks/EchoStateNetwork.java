@@ -29,12 +29,12 @@ import org.simbrain.network.groups.Subnetwork;
 import org.simbrain.network.groups.SynapseGroup;
 import org.simbrain.network.neuron_update_rules.SigmoidalRule;
 import org.simbrain.network.trainers.LMSOffline;
+import org.simbrain.network.trainers.LMSStreaming;
 import org.simbrain.network.trainers.Trainable;
 import org.simbrain.network.trainers.Trainer;
 import org.simbrain.network.trainers.TrainingSet;
 import org.simbrain.network.util.NetworkLayoutManager;
 import org.simbrain.network.util.NetworkLayoutManager.Direction;
-import org.simbrain.network.util.SimnetUtils;
 import org.simbrain.util.math.NumericMatrix;
 import org.simbrain.util.math.ProbDistributions.UniformDistribution;
 import org.simbrain.util.math.ProbabilityDistribution;
@@ -43,6 +43,7 @@ import org.simbrain.util.math.SquashingFunctionEnum;
 import java.awt.geom.Point2D;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.ObjIntConsumer;
 
 /**
  * Builds an Echo-State Network with options for all valid weight
@@ -234,7 +235,7 @@ public class EchoStateNetwork extends Subnetwork {
         addNeuronGroup(neuronGroup);
         addSynapseGroup(synapseGroup);
         // Scale the reservoir's weights to have the desired spectral radius
-        SimnetUtils.scaleEigenvalue(reservoirLayer.getNeuronList(), reservoirLayer.getNeuronList(), spectralRadius);
+        synapseGroup.scaleSpectralRadius(spectralRadius);
     }
 
     /**
@@ -290,7 +291,8 @@ public class EchoStateNetwork extends Subnetwork {
     public void connectLayers(Sparse inToRes, Sparse resRecurrent, Sparse outToRes) {
 
         addSynapseGroup(connectNeuronGroups(inputLayer, reservoirLayer, inToRes));
-        addSynapseGroup(connectNeuronGroups(reservoirLayer, reservoirLayer, resRecurrent));
+        SynapseGroup recurrent = connectNeuronGroups(reservoirLayer, reservoirLayer, resRecurrent);
+        addSynapseGroup(recurrent);
 
         if (backWeights) {
             addSynapseGroup(connectNeuronGroups(outputLayer, reservoirLayer, outToRes));
@@ -313,7 +315,7 @@ public class EchoStateNetwork extends Subnetwork {
         }
 
         // Scale the reservoir's weights to have the desired spectral radius
-        SimnetUtils.scaleEigenvalue(reservoirLayer.getNeuronList(), reservoirLayer.getNeuronList(), spectralRadius);
+        recurrent.scaleSpectralRadius(spectralRadius);
 
     }
 
@@ -351,20 +353,7 @@ public class EchoStateNetwork extends Subnetwork {
         }
 
         // Build the network to be used in state harvesting
-        final ArrayList<Neuron> full = new ArrayList<Neuron>();
-        if (directInOutWeights) {
-            for (Neuron node : getInputLayer().getNeuronList()) {
-                full.add(node);
-            }
-        }
-        for (Neuron node : reservoirLayer.getNeuronList()) {
-            full.add(node);
-        }
-        if (recurrentOutWeights) {
-            for (Neuron node : this.getOutputLayer().getNeuronList()) {
-                full.add(node);
-            }
-        }
+        final List<Neuron> full = getHarvestedNeurons();
 
         // Handle non-linearities in the outputs.
         // If output layer neurons are sigmoidal, transform the desired
@@ -391,7 +380,67 @@ public class EchoStateNetwork extends Subnetwork {
         trainingSet.setTargetData(targetData);
 
         // Make Trainable object
-        Trainable trainable = new Trainable() {
+        Trainable trainable = makeTrainable(full, trainingSet);
+        // Create the offline trainer.
+        LMSOffline trainer = new LMSOffline(trainable);
+        return trainer;
+
+    }
+
+    /**
+     * Return a trainer which has accumulated the correlations of the
+     * harvested states with the desired outputs, without storing the states
+     * themselves. Unlike {@link #getTrainer()}, memory use does not depend on
+     * the length of the data. More samples can be added to the trainer (e.g.
+     * with {@link LMSStreaming#addCurrentState(double[])} as the network runs)
+     * and it can be applied again.
+     *
+     * @return the trainer
+     */
+    public LMSStreaming getStreamingTrainer() {
+        if (targetData[0].length != outputLayer.getNeuronList().size()) {
+            throw new IllegalArgumentException("Output data length does not " + "match the number of output nodes");
+        }
+        // The trainer handles non-linearities in the outputs itself
+        final LMSStreaming trainer = new LMSStreaming(makeTrainable(getHarvestedNeurons(), new TrainingSet()));
+        harvestData((state, row) -> trainer.addSample(state, targetData[row]));
+        return trainer;
+    }
+
+    /**
+     * Returns the neurons whose states are harvested for training: the input
+     * layer if there are direct input to output weights, the reservoir, and the
+     * output layer if there are recurrent output weights, in that order.
+     *
+     * @return the harvested neurons
+     */
+    private List<Neuron> getHarvestedNeurons() {
+        final ArrayList<Neuron> full = new ArrayList<Neuron>();
+        if (directInOutWeights) {
+            for (Neuron node : getInputLayer().getNeuronList()) {
+                full.add(node);
+            }
+        }
+        for (Neuron node : reservoirLayer.getNeuronList()) {
+            full.add(node);
+        }
+        if (recurrentOutWeights) {
+            for (Neuron node : this.getOutputLayer().getNeuronList()) {
+                full.add(node);
+            }
+        }
+        return full;
+    }
+
+    /**
+     * Make a trainable object for the readout weights.
+     *
+     * @param full        the harvested neurons
+     * @param trainingSet the training set
+     * @return the trainable object
+     */
+    private Trainable makeTrainable(final List<Neuron> full, final TrainingSet trainingSet) {
+        return new Trainable() {
 
             @Override
             public List<Neuron> getInputNeurons() {
@@ -418,10 +467,18 @@ public class EchoStateNetwork extends Subnetwork {
             }
 
         };
-        // Create the offline trainer.
-        LMSOffline trainer = new LMSOffline(trainable);
-        return trainer;
+    }
 
+    /**
+     * Harvest state data in to a matrix.
+     *
+     * @return a matrix of data to be used for training
+     * @see #harvestData(ObjIntConsumer)
+     */
+    private double[][] harvestData() {
+        double[][] returnMatrix = new double[inputData.length][];
+        harvestData((state, row) -> returnMatrix[row] = state.clone());
+        return returnMatrix;
     }
 
     /**
@@ -429,12 +486,13 @@ public class EchoStateNetwork extends Subnetwork {
      * Network. This method iterates through each row of input and teacher data
      * (if the network possesses back weights and/or recurrent output weights),
      * and updates the reservoir. Depending on the ESN's un-frozen connectivity
-     * the resulting return matrix will have rows consisting of concatenated
-     * input, reservoir, and (teacher-forced) output states in that order.
+     * the harvested states consist of concatenated input, reservoir, and
+     * (teacher-forced) output states in that order.
      *
-     * @return a matrix of data to be used for training
+     * @param sink receives the state harvested for each row of the data, and
+     *             the row. The state array is reused for the next row.
      */
-    private double[][] harvestData() {
+    private void harvestData(ObjIntConsumer<double[]> sink) {
 
         // The minimum number of state matrix columns
         int columnNumber = numResNodes;
@@ -448,8 +506,8 @@ public class EchoStateNetwork extends Subnetwork {
             columnNumber += numOutputs;
         }
 
-        // State matrix
-        double[][] returnMatrix = new double[inputData.length][columnNumber];
+        // State of the current row
+        double[] state = new double[columnNumber];
 
         boolean harvest = false;
 
@@ -469,7 +527,7 @@ public class EchoStateNetwork extends Subnetwork {
                     if (directInOutWeights && harvest) {
                         // Add input states to state matrix if direct in to out
                         // connections are desired
-                        returnMatrix[row][col] = neuron.getActivation();
+                        state[col] = neuron.getActivation();
                         col++;
                     }
 
@@ -502,7 +560,7 @@ public class EchoStateNetwork extends Subnetwork {
                     }
 
                     if (harvest) {
-                        returnMatrix[row][col] = n.getActivation();
+                        state[col] = n.getActivation();
                     }
                     col++;
                 }
@@ -512,15 +570,16 @@ public class EchoStateNetwork extends Subnetwork {
                 if (recurrentOutWeights && harvest) {
                     for (int i = 0; i < targetData[0].length; i++) {
                         // Teacher-forcing
-                        returnMatrix[row][col] = targetData[row][i];
+                        state[col] = targetData[row][i];
                         col++;
                     }
                 }
+                if (harvest) {
+                    sink.accept(state, row);
+                }
             }
             harvest = true;
         }
-
-        return returnMatrix;
     }
 
     /**
@@ -31,7 +31,7 @@ public class LMSNetwork extends FeedForward implements Trainable {
     /**
      * Training set.
      */
-    private final TrainingSet trainingSet = new TrainingSet();
+    private TrainingSet trainingSet = new TrainingSet();
 
     /**
      * Construct a new LMS Network.
@@ -52,6 +52,17 @@ public class LMSNetwork extends FeedForward implements Trainable {
         return trainingSet;
     }
 
+    /**
+     * Replace the training set, for example with a
+     * {@link org.simbrain.network.trainers.MappedTrainingSet} for data too
+     * large to hold in memory.
+     *
+     * @param trainingSet the new training set
+     */
+    public void setTrainingSet(TrainingSet trainingSet) {
+        this.trainingSet = trainingSet;
+    }
+
     @Override
     public void initNetwork() {
     }
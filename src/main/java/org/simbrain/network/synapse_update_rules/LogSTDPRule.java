@@ -78,6 +78,27 @@ public class LogSTDPRule extends STDPRule {
 
     private double delta_w=0;
 
+    @Override
+    public LogSTDPRule deepCopy() {
+        LogSTDPRule cpy = new LogSTDPRule();
+        cpy.setTau_minus(getTau_minus());
+        cpy.setTau_plus(getTau_plus());
+        cpy.setW_minus(getW_minus());
+        cpy.setW_plus(getW_plus());
+        cpy.setLearningRate(getLearningRate());
+        cpy.setHebbian(isHebbian());
+        cpy.setContinuous(isContinuous());
+        cpy.setDelta_w(super.getDelta_w());
+        cpy.smallWtThreshold = smallWtThreshold;
+        cpy.w_plus = w_plus;
+        cpy.w_minus = w_minus;
+        cpy.logSaturation = logSaturation;
+        cpy.ltpMod = ltpMod;
+        cpy.noiseVar = noiseVar;
+        cpy.delta_w = delta_w;
+        return cpy;
+    }
+
     /**
      * Updates the synapse's strength using Log-STDP.
      */
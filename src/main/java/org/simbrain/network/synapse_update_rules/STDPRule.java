@@ -107,6 +107,8 @@ public class STDPRule extends SynapseUpdateRule {
         duplicateSynapse.setW_plus(this.getW_plus());
         duplicateSynapse.setLearningRate(this.getLearningRate());
         duplicateSynapse.setHebbian(hebbian);
+        duplicateSynapse.setContinuous(continuous);
+        duplicateSynapse.setDelta_w(delta_w);
         return duplicateSynapse;
     }
 
@@ -129,6 +129,8 @@ public class ShortTermPlasticityRule extends SynapseUpdateRule {
         stp.setDecayRate(getDecayRate());
         stp.setInputThreshold(getInputThreshold());
         stp.setPlasticityType(getPlasticityType());
+        stp.setFiringThreshold(getFiringThreshold());
+        stp.activated = activated;
         return stp;
     }
 
@@ -39,6 +39,7 @@ public class StaticSynapseRule extends SynapseUpdateRule {
     @Override
     public SynapseUpdateRule deepCopy() {
         StaticSynapseRule cs = new StaticSynapseRule();
+        cs.clipped = clipped;
         return cs;
     }
 
@@ -48,6 +48,7 @@ public class ConvolvedJumpAndDecay extends SpikeResponder {
         jad.setBaseLine(this.getBaseLine());
         jad.setJumpHeight(this.getJumpHeight());
         jad.setTimeConstant(this.getTimeConstant());
+        jad.value = value;
         return jad;
     }
 
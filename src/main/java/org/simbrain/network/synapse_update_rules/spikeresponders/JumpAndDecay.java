@@ -58,6 +58,7 @@ public class JumpAndDecay extends SpikeResponder {
         jad.setBaseLine(this.getBaseLine());
         jad.setJumpHeight(this.getJumpHeight());
         jad.setTimeConstant(this.getTimeConstant());
+        jad.value = value;
         return jad;
     }
 
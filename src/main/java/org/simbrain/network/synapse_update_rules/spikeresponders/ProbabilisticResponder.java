@@ -52,6 +52,7 @@ public class ProbabilisticResponder extends SpikeResponder {
         ProbabilisticResponder pr = new ProbabilisticResponder();
         pr.setActivationProbability(this.getActivationProbability());
         pr.setResponseValue(this.getResponseValue());
+        pr.value = value;
         return pr;
     }
 
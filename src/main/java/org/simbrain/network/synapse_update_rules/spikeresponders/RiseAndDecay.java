@@ -50,6 +50,8 @@ public class RiseAndDecay extends SpikeResponder {
         RiseAndDecay rad = new RiseAndDecay();
         rad.setMaximumResponse(this.getMaximumResponse());
         rad.setTimeConstant(this.getTimeConstant());
+        rad.recovery = recovery;
+        rad.value = value;
         return rad;
     }
 
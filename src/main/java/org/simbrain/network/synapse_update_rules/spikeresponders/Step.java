@@ -72,6 +72,8 @@ public class Step extends SpikeResponder {
         Step st = new Step();
         st.setResponseHeight(this.getResponseHeight());
         st.setResponseDuration(this.getResponseDuration());
+        st.timer = timer;
+        st.value = value;
         return st;
     }
 
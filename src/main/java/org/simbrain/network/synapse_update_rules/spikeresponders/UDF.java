@@ -95,14 +95,23 @@ public class UDF extends SpikeResponder {
     public UDF() {
     }
 
-    /**
-     * Does not actually copy this UDF object. Since UDF has values always
-     * drawn from a distribution, it simply gives a new UDF object which
-     * proceeds to draw its parameters from the same distributions.
-     */
     @Override
     public UDF deepCopy() {
-        return new UDF();
+        UDF udf = new UDF();
+        udf.U = U;
+        udf.D = D;
+        udf.F = F;
+        udf.tau = tau;
+        udf.lastSpikeTime = lastSpikeTime;
+        udf.u = u;
+        udf.R = R;
+        udf.firstTime = firstTime;
+        udf.value = value;
+        udf.spikeDecay.setBaseLine(spikeDecay.getBaseLine());
+        udf.spikeDecay.setJumpHeight(spikeDecay.getJumpHeight());
+        udf.spikeDecay.setTimeConstant(spikeDecay.getTimeConstant());
+        udf.spikeDecay.value = spikeDecay.value;
+        return udf;
     }
 
     @Override
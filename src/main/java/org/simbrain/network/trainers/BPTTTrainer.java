@@ -18,18 +18,32 @@
  */
 package org.simbrain.network.trainers;
 
+import org.jblas.DoubleMatrix;
 import org.simbrain.network.core.Neuron;
 import org.simbrain.network.core.Synapse;
+import org.simbrain.network.groups.NeuronGroup;
+import org.simbrain.network.neuron_update_rules.TransferFunction;
 import org.simbrain.network.neuron_update_rules.interfaces.BiasedUpdateRule;
-import org.simbrain.network.neuron_update_rules.interfaces.DifferentiableUpdateRule;
 import org.simbrain.network.subnetworks.BPTTNetwork;
 
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Trainer for backprop through time Networks. As a test use the "Walker"
  * tables.
+ * <p>
+ * Like {@link BackpropTrainer}, training runs on an array-based "shadow" of
+ * the network. Each sequence of {@link BPTTNetwork#getStepsPerSequences()}
+ * rows is unrolled in time: the first row of the sequence is fed to the input
+ * layer and on each later step the input layer holds the previous outputs, as
+ * in {@link BPTTNetwork#update()}. The activations and derivatives of every
+ * step are kept in per-step buffers, errors are backpropagated through all
+ * the steps (including through the output-to-input copy), and the summed
+ * gradients are applied at the end of the sequence. The learned weights and
+ * biases are written back to the network once per epoch. The iteration
+ * count goes up by one for each row trained.
  *
  * @author jyoshimi
  */
@@ -66,31 +80,100 @@ public class BPTTTrainer extends IterableTrainer {
     private double momentum = DEFAULT_MOMENTUM;
 
     /**
-     * For storing current error contribution of each neuron.
+     * Input to hidden weights (hidden x input).
      */
-    private HashMap<Neuron, Double> errorMap;
+    private final DoubleMatrix inputToHidden;
 
     /**
-     * For storing weight deltas.
+     * Hidden to output weights (output x hidden).
      */
-    private HashMap<Synapse, Double> weightDeltaMap;
+    private final DoubleMatrix hiddenToOutput;
 
     /**
-     * For storing bias deltas.
+     * Synapses corresponding to each entry of {@link #inputToHidden}, or null
+     * where there is no synapse.
      */
-    private HashMap<Neuron, Double> biasDeltaMap;
+    private final Synapse[] inputToHiddenSynapses;
 
     /**
-     * Construct the SRN trainer.
+     * Synapses corresponding to each entry of {@link #hiddenToOutput}, or null
+     * where there is no synapse.
+     */
+    private final Synapse[] hiddenToOutputSynapses;
+
+    /**
+     * Hidden and output biases.
+     */
+    private final DoubleMatrix hiddenBiases, outputBiases;
+
+    /**
+     * Summed gradients over the current sequence.
+     */
+    private final DoubleMatrix inputToHiddenGrad, hiddenToOutputGrad, hiddenBiasGrad, outputBiasGrad;
+
+    /**
+     * Last weight and bias updates, for momentum.
+     */
+    private final DoubleMatrix lastInputToHidden, lastHiddenToOutput, lastHiddenBias, lastOutputBias;
+
+    /**
+     * Transfer functions of the hidden and output layers.
+     */
+    private final TransferFunction hiddenRule, outputRule;
+
+    /**
+     * Per-step activation, derivative and error buffers, indexed by step in
+     * the sequence.
+     */
+    private DoubleMatrix[] inputs, hiddenNetInputs, hiddens, hiddenDerivs, outputNetInputs, outputs, outputDerivs, errors;
+
+    /**
+     * Deltas of the step being backpropagated.
+     */
+    private final DoubleMatrix hiddenDeltas, outputDeltas;
+
+    /**
+     * Deltas on the input layer from the step after the one being
+     * backpropagated, which flow back to the outputs that were copied to the
+     * inputs.
+     */
+    private final DoubleMatrix nextInputDeltas;
+
+    /**
+     * Construct the BPTT trainer.
      *
-     * @param bptt the simple recurrent network
+     * @param bptt the network to train
      */
     public BPTTTrainer(BPTTNetwork bptt) {
         super(bptt);
         this.bptt = bptt;
-        errorMap = new HashMap<Neuron, Double>();
-        weightDeltaMap = new HashMap<Synapse, Double>();
-        biasDeltaMap = new HashMap<Neuron, Double>();
+        NeuronGroup in = bptt.getInputLayer();
+        NeuronGroup hid = bptt.getHiddenLayer();
+        NeuronGroup out = bptt.getOutputLayer();
+
+        inputToHidden = DoubleMatrix.zeros(hid.size(), in.size());
+        hiddenToOutput = DoubleMatrix.zeros(out.size(), hid.size());
+        inputToHiddenSynapses = findSynapses(in, hid);
+        hiddenToOutputSynapses = findSynapses(hid, out);
+        hiddenBiases = DoubleMatrix.zeros(hid.size());
+        outputBiases = DoubleMatrix.zeros(out.size());
+
+        inputToHiddenGrad = DoubleMatrix.zeros(hid.size(), in.size());
+        hiddenToOutputGrad = DoubleMatrix.zeros(out.size(), hid.size());
+        hiddenBiasGrad = DoubleMatrix.zeros(hid.size());
+        outputBiasGrad = DoubleMatrix.zeros(out.size());
+        lastInputToHidden = DoubleMatrix.zeros(hid.size(), in.size());
+        lastHiddenToOutput = DoubleMatrix.zeros(out.size(), hid.size());
+        lastHiddenBias = DoubleMatrix.zeros(hid.size());
+        lastOutputBias = DoubleMatrix.zeros(out.size());
+
+        hiddenRule = (TransferFunction) hid.getNeuronList().get(0).getUpdateRule();
+        outputRule = (TransferFunction) out.getNeuronList().get(0).getUpdateRule();
+
+        hiddenDeltas = DoubleMatrix.zeros(hid.size());
+        outputDeltas = DoubleMatrix.zeros(out.size());
+        nextInputDeltas = DoubleMatrix.zeros(in.size());
+
         setIteration(0);
         mse = 0;
     }
@@ -101,146 +184,249 @@ public class BPTTTrainer extends IterableTrainer {
 
         int numRows = getMinimumNumRows(network);
         int numInputs = network.getInputNeurons().size();
-        // System.out.println("Data:" + numInputs + "/" + numRows);
 
         if ((numRows == 0) || (numInputs == 0)) {
             // TODO: Throw warning
             return;
         }
 
-        for (int row = 0; row < numRows; row++) {
-            if (firstPatternInSet()) {
-                // System.out.println("First in set:" + iteration);
-                // For new patterns begin with a regular forward propagation
-                bptt.initNetwork();
-                bptt.getInputLayer().setActivations(network.getTrainingSet().getInputData()[row]);
-                // bptt.getInputLayer().printActivations();
-                bptt.getHiddenLayer().update();
-                bptt.getOutputLayer().update();
-                weightDeltaMap.clear();
-                biasDeltaMap.clear();
-            } else {
-                // Update network. This puts outputs in to inputs.
-                bptt.update();
-                // bptt.getInputLayer().printActivations();
-            }
-
-            // Set weight and bias deltas by backpropagating error
-            backpropagateStoreError(network, row);
-
-            // Update weights
-            if (lastPatternInSet()) {
-                // System.out.println("Last in set:" + iteration);
-                for (Synapse synapse : weightDeltaMap.keySet()) {
-                    // System.out.println(synapse.getId() + ":"
-                    // + Utils.round(synapse.getStrength(), 2) + " + "
-                    // + Utils.round(weightDeltaMap.get(synapse), 2));
-                    synapse.setStrength(synapse.getStrength() + weightDeltaMap.get(synapse) / bptt.getStepsPerSequences());
-                }
-
-                // Update biases
-                for (Neuron neuron : biasDeltaMap.keySet()) {
-                    BiasedUpdateRule biasedNeuron = (BiasedUpdateRule) (neuron.getUpdateRule());
-                    biasedNeuron.setBias(biasedNeuron.getBias() + biasDeltaMap.get(neuron) / bptt.getStepsPerSequences());
-                }
+        // Pick up any changes made to the network since the last epoch
+        readParameters();
+        initStepBuffers(bptt.getStepsPerSequences());
+
+        double[][] inputData = network.getTrainingSet().getInputData();
+        double[][] targetData = network.getTrainingSet().getTargetData();
+        int steps = bptt.getStepsPerSequences();
+        int lastLength = 0;
+        for (int first = 0; first < numRows; first += steps) {
+            lastLength = Math.min(steps, numRows - first);
+            forwardSequence(inputData[first], targetData, first, lastLength);
+            backpropagateSequence(lastLength);
+            updateParameters(lastLength);
+            // Iterations count rows, as when rows were trained one at a time
+            for (int t = 0; t < lastLength; t++) {
+                incrementIteration();
             }
-            incrementIteration();
         }
 
+        writeParameters(lastLength - 1);
+
         // Update MSE/ TODO: Think about this error rep...
         mse = mse / (numRows * network.getOutputNeurons().size());
         fireErrorUpdated();
+    }
 
+    /**
+     * Run a sequence forward, storing the activations, derivatives and errors
+     * of each step.
+     *
+     * @param firstInput input row for the first step
+     * @param targetData all target rows
+     * @param firstRow   row of the first step
+     * @param length     number of steps in the sequence
+     */
+    private void forwardSequence(double[] firstInput, double[][] targetData, int firstRow, int length) {
+        DoubleMatrix input = inputs[0];
+        input.fill(0);
+        System.arraycopy(firstInput, 0, input.data, 0, Math.min(firstInput.length, input.length));
+        for (int t = 0; t < length; t++) {
+            if (t > 0) {
+                // The input layer holds the outputs of the previous step
+                inputs[t].fill(0);
+                System.arraycopy(outputs[t - 1].data, 0, inputs[t].data, 0, Math.min(outputs[t - 1].length, inputs[t].length));
+            }
+            inputToHidden.mmuli(inputs[t], hiddenNetInputs[t]);
+            hiddenNetInputs[t].addi(hiddenBiases);
+            hiddenRule.applyFunctionAndDerivative(hiddenNetInputs[t], hiddens[t], hiddenDerivs[t]);
+            hiddenToOutput.mmuli(hiddens[t], outputNetInputs[t]);
+            outputNetInputs[t].addi(outputBiases);
+            outputRule.applyFunctionAndDerivative(outputNetInputs[t], outputs[t], outputDerivs[t]);
+
+            double[] target = targetData[firstRow + t];
+            double[] error = errors[t].data;
+            double[] output = outputs[t].data;
+            for (int j = 0; j < error.length; j++) {
+                error[j] = target[j] - output[j];
+                mse += error[j] * error[j];
+            }
+        }
     }
 
     /**
-     * True if this is the iteration that begans a training series.
+     * Backpropagate the errors of a sequence from its last step to its first,
+     * summing the weight and bias gradients of every step.
      *
-     * @return true if first patter in a set.
+     * @param length number of steps in the sequence
      */
-    private boolean firstPatternInSet() {
-        return ((getIteration() % bptt.getStepsPerSequences()) == 0);
+    private void backpropagateSequence(int length) {
+        inputToHiddenGrad.fill(0);
+        hiddenToOutputGrad.fill(0);
+        hiddenBiasGrad.fill(0);
+        outputBiasGrad.fill(0);
+        nextInputDeltas.fill(0);
+        int copied = Math.min(outputDeltas.length, nextInputDeltas.length);
+        for (int t = length - 1; t >= 0; t--) {
+            // Output deltas: error of this step plus the error on the copy of
+            // these outputs in the next step's inputs
+            errors[t].muli(outputDerivs[t], outputDeltas);
+            for (int j = 0; j < copied; j++) {
+                outputDeltas.data[j] += nextInputDeltas.data[j] * outputDerivs[t].data[j];
+            }
+            BackpropTrainer.backwardPropagate(outputDeltas, hiddenToOutput, hiddenDeltas);
+            hiddenDeltas.muli(hiddenDerivs[t]);
+            if (t > 0) {
+                BackpropTrainer.backwardPropagate(hiddenDeltas, inputToHidden, nextInputDeltas);
+            }
+
+            addOuterProduct(hiddenToOutputGrad, outputDeltas, hiddens[t]);
+            addOuterProduct(inputToHiddenGrad, hiddenDeltas, inputs[t]);
+            outputBiasGrad.addi(outputDeltas);
+            hiddenBiasGrad.addi(hiddenDeltas);
+        }
+    }
+
+    /**
+     * Add the outer product of deltas on a layer and activations of the layer
+     * feeding it to a gradient matrix, traversing the matrix in column-major
+     * order.
+     */
+    private static void addOuterProduct(DoubleMatrix grad, DoubleMatrix deltas, DoubleMatrix prevLayer) {
+        int kk = 0;
+        for (int ii = 0; ii < prevLayer.length; ii++) {
+            double act = prevLayer.data[ii];
+            for (int jj = 0; jj < deltas.length; jj++) {
+                grad.data[kk++] += deltas.data[jj] * act;
+            }
+        }
     }
 
     /**
-     * True if this is the iteration that ends a training series.
+     * Apply the gradients of a sequence, averaged over its steps, with
+     * momentum.
      *
-     * @return true if last pattern in a set.
+     * @param length number of steps in the sequence
      */
-    private boolean lastPatternInSet() {
-        return ((getIteration() % bptt.getStepsPerSequences()) == (bptt.getStepsPerSequences() - 1));
+    private void updateParameters(int length) {
+        double rate = learningRate / length;
+        step(inputToHidden, inputToHiddenGrad, lastInputToHidden, inputToHiddenSynapses, rate);
+        step(hiddenToOutput, hiddenToOutputGrad, lastHiddenToOutput, hiddenToOutputSynapses, rate);
+        step(hiddenBiases, hiddenBiasGrad, lastHiddenBias, null, rate);
+        step(outputBiases, outputBiasGrad, lastOutputBias, null, rate);
     }
 
     /**
-     * Compute error contribution for all nodes using backprop algorithm.
+     * Gradient step on one set of parameters. Entries with no corresponding
+     * synapse are left at zero.
+     */
+    private void step(DoubleMatrix params, DoubleMatrix grad, DoubleMatrix last, Synapse[] synapses, double rate) {
+        for (int kk = 0; kk < params.data.length; kk++) {
+            if (synapses != null && synapses[kk] == null) {
+                continue;
+            }
+            double deltaVal = rate * grad.data[kk] + momentum * last.data[kk];
+            params.data[kk] += deltaVal;
+            last.data[kk] = deltaVal;
+        }
+    }
+
+    /**
+     * Allocate the per-step buffers if the number of steps per sequence has
+     * changed.
      *
-     * @param row current row of training data
+     * @param steps number of steps per sequence
      */
-    private void backpropagateStoreError(Trainable network, int row) {
+    private void initStepBuffers(int steps) {
+        if (inputs != null && inputs.length == steps) {
+            return;
+        }
+        inputs = buffers(steps, inputToHidden.columns);
+        hiddenNetInputs = buffers(steps, hiddenBiases.length);
+        hiddens = buffers(steps, hiddenBiases.length);
+        hiddenDerivs = buffers(steps, hiddenBiases.length);
+        outputNetInputs = buffers(steps, outputBiases.length);
+        outputs = buffers(steps, outputBiases.length);
+        outputDerivs = buffers(steps, outputBiases.length);
+        errors = buffers(steps, outputBiases.length);
+    }
 
-        int i = 0;
-        for (Neuron outputNeuron : bptt.getOutputNeurons()) {
-            double targetValue = network.getTrainingSet().getTargetData()[row][i++];
-            double outputError = targetValue - outputNeuron.getActivation();
-            storeErrorAndDeltas(outputNeuron, outputError);
-            mse += Math.pow(outputError, 2);
+    private static DoubleMatrix[] buffers(int steps, int size) {
+        DoubleMatrix[] buffers = new DoubleMatrix[steps];
+        for (int t = 0; t < steps; t++) {
+            buffers[t] = DoubleMatrix.zeros(size);
         }
+        return buffers;
+    }
 
-        for (Neuron neuron : bptt.getHiddenLayer().getNeuronList()) {
-            // Compute sum of fan-out errors on this neuron
-            double sumFanOutErrors = 0;
-            for (Synapse synapse : neuron.getFanOut().values()) {
-                Neuron nextLayerNeuron = synapse.getTarget();
-                sumFanOutErrors += (errorMap.get(nextLayerNeuron) * synapse.getStrength());
+    /**
+     * Find the synapses from one layer to the next, in the column-major order
+     * of a (target x source) weight matrix.
+     */
+    private static Synapse[] findSynapses(NeuronGroup source, NeuronGroup target) {
+        Map<Neuron, Integer> sourceIndices = new HashMap<Neuron, Integer>();
+        for (int ii = 0; ii < source.size(); ii++) {
+            sourceIndices.put(source.getNeuron(ii), ii);
+        }
+        Synapse[] synapses = new Synapse[source.size() * target.size()];
+        for (int jj = 0; jj < target.size(); jj++) {
+            for (Synapse synapse : target.getNeuron(jj).getFanIn()) {
+                Integer ii = sourceIndices.get(synapse.getSource());
+                if (ii != null) {
+                    synapses[ii * target.size() + jj] = synapse;
+                }
             }
-            // Compute errors and deltas for previous layer
-            storeErrorAndDeltas(neuron, sumFanOutErrors);
         }
+        return synapses;
     }
 
     /**
-     * Store the error value, bias delta, and fan-in weight deltas for this
-     * neuron.
-     *
-     * @param neuron neuron whose activation function's derivative is used
-     * @param error  simple error for outputs, sum of errors in fan-out, times
-     *               weights for hidden units
-     */
-    private void storeErrorAndDeltas(Neuron neuron, double error) {
-
-        // Store error signal for this neuron
-        double errorSignal = 0;
-        if (neuron.getUpdateRule() instanceof DifferentiableUpdateRule) {
-            double derivative = ((DifferentiableUpdateRule) neuron.getUpdateRule()).getDerivative(neuron.getWeightedInputs());
-            errorSignal = error * derivative;
-            errorMap.put(neuron, errorSignal);
+     * Copy the network's weights and biases in to the shadow network.
+     */
+    private void readParameters() {
+        readWeights(inputToHidden, inputToHiddenSynapses);
+        readWeights(hiddenToOutput, hiddenToOutputSynapses);
+        readBiases(hiddenBiases, bptt.getHiddenLayer());
+        readBiases(outputBiases, bptt.getOutputLayer());
+    }
+
+    private static void readWeights(DoubleMatrix weights, Synapse[] synapses) {
+        for (int kk = 0; kk < synapses.length; kk++) {
+            weights.data[kk] = synapses[kk] == null ? 0 : synapses[kk].getStrength();
         }
+    }
 
-        // Compute and store weight deltas for the fan-in to this neuron
-        for (Synapse synapse : neuron.getFanIn()) {
-            double lastWeightDelta = 0;
-            if (weightDeltaMap.get(synapse) != null) {
-                lastWeightDelta = weightDeltaMap.get(synapse);
-            }
-            double weightDelta = learningRate * errorSignal * synapse.getSource().getActivation() + momentum * lastWeightDelta;
-            // Add up weight deltas
-            if (weightDeltaMap.get(synapse) == null) {
-                weightDeltaMap.put(synapse, weightDelta);
-            } else {
-                weightDeltaMap.put(synapse, weightDeltaMap.get(synapse) + weightDelta);
-            }
+    private static void readBiases(DoubleMatrix biases, NeuronGroup layer) {
+        for (int ii = 0; ii < biases.length; ii++) {
+            biases.data[ii] = ((BiasedUpdateRule) layer.getNeuron(ii).getUpdateRule()).getBias();
         }
+    }
 
-        // Compute and store bias delta for this neuron
-        if (neuron.getUpdateRule() instanceof BiasedUpdateRule) {
-            double biasUpdate = learningRate * errorSignal;
-            // Add up weight deltas
-            if (biasDeltaMap.get(neuron) == null) {
-                biasDeltaMap.put(neuron, biasUpdate);
-            } else {
-                biasDeltaMap.put(neuron, biasDeltaMap.get(neuron) + biasUpdate);
+    /**
+     * Write the shadow network's weights and biases back to the network, and
+     * show the activations of the given step of the last sequence.
+     *
+     * @param lastStep step of the last sequence whose activations to show
+     */
+    private void writeParameters(int lastStep) {
+        writeWeights(inputToHidden, inputToHiddenSynapses);
+        writeWeights(hiddenToOutput, hiddenToOutputSynapses);
+        writeBiases(hiddenBiases, bptt.getHiddenLayer());
+        writeBiases(outputBiases, bptt.getOutputLayer());
+        bptt.getInputLayer().forceSetActivations(inputs[lastStep].data);
+        bptt.getHiddenLayer().forceSetActivations(hiddens[lastStep].data);
+        bptt.getOutputLayer().forceSetActivations(outputs[lastStep].data);
+    }
+
+    private static void writeWeights(DoubleMatrix weights, Synapse[] synapses) {
+        for (int kk = 0; kk < synapses.length; kk++) {
+            if (synapses[kk] != null) {
+                synapses[kk].setStrength(weights.data[kk]);
             }
+        }
+    }
 
+    private static void writeBiases(DoubleMatrix biases, NeuronGroup layer) {
+        for (int ii = 0; ii < biases.length; ii++) {
+            ((BiasedUpdateRule) layer.getNeuron(ii).getUpdateRule()).setBias(biases.data[ii]);
         }
     }
 
@@ -254,6 +440,10 @@ public class BPTTTrainer extends IterableTrainer {
         randomize(bptt.getHiddenLayer().getNeuronList());
         randomize(bptt.getOutputLayer().getNeuronList());
         revalidateSynapseGroups();
+        lastInputToHidden.fill(0);
+        lastHiddenToOutput.fill(0);
+        lastHiddenBias.fill(0);
+        lastOutputBias.fill(0);
     }
 
     /**
@@ -19,6 +19,7 @@
 package org.simbrain.network.trainers;
 
 import org.jblas.DoubleMatrix;
+import org.jblas.NativeBlas;
 import org.simbrain.network.core.Neuron;
 import org.simbrain.network.groups.NeuronGroup;
 import org.simbrain.network.groups.SynapseGroup;
@@ -49,13 +50,15 @@ public class BackpropTrainer extends IterableTrainer {
          * Calculate outputs and errors for every row of the training data.
          */
         EPOCH, /**
-         * Not Implemented.
+         * Calculate outputs and errors for every row of the training data at once, and descend the gradient
+         * averaged over all the rows.
          */
         BATCH, /**
          * Calculate outputs and errors for a randomly selected row of training data.
          */
         STOCHASTIC, /**
-         * Not Implemented
+         * Calculate outputs and errors for a block of consecutive rows of the training data at once, and descend
+         * the gradient averaged over the block. Successive blocks cycle through the training data.
          */
         MINI_BATCH, /**
          * Calculate outputs and errors for a single row of the training data determined by the current iteration.
@@ -73,6 +76,11 @@ public class BackpropTrainer extends IterableTrainer {
      */
     public static final double DEFAULT_MOMENTUM = 0.0;
 
+    /**
+     * Default number of rows in a mini-batch.
+     */
+    public static final int DEFAULT_BATCH_SIZE = 32;
+
     /**
      * The backprop network to be trained.
      */
@@ -159,6 +167,12 @@ public class BackpropTrainer extends IterableTrainer {
      */
     private DoubleMatrix targetData;
 
+    /**
+     * Memory-mapped training data, read a block at a time instead of being
+     * copied in to {@link #inputData} and {@link #targetData}.
+     */
+    private MappedTrainingSet mappedData;
+
     /**
      * List of activation functions for easy reference.
      */
@@ -189,6 +203,26 @@ public class BackpropTrainer extends IterableTrainer {
         order = 2)
     private double momentum = DEFAULT_MOMENTUM;
 
+    /**
+     * Number of rows in a mini-batch.
+     */
+    @UserParameter(
+        label = "Batch Size",
+        description = "Number of rows of training data used for each weight update in mini-batch mode",
+        minimumValue = 1,
+        order = 3)
+    private int batchSize = DEFAULT_BATCH_SIZE;
+
+    /**
+     * Row of the training data where the next mini-batch starts.
+     */
+    private int batchStart;
+
+    /**
+     * Shards over which the rows of a block are split, one per thread.
+     */
+    private List<GradientShard> shards = new ArrayList<GradientShard>();
+
     /**
      * Mean squared error of the most recent training step.
      */
@@ -265,6 +299,13 @@ public class BackpropTrainer extends IterableTrainer {
             mse = trainRow(rowNum);
         } else if (updateMethod == UpdateMethod.SINGLE) {
             mse = trainRow(getIteration() % numTrainingExamples);
+        } else if (updateMethod == UpdateMethod.BATCH) {
+            mse = trainBlock(0, numTrainingExamples);
+        } else if (updateMethod == UpdateMethod.MINI_BATCH) {
+            int size = Math.min(batchSize, numTrainingExamples);
+            int start = batchStart % numTrainingExamples;
+            mse = trainBlock(start, size);
+            batchStart = (start + size) % numTrainingExamples;
         }
         incrementIteration();
         fireErrorUpdated();
@@ -279,10 +320,10 @@ public class BackpropTrainer extends IterableTrainer {
     private double trainRow(int row) {
         batchErrors.fill(0);
         // Get the inputs and feed them forward
-        inputLayer = inputData.getColumn(row);
+        inputLayer = getInputColumn(row);
         updateNetwork();
         // Backpropagate error
-        targetVector = targetData.getColumn(row);
+        targetVector = getTargetColumn(row);
         targetVector.subi(getOutputLayer(), errors);
         batchErrors.addi(errors);
         backpropagateError();
@@ -302,9 +343,9 @@ public class BackpropTrainer extends IterableTrainer {
         batchErrors.fill(0);
         for (int row = firstRow; row < lastRow; row++) {
             // Get the inputs and feed them forward
-            inputLayer = inputData.getColumn(row);
+            inputLayer = getInputColumn(row);
             updateNetwork();
-            targetVector = targetData.getColumn(row);
+            targetVector = getTargetColumn(row);
             targetVector.subi(getOutputLayer(), errors);
 
             // Calculate batch errors
@@ -319,6 +360,228 @@ public class BackpropTrainer extends IterableTrainer {
         return batchErrors.mul(batchErrors).sum() / network.getOutputNeurons().size();
     }
 
+    /**
+     * Backpropagate errors for a block of rows at once. The forward and
+     * backward passes are matrix-matrix products over the whole block (one
+     * row of the dataset per column), and the weight and bias updates are the
+     * gradients averaged over the rows of the block, not the gradient of the
+     * averaged error as in {@link #trainRows(int, int)}.
+     * <p>
+     * If the trainer uses more than one thread the block is split in to
+     * shards, whose gradients are computed in parallel against the same
+     * weights and then summed before the weights are updated.
+     *
+     * @param firstRow first row of the block
+     * @param numRows  number of rows in the block. Rows past the end of the
+     *                 dataset wrap around to the beginning.
+     * @return mean squared error over the block
+     */
+    private double trainBlock(int firstRow, int numRows) {
+        int numShards = Math.min(getNumThreads(), numRows);
+        while (shards.size() < numShards) {
+            shards.add(new GradientShard());
+        }
+        while (shards.size() > numShards) {
+            shards.remove(shards.size() - 1);
+        }
+        for (int ss = 0; ss < numShards; ss++) {
+            int start = (int) ((long) numRows * ss / numShards);
+            int end = (int) ((long) numRows * (ss + 1) / numShards);
+            shards.get(ss).setRows(firstRow + start, end - start);
+        }
+        invokeShards(shards);
+
+        // Sum the shards' gradients in to the first shard
+        GradientShard total = shards.get(0);
+        for (int ss = 1; ss < numShards; ss++) {
+            GradientShard shard = shards.get(ss);
+            for (int layerIndex = 0; layerIndex < weightMatrices.size(); layerIndex++) {
+                total.weightGrads.get(layerIndex).addi(shard.weightGrads.get(layerIndex));
+                total.biasGrads.get(layerIndex).addi(shard.biasGrads.get(layerIndex));
+            }
+            total.sumSquaredError += shard.sumSquaredError;
+        }
+
+        // Update weights and biases with the averaged gradients (plus momentum)
+        double rate = learningRate / numRows;
+        for (int layerIndex = 0; layerIndex < weightMatrices.size(); layerIndex++) {
+            DoubleMatrix lastDeltas = lastWeightUpdates.get(layerIndex);
+            lastDeltas.muli(momentum).addi(total.weightGrads.get(layerIndex).muli(rate));
+            weightMatrices.get(layerIndex).addi(lastDeltas);
+            DoubleMatrix lastBiasDeltas = lastBiasUpdates.get(layerIndex);
+            lastBiasDeltas.muli(momentum).addi(total.biasGrads.get(layerIndex).muli(rate));
+            biases.get(layerIndex).addi(lastBiasDeltas);
+        }
+
+        // Leave the last row of the block in the single-row buffers, so that
+        // committed activations show the network's response to it
+        GradientShard last = shards.get(numShards - 1);
+        int lastCol = last.numRows - 1;
+        inputLayer = last.inputs.getColumn(lastCol);
+        for (int layerIndex = 0; layerIndex < layers.size(); layerIndex++) {
+            last.layers.get(layerIndex).getColumn(lastCol, layers.get(layerIndex));
+        }
+        last.errors.getColumn(lastCol, errors);
+
+        return total.sumSquaredError / (numRows * errors.length);
+    }
+
+    /**
+     * Computes the summed weight and bias gradients over a range of rows of
+     * the training data. Each shard reads the trainer's weights and biases
+     * but only writes to its own buffers, which are reused as long as the
+     * number of rows stays the same, so that shards can run in parallel.
+     */
+    private class GradientShard implements Runnable {
+
+        /**
+         * First row of the shard.
+         */
+        private int firstRow;
+
+        /**
+         * Number of rows in the shard.
+         */
+        private int numRows;
+
+        /**
+         * Inputs of the shard's rows, one row per column.
+         */
+        private DoubleMatrix inputs;
+
+        /**
+         * Targets of the shard's rows, one row per column.
+         */
+        private DoubleMatrix targets;
+
+        /**
+         * Output errors of the shard's rows.
+         */
+        private DoubleMatrix errors;
+
+        /**
+         * Net inputs, activations, derivatives and deltas of each layer for
+         * the shard's rows.
+         */
+        private final List<DoubleMatrix> netInputs = new ArrayList<DoubleMatrix>(), layers = new ArrayList<DoubleMatrix>(), derivs = new ArrayList<DoubleMatrix>(), deltas = new ArrayList<DoubleMatrix>();
+
+        /**
+         * Summed weight and bias gradients of each weight layer.
+         */
+        private final List<DoubleMatrix> weightGrads = new ArrayList<DoubleMatrix>(), biasGrads = new ArrayList<DoubleMatrix>();
+
+        /**
+         * Sum of squared output errors over the shard's rows.
+         */
+        private double sumSquaredError;
+
+        GradientShard() {
+            for (int layerIndex = 0; layerIndex < weightMatrices.size(); layerIndex++) {
+                DoubleMatrix wm = weightMatrices.get(layerIndex);
+                weightGrads.add(DoubleMatrix.zeros(wm.rows, wm.columns));
+                biasGrads.add(DoubleMatrix.zeros(wm.rows));
+            }
+        }
+
+        /**
+         * Set the rows of the training data used by the shard, allocating
+         * buffers if the number of rows has changed.
+         *
+         * @param first first row
+         * @param count number of rows. Rows past the end of the dataset wrap
+         *              around to the beginning.
+         */
+        void setRows(int first, int count) {
+            firstRow = first;
+            if (inputs != null && numRows == count) {
+                return;
+            }
+            numRows = count;
+            inputs = DoubleMatrix.zeros(inputLayer.length, count);
+            targets = DoubleMatrix.zeros(BackpropTrainer.this.errors.length, count);
+            errors = DoubleMatrix.zeros(BackpropTrainer.this.errors.length, count);
+            netInputs.clear();
+            layers.clear();
+            derivs.clear();
+            deltas.clear();
+            for (DoubleMatrix layer : BackpropTrainer.this.layers) {
+                netInputs.add(DoubleMatrix.zeros(layer.length, count));
+                layers.add(DoubleMatrix.zeros(layer.length, count));
+                derivs.add(DoubleMatrix.zeros(layer.length, count));
+                deltas.add(DoubleMatrix.zeros(layer.length, count));
+            }
+        }
+
+        @Override
+        public void run() {
+            // Copy the shard's columns in to its buffers. Columns are
+            // contiguous since jblas matrices are column-major.
+            if (mappedData != null) {
+                mappedData.readRows(firstRow, numRows, inputs.data, targets.data);
+            } else {
+                int numExamples = inputData.columns;
+                for (int kk = 0; kk < numRows; kk++) {
+                    int col = (firstRow + kk) % numExamples;
+                    System.arraycopy(inputData.data, col * inputData.rows, inputs.data, kk * inputData.rows, inputData.rows);
+                    System.arraycopy(targetData.data, col * targetData.rows, targets.data, kk * targetData.rows, targetData.rows);
+                }
+            }
+
+            // Forward pass
+            for (int layerIndex = 0; layerIndex < weightMatrices.size(); layerIndex++) {
+                DoubleMatrix prevLayer = layerIndex == 0 ? inputs : layers.get(layerIndex - 1);
+                DoubleMatrix netInput = netInputs.get(layerIndex);
+                weightMatrices.get(layerIndex).mmuli(prevLayer, netInput);
+                netInput.addiColumnVector(biases.get(layerIndex));
+                updateRules.get(layerIndex).applyFunctionAndDerivative(netInput, layers.get(layerIndex), derivs.get(layerIndex));
+            }
+
+            // Output errors and deltas, then deltas of the hidden layers
+            int maxLayerIndex = layers.size() - 1;
+            targets.subi(layers.get(maxLayerIndex), errors);
+            errors.muli(derivs.get(maxLayerIndex), deltas.get(maxLayerIndex));
+            for (int layerIndex = maxLayerIndex; layerIndex > 0; layerIndex--) {
+                DoubleMatrix prevDeltas = deltas.get(layerIndex - 1);
+                gemm('T', 'N', 1, weightMatrices.get(layerIndex), deltas.get(layerIndex), 0, prevDeltas);
+                prevDeltas.muli(derivs.get(layerIndex - 1));
+            }
+
+            // Summed gradients
+            for (int layerIndex = 0; layerIndex < weightMatrices.size(); layerIndex++) {
+                DoubleMatrix prevLayer = layerIndex == 0 ? inputs : layers.get(layerIndex - 1);
+                DoubleMatrix layerDeltas = deltas.get(layerIndex);
+                gemm('N', 'T', 1, layerDeltas, prevLayer, 0, weightGrads.get(layerIndex));
+                double[] biasGrad = biasGrads.get(layerIndex).data;
+                for (int ii = 0; ii < biasGrad.length; ii++) {
+                    double sum = 0;
+                    for (int kk = 0, off = ii; kk < numRows; kk++, off += layerDeltas.rows) {
+                        sum += layerDeltas.data[off];
+                    }
+                    biasGrad[ii] = sum;
+                }
+            }
+            sumSquaredError = errors.dot(errors);
+        }
+    }
+
+    /**
+     * In place general matrix multiply, c = alpha * op(a) * op(b) + beta * c,
+     * where op transposes its argument or not. Saves making transposed copies
+     * of the weight and activation matrices.
+     *
+     * @param transA 'T' to transpose a, 'N' not to
+     * @param transB 'T' to transpose b, 'N' not to
+     * @param alpha  multiplies the product
+     * @param a      left-hand matrix
+     * @param b      right-hand matrix
+     * @param beta   multiplies c before the product is added
+     * @param c      the result
+     */
+    private static void gemm(char transA, char transB, double alpha, DoubleMatrix a, DoubleMatrix b, double beta, DoubleMatrix c) {
+        int k = transA == 'N' ? a.columns : a.rows;
+        NativeBlas.dgemm(transA, transB, c.rows, c.columns, k, alpha, a.data, 0, a.rows, b.data, 0, b.rows, beta, c.data, 0, c.rows);
+    }
+
     /**
      * Update the array-based "shadow" network.
      */
@@ -477,16 +740,56 @@ public class BackpropTrainer extends IterableTrainer {
     }
 
     /**
-     * Initialize input and target datasets as JBlas matrices.
+     * Initialize input and target datasets as JBlas matrices. Memory-mapped
+     * training sets are not copied; their rows are read as they are needed.
      */
     public void initData() {
+        if (network.getTrainingSet() instanceof MappedTrainingSet) {
+            mappedData = (MappedTrainingSet) network.getTrainingSet();
+            inputData = null;
+            targetData = null;
+            return;
+        }
+        mappedData = null;
         // Store data as columns since that's what everything else deals with so there is no need to transpose later.
         if (network.getTrainingSet().getInputData() != null) {
-            inputData = new DoubleMatrix(network.getTrainingSet().getInputData()).transpose();
+            inputData = toColumns(network.getTrainingSet().getInputData());
         }
         if (network.getTrainingSet().getTargetData() != null) {
-            targetData = new DoubleMatrix(network.getTrainingSet().getTargetData()).transpose();
+            targetData = toColumns(network.getTrainingSet().getTargetData());
+        }
+    }
+
+    /**
+     * Copy rows of data in to the columns of a matrix, without making an
+     * intermediate untransposed copy.
+     *
+     * @param data the data, one row per array
+     * @return matrix with one row of the data per column
+     */
+    private static DoubleMatrix toColumns(double[][] data) {
+        int numCols = data.length == 0 ? 0 : data[0].length;
+        DoubleMatrix matrix = new DoubleMatrix(numCols, data.length);
+        for (int row = 0; row < data.length; row++) {
+            System.arraycopy(data[row], 0, matrix.data, row * numCols, numCols);
         }
+        return matrix;
+    }
+
+    /**
+     * @param row row of the input data
+     * @return the inputs of the row as a column vector
+     */
+    private DoubleMatrix getInputColumn(int row) {
+        return mappedData != null ? new DoubleMatrix(mappedData.getInput(row)) : inputData.getColumn(row);
+    }
+
+    /**
+     * @param row row of the target data
+     * @return the targets of the row as a column vector
+     */
+    private DoubleMatrix getTargetColumn(int row) {
+        return mappedData != null ? new DoubleMatrix(mappedData.getTarget(row)) : targetData.getColumn(row);
     }
 
     /**
@@ -619,4 +922,15 @@ public class BackpropTrainer extends IterableTrainer {
         this.updateMethod = updateMethod;
     }
 
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be at least 1.");
+        }
+        this.batchSize = batchSize;
+    }
+
 }
\ No newline at end of file
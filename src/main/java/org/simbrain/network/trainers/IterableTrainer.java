@@ -21,6 +21,8 @@ import org.simbrain.util.propertyeditor.EditableObject;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 /**
  * Superclass for all types of trainer which can be iterated and which return an
@@ -81,6 +83,22 @@ public abstract class IterableTrainer extends Trainer implements EditableObject
     @UserParameter(label = "Iterations for Before Stopping")
     private int iterationsBeforeStopping = 1000;
 
+    /**
+     * Number of threads across which trainers that support data-parallel
+     * training split the rows of the training set. 1 trains on the calling
+     * thread only.
+     */
+    @UserParameter(
+        label = "Threads",
+        description = "Number of threads over which to split the training data, for trainers which support it",
+        minimumValue = 1)
+    private int numThreads = 1;
+
+    /**
+     * Pool running data-parallel training shards. Created when first needed.
+     */
+    private transient ForkJoinPool pool;
+
     /**
      * Stopping condition.
      */
@@ -144,10 +162,10 @@ public abstract class IterableTrainer extends Trainer implements EditableObject
      */
     public void iterate() throws DataNotInitializedException {
 
-        if (getTrainableNetwork().getTrainingSet().getInputData() == null) {
+        if (!getTrainableNetwork().getTrainingSet().hasInputData()) {
             throw new DataNotInitializedException("Input data not initalized");
         }
-        if (getTrainableNetwork().getTrainingSet().getTargetData() == null) {
+        if (!getTrainableNetwork().getTrainingSet().hasTargetData()) {
             throw new DataNotInitializedException("Target data not initalized");
         }
 
@@ -266,11 +284,11 @@ public abstract class IterableTrainer extends Trainer implements EditableObject
      * @return least number of rows
      */
     protected int getMinimumNumRows(Trainable network) {
-        if ((network.getTrainingSet().getInputData() == null) || (network.getTrainingSet() == null)) {
+        if ((network.getTrainingSet() == null) || !network.getTrainingSet().hasInputData()) {
             return 0;
         }
-        int inputRows = network.getTrainingSet().getInputData().length;
-        int targetRows = network.getTrainingSet().getTargetData().length;
+        int inputRows = network.getTrainingSet().getSize();
+        int targetRows = network.getTrainingSet().getTargetSize();
         if (inputRows < targetRows) {
             return inputRows;
         } else {
@@ -333,6 +351,45 @@ public abstract class IterableTrainer extends Trainer implements EditableObject
     public void commitChanges() {
     }
 
+    /**
+     * Run the given shards of a training step, one per thread, and wait for
+     * all of them to finish. The first shard runs on the calling thread.
+     * Exceptions thrown by a shard are rethrown here.
+     *
+     * @param shards the shards to run
+     */
+    protected void invokeShards(List<? extends Runnable> shards) {
+        if (shards.size() == 1) {
+            shards.get(0).run();
+            return;
+        }
+        if (pool == null || pool.getParallelism() != numThreads) {
+            if (pool != null) {
+                pool.shutdown();
+            }
+            pool = new ForkJoinPool(numThreads);
+        }
+        List<ForkJoinTask<?>> tasks = new ArrayList<ForkJoinTask<?>>(shards.size() - 1);
+        for (int i = 1; i < shards.size(); i++) {
+            tasks.add(pool.submit(shards.get(i)));
+        }
+        shards.get(0).run();
+        for (ForkJoinTask<?> task : tasks) {
+            task.join();
+        }
+    }
+
+    public int getNumThreads() {
+        return numThreads;
+    }
+
+    public void setNumThreads(int numThreads) {
+        if (numThreads < 1) {
+            throw new IllegalArgumentException("At least one thread is required.");
+        }
+        this.numThreads = numThreads;
+    }
+
     public ProbabilityDistribution getRandomizer() {
         return randomizer;
     }
@@ -20,16 +20,41 @@ package org.simbrain.network.trainers;
 
 import org.simbrain.network.core.Network;
 import org.simbrain.network.core.Neuron;
+import org.simbrain.network.core.NeuronUpdateRule;
 import org.simbrain.network.core.Synapse;
+import org.simbrain.network.neuron_update_rules.LinearRule;
 import org.simbrain.network.neuron_update_rules.interfaces.BiasedUpdateRule;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 /**
  * Train using least mean squares.
+ * <p>
+ * By default weights are updated after every row of the training data, one
+ * row after another on the calling thread. In batch mode (see
+ * {@link #setBatch(boolean)}) each epoch is instead a single update: the rows
+ * are split across threads (see {@link #setNumThreads(int)}), each thread
+ * sums the weight and bias changes for its rows against the weights at the
+ * start of the epoch, and the sums are averaged over the rows and applied
+ * together. Batch and online training converge to the same solution, but
+ * batch training takes more epochs to get there at the same learning rate.
  *
  * @author jyoshimi
  */
 public class LMSIterative extends IterableTrainer {
 
+    /**
+     * Number of rows of a memory-mapped training set read at a time by each
+     * thread in batch training.
+     */
+    private static final int MAPPED_ROWS_PER_READ = 256;
+
     /**
      * Current error.
      */
@@ -40,6 +65,66 @@ public class LMSIterative extends IterableTrainer {
      */
     private double learningRate = .01;
 
+    /**
+     * If true each epoch is a single batch update, see
+     * {@link #setBatch(boolean)}.
+     */
+    private boolean batch = false;
+
+    /**
+     * Shards over which the rows are split in batch training.
+     */
+    private List<LMSShard> shards = new ArrayList<LMSShard>();
+
+    /**
+     * Input neurons when the batch training arrays were allocated.
+     */
+    private Neuron[] inputs;
+
+    /**
+     * Output neurons when the batch training arrays were allocated.
+     */
+    private Neuron[] outputs;
+
+    /**
+     * Fan-in synapses of each output neuron in batch training, indexed by
+     * output then synapse.
+     */
+    private Synapse[][] fanIn;
+
+    /**
+     * True if some output neuron is connected to an output neuron, in which
+     * case outputs can't be computed off the network.
+     */
+    private boolean outputsConnected;
+
+    /**
+     * Strengths of the synapses in {@link #fanIn} at the start of the epoch.
+     */
+    private double[][] weights;
+
+    /**
+     * Column of the training data feeding each synapse in {@link #fanIn}, or
+     * -1 if its source is not an input neuron.
+     */
+    private int[][] sourceColumns;
+
+    /**
+     * Activations of sources which are not input neurons. These are not
+     * changed by training so they are constant over an epoch.
+     */
+    private double[][] sourceActivations;
+
+    /**
+     * Parameters of the output neurons' linear rules in batch training.
+     */
+    private double[] slopes, biases, lowerBounds, upperBounds, externalInputs;
+
+    /**
+     * Whether each output neuron's linear rule is clipped.
+     */
+    private boolean[] clipped;
+
     /**
      * Construct a least mean squares iterative panel.
      *
@@ -50,7 +135,8 @@ public class LMSIterative extends IterableTrainer {
     }
 
     /**
-     * {@inheritDoc}
+     * Returns the mean squared error over the rows and outputs of the
+     * training data in the last epoch.
      */
     public double getError() {
         return rmsError;
@@ -59,19 +145,32 @@ public class LMSIterative extends IterableTrainer {
     @Override
     public void apply() {
 
-        rmsError = 0;
+        if (batch) {
+            if (!initBatch()) {
+                throw new IllegalStateException("Batch LMS training requires output neurons with noiseless linear rules which are not connected to each other.");
+            }
+            applyBatch();
+            return;
+        }
 
-        // Set local variables
-        int numRows = network.getTrainingSet().getInputData().length;
+        double sumSquaredError = 0;
+
+        // Set local variables. Rows are read one at a time, since the whole
+        // data of a memory-mapped training set is copied on each call to
+        // getInputData or getTargetData.
+        TrainingSet trainingSet = network.getTrainingSet();
+        int numRows = trainingSet.getSize();
         int numInputs = network.getInputNeurons().size();
         int numOutputs = network.getOutputNeurons().size();
 
         // Run through training data
         for (int row = 0; row < numRows; row++) {
+            double[] inputs = trainingSet.getInput(row);
+            double[] targets = trainingSet.getTarget(row);
 
             // Set input layer values
             for (int i = 0; i < numInputs; i++) {
-                network.getInputNeurons().get(i).forceSetActivation(network.getTrainingSet().getInputData()[row][i]);
+                network.getInputNeurons().get(i).forceSetActivation(inputs[i]);
             }
 
             // Update output node
@@ -82,9 +181,9 @@ public class LMSIterative extends IterableTrainer {
 
                 // Get target neuron and compute error
                 Neuron outputNeuron = network.getOutputNeurons().get(i);
-                double targetValue = network.getTrainingSet().getTargetData()[row][i];
+                double targetValue = targets[i];
                 double error = targetValue - outputNeuron.getActivation();
-                rmsError += (error * error); // TODO: Validate rmse
+                sumSquaredError += (error * error);
 
                 // Update weights
                 for (Synapse synapse : outputNeuron.getFanIn()) {
@@ -105,12 +204,293 @@ public class LMSIterative extends IterableTrainer {
                 BiasedUpdateRule bias = (BiasedUpdateRule) outputNeuron.getUpdateRule();
                 bias.setBias(bias.getBias() + (learningRate * error));
             }
-            rmsError = rmsError / (numInputs * numOutputs);
         }
+        rmsError = sumSquaredError / (numRows * numOutputs);
+        fireErrorUpdated();
+        incrementIteration();
+    }
+
+    /**
+     * Copy the fan-in weights and update rule parameters of the output
+     * neurons in to arrays the shards can read. The arrays are allocated when
+     * the input or output neurons or the output neurons' fan-in change, and
+     * refilled on each epoch. Batch training only supports outputs whose
+     * activations can be computed off the network, i.e. plain linear rules
+     * without noise which are not connected to each other.
+     *
+     * @return false if the outputs do not support batch training
+     */
+    private boolean initBatch() {
+        List<Neuron> outputNeurons = network.getOutputNeurons();
+        if (!isAllocated()) {
+            allocateBatch();
+        }
+        if (outputsConnected) {
+            return false;
+        }
+        for (int o = 0; o < outputs.length; o++) {
+            Neuron outputNeuron = outputNeurons.get(o);
+            NeuronUpdateRule rule = outputNeuron.getUpdateRule();
+            if (rule.getClass() != LinearRule.class) {
+                return false;
+            }
+            LinearRule linear = (LinearRule) rule;
+            if (linear.getAddNoise()) {
+                return false;
+            }
+            slopes[o] = linear.getSlope();
+            biases[o] = linear.getBias();
+            lowerBounds[o] = linear.getLowerBound();
+            upperBounds[o] = linear.getUpperBound();
+            clipped[o] = linear.isClipped();
+            externalInputs[o] = outputNeuron.getInputValue();
+            for (int k = 0; k < fanIn[o].length; k++) {
+                weights[o][k] = fanIn[o][k].getStrength();
+                sourceActivations[o][k] = fanIn[o][k].getSource().getActivation();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return true if the batch training arrays were allocated for the
+     * current input and output neurons and fan-in
+     */
+    private boolean isAllocated() {
+        List<Neuron> inputNeurons = network.getInputNeurons();
+        List<Neuron> outputNeurons = network.getOutputNeurons();
+        if (outputs == null || inputs.length != inputNeurons.size() || outputs.length != outputNeurons.size()) {
+            return false;
+        }
+        for (int i = 0; i < inputs.length; i++) {
+            if (inputs[i] != inputNeurons.get(i)) {
+                return false;
+            }
+        }
+        for (int o = 0; o < outputs.length; o++) {
+            List<Synapse> synapses = outputNeurons.get(o).getFanIn();
+            if (outputs[o] != outputNeurons.get(o) || fanIn[o].length != synapses.size()) {
+                return false;
+            }
+            for (int k = 0; k < fanIn[o].length; k++) {
+                if (fanIn[o][k] != synapses.get(k)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Allocate the batch training arrays for the current input and output
+     * neurons and fan-in.
+     */
+    private void allocateBatch() {
+        List<Neuron> inputNeurons = network.getInputNeurons();
+        List<Neuron> outputNeurons = network.getOutputNeurons();
+        int numOutputs = outputNeurons.size();
+        Map<Neuron, Integer> inputColumns = new HashMap<Neuron, Integer>();
+        for (int i = 0; i < inputNeurons.size(); i++) {
+            inputColumns.put(inputNeurons.get(i), i);
+        }
+        Set<Neuron> outputSet = new HashSet<Neuron>(outputNeurons);
+
+        inputs = inputNeurons.toArray(new Neuron[inputNeurons.size()]);
+        outputs = outputNeurons.toArray(new Neuron[numOutputs]);
+        fanIn = new Synapse[numOutputs][];
+        weights = new double[numOutputs][];
+        sourceColumns = new int[numOutputs][];
+        sourceActivations = new double[numOutputs][];
+        slopes = new double[numOutputs];
+        biases = new double[numOutputs];
+        lowerBounds = new double[numOutputs];
+        upperBounds = new double[numOutputs];
+        externalInputs = new double[numOutputs];
+        clipped = new boolean[numOutputs];
+        outputsConnected = false;
+        for (int o = 0; o < numOutputs; o++) {
+            List<Synapse> synapses = outputNeurons.get(o).getFanIn();
+            int n = synapses.size();
+            fanIn[o] = synapses.toArray(new Synapse[n]);
+            weights[o] = new double[n];
+            sourceColumns[o] = new int[n];
+            sourceActivations[o] = new double[n];
+            for (int k = 0; k < n; k++) {
+                Neuron source = fanIn[o][k].getSource();
+                outputsConnected |= outputSet.contains(source);
+                Integer column = inputColumns.get(source);
+                sourceColumns[o][k] = column == null ? -1 : column;
+            }
+        }
+    }
+
+    /**
+     * Apply one batch update, with the rows split across threads.
+     */
+    private void applyBatch() {
+        int numRows = network.getTrainingSet().getSize();
+        List<Neuron> outputNeurons = network.getOutputNeurons();
+        int numOutputs = outputNeurons.size();
+        if (numRows == 0) {
+            return;
+        }
+
+        // Compute the summed changes in parallel
+        int numShards = Math.min(getNumThreads(), numRows);
+        while (shards.size() < numShards) {
+            shards.add(new LMSShard());
+        }
+        while (shards.size() > numShards) {
+            shards.remove(shards.size() - 1);
+        }
+        for (int s = 0; s < numShards; s++) {
+            shards.get(s).init((int) ((long) numRows * s / numShards), (int) ((long) numRows * (s + 1) / numShards));
+        }
+        invokeShards(shards);
+
+        // Average the shards' changes over the rows and apply them
+        double rate = learningRate / numRows;
+        double sumSquaredError = 0;
+        for (int o = 0; o < numOutputs; o++) {
+            for (int k = 0; k < fanIn[o].length; k++) {
+                double deltaW = 0;
+                for (LMSShard shard : shards) {
+                    deltaW += shard.weightDeltas[o][k];
+                }
+                fanIn[o][k].setStrength(fanIn[o][k].getStrength() + rate * deltaW);
+            }
+            double deltaB = 0;
+            for (LMSShard shard : shards) {
+                deltaB += shard.biasDeltas[o];
+            }
+            BiasedUpdateRule bias = (BiasedUpdateRule) outputNeurons.get(o).getUpdateRule();
+            bias.setBias(bias.getBias() + rate * deltaB);
+        }
+        for (LMSShard shard : shards) {
+            sumSquaredError += shard.sumSquaredError;
+        }
+        rmsError = sumSquaredError / (numRows * numOutputs);
+
         fireErrorUpdated();
         incrementIteration();
     }
 
+    /**
+     * Sums the error-weighted inputs over a range of rows of the training
+     * data, against the weights at the start of the epoch. Buffers are reused
+     * as long as the network size stays the same.
+     */
+    private class LMSShard implements Runnable {
+
+        /**
+         * First row (inclusive) and last row (exclusive) of the shard.
+         */
+        private int firstRow, lastRow;
+
+        /**
+         * Summed error times source activation for each synapse, indexed by
+         * output then synapse.
+         */
+        private double[][] weightDeltas = new double[0][];
+
+        /**
+         * Summed error for each output.
+         */
+        private double[] biasDeltas;
+
+        /**
+         * Sum of squared errors over the shard's rows.
+         */
+        private double sumSquaredError;
+
+        /**
+         * Rows read from a memory-mapped training set, one after another.
+         */
+        private double[] inputBuffer = new double[0], targetBuffer = new double[0];
+
+        /**
+         * Set the shard's rows and make sure its buffers fit the network.
+         */
+        void init(int first, int last) {
+            firstRow = first;
+            lastRow = last;
+            if (weightDeltas.length != fanIn.length) {
+                weightDeltas = new double[fanIn.length][];
+                biasDeltas = new double[fanIn.length];
+            }
+            for (int o = 0; o < fanIn.length; o++) {
+                if (weightDeltas[o] == null || weightDeltas[o].length != fanIn[o].length) {
+                    weightDeltas[o] = new double[fanIn[o].length];
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            for (double[] row : weightDeltas) {
+                Arrays.fill(row, 0);
+            }
+            Arrays.fill(biasDeltas, 0);
+            sumSquaredError = 0;
+            TrainingSet trainingSet = network.getTrainingSet();
+            if (trainingSet instanceof MappedTrainingSet) {
+                // Read the rows in blocks rather than copying the whole file
+                MappedTrainingSet mapped = (MappedTrainingSet) trainingSet;
+                int numInputs = mapped.getNumInputs();
+                int numTargets = mapped.getNumTargets();
+                int blockRows = Math.min(MAPPED_ROWS_PER_READ, lastRow - firstRow);
+                if (inputBuffer.length < blockRows * numInputs || targetBuffer.length < blockRows * numTargets) {
+                    inputBuffer = new double[blockRows * numInputs];
+                    targetBuffer = new double[blockRows * numTargets];
+                }
+                for (int row = firstRow; row < lastRow; row += blockRows) {
+                    int count = Math.min(blockRows, lastRow - row);
+                    mapped.readRows(row, count, inputBuffer, targetBuffer);
+                    for (int r = 0; r < count; r++) {
+                        addRow(inputBuffer, r * numInputs, targetBuffer, r * numTargets);
+                    }
+                }
+            } else {
+                double[][] inputData = trainingSet.getInputData();
+                double[][] targetData = trainingSet.getTargetData();
+                for (int row = firstRow; row < lastRow; row++) {
+                    addRow(inputData[row], 0, targetData[row], 0);
+                }
+            }
+        }
+
+        /**
+         * Add the error and weight and bias changes for one row.
+         *
+         * @param x            array holding the inputs of the row
+         * @param inputOffset  index of the first input in x
+         * @param targets      array holding the targets of the row
+         * @param targetOffset index of the first target in targets
+         */
+        private void addRow(double[] x, int inputOffset, double[] targets, int targetOffset) {
+            for (int o = 0; o < weightDeltas.length; o++) {
+                double[] w = weights[o];
+                int[] columns = sourceColumns[o];
+                double[] activations = sourceActivations[o];
+                double wtdInput = externalInputs[o];
+                for (int k = 0; k < w.length; k++) {
+                    wtdInput += w[k] * (columns[k] < 0 ? activations[k] : x[inputOffset + columns[k]]);
+                }
+                double val = slopes[o] * wtdInput + biases[o];
+                if (clipped[o]) {
+                    val = Math.max(lowerBounds[o], Math.min(upperBounds[o], val));
+                }
+                double error = targets[targetOffset + o] - val;
+                sumSquaredError += error * error;
+                double[] deltas = weightDeltas[o];
+                for (int k = 0; k < deltas.length; k++) {
+                    deltas[k] += error * (columns[k] < 0 ? activations[k] : x[inputOffset + columns[k]]);
+                }
+                biasDeltas[o] += error;
+            }
+        }
+    }
+
     /**
      * A standard way of randomizing networks to which LMSIterative is applied,
      * by randomizing bias on output nodes and the single layer of weights.
@@ -126,6 +506,24 @@ public class LMSIterative extends IterableTrainer {
         revalidateSynapseGroups();
     }
 
+    public boolean isBatch() {
+        return batch;
+    }
+
+    /**
+     * Sets whether each epoch is a single batch update, with the weight and
+     * bias changes of all the rows computed against the weights at the start
+     * of the epoch and averaged, rather than an update after each row. Only
+     * batch updates are split across threads. Batch mode requires output
+     * neurons with noiseless {@link LinearRule}s which are not connected to
+     * each other; {@link #apply()} throws an IllegalStateException otherwise.
+     *
+     * @param batch true for batch updates, false to update after each row
+     */
+    public void setBatch(boolean batch) {
+        this.batch = batch;
+    }
+
     /**
      * @return the learningRate
      */
@@ -115,15 +115,22 @@ public class LMSOffline extends Trainer {
     @Override
     public void apply() throws DataNotInitializedException {
 
-        if (getTrainableNetwork().getTrainingSet().getInputData() == null) {
+        TrainingSet trainingSet = getTrainableNetwork().getTrainingSet();
+        if (!trainingSet.hasInputData()) {
             throw new DataNotInitializedException("Input data not initalized");
         }
-        if (getTrainableNetwork().getTrainingSet().getTargetData() == null) {
+        if (!trainingSet.hasTargetData()) {
             throw new DataNotInitializedException("Target data not initalized");
         }
 
         fireTrainingBegin();
 
+        // The data is fetched once and the same arrays are altered and
+        // solved, since a memory-mapped training set returns a new copy of
+        // its data on each call
+        double[][] inputData = trainingSet.getInputData();
+        double[][] targetData = trainingSet.getTargetData();
+
         int index = 0;
         for (Neuron n : network.getOutputNeurons()) {
 
@@ -132,8 +139,8 @@ public class LMSOffline extends Trainer {
             // the sigmoidal. Warning: problems can occur here if the bounds of
             // the sigmoidal are not set properly.
             if (n.getUpdateRule() instanceof SigmoidalRule) {
-                for (int i = 0; i < network.getTrainingSet().getTargetData().length; i++) {
-                    network.getTrainingSet().getTargetData()[i][index] = ((SigmoidalRule) n.getUpdateRule()).getInverse(network.getTrainingSet().getTargetData()[i][index]);
+                for (int i = 0; i < targetData.length; i++) {
+                    targetData[i][index] = ((SigmoidalRule) n.getUpdateRule()).getInverse(targetData[i][index]);
                 }
             }
             index++;
@@ -141,18 +148,17 @@ public class LMSOffline extends Trainer {
 
         // Add noise to the input state matrix.
         if (noiseAdded) {
-            double[][] stateMat = network.getTrainingSet().getInputData();
-            for (int i = 0, n = stateMat.length; i < n; i++) {
-                for (int j = 0, m = stateMat[i].length; j < m; j++) {
-                    network.getTrainingSet().getInputData()[i][j] = stateMat[i][j] + noiseGen.getRandom();
+            for (int i = 0, n = inputData.length; i < n; i++) {
+                for (int j = 0, m = inputData[i].length; j < m; j++) {
+                    inputData[i][j] = inputData[i][j] + noiseGen.getRandom();
                 }
             }
         }
 
         if (solutionType == SolutionType.WIENER_HOPF) {
-            weinerHopfSolution(network);
+            weinerHopfSolution(network, inputData, targetData);
         } else if (solutionType == SolutionType.MOORE_PENROSE) {
-            moorePenroseSolution(network);
+            moorePenroseSolution(network, inputData, targetData);
         } else {
             throw new IllegalArgumentException("Solution type must be " + "'MoorePenrose' or 'WeinerHopf'.");
         }
@@ -181,9 +187,19 @@ public class LMSOffline extends Trainer {
      * @param network the trainable network being trained
      */
     public void weinerHopfSolution(Trainable network) {
+        weinerHopfSolution(network, network.getTrainingSet().getInputData(), network.getTrainingSet().getTargetData());
+    }
+
+    /**
+     * Implements the Wiener-Hopf solution to LMS linear regression for the
+     * provided data.
+     *
+     * @param network        the trainable network being trained
+     * @param inputMatrix    the input data, one row per example
+     * @param trainingMatrix the target data, one row per example
+     */
+    private void weinerHopfSolution(Trainable network, double[][] inputMatrix, double[][] trainingMatrix) {
         long start = System.nanoTime();
-        double[][] inputMatrix = network.getTrainingSet().getInputData();
-        double[][] trainingMatrix = network.getTrainingSet().getTargetData();
         try {
 
             Factory<?> mf = PrimitiveMatrix.FACTORY;
@@ -261,8 +277,19 @@ public class LMSOffline extends Trainer {
      * @param network the trainable network being trained
      */
     public void moorePenroseSolution(Trainable network) {
-        Matrix inputMatrix = new Matrix(network.getTrainingSet().getInputData());
-        Matrix trainingMatrix = new Matrix(network.getTrainingSet().getTargetData());
+        moorePenroseSolution(network, network.getTrainingSet().getInputData(), network.getTrainingSet().getTargetData());
+    }
+
+    /**
+     * Moore penrose, for the provided data.
+     *
+     * @param network    the trainable network being trained
+     * @param inputData  the input data, one row per example
+     * @param targetData the target data, one row per example
+     */
+    private void moorePenroseSolution(Trainable network, double[][] inputData, double[][] targetData) {
+        Matrix inputMatrix = new Matrix(inputData);
+        Matrix trainingMatrix = new Matrix(targetData);
 
         fireProgressUpdate("Computing Moore-Penrose Pseudoinverse...", 0);
         // Computes Moore-Penrose Pseudoinverse
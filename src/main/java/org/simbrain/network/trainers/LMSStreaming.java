@@ -0,0 +1,401 @@
+/*
+ * Part of Simbrain--a java-based neural network kit
+ * Copyright (C) 2005,2007 The Authors.  See http://www.simbrain.net/credits
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package org.simbrain.network.trainers;
+
+import org.simbrain.network.core.Neuron;
+import org.simbrain.network.neuron_update_rules.SigmoidalRule;
+import org.simbrain.network.util.SimnetUtils;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Least mean squares (ridge regression) trained from a stream of samples,
+ * rather than from a complete table of data as in {@link LMSOffline}. Only
+ * the correlation of the inputs (X'X) and their cross-correlation with the
+ * targets (X'Y) are kept, so memory does not grow with the number of samples,
+ * and samples can be added as the network runs, e.g. with
+ * {@link #addCurrentState(double[])}. {@link #apply()} solves for the weights
+ * with a Cholesky decomposition of X'X + alpha^2 I and may be called again
+ * after more samples have been added.
+ * <p>
+ * Alternatively, in recursive mode the weights are updated with every sample
+ * by recursive least squares, for online adaptation, optionally forgetting
+ * older samples. {@link #apply()} then just writes the current weights to the
+ * network.
+ * <p>
+ * As in {@link LMSOffline}, targets of sigmoidal output neurons are passed
+ * through the inverse of the sigmoid.
+ */
+public class LMSStreaming extends Trainer {
+
+    /**
+     * Initial scale of the inverse correlation matrix in recursive mode when
+     * there is no ridge term.
+     */
+    private static final double DEFAULT_RLS_INITIAL_SCALE = 1E4;
+
+    /**
+     * Number of inputs (features) and outputs.
+     */
+    private final int numInputs, numOutputs;
+
+    /**
+     * Upper triangle of X'X, accumulated over the samples.
+     */
+    private final double[][] xtx;
+
+    /**
+     * X'Y, accumulated over the samples. Indexed by input then output.
+     */
+    private final double[][] xty;
+
+    /**
+     * Number of samples added since the last reset.
+     */
+    private long numSamples;
+
+    /**
+     * The magnitude of the ridge regression. The ridge term added to X'X is
+     * alpha squared, as in {@link LMSOffline}.
+     */
+    private double alpha;
+
+    /**
+     * Whether to update the weights with every sample by recursive least
+     * squares.
+     */
+    private boolean recursive;
+
+    /**
+     * Forgetting factor for recursive least squares, between 0 and 1. 1
+     * weights all samples equally.
+     */
+    private double forgettingFactor = 1;
+
+    /**
+     * Inverse correlation matrix for recursive least squares. Created when
+     * the first sample is added in recursive mode.
+     */
+    private double[][] inverseCorrelation;
+
+    /**
+     * Current weights in recursive mode, indexed by input then output.
+     */
+    private final double[][] weights;
+
+    /**
+     * Update rules of the output neurons which are sigmoidal, or null.
+     */
+    private final SigmoidalRule[] sigmoids;
+
+    /**
+     * Buffers for the current sample.
+     */
+    private final double[] state, target, gain, pTimesState;
+
+    /**
+     * Construct the trainer.
+     *
+     * @param network the network to train. Its input neurons are the
+     *                features of each sample.
+     */
+    public LMSStreaming(Trainable network) {
+        super(network);
+        numInputs = network.getInputNeurons().size();
+        numOutputs = network.getOutputNeurons().size();
+        xtx = new double[numInputs][numInputs];
+        xty = new double[numInputs][numOutputs];
+        weights = new double[numInputs][numOutputs];
+        sigmoids = new SigmoidalRule[numOutputs];
+        List<Neuron> outputs = network.getOutputNeurons();
+        for (int j = 0; j < numOutputs; j++) {
+            if (outputs.get(j).getUpdateRule() instanceof SigmoidalRule) {
+                sigmoids[j] = (SigmoidalRule) outputs.get(j).getUpdateRule();
+            }
+        }
+        state = new double[numInputs];
+        target = new double[numOutputs];
+        gain = new double[numInputs];
+        pTimesState = new double[numInputs];
+    }
+
+    /**
+     * Add a sample with the current activations of the input neurons.
+     *
+     * @param targets desired outputs for the current state
+     */
+    public void addCurrentState(double[] targets) {
+        List<Neuron> inputs = network.getInputNeurons();
+        for (int i = 0; i < numInputs; i++) {
+            state[i] = inputs.get(i).getActivation();
+        }
+        addSample(state, targets);
+    }
+
+    /**
+     * Add a sample.
+     *
+     * @param inputs  values of the input neurons
+     * @param targets desired outputs
+     */
+    public void addSample(double[] inputs, double[] targets) {
+        if (inputs.length != numInputs || targets.length != numOutputs) {
+            throw new IllegalArgumentException("Sample size does not match the network");
+        }
+        for (int j = 0; j < numOutputs; j++) {
+            double val = targets[j];
+            if (sigmoids[j] != null) {
+                val = sigmoids[j].getInverse(val);
+            }
+            if (Double.isInfinite(val) || Double.isNaN(val)) {
+                throw new NumberFormatException("Invalid target values.");
+            }
+            target[j] = val;
+        }
+        if (recursive) {
+            recursiveUpdate(inputs);
+        }
+        for (int i = 0; i < numInputs; i++) {
+            double xi = inputs[i];
+            if (xi == 0) {
+                continue;
+            }
+            double[] row = xtx[i];
+            for (int k = i; k < numInputs; k++) {
+                row[k] += xi * inputs[k];
+            }
+            double[] cross = xty[i];
+            for (int j = 0; j < numOutputs; j++) {
+                cross[j] += xi * target[j];
+            }
+        }
+        numSamples++;
+    }
+
+    /**
+     * Recursive least squares update of the weights and inverse correlation
+     * matrix with a sample whose (transformed) targets are in {@link #target}.
+     *
+     * @param x the sample's inputs
+     */
+    private void recursiveUpdate(double[] x) {
+        if (inverseCorrelation == null) {
+            double scale = alpha == 0 ? DEFAULT_RLS_INITIAL_SCALE : 1 / (alpha * alpha);
+            inverseCorrelation = new double[numInputs][numInputs];
+            for (int i = 0; i < numInputs; i++) {
+                inverseCorrelation[i][i] = scale;
+            }
+        }
+        double[][] p = inverseCorrelation;
+
+        // Gain k = P x / (lambda + x' P x)
+        double denom = forgettingFactor;
+        for (int i = 0; i < numInputs; i++) {
+            double sum = 0;
+            double[] row = p[i];
+            for (int k = 0; k < numInputs; k++) {
+                sum += row[k] * x[k];
+            }
+            pTimesState[i] = sum;
+            denom += x[i] * sum;
+        }
+        for (int i = 0; i < numInputs; i++) {
+            gain[i] = pTimesState[i] / denom;
+        }
+
+        // Weights += k e', where e is the a priori error
+        for (int j = 0; j < numOutputs; j++) {
+            double out = 0;
+            for (int i = 0; i < numInputs; i++) {
+                out += weights[i][j] * x[i];
+            }
+            double error = target[j] - out;
+            for (int i = 0; i < numInputs; i++) {
+                weights[i][j] += gain[i] * error;
+            }
+        }
+
+        // P = (P - k x' P) / lambda. P is symmetric so x' P = (P x)'.
+        double invLambda = 1 / forgettingFactor;
+        for (int i = 0; i < numInputs; i++) {
+            double[] row = p[i];
+            double ki = gain[i];
+            for (int k = 0; k < numInputs; k++) {
+                row[k] = (row[k] - ki * pTimesState[k]) * invLambda;
+            }
+        }
+    }
+
+    @Override
+    public void apply() throws DataNotInitializedException {
+        if (numSamples == 0) {
+            throw new DataNotInitializedException("No samples have been added");
+        }
+        fireTrainingBegin();
+        if (recursive) {
+            fireProgressUpdate("Setting Weights...", 75);
+            SimnetUtils.setWeights(network.getInputNeurons(), network.getOutputNeurons(), weights);
+        } else {
+            fireProgressUpdate("Computing Cholesky Decomposition...", 0);
+            double[][] wOut = solve();
+            fireProgressUpdate("Setting Weights...", 75);
+            SimnetUtils.setWeights(network.getInputNeurons(), network.getOutputNeurons(), wOut);
+        }
+        fireProgressUpdate("Done!", 100);
+        fireTrainingEnd();
+        revalidateSynapseGroups();
+    }
+
+    /**
+     * Solve (X'X + alpha^2 I) W = X'Y for the weights.
+     *
+     * @return the weights, indexed by input then output
+     * @throws IllegalStateException if X'X + alpha^2 I is not positive
+     *                               definite, e.g. because there are too few
+     *                               samples and alpha is 0
+     */
+    public double[][] solve() {
+        double[][] a = new double[numInputs][numInputs];
+        double ridge = alpha * alpha;
+        for (int i = 0; i < numInputs; i++) {
+            for (int k = i; k < numInputs; k++) {
+                a[i][k] = xtx[i][k];
+                a[k][i] = xtx[i][k];
+            }
+            a[i][i] += ridge;
+        }
+        double[][] w = new double[numInputs][];
+        for (int i = 0; i < numInputs; i++) {
+            w[i] = xty[i].clone();
+        }
+        choleskySolve(a, w);
+        return w;
+    }
+
+    /**
+     * Solve A X = B for a symmetric positive definite A. Jama's Cholesky
+     * solver is not used since it gives wrong results in the version
+     * shipped with Simbrain.
+     *
+     * @param a the matrix A, overwritten with its Cholesky factor L (lower
+     *          triangle)
+     * @param b the right hand sides, overwritten with the solution X
+     * @throws IllegalStateException if A is not positive definite
+     */
+    private static void choleskySolve(double[][] a, double[][] b) {
+        int n = a.length;
+        for (int j = 0; j < n; j++) {
+            double[] rowJ = a[j];
+            for (int k = 0; k <= j; k++) {
+                double[] rowK = a[k];
+                double sum = rowJ[k];
+                for (int i = 0; i < k; i++) {
+                    sum -= rowJ[i] * rowK[i];
+                }
+                if (k < j) {
+                    rowJ[k] = sum / rowK[k];
+                } else if (sum > 0) {
+                    rowJ[j] = Math.sqrt(sum);
+                } else {
+                    throw new IllegalStateException("State correlation matrix is singular. Add more samples or use ridge regression.");
+                }
+            }
+        }
+
+        // Solve L Y = B, then L' X = Y
+        int m = n == 0 ? 0 : b[0].length;
+        for (int c = 0; c < m; c++) {
+            for (int i = 0; i < n; i++) {
+                double sum = b[i][c];
+                for (int k = 0; k < i; k++) {
+                    sum -= a[i][k] * b[k][c];
+                }
+                b[i][c] = sum / a[i][i];
+            }
+            for (int i = n - 1; i >= 0; i--) {
+                double sum = b[i][c];
+                for (int k = i + 1; k < n; k++) {
+                    sum -= a[k][i] * b[k][c];
+                }
+                b[i][c] = sum / a[i][i];
+            }
+        }
+    }
+
+    /**
+     * Forget all samples, and in recursive mode the current weights.
+     */
+    public void reset() {
+        for (double[] row : xtx) {
+            Arrays.fill(row, 0);
+        }
+        for (double[] row : xty) {
+            Arrays.fill(row, 0);
+        }
+        for (double[] row : weights) {
+            Arrays.fill(row, 0);
+        }
+        inverseCorrelation = null;
+        numSamples = 0;
+    }
+
+    public long getNumSamples() {
+        return numSamples;
+    }
+
+    public double getAlpha() {
+        return alpha;
+    }
+
+    public void setAlpha(double alpha) {
+        this.alpha = alpha;
+    }
+
+    public boolean isRecursive() {
+        return recursive;
+    }
+
+    /**
+     * Set whether to update the weights with every sample by recursive least
+     * squares. Should be set before samples are added; samples added before
+     * recursive mode is turned on do not contribute to the recursive weights.
+     *
+     * @param recursive true for recursive least squares
+     */
+    public void setRecursive(boolean recursive) {
+        this.recursive = recursive;
+    }
+
+    public double getForgettingFactor() {
+        return forgettingFactor;
+    }
+
+    /**
+     * @param forgettingFactor weight of older samples relative to newer ones
+     *                         in recursive mode, greater than 0 and at most
+     *                         1
+     */
+    public void setForgettingFactor(double forgettingFactor) {
+        if (forgettingFactor <= 0 || forgettingFactor > 1) {
+            throw new IllegalArgumentException("Forgetting factor must be in (0, 1]");
+        }
+        this.forgettingFactor = forgettingFactor;
+    }
+}
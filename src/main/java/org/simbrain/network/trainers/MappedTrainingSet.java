@@ -0,0 +1,512 @@
+/*
+ * Part of Simbrain--a java-based neural network kit
+ * Copyright (C) 2005,2007 The Authors.  See http://www.simbrain.net/credits
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package org.simbrain.network.trainers;
+
+import com.Ostermiller.util.CSVParser;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A training set backed by a memory-mapped binary file rather than arrays on
+ * the heap, for data sets too large to hold in memory. Rows are read from the
+ * file as they are needed, either one at a time ({@link #getInput(int)}), in
+ * blocks ({@link #readRows(int, int, double[], double[])}), or by iterating
+ * over chunks of rows ({@link #chunks(int)}). Reads use absolute positions
+ * and so are safe from several threads at once.
+ * <p>
+ * The file has a 32 byte header followed by one record per row, each the
+ * row's input values then its target values, all as little-endian float64 or
+ * float32 values. The header holds, in order: a magic number, the format
+ * version, the number of bytes per value (8 or 4), the number of input
+ * columns, the number of target columns (as ints), and the number of rows
+ * (as a long). Use {@link #importCsv(File, File, File, boolean)} to create a
+ * file from csv files.
+ * <p>
+ * The data is read-only. {@link #getInputData()} and {@link #getTargetData()}
+ * are supported for trainers that need the whole data set, but they copy the
+ * whole file on to the heap on every call.
+ */
+public class MappedTrainingSet extends TrainingSet implements Closeable {
+
+    /**
+     * Identifies the file format ("SBTS").
+     */
+    private static final int MAGIC = 0x53425453;
+
+    /**
+     * Current version of the file format.
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * Size of the header in bytes.
+     */
+    private static final int HEADER_SIZE = 32;
+
+    /**
+     * Largest number of bytes mapped in a single buffer.
+     */
+    private static final long MAX_SEGMENT_SIZE = Integer.MAX_VALUE;
+
+    /**
+     * Path of the backing file, which is reopened when a saved network is
+     * loaded.
+     */
+    private final File source;
+
+    /**
+     * The backing file.
+     */
+    private final transient RandomAccessFile file;
+
+    /**
+     * Mapped segments of the file, each holding a whole number of rows.
+     */
+    private final transient MappedByteBuffer[] segments;
+
+    /**
+     * Number of rows in each segment.
+     */
+    private final int rowsPerSegment;
+
+    /**
+     * Number of rows.
+     */
+    private final int numRows;
+
+    /**
+     * Number of input and target columns.
+     */
+    private final int numInputs, numTargets;
+
+    /**
+     * Bytes per value, 8 for float64 and 4 for float32.
+     */
+    private final int valueSize;
+
+    /**
+     * Bytes per row.
+     */
+    private final int rowSize;
+
+    /**
+     * Open a training set file for reading.
+     *
+     * @param theFile the file to open
+     * @throws IOException if the file can't be read or is not a training set
+     *                     file
+     */
+    public MappedTrainingSet(File theFile) throws IOException {
+        source = theFile;
+        file = new RandomAccessFile(theFile, "r");
+        try {
+            FileChannel channel = file.getChannel();
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining()) {
+                if (channel.read(header, header.position()) < 0) {
+                    throw new IOException(theFile + " is not a training set file");
+                }
+            }
+            header.flip();
+            if (header.getInt() != MAGIC) {
+                throw new IOException(theFile + " is not a training set file");
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported training set file version " + version);
+            }
+            valueSize = header.getInt();
+            if (valueSize != 8 && valueSize != 4) {
+                throw new IOException("Unsupported value size " + valueSize);
+            }
+            numInputs = header.getInt();
+            numTargets = header.getInt();
+            long rows = header.getLong();
+            if (rows > Integer.MAX_VALUE) {
+                throw new IOException("Too many rows: " + rows);
+            }
+            numRows = (int) rows;
+            rowSize = (numInputs + numTargets) * valueSize;
+            if (HEADER_SIZE + rows * rowSize > channel.size()) {
+                throw new IOException(theFile + " is truncated");
+            }
+
+            rowsPerSegment = rowSize == 0 ? Math.max(1, numRows) : (int) Math.min(Math.max(1, numRows), MAX_SEGMENT_SIZE / rowSize);
+            int numSegments = numRows == 0 ? 0 : (numRows + rowsPerSegment - 1) / rowsPerSegment;
+            segments = new MappedByteBuffer[numSegments];
+            for (int s = 0; s < numSegments; s++) {
+                long first = (long) s * rowsPerSegment;
+                long count = Math.min(rowsPerSegment, numRows - first);
+                segments[s] = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE + first * rowSize, count * rowSize);
+                segments[s].order(ByteOrder.LITTLE_ENDIAN);
+            }
+        } catch (IOException | RuntimeException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Convert a pair of csv files, in the format read by
+     * {@link org.simbrain.util.Utils#getDoubleMatrix(File)}, to a training set
+     * file and open it. The csv files are read a line at a time, so they need
+     * not fit in memory.
+     *
+     * @param inputCsv        csv file of inputs, one row per line
+     * @param targetCsv       csv file of targets with the same number of
+     *                        rows, or null if there are no targets
+     * @param output          training set file to write
+     * @param singlePrecision true to store float32 values, false for float64
+     * @return the new training set
+     * @throws IOException if the files can't be read or written, or the rows
+     *                     are not all the same length
+     */
+    public static MappedTrainingSet importCsv(File inputCsv, File targetCsv, File output, boolean singlePrecision) throws IOException {
+        int valueSize = singlePrecision ? 4 : 8;
+        try (InputStream inputStream = new FileInputStream(inputCsv);
+             InputStream targetStream = targetCsv == null ? null : new FileInputStream(targetCsv);
+             RandomAccessFile out = new RandomAccessFile(output, "rw")) {
+            // # is a comment delimeter, as in Utils.getStringMatrix
+            CSVParser inputParser = new CSVParser(inputStream, "", "", "#");
+            CSVParser targetParser = targetStream == null ? null : new CSVParser(targetStream, "", "", "#");
+            FileChannel channel = out.getChannel();
+            channel.truncate(0);
+            ByteBuffer buffer = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+            channel.position(HEADER_SIZE);
+
+            int numInputs = -1;
+            int numTargets = targetParser == null ? 0 : -1;
+            long rows = 0;
+            String[] inputLine;
+            while ((inputLine = inputParser.getLine()) != null) {
+                String[] targetLine = targetParser == null ? new String[0] : targetParser.getLine();
+                if (targetLine == null) {
+                    throw new IOException(targetCsv + " has fewer rows than " + inputCsv);
+                }
+                if (numInputs < 0) {
+                    numInputs = inputLine.length;
+                }
+                if (numTargets < 0) {
+                    numTargets = targetLine.length;
+                }
+                if (inputLine.length != numInputs || targetLine.length != numTargets) {
+                    throw new IOException("Row " + rows + " has a different number of columns from the first row");
+                }
+                for (String[] line : new String[][]{inputLine, targetLine}) {
+                    for (String value : line) {
+                        if (buffer.remaining() < valueSize) {
+                            flush(buffer, channel);
+                        }
+                        double val = Double.parseDouble(value.trim());
+                        if (singlePrecision) {
+                            buffer.putFloat((float) val);
+                        } else {
+                            buffer.putDouble(val);
+                        }
+                    }
+                }
+                rows++;
+            }
+            if (targetParser != null && targetParser.getLine() != null) {
+                throw new IOException(targetCsv + " has more rows than " + inputCsv);
+            }
+            flush(buffer, channel);
+
+            buffer.clear();
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(valueSize).putInt(Math.max(numInputs, 0)).putInt(Math.max(numTargets, 0)).putLong(rows);
+            while (buffer.position() < HEADER_SIZE) {
+                buffer.put((byte) 0);
+            }
+            buffer.flip();
+            channel.position(0);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+        return new MappedTrainingSet(output);
+    }
+
+    /**
+     * Write the contents of a buffer to a channel and clear it.
+     */
+    private static void flush(ByteBuffer buffer, FileChannel channel) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Read a value of a row.
+     *
+     * @param row    the row
+     * @param column column within the row's record, counting inputs then
+     *               targets
+     * @return the value
+     */
+    private double read(int row, int column) {
+        MappedByteBuffer segment = segments[row / rowsPerSegment];
+        int index = (row % rowsPerSegment) * rowSize + column * valueSize;
+        return valueSize == 8 ? segment.getDouble(index) : segment.getFloat(index);
+    }
+
+    /**
+     * Copy a block of consecutive rows in to arrays, one row after the other.
+     * Rows past the end of the data wrap around to the beginning. This is the
+     * layout of a jblas matrix with one row of data per column.
+     *
+     * @param firstRow first row to read
+     * @param count    number of rows to read
+     * @param inputs   array for the inputs, of at least count times the number
+     *                 of inputs, or null to skip the inputs
+     * @param targets  array for the targets, of at least count times the
+     *                 number of targets, or null to skip the targets
+     * @throws IndexOutOfBoundsException if rows are read from an empty
+     *                                   training set
+     */
+    public void readRows(int firstRow, int count, double[] inputs, double[] targets) {
+        if (count > 0 && numRows == 0) {
+            throw new IndexOutOfBoundsException("The training set is empty");
+        }
+        for (int kk = 0; kk < count; kk++) {
+            int row = (firstRow + kk) % numRows;
+            if (inputs != null) {
+                for (int ii = 0, off = kk * numInputs; ii < numInputs; ii++) {
+                    inputs[off + ii] = read(row, ii);
+                }
+            }
+            if (targets != null) {
+                for (int ii = 0, off = kk * numTargets; ii < numTargets; ii++) {
+                    targets[off + ii] = read(row, numInputs + ii);
+                }
+            }
+        }
+    }
+
+    /**
+     * Iterate over the data in chunks of consecutive rows. The arrays of a
+     * chunk are reused for the next chunk, so a chunk is only valid until
+     * {@link Iterator#next()} is called again.
+     *
+     * @param rowsPerChunk number of rows in each chunk. The last chunk may be
+     *                     smaller.
+     * @return an iterator over the chunks
+     */
+    public Iterator<Chunk> chunks(int rowsPerChunk) {
+        if (rowsPerChunk < 1) {
+            throw new IllegalArgumentException("A chunk must have at least one row.");
+        }
+        final Chunk chunk = new Chunk(Math.min(rowsPerChunk, Math.max(numRows, 1)));
+        return new Iterator<Chunk>() {
+
+            private int nextRow;
+
+            @Override
+            public boolean hasNext() {
+                return nextRow < numRows;
+            }
+
+            @Override
+            public Chunk next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                chunk.firstRow = nextRow;
+                chunk.numRows = Math.min(rowsPerChunk, numRows - nextRow);
+                readRows(chunk.firstRow, chunk.numRows, chunk.inputs, chunk.targets);
+                nextRow += chunk.numRows;
+                return chunk;
+            }
+        };
+    }
+
+    /**
+     * A block of consecutive rows, with the values of each row stored one
+     * after the other.
+     */
+    public final class Chunk {
+
+        /**
+         * First row of the chunk.
+         */
+        private int firstRow;
+
+        /**
+         * Number of rows in the chunk.
+         */
+        private int numRows;
+
+        /**
+         * Input and target values of the rows in the chunk. May be longer
+         * than needed for the last chunk.
+         */
+        private final double[] inputs, targets;
+
+        private Chunk(int capacity) {
+            inputs = new double[capacity * numInputs];
+            targets = new double[capacity * numTargets];
+        }
+
+        public int getFirstRow() {
+            return firstRow;
+        }
+
+        public int getNumRows() {
+            return numRows;
+        }
+
+        /**
+         * @return inputs of the rows, row after row. This is the backing
+         * array, not a copy.
+         */
+        public double[] getInputs() {
+            return inputs;
+        }
+
+        /**
+         * @return targets of the rows, row after row. This is the backing
+         * array, not a copy.
+         */
+        public double[] getTargets() {
+            return targets;
+        }
+    }
+
+    /**
+     * Copy all the inputs on to the heap.
+     *
+     * @return the input data
+     */
+    @Override
+    public double[][] getInputData() {
+        double[][] data = new double[numRows][];
+        for (int row = 0; row < numRows; row++) {
+            data[row] = getInput(row);
+        }
+        return data;
+    }
+
+    /**
+     * Copy all the targets on to the heap.
+     *
+     * @return the target data
+     */
+    @Override
+    public double[][] getTargetData() {
+        double[][] data = new double[numRows][];
+        for (int row = 0; row < numRows; row++) {
+            data[row] = getTarget(row);
+        }
+        return data;
+    }
+
+    @Override
+    public void setInputData(double[][] inputData) {
+        throw new UnsupportedOperationException("Memory-mapped training sets are read-only");
+    }
+
+    @Override
+    public void setTargetData(double[][] targetData) {
+        throw new UnsupportedOperationException("Memory-mapped training sets are read-only");
+    }
+
+    @Override
+    public void addRow(double[] newRow) {
+        throw new UnsupportedOperationException("Memory-mapped training sets are read-only");
+    }
+
+    @Override
+    public boolean hasInputData() {
+        return true;
+    }
+
+    @Override
+    public boolean hasTargetData() {
+        return numTargets > 0;
+    }
+
+    @Override
+    public int getSize() {
+        return numRows;
+    }
+
+    @Override
+    public int getTargetSize() {
+        return numTargets > 0 ? numRows : 0;
+    }
+
+    @Override
+    public double[] getInput(int rowIndex) {
+        double[] input = new double[numInputs];
+        readRows(rowIndex, 1, input, null);
+        return input;
+    }
+
+    @Override
+    public double[] getTarget(int rowIndex) {
+        double[] target = new double[numTargets];
+        readRows(rowIndex, 1, null, target);
+        return target;
+    }
+
+    public int getNumInputs() {
+        return numInputs;
+    }
+
+    public int getNumTargets() {
+        return numTargets;
+    }
+
+    /**
+     * Reopen the backing file when a saved network is loaded. Only the path
+     * of the file is saved.
+     *
+     * @return the reopened training set
+     */
+    private Object readResolve() {
+        try {
+            return new MappedTrainingSet(source);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not reopen training set file " + source, e);
+        }
+    }
+
+    /**
+     * Close the backing file. The mapped data remains readable until the
+     * training set is garbage collected.
+     *
+     * @throws IOException if the file can't be closed
+     */
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+}
@@ -220,6 +220,27 @@ public class TrainingSet {
         return inputData.length;
     }
 
+    /**
+     * @return number of rows of target data
+     */
+    public int getTargetSize() {
+        return targetData == null ? 0 : targetData.length;
+    }
+
+    /**
+     * @return true if input data has been set
+     */
+    public boolean hasInputData() {
+        return inputData != null;
+    }
+
+    /**
+     * @return true if target data has been set
+     */
+    public boolean hasTargetData() {
+        return targetData != null;
+    }
+
     public double[] getInput(int rowIndex) {
         return inputData[rowIndex];
     }
@@ -0,0 +1,476 @@
+/*
+ * Part of Simbrain--a java-based neural network kit
+ * Copyright (C) 2005,2007 The Authors.  See http://www.simbrain.net/credits
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package org.simbrain.network.update_actions;
+
+import org.simbrain.network.core.Network;
+import org.simbrain.network.core.NetworkUpdateAction;
+import org.simbrain.network.core.Neuron;
+import org.simbrain.network.core.Synapse;
+import org.simbrain.network.groups.Group;
+import org.simbrain.network.groups.NeuronGroup;
+import org.simbrain.network.update_actions.concurrency_tools.SpinBarrier;
+
+import java.beans.PropertyChangeListener;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A parallel buffered update of all the neurons in a network (and the
+ * afferent synapses of each neuron), using a pool of persistent worker
+ * threads. The neurons are split in to one fixed partition per thread, with
+ * partition boundaries on multiples of {@link #ALIGNMENT} neurons so that
+ * threads rarely write to the same cache lines. Each update has two phases
+ * separated by a {@link SpinBarrier}: every thread computes the buffers of its
+ * partition, then every thread commits the buffers of its partition. The
+ * invoking thread works on the first partition. Nothing is allocated on a
+ * normal update; partitions are only rebuilt on the update after the
+ * network's structure, or the neurons of a group, change.
+ * <p>
+ * Loose neurons are updated one at a time. The neurons of a group are updated
+ * through the group (see {@link NeuronGroup#beginPartitionedUpdate()}), so
+ * that dense groups are integrated in batches as when they update themselves.
+ * <p>
+ * The workers, and listeners on the network and its neuron groups for
+ * structural changes, are set up on the first update and released by {@link
+ * #shutdown()}, which is called when the action is removed from the network's
+ * update manager or the network is closed. Neurons and synapses do not fire
+ * events from the workers: changes are recorded as when the network batches
+ * events, and unless it is batching them anyway, are fired from the invoking
+ * thread after the update.
+ * <p>
+ * Neuron groups in input mode read their next inputs (on the invoking thread)
+ * instead of being updated, and recording groups write their activations
+ * after the update, as in {@link ConcurrentBufferedUpdate}.
+ */
+public class ParallelBufferedUpdate implements NetworkUpdateAction {
+
+    /**
+     * Partition sizes are multiples of this number of neurons.
+     */
+    private static final int ALIGNMENT = 16;
+
+    /**
+     * Number of spins a worker waits for the next update before parking.
+     */
+    private static final int SPIN_LIMIT = 1 << 12;
+
+    /**
+     * Reference to network to update.
+     */
+    private final transient Network network;
+
+    /**
+     * Number of threads taking part in an update, including the invoking
+     * thread.
+     */
+    private final transient int numThreads;
+
+    /**
+     * Worker threads, started on the first update. Worker i handles
+     * partition i + 1.
+     */
+    private transient Thread[] workers;
+
+    /**
+     * Listener marking the partitions dirty when the network's structure, or
+     * the neurons of one of its groups, change. Registered with the network
+     * and its neuron groups while the workers run.
+     */
+    private transient PropertyChangeListener structureListener;
+
+    /**
+     * Barrier separating the compute and commit phases, and marking the end
+     * of an update.
+     */
+    private transient SpinBarrier barrier;
+
+    /**
+     * Count of updates started. Workers wait for this to change.
+     */
+    private transient volatile int step;
+
+    /**
+     * Set when the network's structure changes so that partitions are
+     * rebuilt before the next update.
+     */
+    private transient volatile boolean dirty = true;
+
+    /**
+     * Set to stop the current worker threads. Each set of workers has its own
+     * flag, so workers which outlive an interrupted {@link #shutdown()} still
+     * stop.
+     */
+    private transient AtomicBoolean stopped;
+
+    /**
+     * First exception thrown by a worker during the current update.
+     */
+    private transient volatile Throwable failure;
+
+    /**
+     * Neurons to update, in partition order: loose neurons, then the neurons
+     * of each group not in input mode.
+     */
+    private transient Neuron[] neurons = new Neuron[0];
+
+    /**
+     * Block b covers neurons blockStarts[b] (inclusive) to blockStarts[b + 1]
+     * (exclusive), all loose or all from one group.
+     */
+    private transient int[] blockStarts = new int[1];
+
+    /**
+     * The group of each block, or null for the block of loose neurons.
+     */
+    private transient NeuronGroup[] blockGroups = new NeuronGroup[0];
+
+    /**
+     * Partition p covers neurons bounds[p] (inclusive) to bounds[p + 1]
+     * (exclusive).
+     */
+    private transient int[] bounds;
+
+    /**
+     * All neuron groups in the network, including those in subnetworks.
+     */
+    private transient NeuronGroup[] neuronGroups = new NeuronGroup[0];
+
+    /**
+     * Whether each neuron group was in input mode when the partitions were
+     * built.
+     */
+    private transient boolean[] inputModes = new boolean[0];
+
+    /**
+     * Create a parallel update with one thread per available processor.
+     *
+     * @param network the network to update
+     */
+    public ParallelBufferedUpdate(final Network network) {
+        this(network, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Create a parallel update with a specified number of threads.
+     *
+     * @param network    the network to update
+     * @param numThreads number of threads to use, including the thread which
+     *                   invokes the update
+     */
+    public ParallelBufferedUpdate(final Network network, final int numThreads) {
+        if (numThreads < 1) {
+            throw new IllegalArgumentException("At least one thread is required.");
+        }
+        this.network = network;
+        this.numThreads = numThreads;
+        this.bounds = new int[numThreads + 1];
+    }
+
+    @Override
+    public void invoke() {
+        if (workers == null) {
+            startWorkers();
+        }
+        for (int g = 0; g < neuronGroups.length; g++) {
+            if (neuronGroups[g].isInputMode() != inputModes[g]) {
+                dirty = true;
+            }
+        }
+        if (dirty) {
+            rebuildPartitions();
+        }
+        for (int g = 0; g < neuronGroups.length; g++) {
+            if (inputModes[g]) {
+                neuronGroups[g].readNextInputs();
+            } else {
+                neuronGroups[g].beginPartitionedUpdate();
+            }
+        }
+
+        boolean deferEvents = !network.isBatchingEvents();
+        if (deferEvents) {
+            network.setBatchingEvents(true);
+        }
+        try {
+            runPartitions();
+        } finally {
+            if (deferEvents) {
+                network.setBatchingEvents(false);
+            }
+        }
+
+        Throwable t = failure;
+        if (t != null) {
+            failure = null;
+            throw new IllegalStateException("Parallel buffered update failed", t);
+        }
+        if (deferEvents) {
+            fireChanges();
+        }
+        for (int g = 0; g < neuronGroups.length; g++) {
+            NeuronGroup ng = neuronGroups[g];
+            if (!inputModes[g]) {
+                ng.endPartitionedUpdate();
+            }
+            if (ng.isRecording()) {
+                ng.writeActsToFile();
+            }
+            ng.fireLabelUpdated();
+        }
+    }
+
+    /**
+     * Fire the events of the neurons, and their fan-in synapses, which
+     * changed during the update.
+     */
+    private void fireChanges() {
+        for (Neuron neuron : neurons) {
+            if (neuron.takeActivationChanged()) {
+                neuron.fireActivationUpdated();
+            }
+            for (Synapse synapse : neuron.getFanIn()) {
+                if (synapse.takeStrengthChanged()) {
+                    synapse.fireStrengthUpdated();
+                }
+            }
+        }
+    }
+
+    /**
+     * Release the workers and take the first partition.
+     */
+    private void runPartitions() {
+        step++;
+        for (Thread worker : workers) {
+            LockSupport.unpark(worker);
+        }
+        updatePartition(0);
+    }
+
+    /**
+     * Compute then commit the buffers of one partition, waiting for all the
+     * other partitions between and after the two phases.
+     *
+     * @param partition the partition to update
+     */
+    private void updatePartition(final int partition) {
+        final int from = bounds[partition];
+        final int to = bounds[partition + 1];
+        try {
+            for (int b = 0; b < blockGroups.length; b++) {
+                int start = blockStarts[b];
+                int lo = Math.max(from, start);
+                int hi = Math.min(to, blockStarts[b + 1]);
+                if (lo >= hi) {
+                    continue;
+                }
+                if (blockGroups[b] == null) {
+                    for (int i = lo; i < hi; i++) {
+                        neurons[i].update();
+                    }
+                } else {
+                    blockGroups[b].updatePartition(lo - start, hi - start);
+                }
+            }
+            for (int i = from; i < to; i++) {
+                neurons[i].updateFanIn();
+            }
+        } catch (Throwable t) {
+            failure = t;
+        }
+        barrier.await();
+        try {
+            for (int b = 0; b < blockGroups.length; b++) {
+                int start = blockStarts[b];
+                int lo = Math.max(from, start);
+                int hi = Math.min(to, blockStarts[b + 1]);
+                if (lo >= hi) {
+                    continue;
+                }
+                if (blockGroups[b] == null) {
+                    for (int i = lo; i < hi; i++) {
+                        neurons[i].setToBufferVals();
+                    }
+                } else {
+                    blockGroups[b].commitPartition(lo - start, hi - start);
+                }
+            }
+        } catch (Throwable t) {
+            failure = t;
+        }
+        barrier.await();
+    }
+
+    /**
+     * Collect the neurons to update and divide them in to aligned partitions.
+     * Only called from the invoking thread while the workers are waiting for
+     * the next update; the following write to {@link #step} publishes the
+     * new partitions to them.
+     */
+    private void rebuildPartitions() {
+        dirty = false;
+        removeGroupListeners();
+        List<NeuronGroup> groups = new ArrayList<>();
+        for (Group group : network.getFlatGroupList()) {
+            if (group instanceof NeuronGroup) {
+                groups.add((NeuronGroup) group);
+            }
+        }
+        neuronGroups = groups.toArray(new NeuronGroup[groups.size()]);
+        inputModes = new boolean[neuronGroups.length];
+        for (NeuronGroup ng : neuronGroups) {
+            ng.addPropertyChangeListener(structureListener);
+        }
+
+        List<Neuron> toUpdate = new ArrayList<>(network.getNeuronList());
+        List<Integer> starts = new ArrayList<>();
+        List<NeuronGroup> owners = new ArrayList<>();
+        starts.add(0);
+        owners.add(null);
+        for (int g = 0; g < neuronGroups.length; g++) {
+            inputModes[g] = neuronGroups[g].isInputMode();
+            if (!inputModes[g]) {
+                starts.add(toUpdate.size());
+                owners.add(neuronGroups[g]);
+                toUpdate.addAll(neuronGroups[g].getNeuronListUnsafe());
+            }
+        }
+        neurons = toUpdate.toArray(new Neuron[toUpdate.size()]);
+        blockGroups = owners.toArray(new NeuronGroup[owners.size()]);
+        blockStarts = new int[blockGroups.length + 1];
+        for (int b = 0; b < blockGroups.length; b++) {
+            blockStarts[b] = starts.get(b);
+        }
+        blockStarts[blockGroups.length] = neurons.length;
+
+        int chunk = (neurons.length + numThreads - 1) / numThreads;
+        chunk = ((chunk + ALIGNMENT - 1) / ALIGNMENT) * ALIGNMENT;
+        for (int p = 0; p <= numThreads; p++) {
+            bounds[p] = Math.min(neurons.length, p * chunk);
+        }
+    }
+
+    /**
+     * Stop listening to the neuron groups found by the last rebuild.
+     */
+    private void removeGroupListeners() {
+        for (NeuronGroup ng : neuronGroups) {
+            ng.removePropertyChangeListener(structureListener);
+        }
+    }
+
+    /**
+     * Start listening to the network and start the worker threads. They are
+     * daemon threads and wait (spinning briefly, then parked) between
+     * updates. The network's neuron groups are listened to from the next
+     * rebuild of the partitions.
+     */
+    private void startWorkers() {
+        structureListener = evt -> {
+            String name = evt.getPropertyName();
+            if ("neuronAdded".equals(name) || "neuronRemoved".equals(name) || "groupAdded".equals(name) || "groupRemoved".equals(name) || "neuronListChanged".equals(name)) {
+                dirty = true;
+            }
+        };
+        network.addPropertyChangeListener(structureListener);
+        dirty = true;
+        barrier = new SpinBarrier(numThreads);
+        final AtomicBoolean stop = new AtomicBoolean();
+        stopped = stop;
+        workers = new Thread[numThreads - 1];
+        for (int w = 0; w < workers.length; w++) {
+            final int partition = w + 1;
+            workers[w] = new Thread(() -> {
+                int seen = 0;
+                while (true) {
+                    int spins = 0;
+                    while (step == seen && !stop.get()) {
+                        if (spins < SPIN_LIMIT) {
+                            spins++;
+                            Thread.onSpinWait();
+                        } else {
+                            LockSupport.park(this);
+                        }
+                    }
+                    if (stop.get()) {
+                        return;
+                    }
+                    seen++;
+                    updatePartition(partition);
+                }
+            }, "ParallelBufferedUpdate-" + partition);
+            workers[w].setDaemon(true);
+            workers[w].start();
+        }
+    }
+
+    /**
+     * Stop the worker threads and stop listening to the network and its
+     * groups. Both are started again if this action is invoked again. If the
+     * calling thread is interrupted while waiting for the workers to finish,
+     * they still stop on their own, and this action can be used again.
+     */
+    @Override
+    public void shutdown() {
+        if (workers == null) {
+            return;
+        }
+        try {
+            network.removePropertyChangeListener(structureListener);
+            removeGroupListeners();
+            stopped.set(true);
+            for (Thread worker : workers) {
+                LockSupport.unpark(worker);
+            }
+            for (Thread worker : workers) {
+                worker.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            structureListener = null;
+            neuronGroups = new NeuronGroup[0];
+            inputModes = new boolean[0];
+            workers = null;
+            stopped = null;
+            step = 0;
+            dirty = true;
+        }
+    }
+
+    /**
+     * @return the number of threads used, including the invoking thread
+     */
+    public int getNumThreads() {
+        return numThreads;
+    }
+
+    @Override
+    public String getDescription() {
+        return "Parallel Buffered Update (Persistent Workers)";
+    }
+
+    @Override
+    public String getLongDescription() {
+        return "Parallel Buffered Update (All Neurons, Persistent Workers)";
+    }
+
+}
@@ -0,0 +1,159 @@
+/*
+ * Part of Simbrain--a java-based neural network kit
+ * Copyright (C) 2005,2007 The Authors.  See http://www.simbrain.net/credits
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package org.simbrain.network.update_actions;
+
+import org.simbrain.network.core.Network;
+import org.simbrain.network.core.NetworkUpdateAction;
+import org.simbrain.network.groups.Group;
+import org.simbrain.network.groups.SynapseGroup;
+
+import java.beans.PropertyChangeListener;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Event-driven propagation of spikes through synapse groups which are in
+ * event-driven mode (see {@link SynapseGroup#setEventDriven(boolean)}). Only
+ * the outgoing weights of neurons that spiked on the last update are visited.
+ * Should come before the neuron group updates in the update sequence, so that
+ * the resulting post synaptic responses are available to the target groups.
+ * <p>
+ * The event-driven groups are found on the first update and cached. From then
+ * on the network and its synapse groups are listened to, and the cache is
+ * refreshed when groups are added or removed or a group enters or leaves
+ * event-driven mode. Once no event-driven groups remain the action removes
+ * itself from the network's update manager.
+ */
+public class SpikePropagationUpdate implements NetworkUpdateAction {
+
+    /**
+     * Reference to network to update.
+     */
+    private Network network;
+
+    /**
+     * The event-driven synapse groups in the network, found when the
+     * network's structure last changed.
+     */
+    private transient volatile SynapseGroup[] eventDrivenGroups;
+
+    /**
+     * All the synapse groups listened to for changes in event-driven mode.
+     */
+    private transient List<SynapseGroup> synapseGroups;
+
+    /**
+     * Listener refreshing the cached groups. Registered with the network and
+     * its synapse groups from the first update until {@link #shutdown()}.
+     */
+    private transient PropertyChangeListener structureListener;
+
+    /**
+     * @param network the network whose spikes to propagate
+     */
+    public SpikePropagationUpdate(Network network) {
+        this.network = network;
+    }
+
+    @Override
+    public void invoke() {
+        if (structureListener == null) {
+            structureListener = evt -> {
+                String name = evt.getPropertyName();
+                if ("groupAdded".equals(name) || "groupRemoved".equals(name) || "eventDrivenChanged".equals(name)) {
+                    refresh();
+                }
+            };
+            network.addPropertyChangeListener(structureListener);
+            synapseGroups = new ArrayList<>();
+            findGroups();
+        }
+        for (SynapseGroup sg : eventDrivenGroups) {
+            sg.propagateSpikes();
+        }
+    }
+
+    /**
+     * Find the groups again after a structural change, and remove this action
+     * from the update manager if the last event-driven group is gone.
+     */
+    private void refresh() {
+        boolean hadGroups = eventDrivenGroups.length > 0;
+        findGroups();
+        if (hadGroups && eventDrivenGroups.length == 0) {
+            network.getUpdateManager().removeAction(this);
+        }
+    }
+
+    /**
+     * Cache the event-driven synapse groups in the network, and listen to all
+     * its synapse groups for changes in event-driven mode.
+     */
+    private void findGroups() {
+        removeGroupListeners();
+        List<SynapseGroup> eventDriven = new ArrayList<>();
+        for (Group group : network.getFlatGroupList()) {
+            if (group instanceof SynapseGroup) {
+                SynapseGroup sg = (SynapseGroup) group;
+                sg.addPropertyChangeListener(structureListener);
+                synapseGroups.add(sg);
+                if (sg.isEventDriven()) {
+                    eventDriven.add(sg);
+                }
+            }
+        }
+        eventDrivenGroups = eventDriven.toArray(new SynapseGroup[eventDriven.size()]);
+    }
+
+    /**
+     * Stop listening to the synapse groups found last.
+     */
+    private void removeGroupListeners() {
+        for (SynapseGroup sg : synapseGroups) {
+            sg.removePropertyChangeListener(structureListener);
+        }
+        synapseGroups.clear();
+    }
+
+    /**
+     * Stop listening to the network and its synapse groups. The groups are
+     * found again if this action is invoked again.
+     */
+    @Override
+    public void shutdown() {
+        if (structureListener == null) {
+            return;
+        }
+        network.removePropertyChangeListener(structureListener);
+        removeGroupListeners();
+        structureListener = null;
+        eventDrivenGroups = null;
+    }
+
+    @Override
+    public String getDescription() {
+        return "Event-driven spike propagation";
+    }
+
+    @Override
+    public String getLongDescription() {
+        return "Propagate spikes through event-driven synapse groups";
+    }
+
+}
@@ -0,0 +1,88 @@
+/*
+ * Part of Simbrain--a java-based neural network kit
+ * Copyright (C) 2005,2007 The Authors.  See http://www.simbrain.net/credits
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package org.simbrain.network.update_actions.concurrency_tools;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A reusable barrier for a fixed number of threads which waits by spinning
+ * (then yielding) rather than blocking. Meant for phases of a single network
+ * update which are short and closely spaced, where the cost of parking and
+ * waking threads would dominate. Allocates nothing when awaited.
+ */
+public final class SpinBarrier {
+
+    /**
+     * Number of spins before a waiting thread starts yielding.
+     */
+    private static final int SPIN_LIMIT = 1 << 10;
+
+    /**
+     * Number of threads which must arrive to trip the barrier.
+     */
+    private final int parties;
+
+    /**
+     * Number of threads still to arrive in the current generation.
+     */
+    private final AtomicInteger remaining;
+
+    /**
+     * Incremented each time the barrier trips.
+     */
+    private volatile int generation;
+
+    /**
+     * @param parties the number of threads which must arrive to trip the
+     *                barrier
+     */
+    public SpinBarrier(final int parties) {
+        if (parties < 1) {
+            throw new IllegalArgumentException("A barrier needs at least one party.");
+        }
+        this.parties = parties;
+        this.remaining = new AtomicInteger(parties);
+    }
+
+    /**
+     * Wait until all parties have arrived.
+     */
+    public void await() {
+        final int gen = generation;
+        if (remaining.decrementAndGet() == 0) {
+            remaining.set(parties);
+            generation = gen + 1;
+            return;
+        }
+        int spins = 0;
+        while (generation == gen) {
+            if (spins < SPIN_LIMIT) {
+                spins++;
+                Thread.onSpinWait();
+            } else {
+                Thread.yield();
+            }
+        }
+    }
+
+    public int getParties() {
+        return parties;
+    }
+
+}
@@ -13,6 +13,8 @@
  */
 package org.simbrain.network.util;
 
+import Jama.EigenvalueDecomposition;
+import Jama.Matrix;
 import org.ojalgo.access.Access2D.Builder;
 import org.ojalgo.matrix.BasicMatrix;
 import org.ojalgo.matrix.BasicMatrix.Factory;
@@ -20,6 +22,7 @@ import org.ojalgo.matrix.PrimitiveMatrix;
 import org.ojalgo.scalar.ComplexNumber;
 import org.simbrain.network.core.Network;
 import org.simbrain.network.core.Neuron;
+import org.simbrain.network.core.SparseWeightMatrix;
 import org.simbrain.network.core.Synapse;
 
 import java.awt.geom.Point2D;
@@ -177,6 +180,212 @@ public class SimnetUtils {
         scaleWeights(src, tar, desiredEigen / maxEigen);
     }
 
+    /**
+     * Number of basis vectors in each cycle of the spectral radius estimate.
+     */
+    private static final int KRYLOV_SIZE = 30;
+
+    /**
+     * Maximum number of basis vectors carried over from one cycle of the
+     * spectral radius estimate to the next.
+     */
+    private static final int KEPT_SIZE = 10;
+
+    /**
+     * Maximum number of (restarted) cycles in the spectral radius estimate.
+     */
+    private static final int MAX_ARNOLDI_CYCLES = 100;
+
+    /**
+     * Residual of the leading Ritz pair, relative to its eigenvalue, at which
+     * the spectral radius estimate is considered to have converged.
+     */
+    private static final double SPECTRAL_RADIUS_TOLERANCE = 1E-6;
+
+    /**
+     * Estimate the spectral radius (largest eigenvalue modulus) of a square
+     * sparse weight matrix, using thick restarted Arnoldi iteration. Each
+     * cycle extends a small subspace with sparse matrix-vector products,
+     * takes the largest eigenvalue of the (small, dense) projection of the
+     * matrix on to it, and restarts from the leading Ritz vectors, until the
+     * residual ||Ax - lambda x|| of the largest Ritz pair is small. Keeping
+     * several Ritz vectors, rather than restarting from just the largest one,
+     * stops the iteration from settling on a smaller eigenvalue when the
+     * largest ones are close together, as is usual for random reservoirs.
+     * Unlike plain power iteration this also converges when the largest
+     * eigenvalues are a complex pair. Work per cycle is proportional to the
+     * number of non-zero weights plus the number of neurons times the
+     * subspace size squared; no dense n x n matrix is built.
+     * <p>
+     * Note that {@link #findMaxEig(double[][])} returns the largest absolute
+     * real part, which can be smaller than the spectral radius.
+     *
+     * @param matrix a square weight matrix
+     * @return the estimated spectral radius
+     */
+    public static double findSpectralRadius(SparseWeightMatrix matrix) {
+        final int n = matrix.getNumRows();
+        if (n != matrix.getNumCols()) {
+            throw new IllegalArgumentException("Spectral radius requires a square matrix");
+        }
+        if (n == 0 || matrix.getNumNonZero() == 0) {
+            return 0;
+        }
+        final int m = Math.min(KRYLOV_SIZE, n);
+        double[][] basis = new double[m][n];
+        double[][] products = new double[m][n];
+        double[][] kept = new double[m][n];
+
+        // Start from a fixed pseudo-random vector so results are repeatable
+        Random random = new Random(n);
+        for (int i = 0; i < n; i++) {
+            basis[0][i] = random.nextDouble() - 0.5;
+        }
+        scale(basis[0], 1 / norm(basis[0]));
+        int numKept = 1;
+        double estimate = 0;
+        for (int cycle = 0; cycle < MAX_ARNOLDI_CYCLES; cycle++) {
+
+            // Extend the kept vectors, the first of which is the leading
+            // Ritz vector, with its Krylov subspace
+            for (int j = 0; j < numKept; j++) {
+                Arrays.fill(products[j], 0);
+                matrix.multiplyAdd(basis[j], products[j]);
+            }
+            int size = numKept;
+            while (size < m) {
+                double[] w = basis[size];
+                System.arraycopy(products[size == numKept ? 0 : size - 1], 0, w, 0, n);
+                double before = norm(w);
+                orthogonalize(w, basis, size);
+                double wNorm = norm(w);
+                if (wNorm < 1E-12 * before) {
+                    // The subspace is invariant, so its eigenvalues are exact
+                    break;
+                }
+                scale(w, 1 / wNorm);
+                Arrays.fill(products[size], 0);
+                matrix.multiplyAdd(w, products[size]);
+                size++;
+            }
+
+            // Ritz values by decreasing modulus, taking one of each complex
+            // conjugate pair
+            double[][] projection = new double[size][size];
+            for (int i = 0; i < size; i++) {
+                for (int j = 0; j < size; j++) {
+                    projection[i][j] = dot(basis[i], products[j]);
+                }
+            }
+            EigenvalueDecomposition eig = new Matrix(projection).eig();
+            final double[] re = eig.getRealEigenvalues();
+            final double[] im = eig.getImagEigenvalues();
+            double[][] vectors = eig.getV().getArray();
+            List<Integer> order = new ArrayList<>();
+            for (int i = 0; i < size; i++) {
+                if (im[i] >= 0) {
+                    order.add(i);
+                }
+            }
+            order.sort((i, j) -> Double.compare(Math.hypot(re[j], im[j]), Math.hypot(re[i], im[i])));
+            int best = order.get(0);
+            estimate = Math.hypot(re[best], im[best]);
+            if (size < m || size == n) {
+                break;
+            }
+
+            // Residual A x - lambda x of the leading Ritz pair, where x is
+            // the basis times the eigenvector y = yr + i yi of the projection.
+            // The decomposition holds yr and yi in adjacent columns.
+            double[] xr = new double[n];
+            double[] xi = new double[n];
+            double[] axr = new double[n];
+            double[] axi = new double[n];
+            for (int j = 0; j < size; j++) {
+                double yr = vectors[j][best];
+                double yi = im[best] > 0 ? vectors[j][best + 1] : 0;
+                for (int k = 0; k < n; k++) {
+                    xr[k] += yr * basis[j][k];
+                    xi[k] += yi * basis[j][k];
+                    axr[k] += yr * products[j][k];
+                    axi[k] += yi * products[j][k];
+                }
+            }
+            double residual = 0;
+            for (int k = 0; k < n; k++) {
+                double rr = axr[k] - re[best] * xr[k] + im[best] * xi[k];
+                double ri = axi[k] - re[best] * xi[k] - im[best] * xr[k];
+                residual += rr * rr + ri * ri;
+            }
+            residual = Math.sqrt(residual / (dot(xr, xr) + dot(xi, xi)));
+            if (residual <= SPECTRAL_RADIUS_TOLERANCE * estimate) {
+                break;
+            }
+
+            // Restart from the real and imaginary parts of the leading Ritz
+            // vectors, orthonormalized
+            numKept = 0;
+            for (int r = 0; r < order.size() && numKept < KEPT_SIZE; r++) {
+                int i = order.get(r);
+                for (int part = 0; part < (im[i] > 0 ? 2 : 1) && numKept < KEPT_SIZE; part++) {
+                    double[] v = kept[numKept];
+                    Arrays.fill(v, 0);
+                    for (int j = 0; j < size; j++) {
+                        double coeff = vectors[j][i + part];
+                        for (int k = 0; k < n; k++) {
+                            v[k] += coeff * basis[j][k];
+                        }
+                    }
+                    double before = norm(v);
+                    orthogonalize(v, kept, numKept);
+                    double vNorm = norm(v);
+                    if (vNorm > 1E-8 * before) {
+                        scale(v, 1 / vNorm);
+                        numKept++;
+                    }
+                }
+            }
+            double[][] swap = basis;
+            basis = kept;
+            kept = swap;
+        }
+        return estimate;
+    }
+
+    /**
+     * Make a vector orthogonal to the first vectors of an orthonormal set, by
+     * modified Gram-Schmidt applied twice for numerical stability.
+     */
+    private static void orthogonalize(double[] v, double[][] set, int count) {
+        for (int pass = 0; pass < 2; pass++) {
+            for (int i = 0; i < count; i++) {
+                double h = dot(v, set[i]);
+                double[] u = set[i];
+                for (int k = 0; k < v.length; k++) {
+                    v[k] -= h * u[k];
+                }
+            }
+        }
+    }
+
+    private static void scale(double[] a, double scalar) {
+        for (int i = 0; i < a.length; i++) {
+            a[i] *= scalar;
+        }
+    }
+
+    private static double dot(double[] a, double[] b) {
+        double sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+
+    private static double norm(double[] a) {
+        return Math.sqrt(dot(a, a));
+    }
+
     /**
      * Return the upper left corner of a list of objects, based on neurons.
      *
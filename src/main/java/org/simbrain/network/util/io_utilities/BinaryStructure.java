@@ -0,0 +1,266 @@
+/*
+ * Part of Simbrain--a java-based neural network kit
+ * Copyright (C) 2005,2007 The Authors.  See http://www.simbrain.net/credits
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package org.simbrain.network.util.io_utilities;
+
+import com.thoughtworks.xstream.XStream;
+import com.thoughtworks.xstream.converters.Converter;
+import com.thoughtworks.xstream.converters.MarshallingContext;
+import com.thoughtworks.xstream.converters.UnmarshallingContext;
+import com.thoughtworks.xstream.io.HierarchicalStreamReader;
+import com.thoughtworks.xstream.io.HierarchicalStreamWriter;
+import org.simbrain.network.core.Neuron;
+import org.simbrain.network.groups.NeuronGroup;
+import org.simbrain.network.groups.SynapseGroup;
+import org.simbrain.util.Utils;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The rows and group table of a binary network file, shared by {@link
+ * NetworkBinarySerializer} and {@link NetworkBinaryDeserializer}. When
+ * writing, neurons are given rows and group table entries are added as the
+ * structure XML is written. When reading, the rows and entries are filled in
+ * from the file before the structure XML is read.
+ */
+final class BinaryStructure {
+
+    /**
+     * Kinds of group table entry.
+     */
+    static final byte NEURON_LIST = 0, SPARSE_CODE = 1, FULL_SYNAPSE_REP = 2;
+
+    /**
+     * Name of the XML attribute holding a neuron's row.
+     */
+    private static final String ROW = "row";
+
+    /**
+     * Name of the XML attribute holding a group table entry.
+     */
+    private static final String ENTRY = "entry";
+
+    /**
+     * Row of each neuron.
+     */
+    private final Map<Neuron, Integer> rows = new IdentityHashMap<>();
+
+    /**
+     * Neurons, in order of rows.
+     */
+    private final List<Neuron> neurons = new ArrayList<>();
+
+    /**
+     * Group table entries: kind, first row and number of neurons.
+     */
+    private final List<int[]> entries = new ArrayList<>();
+
+    /**
+     * Synapse block of each group table entry, or null for neuron lists.
+     */
+    private final List<byte[]> blocks = new ArrayList<>();
+
+    /**
+     * @return the row of a neuron, giving it the next row if it has none
+     */
+    int rowOf(final Neuron neuron) {
+        Integer row = rows.get(neuron);
+        if (row == null) {
+            row = neurons.size();
+            rows.put(neuron, row);
+            neurons.add(neuron);
+        }
+        return row;
+    }
+
+    /**
+     * @return the neurons, in order of rows
+     */
+    List<Neuron> getNeurons() {
+        return neurons;
+    }
+
+    /**
+     * Add a group table entry.
+     *
+     * @param kind     the kind of entry
+     * @param firstRow the first row of a neuron list
+     * @param count    the number of neurons in a neuron list
+     * @param block    the synapse block, or null for a neuron list
+     * @return the index of the entry
+     */
+    int addEntry(final byte kind, final int firstRow, final int count, final byte[] block) {
+        entries.add(new int[]{kind, firstRow, count});
+        blocks.add(block);
+        return entries.size() - 1;
+    }
+
+    /**
+     * @return the group table entries: kind, first row and number of neurons
+     */
+    List<int[]> getEntries() {
+        return entries;
+    }
+
+    /**
+     * @return the synapse block of each entry, or null for neuron lists
+     */
+    List<byte[]> getBlocks() {
+        return blocks;
+    }
+
+    /**
+     * Create an XStream for the structure of a network, where neurons, the
+     * neuron lists of neuron groups and synapse group blocks are written as
+     * rows and group table entries.
+     *
+     * @return the XStream
+     */
+    XStream getXStream() {
+        XStream xstream = Utils.getSimbrainXStream();
+        xstream.registerConverter(new NeuronRowConverter(), XStream.PRIORITY_VERY_HIGH);
+        // Neurons are always written as their row, never as references
+        xstream.addImmutableType(Neuron.class, false);
+        xstream.registerLocalConverter(NeuronGroup.class, "neuronList", new NeuronListConverter());
+        xstream.registerLocalConverter(SynapseGroup.class, "compressedMatrixRep", new BlockConverter(SPARSE_CODE));
+        xstream.registerLocalConverter(SynapseGroup.class, "fullSynapseRep", new BlockConverter(FULL_SYNAPSE_REP));
+        return xstream;
+    }
+
+    /**
+     * @return the index of the group table entry named by a node, checked
+     * against the kind expected
+     */
+    private int entryOf(final HierarchicalStreamReader reader, final byte kind) {
+        int entry = Integer.parseInt(reader.getAttribute(ENTRY));
+        if (entry < 0 || entry >= entries.size() || entries.get(entry)[0] != kind) {
+            throw new IllegalStateException("Invalid group table entry " + entry);
+        }
+        return entry;
+    }
+
+    /**
+     * @return the neuron in a row, checked against the rows read
+     */
+    private Neuron neuronAt(final String row) {
+        int index = Integer.parseInt(row);
+        if (index < 0 || index >= neurons.size()) {
+            throw new IllegalStateException("Invalid neuron row " + index);
+        }
+        return neurons.get(index);
+    }
+
+    /**
+     * Converts a neuron to and from its row.
+     */
+    private class NeuronRowConverter implements Converter {
+
+        @Override
+        public boolean canConvert(@SuppressWarnings("rawtypes") Class type) {
+            return type == Neuron.class;
+        }
+
+        @Override
+        public void marshal(Object source, HierarchicalStreamWriter writer, MarshallingContext context) {
+            writer.addAttribute(ROW, Integer.toString(rowOf((Neuron) source)));
+        }
+
+        @Override
+        public Object unmarshal(HierarchicalStreamReader reader, UnmarshallingContext context) {
+            return neuronAt(reader.getAttribute(ROW));
+        }
+    }
+
+    /**
+     * Converts the neuron list of a neuron group to and from a group table
+     * entry, or if its neurons' rows are not consecutive, a list of rows.
+     */
+    private class NeuronListConverter implements Converter {
+
+        @Override
+        public boolean canConvert(@SuppressWarnings("rawtypes") Class type) {
+            return List.class.isAssignableFrom(type);
+        }
+
+        @Override
+        public void marshal(Object source, HierarchicalStreamWriter writer, MarshallingContext context) {
+            List<?> list = (List<?>) source;
+            int first = list.isEmpty() ? 0 : rowOf((Neuron) list.get(0));
+            boolean consecutive = true;
+            for (int i = 1; i < list.size() && consecutive; i++) {
+                consecutive = rowOf((Neuron) list.get(i)) == first + i;
+            }
+            if (consecutive) {
+                writer.addAttribute(ENTRY, Integer.toString(addEntry(NEURON_LIST, first, list.size(), null)));
+            } else {
+                for (Object n : list) {
+                    writer.startNode(ROW);
+                    writer.setValue(Integer.toString(rowOf((Neuron) n)));
+                    writer.endNode();
+                }
+            }
+        }
+
+        @Override
+        public Object unmarshal(HierarchicalStreamReader reader, UnmarshallingContext context) {
+            if (reader.getAttribute(ENTRY) != null) {
+                int[] entry = entries.get(entryOf(reader, NEURON_LIST));
+                return new ArrayList<>(neurons.subList(entry[1], entry[1] + entry[2]));
+            }
+            List<Neuron> list = new ArrayList<>();
+            while (reader.hasMoreChildren()) {
+                reader.moveDown();
+                list.add(neuronAt(reader.getValue()));
+                reader.moveUp();
+            }
+            return list;
+        }
+    }
+
+    /**
+     * Converts the bytes of a synapse group block to and from a group table
+     * entry.
+     */
+    private class BlockConverter implements Converter {
+
+        private final byte kind;
+
+        BlockConverter(byte kind) {
+            this.kind = kind;
+        }
+
+        @Override
+        public boolean canConvert(@SuppressWarnings("rawtypes") Class type) {
+            return type == byte[].class;
+        }
+
+        @Override
+        public void marshal(Object source, HierarchicalStreamWriter writer, MarshallingContext context) {
+            writer.addAttribute(ENTRY, Integer.toString(addEntry(kind, 0, 0, (byte[]) source)));
+        }
+
+        @Override
+        public Object unmarshal(HierarchicalStreamReader reader, UnmarshallingContext context) {
+            return blocks.get(entryOf(reader, kind));
+        }
+    }
+
+}
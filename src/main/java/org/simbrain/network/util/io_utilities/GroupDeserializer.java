@@ -28,8 +28,8 @@ import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.InputMismatchException;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.ListIterator;
 
@@ -61,7 +61,7 @@ public class GroupDeserializer {
             List<Neuron> src = sg.getSourceNeurons();
             List<Neuron> tar = sg.getTargetNeurons();
             // Store synapses before putting them in the group.
-            List<Synapse> synapses = new LinkedList<Synapse>();
+            List<Synapse> synapses = new ArrayList<Synapse>(size);
 
             for (int ii = 0; ii < numSrc; ++ii) {
                 int srcInd = inStream.getInt();
@@ -82,7 +82,7 @@ public class GroupDeserializer {
                 for (int ii = 0; ii < size; ++ii) {
                     Synapse s = synIter.next();
                     s.forceSetStrength(Double.longBitsToDouble(inStream.getLong()));
-                    sg.addSynapseUnsafe(s);
+                    addByStrength(s, sg);
                 }
             } else {
                 if (inStream.remaining() / 4 != size) {
@@ -92,7 +92,7 @@ public class GroupDeserializer {
                 for (int ii = 0; ii < size; ++ii) {
                     Synapse s = synIter.next();
                     s.forceSetStrength((double) Float.intBitsToFloat(inStream.getInt()));
-                    sg.addSynapseUnsafe(s);
+                    addByStrength(s, sg);
                 }
             }
         } catch (IndexOutOfBoundsException ob) {
@@ -109,6 +109,20 @@ public class GroupDeserializer {
         return true;
     }
 
+    /**
+     * Add a synapse to the excitatory or inhibitory set of a group according
+     * to the sign of its strength. Unlike {@link
+     * SynapseGroup#addSynapseUnsafe(Synapse)}, synapses with zero strength
+     * are kept (as excitatory).
+     */
+    private static void addByStrength(Synapse s, SynapseGroup sg) {
+        if (s.getStrength() < 0) {
+            sg.addInhibitorySynapseUnsafe(s);
+        } else {
+            sg.addExcitatorySynapseUnsafe(s);
+        }
+    }
+
     /**
      * @param rowCompByteArr the row compressed sparse matrix used to fill the
      *                       synapse group in compressed byte array format.
@@ -139,7 +153,7 @@ public class GroupDeserializer {
             List<Neuron> src = sg.getSourceNeurons();
             List<Neuron> tar = sg.getTargetNeurons();
             // Store synapses before putting them in the group.
-            List<Synapse> synapses = new LinkedList<Synapse>();
+            List<Synapse> synapses = new ArrayList<Synapse>(numSyns);
             for (int i = 0; i < numSyns; i++) {
                 index = 0;
                 newLine = 0;
@@ -0,0 +1,195 @@
+/*
+ * Part of Simbrain--a java-based neural network kit
+ * Copyright (C) 2005,2007 The Authors.  See http://www.simbrain.net/credits
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package org.simbrain.network.util.io_utilities;
+
+import com.thoughtworks.xstream.XStream;
+import com.thoughtworks.xstream.io.xml.DomReader;
+import org.simbrain.network.core.Network;
+import org.simbrain.network.core.Neuron;
+import org.simbrain.network.core.NeuronUpdateRule;
+import org.simbrain.network.groups.Group;
+import org.simbrain.network.groups.NeuronGroup;
+import org.simbrain.util.Utils;
+import org.w3c.dom.Document;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+
+import java.io.ByteArrayInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import static org.simbrain.network.util.io_utilities.BinaryStructure.NEURON_LIST;
+import static org.simbrain.network.util.io_utilities.NetworkBinarySerializer.*;
+
+/**
+ * Reads networks saved by {@link NetworkBinarySerializer}. The sections of
+ * the file are read in a single pass, so any input stream can be read from
+ * without buffering the whole file; each section is read in one go.
+ */
+public final class NetworkBinaryDeserializer {
+
+    /**
+     * Rows and group table entries, filled in from the file.
+     */
+    private final BinaryStructure structure = new BinaryStructure();
+
+    private NetworkBinaryDeserializer() {
+    }
+
+    /**
+     * Check whether a stream holds a binary network, without consuming any
+     * of it.
+     *
+     * @param input a stream which supports mark and reset
+     * @return true if the stream starts with the binary network magic number
+     * @throws IOException if the stream can't be read
+     */
+    public static boolean isBinaryNetwork(final InputStream input) throws IOException {
+        input.mark(4);
+        byte[] magic = new byte[4];
+        int read = 0;
+        while (read < 4) {
+            int n = input.read(magic, read, 4 - read);
+            if (n < 0) {
+                break;
+            }
+            read += n;
+        }
+        input.reset();
+        return read == 4 && ByteBuffer.wrap(magic).order(ByteOrder.LITTLE_ENDIAN).getInt() == MAGIC;
+    }
+
+    /**
+     * Read a network in the binary format.
+     *
+     * @param input the stream to read from, positioned at the start of the
+     *              network
+     * @return the network
+     * @throws IOException if the stream can't be read or does not hold a
+     *                     binary network
+     */
+    public static Network open(final InputStream input) throws IOException {
+        return new NetworkBinaryDeserializer().read(input);
+    }
+
+    private Network read(final InputStream input) throws IOException {
+        ReadableByteChannel channel = input instanceof FileInputStream ? ((FileInputStream) input).getChannel() : Channels.newChannel(input);
+
+        ByteBuffer header = NeuronColumns.readFully(channel, HEADER_SIZE);
+        if (header.getInt() != MAGIC) {
+            throw new IOException("Not a binary network file");
+        }
+        int version = header.getInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported binary network version " + version);
+        }
+        int numNeurons = header.getInt();
+        int numRules = header.getInt();
+        int numEntries = header.getInt();
+
+        ByteBuffer table = NeuronColumns.readFully(channel, ENTRY_SIZE * numEntries);
+        byte[] kinds = new byte[numEntries];
+        int[] firstRows = new int[numEntries];
+        int[] counts = new int[numEntries];
+        long[] lengths = new long[numEntries];
+        for (int e = 0; e < numEntries; e++) {
+            kinds[e] = table.get();
+            firstRows[e] = table.getInt();
+            counts[e] = table.getInt();
+            lengths[e] = table.getLong();
+        }
+
+        // Neurons with equal rules share an entry in the rule table, but each
+        // needs an instance of its own. Rules are parsed once and each
+        // instance is unmarshalled from the parsed document, since copying
+        // a rule with deepCopy may leave out some of its state.
+        Document[] rules = new Document[numRules];
+        for (int r = 0; r < numRules; r++) {
+            rules[r] = parseRule(readString(channel));
+        }
+
+        XStream ruleXStream = Utils.getSimbrainXStream();
+        NeuronColumns columns = NeuronColumns.read(channel, numNeurons);
+        Network network = new Network();
+        for (int i = 0; i < numNeurons; i++) {
+            Neuron neuron = new Neuron(network);
+            if (columns.rule[i] < 0 || columns.rule[i] >= numRules) {
+                throw new IOException("Invalid neuron update rule index " + columns.rule[i]);
+            }
+            NeuronUpdateRule rule = (NeuronUpdateRule) ruleXStream.unmarshal(new DomReader(rules[columns.rule[i]]));
+            neuron.readColumns(columns, i, rule);
+            structure.rowOf(neuron);
+        }
+
+        for (int e = 0; e < numEntries; e++) {
+            byte[] block = null;
+            if (kinds[e] != NEURON_LIST) {
+                if (lengths[e] > Integer.MAX_VALUE) {
+                    throw new IOException("Synapse block too large: " + lengths[e]);
+                }
+                block = NeuronColumns.readFully(channel, (int) lengths[e]).array();
+            } else if (firstRows[e] < 0 || counts[e] < 0 || firstRows[e] + counts[e] > numNeurons) {
+                throw new IOException("Invalid neuron list " + e);
+            }
+            structure.addEntry(kinds[e], firstRows[e], counts[e], block);
+        }
+
+        ByteBuffer xml = NeuronColumns.readFully(channel, NeuronColumns.readFully(channel, 4).getInt());
+        structure.getXStream().fromXML(new ByteArrayInputStream(xml.array()), network);
+
+        // Parent groups are not stored
+        for (Group group : network.getFlatGroupList()) {
+            if (group instanceof NeuronGroup) {
+                for (Neuron n : ((NeuronGroup) group).getNeuronListUnsafe()) {
+                    n.setParentGroup(group);
+                }
+            }
+        }
+        network.updateTimeType();
+        return network;
+    }
+
+    /**
+     * Parse the xml of a neuron update rule.
+     */
+    private static Document parseRule(final String xml) throws IOException {
+        try {
+            return DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(new InputSource(new StringReader(xml)));
+        } catch (ParserConfigurationException | SAXException e) {
+            throw new IOException("Invalid neuron update rule", e);
+        }
+    }
+
+    /**
+     * Read a length prefixed UTF-8 string.
+     */
+    private static String readString(final ReadableByteChannel channel) throws IOException {
+        int length = NeuronColumns.readFully(channel, 4).getInt();
+        return new String(NeuronColumns.readFully(channel, length).array(), StandardCharsets.UTF_8);
+    }
+
+}
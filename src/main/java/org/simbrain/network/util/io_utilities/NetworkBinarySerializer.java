@@ -0,0 +1,324 @@
+/*
+ * Part of Simbrain--a java-based neural network kit
+ * Copyright (C) 2005,2007 The Authors.  See http://www.simbrain.net/credits
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package org.simbrain.network.util.io_utilities;
+
+import com.thoughtworks.xstream.XStream;
+import org.simbrain.network.core.Network;
+import org.simbrain.network.core.Neuron;
+import org.simbrain.network.core.NeuronUpdateRule;
+import org.simbrain.network.groups.Group;
+import org.simbrain.network.groups.NeuronGroup;
+import org.simbrain.network.groups.SynapseGroup;
+import org.simbrain.network.util.io_utilities.GroupSerializer.Precision;
+import org.simbrain.util.Utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Saves networks in a compact binary format, an alternative to saving the
+ * whole network as XML. The bulk of a network, its neurons and the synapses
+ * of its synapse groups, is stored as primitive data, and only the remaining
+ * structure is stored as XML. Files are read by {@link
+ * NetworkBinaryDeserializer}.
+ * <p>
+ * A file has the following sections, in order. All numbers are little
+ * endian.
+ * <ol>
+ * <li>Header: magic number, version, number of neurons, number of distinct
+ * neuron update rules and number of group table entries.</li>
+ * <li>Group table. Each entry is a kind, the first row and number of neurons
+ * in a neuron group, and the length in bytes of a synapse group block.</li>
+ * <li>Rule table: the neuron update rules with distinct classes and
+ * parameters, as XML. Each neuron refers to one of these, and is given a
+ * copy of it when read.</li>
+ * <li>Neuron state as primitive columns, see {@link NeuronColumns}.</li>
+ * <li>Synapse group blocks. Groups with group level settings use the layout
+ * of {@link SynapseGroup#getSparseCode(Precision)}, with the rules and other
+ * settings of each synapse taken from the group's prototypes. Other groups
+ * use the full synapse representation.</li>
+ * <li>The rest of the network as XML, where each neuron is replaced by its
+ * row, and the neuron lists of neuron groups and the synapses of synapse
+ * groups by group table entries.</li>
+ * </ol>
+ * Loose synapses, text and other parts of a network are stored in the XML
+ * as usual.
+ */
+public final class NetworkBinarySerializer {
+
+    /**
+     * File extension and format key of the binary format.
+     */
+    public static final String FORMAT = "snb";
+
+    /**
+     * First four bytes of a file, "SBNW" in ASCII.
+     */
+    static final int MAGIC = 0x574E4253;
+
+    static final int VERSION = 1;
+
+    static final int HEADER_SIZE = 20;
+
+    static final int ENTRY_SIZE = 17;
+
+    /**
+     * Rows and group table entries assigned as the network is written.
+     */
+    private final BinaryStructure structure = new BinaryStructure();
+
+    /**
+     * Instance fields of each class compared by {@link RuleKey}.
+     */
+    private final Map<Class<?>, List<Field>> ruleFields = new HashMap<>();
+
+    private NetworkBinarySerializer() {
+    }
+
+    /**
+     * Save a network in the binary format. When the output is a file it is
+     * written through its channel with a single gathering write. The output
+     * is not closed.
+     *
+     * @param network the network to save
+     * @param output  the stream to write to
+     * @throws IOException if the network can't be written
+     */
+    public static void save(final Network network, final OutputStream output) throws IOException {
+        new NetworkBinarySerializer().write(network, output);
+    }
+
+    private void write(final Network network, final OutputStream output) throws IOException {
+
+        // Give the neurons of each neuron group consecutive rows, so that
+        // each group's list is a single table entry
+        List<NeuronGroup> neuronGroups = new ArrayList<>();
+        List<SynapseGroup> synapseGroups = new ArrayList<>();
+        for (Group group : network.getFlatGroupList()) {
+            if (group instanceof NeuronGroup) {
+                neuronGroups.add((NeuronGroup) group);
+            } else if (group instanceof SynapseGroup) {
+                synapseGroups.add((SynapseGroup) group);
+            }
+        }
+        for (NeuronGroup ng : neuronGroups) {
+            for (Neuron n : ng.getNeuronListUnsafe()) {
+                structure.rowOf(n);
+            }
+        }
+        for (Neuron n : network.getNeuronList()) {
+            structure.rowOf(n);
+        }
+
+        ByteArrayOutputStream xml = new ByteArrayOutputStream();
+        for (NeuronGroup ng : neuronGroups) {
+            ng.preSaveInit();
+        }
+        for (SynapseGroup sg : synapseGroups) {
+            sg.preSaveInitBinary(Precision.FLOAT_64);
+        }
+        try {
+            structure.getXStream().toXML(network, xml);
+        } finally {
+            network.postSaveReInit();
+        }
+
+        // Columns and rules, including any neurons first found in the XML
+        List<Neuron> neurons = structure.getNeurons();
+        Map<NeuronUpdateRule, Integer> ruleIdentities = new IdentityHashMap<>();
+        Map<RuleKey, Integer> ruleValues = new HashMap<>();
+        List<NeuronUpdateRule> distinctRules = new ArrayList<>();
+        NeuronColumns columns = new NeuronColumns(neurons.size());
+        for (int i = 0; i < neurons.size(); i++) {
+            Neuron n = neurons.get(i);
+            n.writeColumns(columns, i);
+            columns.rule[i] = ruleIndexOf(n.getUpdateRule(), ruleIdentities, ruleValues, distinctRules);
+        }
+        XStream ruleXStream = Utils.getSimbrainXStream();
+        List<byte[]> rules = new ArrayList<>();
+        int ruleBytes = 0;
+        for (NeuronUpdateRule rule : distinctRules) {
+            rules.add(ruleXStream.toXML(rule).getBytes(StandardCharsets.UTF_8));
+            ruleBytes += 4 + rules.get(rules.size() - 1).length;
+        }
+
+        List<int[]> entries = structure.getEntries();
+        List<byte[]> blocks = structure.getBlocks();
+        ByteBuffer header = ByteBuffer.allocateDirect(HEADER_SIZE + ENTRY_SIZE * entries.size()).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putInt(VERSION).putInt(neurons.size()).putInt(rules.size()).putInt(entries.size());
+        for (int e = 0; e < entries.size(); e++) {
+            int[] entry = entries.get(e);
+            header.put((byte) entry[0]).putInt(entry[1]).putInt(entry[2]).putLong(blocks.get(e) == null ? 0 : blocks.get(e).length);
+        }
+        header.flip();
+        ByteBuffer ruleTable = ByteBuffer.allocateDirect(ruleBytes).order(ByteOrder.LITTLE_ENDIAN);
+        for (byte[] rule : rules) {
+            ruleTable.putInt(rule.length).put(rule);
+        }
+        ruleTable.flip();
+
+        List<ByteBuffer> sections = new ArrayList<>();
+        sections.add(header);
+        sections.add(ruleTable);
+        sections.add(columns.encodeValues());
+        sections.add(columns.encodeStrings());
+        for (byte[] block : blocks) {
+            if (block != null) {
+                sections.add(ByteBuffer.wrap(block));
+            }
+        }
+        sections.add(ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt(0, xml.size()));
+        sections.add(ByteBuffer.wrap(xml.toByteArray()));
+        writeFully(output, sections.toArray(new ByteBuffer[sections.size()]));
+    }
+
+    /**
+     * Write buffers to a stream, through its channel if it is a file.
+     */
+    private static void writeFully(final OutputStream output, final ByteBuffer[] buffers) throws IOException {
+        if (output instanceof FileOutputStream) {
+            GatheringByteChannel channel = ((FileOutputStream) output).getChannel();
+            long remaining = 0;
+            for (ByteBuffer buffer : buffers) {
+                remaining += buffer.remaining();
+            }
+            while (remaining > 0) {
+                remaining -= channel.write(buffers);
+            }
+        } else {
+            WritableByteChannel channel = Channels.newChannel(output);
+            for (ByteBuffer buffer : buffers) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+            output.flush();
+        }
+    }
+
+    /**
+     * @return the index in the rule table of a rule equal to the given one,
+     * adding it if there is none
+     */
+    private int ruleIndexOf(final NeuronUpdateRule rule, final Map<NeuronUpdateRule, Integer> byIdentity,
+                            final Map<RuleKey, Integer> byValue, final List<NeuronUpdateRule> distinct) {
+        Integer index = byIdentity.get(rule);
+        if (index == null) {
+            RuleKey key = new RuleKey(rule.getClass(), valuesOf(rule));
+            index = byValue.get(key);
+            if (index == null) {
+                index = distinct.size();
+                byValue.put(key, index);
+                distinct.add(rule);
+            }
+            byIdentity.put(rule, index);
+        }
+        return index;
+    }
+
+    /**
+     * Collect the instance field values of an object, recursing into fields
+     * which hold other objects, so that two objects with the same class and
+     * values give equal arrays. Numbers, strings, enums, arrays and classes
+     * from the JDK are compared with equals.
+     */
+    private Object[] valuesOf(final Object object) {
+        List<Field> fields = ruleFields.computeIfAbsent(object.getClass(), NetworkBinarySerializer::instanceFields);
+        Object[] values = new Object[fields.size()];
+        for (int i = 0; i < values.length; i++) {
+            Object value;
+            try {
+                value = fields.get(i).get(object);
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+            if (value == null || value.getClass().isEnum() || value.getClass().isArray()
+                || value.getClass().getName().startsWith("java.")) {
+                values[i] = value;
+            } else {
+                values[i] = new RuleKey(value.getClass(), valuesOf(value));
+            }
+        }
+        return values;
+    }
+
+    /**
+     * @return the non-static, non-transient fields of a class and its
+     * superclasses, made accessible
+     */
+    private static List<Field> instanceFields(final Class<?> type) {
+        List<Field> fields = new ArrayList<>();
+        for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                if (!Modifier.isStatic(field.getModifiers()) && !Modifier.isTransient(field.getModifiers())) {
+                    field.setAccessible(true);
+                    fields.add(field);
+                }
+            }
+        }
+        return fields;
+    }
+
+    /**
+     * A class and the values of its fields, so that neuron update rules with
+     * the same parameters are written once.
+     */
+    private static final class RuleKey {
+
+        private final Class<?> type;
+
+        private final Object[] values;
+
+        RuleKey(Class<?> type, Object[] values) {
+            this.type = type;
+            this.values = values;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof RuleKey)) {
+                return false;
+            }
+            RuleKey other = (RuleKey) o;
+            return type == other.type && Arrays.deepEquals(values, other.values);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * type.hashCode() + Arrays.deepHashCode(values);
+        }
+    }
+
+}
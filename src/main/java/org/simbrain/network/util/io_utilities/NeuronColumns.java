@@ -0,0 +1,235 @@
+/*
+ * Part of Simbrain--a java-based neural network kit
+ * Copyright (C) 2005,2007 The Authors.  See http://www.simbrain.net/credits
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package org.simbrain.network.util.io_utilities;
+
+import org.simbrain.network.core.Neuron;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The state of a list of neurons stored as primitive columns, one array per
+ * field, for the binary network format (see {@link NetworkBinarySerializer}).
+ * Neurons copy themselves to and from a row with
+ * {@link Neuron#writeColumns(NeuronColumns, int)} and
+ * {@link Neuron#readColumns(NeuronColumns, int, NeuronUpdateRule)}.
+ */
+public final class NeuronColumns {
+
+    /**
+     * Bits of {@link #flags}.
+     */
+    public static final byte SPIKE = 1, SPIKE_BUFFER = 2, CLAMPED = 4;
+
+    public final double[] activation;
+
+    public final double[] buffer;
+
+    public final double[] lastActivation;
+
+    public final double[] inputValue;
+
+    public final double[] increment;
+
+    public final double[] targetValue;
+
+    public final double[] auxValue;
+
+    public final double[] x;
+
+    public final double[] y;
+
+    public final double[] z;
+
+    public final int[] updatePriority;
+
+    /**
+     * Index of each neuron's update rule in the rule table of the file.
+     */
+    public final int[] rule;
+
+    /**
+     * Ordinal of each neuron's polarity.
+     */
+    public final byte[] polarity;
+
+    /**
+     * Boolean fields, combined using {@link #SPIKE}, {@link #SPIKE_BUFFER}
+     * and {@link #CLAMPED}.
+     */
+    public final byte[] flags;
+
+    public final String[] id;
+
+    public final String[] label;
+
+    /**
+     * Number of columns of each primitive type.
+     */
+    private static final int NUM_DOUBLE_COLUMNS = 10, NUM_INT_COLUMNS = 2, NUM_BYTE_COLUMNS = 2;
+
+    /**
+     * @param size number of rows
+     */
+    public NeuronColumns(final int size) {
+        activation = new double[size];
+        buffer = new double[size];
+        lastActivation = new double[size];
+        inputValue = new double[size];
+        increment = new double[size];
+        targetValue = new double[size];
+        auxValue = new double[size];
+        x = new double[size];
+        y = new double[size];
+        z = new double[size];
+        updatePriority = new int[size];
+        rule = new int[size];
+        polarity = new byte[size];
+        flags = new byte[size];
+        id = new String[size];
+        label = new String[size];
+    }
+
+    public int size() {
+        return activation.length;
+    }
+
+    private double[][] doubleColumns() {
+        return new double[][]{activation, buffer, lastActivation, inputValue, increment, targetValue, auxValue, x, y, z};
+    }
+
+    /**
+     * Encode the primitive columns, one after the other, in to a single
+     * direct buffer.
+     *
+     * @return the buffer, ready to be written
+     */
+    ByteBuffer encodeValues() {
+        int n = size();
+        ByteBuffer out = ByteBuffer.allocateDirect(n * (8 * NUM_DOUBLE_COLUMNS + 4 * NUM_INT_COLUMNS + NUM_BYTE_COLUMNS)).order(ByteOrder.LITTLE_ENDIAN);
+        for (double[] column : doubleColumns()) {
+            out.asDoubleBuffer().put(column);
+            out.position(out.position() + 8 * n);
+        }
+        out.asIntBuffer().put(updatePriority);
+        out.position(out.position() + 4 * n);
+        out.asIntBuffer().put(rule);
+        out.position(out.position() + 4 * n);
+        out.put(polarity);
+        out.put(flags);
+        out.flip();
+        return out;
+    }
+
+    /**
+     * Encode the ids and labels as length prefixed UTF-8 strings, a length of
+     * -1 meaning null.
+     *
+     * @return the buffer, ready to be written
+     */
+    ByteBuffer encodeStrings() {
+        int n = size();
+        byte[][] encoded = new byte[2 * n][];
+        int length = 0;
+        for (int i = 0; i < n; i++) {
+            encoded[2 * i] = id[i] == null ? null : id[i].getBytes(StandardCharsets.UTF_8);
+            encoded[2 * i + 1] = label[i] == null ? null : label[i].getBytes(StandardCharsets.UTF_8);
+        }
+        for (byte[] bytes : encoded) {
+            length += 4 + (bytes == null ? 0 : bytes.length);
+        }
+        ByteBuffer out = ByteBuffer.allocateDirect(4 + length).order(ByteOrder.LITTLE_ENDIAN);
+        out.putInt(length);
+        for (byte[] bytes : encoded) {
+            if (bytes == null) {
+                out.putInt(-1);
+            } else {
+                out.putInt(bytes.length);
+                out.put(bytes);
+            }
+        }
+        out.flip();
+        return out;
+    }
+
+    /**
+     * Read columns written by {@link #encodeValues()} then
+     * {@link #encodeStrings()}.
+     *
+     * @param channel the channel to read from
+     * @param size    the number of rows
+     * @return the columns
+     * @throws IOException if the columns can't be read
+     */
+    static NeuronColumns read(final ReadableByteChannel channel, final int size) throws IOException {
+        NeuronColumns columns = new NeuronColumns(size);
+        ByteBuffer in = readFully(channel, size * (8 * NUM_DOUBLE_COLUMNS + 4 * NUM_INT_COLUMNS + NUM_BYTE_COLUMNS));
+        for (double[] column : columns.doubleColumns()) {
+            in.asDoubleBuffer().get(column);
+            in.position(in.position() + 8 * size);
+        }
+        in.asIntBuffer().get(columns.updatePriority);
+        in.position(in.position() + 4 * size);
+        in.asIntBuffer().get(columns.rule);
+        in.position(in.position() + 4 * size);
+        in.get(columns.polarity);
+        in.get(columns.flags);
+
+        ByteBuffer strings = readFully(channel, readFully(channel, 4).getInt());
+        for (int i = 0; i < size; i++) {
+            columns.id[i] = readString(strings);
+            columns.label[i] = readString(strings);
+        }
+        return columns;
+    }
+
+    private static String readString(final ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        String s = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return s;
+    }
+
+    /**
+     * Read exactly a number of bytes from a channel.
+     *
+     * @param channel the channel to read from
+     * @param length  the number of bytes
+     * @return a little endian buffer holding the bytes
+     * @throws IOException if the end of the channel is reached first
+     */
+    static ByteBuffer readFully(final ReadableByteChannel channel, final int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException("Unexpected end of binary network data");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+}
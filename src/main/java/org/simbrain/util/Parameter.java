@@ -349,7 +349,7 @@ public class Parameter implements Comparable<Parameter> {
 
     /**
      * Get the available {@link Parameter}s ({@link UserParameter} annotated
-     * Fields) defined in the specified class. The available Parameters are
+     * fields and getters) defined in the specified class. The available Parameters are
      * statically cached.
      *
      * @return The available Parameters, sorted according to {@link
@@ -376,6 +376,15 @@ public class Parameter implements Comparable<Parameter> {
                         params.add(new Parameter(f));
                     }
                 }
+                for (Method m : clazz.getDeclaredMethods()) {
+                    if (m.isAnnotationPresent(UserParameter.class)) {
+                        if (fieldAndMethodNames.contains(m.getName())) {
+                            throw new RuntimeException("A method with the same name, '" + m.getName() + "', is declared in a super-class of " + paramClass.getName());
+                        }
+                        fieldAndMethodNames.add(m.getName());
+                        params.add(new Parameter(m));
+                    }
+                }
             }
 
             // Gather method-based annotations in interfaces
@@ -44,6 +44,15 @@ public class SimpleId {
         this.index = index;
     }
 
+    /**
+     * Copy constructor. The copy goes on from the same index.
+     *
+     * @param toCopy the id generator to copy
+     */
+    public SimpleId(final SimpleId toCopy) {
+        this(toCopy.rootName, toCopy.index);
+    }
+
     /**
      * Returns a simple identifier.
      *
@@ -7,6 +7,7 @@ import org.simbrain.util.math.ProbabilityDistribution;
 import umontreal.iro.lecuyer.probdist.Distribution;
 import umontreal.iro.lecuyer.probdist.ExponentialDist;
 import umontreal.iro.lecuyer.randvar.ExponentialGen;
+import umontreal.iro.lecuyer.rng.RandomStream;
 
 public class ExponentialDistribution extends ProbabilityDistribution {
 
@@ -62,6 +63,15 @@ public class ExponentialDistribution extends ProbabilityDistribution {
                 );
     }
 
+    @Override
+    public double nextRand(RandomStream stream) {
+        return clipping(this, stream,
+                ExponentialGen.nextDouble(stream, lambda),
+                floor,
+                ceil
+                );
+    }
+
     @Override
     public int nextRandInt() {
         return (int) nextRand();
@@ -8,6 +8,7 @@ import org.simbrain.util.SimbrainConstants.Polarity;
 import umontreal.iro.lecuyer.probdist.Distribution;
 import umontreal.iro.lecuyer.probdist.GammaDist;
 import umontreal.iro.lecuyer.randvar.GammaGen;
+import umontreal.iro.lecuyer.rng.RandomStream;
 
 public class GammaDistribution extends ProbabilityDistribution {
 
@@ -70,6 +71,15 @@ public class GammaDistribution extends ProbabilityDistribution {
                 );
     }
 
+    @Override
+    public double nextRand(RandomStream stream) {
+        return clipping(this, stream,
+                GammaGen.nextDouble(stream, shape, scale),
+                floor,
+                ceil
+                );
+    }
+
     @Override
     public int nextRandInt() {
         return (int) nextRand();
@@ -4,6 +4,7 @@ import org.simbrain.util.SimbrainConstants.Polarity;
 import org.simbrain.util.UserParameter;
 import org.simbrain.util.math.ProbabilityDistribution;
 import umontreal.iro.lecuyer.randvar.LognormalGen;
+import umontreal.iro.lecuyer.rng.RandomStream;
 
 public class LogNormalDistribution extends ProbabilityDistribution {
 
@@ -65,6 +66,15 @@ public class LogNormalDistribution extends ProbabilityDistribution {
                 );
     }
 
+    @Override
+    public double nextRand(RandomStream stream) {
+        return clipping(this, stream,
+                LognormalGen.nextDouble(stream, location, scale),
+                floor,
+                ceil
+                );
+    }
+
     @Override
     public int nextRandInt() {
         return (int) nextRand();
@@ -7,6 +7,8 @@ import org.simbrain.util.UserParameter;
 import org.simbrain.util.math.ProbabilityDistribution;
 import umontreal.iro.lecuyer.probdist.Distribution;
 import umontreal.iro.lecuyer.probdist.NormalDist;
+import umontreal.iro.lecuyer.randvar.NormalGen;
+import umontreal.iro.lecuyer.rng.RandomStream;
 
 public class NormalDistribution extends ProbabilityDistribution {
 
@@ -69,6 +71,14 @@ public class NormalDistribution extends ProbabilityDistribution {
                 );
     }
 
+    public double nextRand(RandomStream stream) {
+        return clipping(this, stream,
+                NormalGen.nextDouble(stream, mean, standardDeviation),
+                floor,
+                ceil
+                );
+    }
+
     public int nextRandInt() {
         return (int) nextRand();
     }
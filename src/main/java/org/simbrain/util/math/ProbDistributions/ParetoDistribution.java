@@ -5,6 +5,7 @@ import org.simbrain.util.UserParameter;
 import org.simbrain.util.math.ProbabilityDistribution;
 
 import umontreal.iro.lecuyer.randvar.ParetoGen;
+import umontreal.iro.lecuyer.rng.RandomStream;
 
 public class ParetoDistribution extends ProbabilityDistribution{
 
@@ -67,6 +68,15 @@ public class ParetoDistribution extends ProbabilityDistribution{
                 );
     }
 
+    @Override
+    public double nextRand(RandomStream stream) {
+        return clipping(this, stream,
+                ParetoGen.nextDouble(stream, slope, min),
+                floor,
+                ceil
+                );
+    }
+
     @Override
     public int nextRandInt() {
         return (int) nextRand();
@@ -6,6 +6,7 @@ import org.simbrain.util.UserParameter;
 
 import org.simbrain.util.math.ProbabilityDistribution;
 import umontreal.iro.lecuyer.probdist.UniformDist;
+import umontreal.iro.lecuyer.rng.RandomStream;
 
 public class UniformDistribution extends ProbabilityDistribution {
 
@@ -44,6 +45,10 @@ public class UniformDistribution extends ProbabilityDistribution {
         return ThreadLocalRandom.current().nextDouble(this.floor, this.ceil);
     }
 
+    public double nextRand(RandomStream stream) {
+        return floor + (ceil - floor) * stream.nextDouble();
+    }
+
     public int nextRandInt() {
         return (int) nextRand();
     }
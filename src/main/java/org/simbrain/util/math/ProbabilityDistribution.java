@@ -12,6 +12,7 @@ import umontreal.iro.lecuyer.rng.RandomStream;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.function.DoubleSupplier;
 
 //TODO: Allow seed to be set
 
@@ -44,6 +45,16 @@ public abstract class ProbabilityDistribution implements CopyableObject {
      */
     public abstract double nextRand();
 
+    /**
+     * Get a random double number from a probability distribution, drawn with
+     * the given random stream, e.g. a seeded one so that the numbers can be
+     * repeated.
+     *
+     * @param stream the random stream to draw from
+     * @return a random number
+     */
+    public abstract double nextRand(RandomStream stream);
+
     /**
      * Get a random integer number from a probability distribution
      *
@@ -86,6 +97,20 @@ public abstract class ProbabilityDistribution implements CopyableObject {
      */
     protected static double clipping(ProbabilityDistribution dist, double value,
                                      double lowerBound, double upperBound) {
+        return clipping(dist::nextRand, value, lowerBound, upperBound);
+    }
+
+    /**
+     * As {@link #clipping(ProbabilityDistribution, double, double, double)},
+     * re-drawing values with the given random stream.
+     */
+    protected static double clipping(ProbabilityDistribution dist, RandomStream stream,
+                                     double value, double lowerBound, double upperBound) {
+        return clipping(() -> dist.nextRand(stream), value, lowerBound, upperBound);
+    }
+
+    private static double clipping(DoubleSupplier dist, double value,
+                                   double lowerBound, double upperBound) {
         if(value >= lowerBound && value <= upperBound) {
             return value;
         }
@@ -95,7 +120,7 @@ public abstract class ProbabilityDistribution implements CopyableObject {
             //TODO: Parameterize 20, so it's not a magic number
             if (cnt >= 20)
                 break;
-            result = dist.nextRand();
+            result = dist.getAsDouble();
             cnt++;
         } while(result < lowerBound || result > upperBound);
 
@@ -116,6 +141,14 @@ public abstract class ProbabilityDistribution implements CopyableObject {
         return getPolarity().value(nextRand());
     }
 
+    /**
+     * Return the next sampled value from this probability distribution,
+     * drawn with the given random stream.
+     */
+    public double getRandom(RandomStream stream) {
+        return getPolarity().value(nextRand(stream));
+    }
+
     /**
      * Helper class to return a builder for a specified type of distribution.
      *
@@ -27,6 +27,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Random;
+import java.util.function.IntUnaryOperator;
 
 /**
  * <b>SimbrainMath</b> is the math functions used in simbrain.
@@ -70,10 +71,26 @@ public class SimbrainMath {
      * @return
      */
     public static int[] randPermute(int floor, int ceil) {
+        return randPermute(floor, ceil, new Random()::nextInt);
+    }
+
+    /**
+     * Returns a random permutation of all the integers between floor
+     * (inclusive) and ceil (exclusive), drawn from the given stream.
+     *
+     * @param floor  the smallest integer
+     * @param ceil   one more than the largest integer
+     * @param stream the stream to draw from
+     * @return the permutation
+     */
+    public static int[] randPermute(int floor, int ceil, RandomStream stream) {
+        return randPermute(floor, ceil, bound -> stream.nextInt(0, bound - 1));
+    }
+
+    private static int[] randPermute(int floor, int ceil, IntUnaryOperator nextInt) {
         int[] permute = new int[ceil - floor];
-        Random randi = new Random();
         for (int i = floor; i < ceil; i++) {
-            int j = randi.nextInt(i - floor + 1);
+            int j = nextInt.applyAsInt(i - floor + 1);
             if (j != i - floor) {
                 permute[i - floor] = permute[j];
             }
@@ -95,8 +112,26 @@ public class SimbrainMath {
      * @return
      */
     public static int[] randPermuteWithExclusion(int floor, int ceil, int excluded) {
+        return randPermuteWithExclusion(floor, ceil, excluded, new Random()::nextInt);
+    }
+
+    /**
+     * Returns a random permutation of all the integers between floor
+     * (inclusive) and ceil (exclusive) except excluded, drawn from the given
+     * stream.
+     *
+     * @param floor    the smallest integer
+     * @param ceil     one more than the largest integer
+     * @param excluded the integer to leave out
+     * @param stream   the stream to draw from
+     * @return the permutation
+     */
+    public static int[] randPermuteWithExclusion(int floor, int ceil, int excluded, RandomStream stream) {
+        return randPermuteWithExclusion(floor, ceil, excluded, bound -> stream.nextInt(0, bound - 1));
+    }
+
+    private static int[] randPermuteWithExclusion(int floor, int ceil, int excluded, IntUnaryOperator nextInt) {
         int[] permute = new int[ceil - floor - 1];
-        Random randi = new Random();
         int k = floor - 1;
         for (int i = floor; i < ceil; i++) {
             if (i == excluded) {
@@ -104,7 +139,7 @@ public class SimbrainMath {
             } else {
                 k++;
             }
-            int j = randi.nextInt(k - floor + 1);
+            int j = nextInt.applyAsInt(k - floor + 1);
             if (j != k - floor) {
                 permute[k - floor] = permute[j];
             }
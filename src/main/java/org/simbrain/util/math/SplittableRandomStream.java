@@ -0,0 +1,89 @@
+/*
+ * Part of Simbrain--a java-based neural network kit
+ * Copyright (C) 2005,2007 The Authors.  See http://www.simbrain.net/credits
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package org.simbrain.util.math;
+
+import umontreal.iro.lecuyer.rng.RandomStreamBase;
+
+import java.util.SplittableRandom;
+
+/**
+ * A random stream, for use with the SSJ generators and
+ * {@link ProbabilityDistribution#nextRand(umontreal.iro.lecuyer.rng.RandomStream)},
+ * which is seeded with a single long. Each substream is seeded from the
+ * previous one.
+ */
+public class SplittableRandomStream extends RandomStreamBase {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Seed of the stream.
+     */
+    private final long seed;
+
+    /**
+     * Seed of the current substream.
+     */
+    private long substreamSeed;
+
+    /**
+     * Generator of the current substream.
+     */
+    private SplittableRandom random;
+
+    /**
+     * Create a stream.
+     *
+     * @param seed the seed
+     */
+    public SplittableRandomStream(long seed) {
+        this.seed = seed;
+        resetStartStream();
+    }
+
+    @Override
+    public void resetStartStream() {
+        substreamSeed = seed;
+        resetStartSubstream();
+    }
+
+    @Override
+    public void resetStartSubstream() {
+        random = new SplittableRandom(substreamSeed);
+    }
+
+    @Override
+    public void resetNextSubstream() {
+        substreamSeed = new SplittableRandom(substreamSeed).split().nextLong();
+        resetStartSubstream();
+    }
+
+    /**
+     * @return a uniform value strictly between 0 and 1, as SSJ expects
+     */
+    @Override
+    protected double nextValue() {
+        return ((random.nextLong() >>> 11) + 0.5) * 0x1.0p-53;
+    }
+
+    @Override
+    public String toString() {
+        return "SplittableRandomStream with seed " + seed;
+    }
+}
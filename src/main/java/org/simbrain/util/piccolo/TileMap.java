@@ -138,6 +138,44 @@ public class TileMap {
                 File.separator + filename));
     }
 
+    /**
+     * Create a copy of this map whose tiles can be changed (e.g. by {@link
+     * #addTile(int, int, int, boolean)}) without changing this map, so that a
+     * tmx file parsed once can be used by many worlds. Tile images and tile
+     * properties are shared.
+     *
+     * @return the copy
+     */
+    public TileMap copy() {
+        TileMap copy = new TileMap();
+        copy.version = version;
+        copy.tiledversion = tiledversion;
+        copy.width = width;
+        copy.height = height;
+        copy.tilewidth = tilewidth;
+        copy.tileheight = tileheight;
+        copy.backgroundcolor = backgroundcolor;
+        if (tilesets == null) {
+            copy.tilesets = null;
+        } else {
+            for (TileSet tileSet : tilesets) {
+                copy.tilesets.add(tileSet.copy());
+            }
+        }
+        Map<TileMapLayer, TileMapLayer> copiedLayers = new IdentityHashMap<>();
+        if (layers == null) {
+            copy.layers = null;
+        } else {
+            for (TileMapLayer layer : layers) {
+                TileMapLayer copiedLayer = layer.copy();
+                copiedLayers.put(layer, copiedLayer);
+                copy.layers.add(copiedLayer);
+            }
+        }
+        programmaticLayers.forEach((name, layer) ->
+                copy.programmaticLayers.put(name, new Pair<>(copiedLayers.get(layer.getKey()), null)));
+        return copy;
+    }
 
     /**
      * Get a list of images of each layer of this map.
@@ -69,6 +69,19 @@ public class TileMapLayer {
         this.data = new TiledData(width, height);
     }
 
+    /**
+     * @return a copy of this layer whose tiles can be changed separately
+     */
+    public TileMapLayer copy() {
+        TileMapLayer copy = new TileMapLayer();
+        copy.name = name;
+        copy.width = width;
+        copy.height = height;
+        copy.properties = properties == null ? null : new HashMap<>(properties);
+        copy.data = data == null ? null : data.copy();
+        return copy;
+    }
+
     /**
      * Render one layer of a tileset.
      *
@@ -109,6 +109,27 @@ public class TileSet {
      */
     private transient Map<Integer, Tile> idTileMap;
 
+    /**
+     * @return a copy of this tileset, sharing its image and tiles, with its
+     * own lookup of tiles by id
+     */
+    public TileSet copy() {
+        TileSet copy = new TileSet();
+        copy.firstgid = firstgid;
+        copy.name = name;
+        copy.tilewidth = tilewidth;
+        copy.tileheight = tileheight;
+        copy.spacing = spacing;
+        copy.margin = margin;
+        copy.tilecount = tilecount;
+        copy.columns = columns;
+        copy.offsetX = offsetX;
+        copy.offsetY = offsetY;
+        copy.image = image;
+        copy.tiles = tiles == null ? null : new ArrayList<>(tiles);
+        return copy;
+    }
+
     public static BufferedImage getTransparentTexture() {
         if (transparentTextureGlobal == null) {
             transparentTextureGlobal = OdorWorldResourceManager.getBufferedImage("tilemap/transparent32x32.png");
@@ -52,6 +52,19 @@ public class TiledData {
         this.gid = Stream.generate(() -> 0).limit(width * height).collect(Collectors.toList());
     }
 
+    /**
+     * @return a copy of this data whose tile ids can be changed separately
+     */
+    public TiledData copy() {
+        TiledData copy = new TiledData();
+        copy.encoding = encoding;
+        copy.compression = compression;
+        copy.data = data;
+        List<Integer> ids = getGid();
+        copy.gid = ids == null ? null : new ArrayList<>(ids);
+        return copy;
+    }
+
     /**
      * Get the list of tile id.
      * Result is computed from raw data and stored in field on the first call.
@@ -0,0 +1,247 @@
+package org.simbrain.workspace;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.ObjDoubleConsumer;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Creates fast accessors for the getter and setter methods of {@link
+ * Producer}s and {@link Consumer}s, so that coupling updates do not go through
+ * {@link Method#invoke}, which boxes primitive values and allocates an
+ * argument array on every call.
+ * <p>
+ * Accessors are generated with {@link LambdaMetafactory}, so that once the JIT
+ * has warmed up a call is as cheap as a direct call to the getter or setter.
+ * The <code>double</code> accessors take and return primitive values. If a
+ * lambda can't be generated (e.g. the method's class is not accessible from
+ * here) an adapted {@link MethodHandle} is used instead, and if that fails
+ * too, reflection.
+ * <p>
+ * Accessors don't hold the object they are called on, so one accessor is
+ * generated per method and shared by every producer or consumer using that
+ * method.
+ */
+final class AttributeAccessors {
+
+    /**
+     * Lookup used to generate the accessors.
+     */
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    /**
+     * Accessors generated so far, by method.
+     */
+    private static final Map<Method, Function<Object, Object>> GETTERS = new ConcurrentHashMap<>();
+
+    private static final Map<Method, ToDoubleFunction<Object>> DOUBLE_GETTERS = new ConcurrentHashMap<>();
+
+    private static final Map<Method, BiConsumer<Object, Object>> SETTERS = new ConcurrentHashMap<>();
+
+    private static final Map<Method, ObjDoubleConsumer<Object>> DOUBLE_SETTERS = new ConcurrentHashMap<>();
+
+    private AttributeAccessors() {
+    }
+
+    /**
+     * Returns a function which calls a getter on the object passed to it.
+     *
+     * @param method the getter
+     * @return the accessor
+     */
+    static Function<Object, Object> getter(Method method) {
+        return GETTERS.computeIfAbsent(method, AttributeAccessors::createGetter);
+    }
+
+    private static Function<Object, Object> createGetter(Method method) {
+        try {
+            MethodHandle handle = LOOKUP.unreflect(method);
+            try {
+                checkPublic(method);
+                CallSite site = LambdaMetafactory.metafactory(LOOKUP, "apply",
+                        MethodType.methodType(Function.class),
+                        MethodType.methodType(Object.class, Object.class),
+                        handle, handle.type().wrap());
+                return (Function<Object, Object>) site.getTarget().invokeExact();
+            } catch (Throwable t) {
+                MethodHandle generic = handle.asType(MethodType.methodType(Object.class, Object.class));
+                return obj -> {
+                    try {
+                        return generic.invokeExact(obj);
+                    } catch (Throwable ex) {
+                        throw rethrow(ex);
+                    }
+                };
+            }
+        } catch (IllegalAccessException ex) {
+            return obj -> {
+                try {
+                    return method.invoke(obj);
+                } catch (IllegalAccessException | InvocationTargetException e) {
+                    throw new RuntimeException(e);
+                }
+            };
+        }
+    }
+
+    /**
+     * Returns a function which calls a <code>double</code> getter on the
+     * object passed to it, without boxing.
+     *
+     * @param method a getter which returns <code>double</code>
+     * @return the accessor
+     */
+    static ToDoubleFunction<Object> doubleGetter(Method method) {
+        if (method.getReturnType() != double.class) {
+            throw new IllegalArgumentException(method + " does not return double");
+        }
+        return DOUBLE_GETTERS.computeIfAbsent(method, AttributeAccessors::createDoubleGetter);
+    }
+
+    private static ToDoubleFunction<Object> createDoubleGetter(Method method) {
+        try {
+            MethodHandle handle = LOOKUP.unreflect(method);
+            try {
+                checkPublic(method);
+                CallSite site = LambdaMetafactory.metafactory(LOOKUP, "applyAsDouble",
+                        MethodType.methodType(ToDoubleFunction.class),
+                        MethodType.methodType(double.class, Object.class),
+                        handle, handle.type());
+                return (ToDoubleFunction<Object>) site.getTarget().invokeExact();
+            } catch (Throwable t) {
+                MethodHandle generic = handle.asType(MethodType.methodType(double.class, Object.class));
+                return obj -> {
+                    try {
+                        return (double) generic.invokeExact(obj);
+                    } catch (Throwable ex) {
+                        throw rethrow(ex);
+                    }
+                };
+            }
+        } catch (IllegalAccessException ex) {
+            Function<Object, Object> getter = getter(method);
+            return obj -> (Double) getter.apply(obj);
+        }
+    }
+
+    /**
+     * Returns a function which calls a setter on the object passed to it. Any
+     * value returned by the setter is discarded.
+     *
+     * @param method the setter
+     * @return the accessor
+     */
+    static BiConsumer<Object, Object> setter(Method method) {
+        return SETTERS.computeIfAbsent(method, AttributeAccessors::createSetter);
+    }
+
+    private static BiConsumer<Object, Object> createSetter(Method method) {
+        try {
+            MethodHandle handle = LOOKUP.unreflect(method);
+            try {
+                checkPublic(method);
+                CallSite site = LambdaMetafactory.metafactory(LOOKUP, "accept",
+                        MethodType.methodType(BiConsumer.class),
+                        MethodType.methodType(void.class, Object.class, Object.class),
+                        handle, handle.type().wrap().changeReturnType(void.class));
+                return (BiConsumer<Object, Object>) site.getTarget().invokeExact();
+            } catch (Throwable t) {
+                MethodHandle generic = handle.asType(MethodType.methodType(void.class, Object.class, Object.class));
+                return (obj, value) -> {
+                    try {
+                        generic.invokeExact(obj, value);
+                    } catch (Throwable ex) {
+                        throw rethrow(ex);
+                    }
+                };
+            }
+        } catch (IllegalAccessException ex) {
+            return (obj, value) -> {
+                try {
+                    method.invoke(obj, value);
+                } catch (IllegalAccessException | InvocationTargetException e) {
+                    throw new RuntimeException(e);
+                }
+            };
+        }
+    }
+
+    /**
+     * Returns a function which calls a <code>double</code> setter on the
+     * object passed to it, without boxing. Any value returned by the setter is
+     * discarded.
+     *
+     * @param method a setter which takes a single <code>double</code>
+     * @return the accessor
+     */
+    static ObjDoubleConsumer<Object> doubleSetter(Method method) {
+        if (method.getParameterCount() != 1 || method.getParameterTypes()[0] != double.class) {
+            throw new IllegalArgumentException(method + " does not take a double");
+        }
+        return DOUBLE_SETTERS.computeIfAbsent(method, AttributeAccessors::createDoubleSetter);
+    }
+
+    private static ObjDoubleConsumer<Object> createDoubleSetter(Method method) {
+        try {
+            MethodHandle handle = LOOKUP.unreflect(method);
+            try {
+                checkPublic(method);
+                CallSite site = LambdaMetafactory.metafactory(LOOKUP, "accept",
+                        MethodType.methodType(ObjDoubleConsumer.class),
+                        MethodType.methodType(void.class, Object.class, double.class),
+                        handle, handle.type().changeReturnType(void.class));
+                return (ObjDoubleConsumer<Object>) site.getTarget().invokeExact();
+            } catch (Throwable t) {
+                MethodHandle generic = handle.asType(MethodType.methodType(void.class, Object.class, double.class));
+                return (obj, value) -> {
+                    try {
+                        generic.invokeExact(obj, value);
+                    } catch (Throwable ex) {
+                        throw rethrow(ex);
+                    }
+                };
+            }
+        } catch (IllegalAccessException ex) {
+            BiConsumer<Object, Object> setter = setter(method);
+            return setter::accept;
+        }
+    }
+
+    /**
+     * Generated lambdas call the method directly, so it and its class must be
+     * public.
+     *
+     * @param method the method to check
+     * @throws IllegalAccessException if either isn't public
+     */
+    private static void checkPublic(Method method) throws IllegalAccessException {
+        if (!Modifier.isPublic(method.getModifiers()) || !Modifier.isPublic(method.getDeclaringClass().getModifiers())) {
+            throw new IllegalAccessException(method + " is not public");
+        }
+    }
+
+    /**
+     * Rethrow an exception thrown by a getter or setter, wrapping checked
+     * exceptions.
+     */
+    private static RuntimeException rethrow(Throwable t) {
+        if (t instanceof RuntimeException) {
+            return (RuntimeException) t;
+        }
+        if (t instanceof Error) {
+            throw (Error) t;
+        }
+        return new RuntimeException(t);
+    }
+
+}
@@ -1,8 +1,9 @@
 package org.simbrain.workspace;
 
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Type;
+import java.util.function.BiConsumer;
+import java.util.function.ObjDoubleConsumer;
 
 /**
  * The part of a {@link Coupling} that receives values from a {@link Producer}.
@@ -11,6 +12,18 @@ import java.lang.reflect.Type;
  */
 public class Consumer<V> extends Attribute {
 
+    /**
+     * Calls the setter, generated when the consumer is created. See
+     * {@link AttributeAccessors}.
+     */
+    private final transient BiConsumer<Object, Object> setter;
+
+    /**
+     * Calls the setter without boxing, if it takes a <code>double</code>;
+     * otherwise null.
+     */
+    private final transient ObjDoubleConsumer<Object> doubleSetter;
+
     /**
      * Contruct a consumer.
      *
@@ -19,6 +32,13 @@ public class Consumer<V> extends Attribute {
      */
     private Consumer(AttributeContainer baseObject, Method method) {
         super(baseObject, method);
+        if (method.getParameterCount() == 1 && method.getParameterTypes()[0] == double.class) {
+            doubleSetter = AttributeAccessors.doubleSetter(method);
+            setter = (obj, value) -> doubleSetter.accept(obj, (Double) value);
+        } else {
+            doubleSetter = null;
+            setter = AttributeAccessors.setter(method);
+        }
     }
 
     /**
@@ -38,12 +58,17 @@ public class Consumer<V> extends Attribute {
      * @param value the value to set
      */
     void setValue(V value) {
-        try {
-            method.invoke(baseObject, value);
-        } catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException ex) {
-            // Should never happen
-            throw new RuntimeException(ex);
-        }
+        setter.accept(baseObject, value);
+    }
+
+    /**
+     * Update a consumer of type <code>double</code>, without boxing the
+     * value.
+     *
+     * @param value the value to set
+     */
+    void setDoubleValue(double value) {
+        doubleSetter.accept(baseObject, value);
     }
 
     @Override
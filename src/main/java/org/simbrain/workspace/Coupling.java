@@ -26,20 +26,32 @@ public class Coupling<T> {
      */
     private final Consumer<T> consumer;
 
+    /**
+     * Whether this is a coupling of primitive doubles, which is updated
+     * without boxing the value.
+     */
+    private final boolean primitiveDouble;
+
     /**
      * Private constructor.  Static creation method is used.
      */
     private Coupling(Producer<T> producer, Consumer<T> consumer) {
         this.producer = producer;
         this.consumer = consumer;
+        this.primitiveDouble = producer.getType() == double.class;
     }
 
     /**
      * This is the main action!  Set the value of the consumer based on the
-     * value of the producer.
+     * value of the producer. Double couplings pass the value unboxed; other
+     * values (including double arrays) are passed by reference.
      */
     public void update() {
-        consumer.setValue(producer.getValue());
+        if (primitiveDouble) {
+            consumer.setDoubleValue(producer.getDoubleValue());
+        } else {
+            consumer.setValue(producer.getValue());
+        }
     }
 
     /**
@@ -101,6 +101,42 @@ public class CouplingManager {
         return coupling;
     }
 
+    /**
+     * Create a coupling between two attribute containers, given the names of
+     * the producing and consuming methods. Convenient for array couplings,
+     * e.g. coupling a sensor matrix's <code>getBrightness</code> to a neuron
+     * group's <code>setInputValues</code>, where a single coupling replaces
+     * one coupling per neuron.
+     *
+     * @param producerContainer the object with the producing method
+     * @param producerMethod    name of the producing method
+     * @param consumerContainer the object with the consuming method
+     * @param consumerMethod    name of the consuming method
+     * @return the newly created coupling
+     * @throws MismatchedAttributesException if the types of the methods don't
+     *                                       match
+     */
+    public Coupling<?> createCoupling(
+            AttributeContainer producerContainer,
+            String producerMethod,
+            AttributeContainer consumerContainer,
+            String consumerMethod)
+        throws MismatchedAttributesException {
+        Producer<?> producer = CouplingUtils.getProducer(producerContainer, producerMethod);
+        Consumer<?> consumer = CouplingUtils.getConsumer(consumerContainer, consumerMethod);
+        return createTypedCoupling(producer, consumer);
+    }
+
+    /**
+     * Create a coupling from a producer and a consumer whose type is only known
+     * at runtime.
+     */
+    @SuppressWarnings("unchecked") // Coupling.create checks the consumer's type
+    private <T> Coupling<T> createTypedCoupling(Producer<T> producer, Consumer<?> consumer)
+        throws MismatchedAttributesException {
+        return createCoupling(producer, (Consumer<T>) consumer);
+    }
+
     //TODO: Consider removing this. It seems to just be a convenience method to avoid dealing with exceptions.
     /**
      * Try to create a coupling from a producer and consumer of the same type, but
@@ -0,0 +1,150 @@
+package org.simbrain.workspace;
+
+import org.simbrain.workspace.serialization.WorkspaceSerializer;
+import org.simbrain.workspace.updater.UpdateMetrics;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs a saved workspace without any GUI, e.g. for parameter sweeps on a
+ * server with no display. Loads a workspace zip file, runs it for a number of
+ * iterations, and writes the values of selected producers to files. AWT is
+ * put in headless mode and no desktop or event queue is created, so
+ * components which only notify GUI listeners do very little work.
+ * <p>
+ * Usage:
+ * <pre>
+ * HeadlessRunner workspace.zip iterations [--record producer file]... [--metrics file]
+ * HeadlessRunner workspace.zip --list
+ * </pre>
+ * Producers are given as <code>component:id:method</code>, e.g.
+ * <code>Network1:Neuron_5:getActivation</code>, the same way couplings refer
+ * to them in saved workspaces. <code>--list</code> prints all the producers in
+ * the workspace in this form. <code>--metrics</code> writes the time spent in
+ * each part of the update (see {@link UpdateMetrics}) to a csv file.
+ */
+public class HeadlessRunner {
+
+    /**
+     * Run a workspace headless. See the class documentation for the
+     * arguments.
+     *
+     * @param args command line arguments
+     */
+    public static void main(String[] args) throws IOException {
+        // Must be set before any AWT class is loaded
+        System.setProperty("java.awt.headless", "true");
+
+        if (args.length < 2) {
+            printUsage();
+            System.exit(1);
+        }
+
+        Workspace workspace = new Workspace();
+        try (InputStream in = new FileInputStream(args[0])) {
+            new WorkspaceSerializer(workspace, null).deserialize(in);
+        }
+
+        if (args[1].equals("--list")) {
+            for (String spec : getProducerSpecs(workspace)) {
+                System.out.println(spec);
+            }
+            System.exit(0);
+        }
+
+        int iterations = Integer.parseInt(args[1]);
+        List<ProducerRecorder> recorders = new ArrayList<>();
+        String metricsFile = null;
+        for (int i = 2; i < args.length; i++) {
+            if (args[i].equals("--record") && i + 2 < args.length) {
+                Producer<?> producer = findProducer(workspace, args[i + 1]);
+                ProducerRecorder recorder = new ProducerRecorder(workspace, producer, new BufferedWriter(new FileWriter(args[i + 2])));
+                workspace.getUpdater().getUpdateManager().addAction(recorder);
+                recorders.add(recorder);
+                i += 2;
+            } else if (args[i].equals("--metrics") && i + 1 < args.length) {
+                metricsFile = args[i + 1];
+                workspace.getUpdater().enableMetrics();
+                i += 1;
+            } else {
+                printUsage();
+                System.exit(1);
+            }
+        }
+
+        long start = System.nanoTime();
+        workspace.iterate(iterations);
+        double seconds = (System.nanoTime() - start) / 1.0e9;
+        System.out.println(String.format("Ran %d iterations in %.3f s", iterations, seconds));
+
+        for (ProducerRecorder recorder : recorders) {
+            recorder.close();
+        }
+        if (metricsFile != null) {
+            workspace.getUpdater().getMetrics().exportCsv(new File(metricsFile));
+        }
+
+        // The updater's executors are not daemon threads
+        System.exit(0);
+    }
+
+    /**
+     * Find a producer from a specification of the form component:id:method.
+     *
+     * @param workspace the workspace to search
+     * @param spec      the producer specification
+     * @return the producer
+     * @throws IllegalArgumentException if there is no such producer
+     */
+    static Producer<?> findProducer(Workspace workspace, String spec) {
+        int first = spec.indexOf(':');
+        int last = spec.lastIndexOf(':');
+        if (first < 0 || first == last) {
+            throw new IllegalArgumentException("Producer must be given as component:id:method, not " + spec);
+        }
+        String componentName = spec.substring(0, first);
+        String id = spec.substring(first + 1, last);
+        String methodName = spec.substring(last + 1);
+        WorkspaceComponent component = workspace.getComponent(componentName);
+        if (component == null) {
+            throw new IllegalArgumentException("No component named " + componentName);
+        }
+        for (AttributeContainer container : component.getAttributeContainers()) {
+            for (Producer<?> producer : CouplingUtils.getProducersFromContainers(container)) {
+                if (producer.getId().equals(id) && producer.getMethod().getName().equals(methodName)) {
+                    return producer;
+                }
+            }
+        }
+        throw new IllegalArgumentException("No producer " + spec);
+    }
+
+    /**
+     * @param workspace the workspace
+     * @return a specification of each producer in the workspace
+     */
+    static List<String> getProducerSpecs(Workspace workspace) {
+        List<String> specs = new ArrayList<>();
+        for (WorkspaceComponent component : workspace.getComponentList()) {
+            for (AttributeContainer container : component.getAttributeContainers()) {
+                for (Producer<?> producer : CouplingUtils.getProducersFromContainers(container)) {
+                    specs.add(component.getName() + ":" + producer.getId() + ":" + producer.getMethod().getName());
+                }
+            }
+        }
+        return specs;
+    }
+
+    private static void printUsage() {
+        System.err.println("Usage: HeadlessRunner workspace.zip iterations [--record component:id:method file]... [--metrics file]");
+        System.err.println("       HeadlessRunner workspace.zip --list");
+    }
+
+}
@@ -3,6 +3,8 @@ package org.simbrain.workspace;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Type;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
 
 /**
  * The part of a {@link Coupling} that send values to a {@link Consumable}.
@@ -18,6 +20,18 @@ public class Producer<V> extends Attribute {
      */
     private Method arrayDescriptionMethod;
 
+    /**
+     * Calls the getter, generated when the producer is created. See
+     * {@link AttributeAccessors}.
+     */
+    private final transient Function<Object, Object> getter;
+
+    /**
+     * Calls the getter without boxing, if it returns <code>double</code>;
+     * otherwise null.
+     */
+    private final transient ToDoubleFunction<Object> doubleGetter;
+
     /**
      * Contruct a producer.
      *
@@ -26,6 +40,13 @@ public class Producer<V> extends Attribute {
      */
     private Producer(AttributeContainer baseObject, Method method) {
         super(baseObject, method);
+        if (method.getReturnType() == double.class) {
+            doubleGetter = AttributeAccessors.doubleGetter(method);
+            getter = obj -> doubleGetter.applyAsDouble(obj);
+        } else {
+            doubleGetter = null;
+            getter = AttributeAccessors.getter(method);
+        }
     }
 
     /**
@@ -45,12 +66,17 @@ public class Producer<V> extends Attribute {
      * @return current value
      */
     V getValue() {
-        try {
-            return (V) method.invoke(baseObject);
-        } catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException ex) {
-            // Should never happen
-            throw new RuntimeException(ex);
-        }
+        return (V) getter.apply(baseObject);
+    }
+
+    /**
+     * Return the value of a producer of type <code>double</code>, without
+     * boxing it.
+     *
+     * @return current value
+     */
+    double getDoubleValue() {
+        return doubleGetter.applyAsDouble(baseObject);
     }
 
     @Override
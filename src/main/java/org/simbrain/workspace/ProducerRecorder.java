@@ -0,0 +1,89 @@
+package org.simbrain.workspace;
+
+import org.simbrain.workspace.updater.UpdateAction;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+
+/**
+ * An update action which writes the value of a producer to a file after each
+ * workspace update, one line per update. A line holds the workspace time
+ * followed by the value, or by each element of the value for array
+ * producers, separated by commas. Used by {@link HeadlessRunner} to record
+ * the results of a simulation without any GUI.
+ * <p>
+ * Add it to the end of the workspace update sequence so that it sees the
+ * values computed in each update.
+ */
+public class ProducerRecorder implements UpdateAction, Closeable {
+
+    /**
+     * The workspace whose time is recorded with each value.
+     */
+    private final Workspace workspace;
+
+    /**
+     * The producer to record.
+     */
+    private final Producer<?> producer;
+
+    /**
+     * Where to write the values.
+     */
+    private final PrintWriter out;
+
+    /**
+     * Construct a recorder.
+     *
+     * @param workspace the workspace the producer belongs to
+     * @param producer  the producer to record
+     * @param writer    where to write the values. Closed by {@link #close()}
+     */
+    public ProducerRecorder(Workspace workspace, Producer<?> producer, Writer writer) {
+        this.workspace = workspace;
+        this.producer = producer;
+        this.out = new PrintWriter(writer);
+    }
+
+    @Override
+    public void invoke() {
+        out.print(workspace.getTime());
+        if (producer.getType() == double.class) {
+            out.print(',');
+            out.print(producer.getDoubleValue());
+        } else {
+            Object value = producer.getValue();
+            if (value instanceof double[]) {
+                for (double d : (double[]) value) {
+                    out.print(',');
+                    out.print(d);
+                }
+            } else {
+                out.print(',');
+                out.print(value);
+            }
+        }
+        out.println();
+    }
+
+    /**
+     * Flush and close the output.
+     */
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    @Override
+    public String getDescription() {
+        return "Record " + producer.getDescription();
+    }
+
+    @Override
+    public String getLongDescription() {
+        return "Write the value of " + producer.getDescription() + " to a file after each update";
+    }
+
+}
@@ -223,6 +223,10 @@ public class Workspace {
             component.setName(component.getSimpleName() + componentNameIndices.get(component.getClass()));
         }
 
+        if (updater != null && updater.getMetrics() != null) {
+            component.setUpdateMetrics(updater.getMetrics());
+        }
+
         fireWorkspaceComponentAdded(component);
 
 
@@ -21,6 +21,7 @@ package org.simbrain.workspace;
 import org.apache.log4j.Logger;
 import org.simbrain.workspace.gui.ComponentPanel;
 import org.simbrain.workspace.gui.GuiComponent;
+import org.simbrain.workspace.updater.UpdateMetrics;
 
 import java.io.File;
 import java.io.InputStream;
@@ -169,6 +170,16 @@ public abstract class WorkspaceComponent {
     public void update() {
     }
 
+    /**
+     * Called when update metrics are enabled or disabled in the workspace
+     * updater. Components which time their own internal updates should
+     * record them in the provided metrics. Does nothing by default.
+     *
+     * @param metrics the metrics to record in, or null when disabled
+     */
+    public void setUpdateMetrics(UpdateMetrics metrics) {
+    }
+
     /**
      * Finds objects based on a key. Used in deserializing {@link Attribute}'s.
      * Any class that produces attributes should override this for
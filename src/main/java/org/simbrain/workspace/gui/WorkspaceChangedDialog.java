@@ -272,7 +272,7 @@ public class WorkspaceChangedDialog extends JDialog {
     private void doSaves() {
         Workspace workspace = desktop.getWorkspace();
 
-        WorkspaceSerializer serializer = new WorkspaceSerializer(workspace);
+        WorkspaceSerializer serializer = new WorkspaceSerializer(workspace, desktop);
 
         try {
             FileOutputStream ostream = new FileOutputStream("workspace.zip");
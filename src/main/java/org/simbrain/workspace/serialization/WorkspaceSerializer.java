@@ -64,18 +64,32 @@ public class WorkspaceSerializer {
     private Workspace workspace;
 
     /**
-     * The desktop component for the workspace.
+     * The desktop for the workspace, or null when running headless. Used to
+     * save and restore the bounds of desktop components.
      */
     private SimbrainDesktop desktop;
 
     /**
-     * Creates a new serializer.
+     * Creates a new serializer for a workspace shown in the desktop
+     * registered for it, if there is one.
      *
      * @param workspace The workspace to serialize to or from.
      */
     public WorkspaceSerializer(Workspace workspace) {
+        this(workspace, SimbrainDesktop.getDesktop(workspace));
+    }
+
+    /**
+     * Creates a new serializer.
+     *
+     * @param workspace The workspace to serialize to or from.
+     * @param desktop   The desktop showing the workspace, or null if there is
+     *                  none (e.g. when running headless), in which case
+     *                  desktop components are neither saved nor restored.
+     */
+    public WorkspaceSerializer(Workspace workspace, SimbrainDesktop desktop) {
         this.workspace = workspace;
-        this.desktop = SimbrainDesktop.getDesktop(workspace);
+        this.desktop = desktop;
     }
 
     /**
@@ -151,7 +165,7 @@ public class WorkspaceSerializer {
         try {
             zipStream.putNextEntry(entry);
             serializer.serializeComponent(component, zipStream);
-            GuiComponent<?> desktopComponent = SimbrainDesktop.getDesktop(workspace).getDesktopComponent(component);
+            GuiComponent<?> desktopComponent = desktop == null ? null : desktop.getDesktopComponent(component);
             if (desktopComponent != null) {
                 ArchivedWorkspaceComponent.ArchivedDesktopComponent dc = archiveComp.addDesktopComponent(desktopComponent);
                 entry = new ZipEntry(dc.getUri());
@@ -285,7 +299,8 @@ public class WorkspaceSerializer {
                 try {
                     WorkspaceComponent wc = deserializer.deserializeWorkspaceComponent(archivedComponent, new ByteArrayInputStream(byteArrays.get(archivedComponent.getUri())));
                     workspace.addWorkspaceComponent(wc);
-                    if (archivedComponent.getDesktopComponent() != null) {
+                    // No desktop when running headless
+                    if (desktop != null && archivedComponent.getDesktopComponent() != null) {
                         Rectangle bounds = (Rectangle) new XStream(new DomDriver()).fromXML(new ByteArrayInputStream(byteArrays.get(archivedComponent.getDesktopComponent().getUri())));
                         GuiComponent<?> desktopComponent = desktop.getDesktopComponent(wc);
                         desktopComponent.getParentFrame().setBounds(bounds);
@@ -293,7 +308,11 @@ public class WorkspaceSerializer {
                 } catch (Exception ex) {
                     ex.printStackTrace();
                     String message = String.format("Failed to deserialize component %s.", archivedComponent.getName());
-                    JOptionPane.showMessageDialog(null, message);
+                    if (desktop == null) {
+                        System.err.println(message);
+                    } else {
+                        JOptionPane.showMessageDialog(null, message);
+                    }
                 }
             }
         }
@@ -0,0 +1,206 @@
+/*
+ * Part of Simbrain--a java-based neural network kit
+ * Copyright (C) 2005,2007 The Authors.  See http://www.simbrain.net/credits
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package org.simbrain.workspace.updater;
+
+import java.util.Arrays;
+
+/**
+ * Rolling record of durations, e.g. the wall time of one kind of update.
+ * Keeps the most recent {@link #getWindowSize()} samples, from which
+ * percentiles and a binned histogram are computed, along with the count and
+ * total of all samples since the last {@link #clear()}. Thread safe.
+ */
+public class TimingHistogram {
+
+    /**
+     * Default number of recent samples kept.
+     */
+    public static final int DEFAULT_WINDOW_SIZE = 1000;
+
+    /**
+     * Most recent durations in nanoseconds, as a ring.
+     */
+    private final long[] window;
+
+    /**
+     * Index in {@link #window} of the next sample.
+     */
+    private int next;
+
+    /**
+     * Number of samples in {@link #window}.
+     */
+    private int windowCount;
+
+    /**
+     * Number of samples recorded.
+     */
+    private long count;
+
+    /**
+     * Sum of all durations recorded, in nanoseconds.
+     */
+    private long totalNanos;
+
+    /**
+     * Longest duration recorded, in nanoseconds.
+     */
+    private long maxNanos;
+
+    /**
+     * Create a histogram keeping the default number of recent samples.
+     */
+    public TimingHistogram() {
+        this(DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * @param windowSize number of recent samples to keep
+     */
+    public TimingHistogram(final int windowSize) {
+        if (windowSize < 1) {
+            throw new IllegalArgumentException("Window size must be positive");
+        }
+        window = new long[windowSize];
+    }
+
+    /**
+     * Record one duration.
+     *
+     * @param nanos the duration in nanoseconds
+     */
+    public synchronized void record(final long nanos) {
+        window[next] = nanos;
+        next = (next + 1) % window.length;
+        windowCount = Math.min(windowCount + 1, window.length);
+        count++;
+        totalNanos += nanos;
+        maxNanos = Math.max(maxNanos, nanos);
+    }
+
+    /**
+     * Forget all samples.
+     */
+    public synchronized void clear() {
+        next = 0;
+        windowCount = 0;
+        count = 0;
+        totalNanos = 0;
+        maxNanos = 0;
+    }
+
+    /**
+     * @return the number of samples recorded since the last clear
+     */
+    public synchronized long getCount() {
+        return count;
+    }
+
+    /**
+     * @return the total of all samples recorded since the last clear, in
+     * milliseconds
+     */
+    public synchronized double getTotalMs() {
+        return totalNanos / 1.0e6;
+    }
+
+    /**
+     * @return the mean of all samples recorded since the last clear, in
+     * milliseconds
+     */
+    public synchronized double getMeanMs() {
+        return count == 0 ? 0 : totalNanos / 1.0e6 / count;
+    }
+
+    /**
+     * @return the longest sample recorded since the last clear, in
+     * milliseconds
+     */
+    public synchronized double getMaxMs() {
+        return maxNanos / 1.0e6;
+    }
+
+    /**
+     * @return the mean of the recent samples, in milliseconds
+     */
+    public synchronized double getRecentMeanMs() {
+        if (windowCount == 0) {
+            return 0;
+        }
+        long sum = 0;
+        for (int i = 0; i < windowCount; i++) {
+            sum += window[i];
+        }
+        return sum / 1.0e6 / windowCount;
+    }
+
+    /**
+     * Returns a percentile of the recent samples, e.g. 50 for the median.
+     *
+     * @param percentile the percentile, between 0 and 100
+     * @return the percentile in milliseconds, or 0 if there are no samples
+     */
+    public double getPercentileMs(final double percentile) {
+        long[] sorted = getRecentSamples();
+        if (sorted.length == 0) {
+            return 0;
+        }
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))] / 1.0e6;
+    }
+
+    /**
+     * Bin the recent samples in to equal width bins from zero to the longest
+     * recent sample.
+     *
+     * @param numBins the number of bins
+     * @return the number of samples in each bin
+     */
+    public int[] getBinCounts(final int numBins) {
+        long[] samples = getRecentSamples();
+        int[] bins = new int[numBins];
+        long max = 0;
+        for (long s : samples) {
+            max = Math.max(max, s);
+        }
+        for (long s : samples) {
+            int bin = max == 0 ? 0 : (int) ((double) s / max * numBins);
+            bins[Math.min(bin, numBins - 1)]++;
+        }
+        return bins;
+    }
+
+    /**
+     * @return a copy of the recent samples, in nanoseconds, oldest first
+     */
+    public synchronized long[] getRecentSamples() {
+        long[] samples = new long[windowCount];
+        int start = windowCount < window.length ? 0 : next;
+        for (int i = 0; i < windowCount; i++) {
+            samples[i] = window[(start + i) % window.length];
+        }
+        return samples;
+    }
+
+    public int getWindowSize() {
+        return window.length;
+    }
+
+}
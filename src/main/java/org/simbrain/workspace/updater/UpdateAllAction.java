@@ -120,7 +120,12 @@ public class UpdateAllAction implements UpdateAction {
      * Update couplings.
      */
     public void updateCouplings() {
+        long start = System.nanoTime();
         updater.getWorkspace().getCouplingManager().updateCouplings();
+        UpdateMetrics metrics = updater.getMetrics();
+        if (metrics != null) {
+            metrics.record(UpdateMetrics.Category.COUPLING, "All couplings", System.nanoTime() - start);
+        }
         LOGGER.trace("couplings updated");
         updater.notifyCouplingsUpdated();
     }
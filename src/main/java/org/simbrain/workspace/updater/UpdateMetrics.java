@@ -0,0 +1,295 @@
+/*
+ * Part of Simbrain--a java-based neural network kit
+ * Copyright (C) 2005,2007 The Authors.  See http://www.simbrain.net/credits
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package org.simbrain.workspace.updater;
+
+import org.apache.log4j.Logger;
+import org.simbrain.workspace.WorkspaceComponent;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Collects the wall time of workspace updates, so that one can tell where a
+ * slow simulation spends its time. Keeps a {@link TimingHistogram} for each
+ * workspace update action, each workspace component, each network update
+ * action and each coupling update, as well as for whole workspace updates
+ * (from which iterations per second are computed).
+ * <p>
+ * Enable with {@link WorkspaceUpdater#enableMetrics()}. Update action and
+ * component timings come from the updater's {@link UpdateEventListener}
+ * events. Network update actions and couplings are timed where they are
+ * invoked and passed to {@link #record(Category, String, long)}. From a
+ * script, e.g.
+ * <pre>
+ * metrics = workspace.getUpdater().enableMetrics();
+ * workspace.iterate(1000);
+ * print(metrics.getSummary());
+ * metrics.exportCsv(new File("timings.csv"));
+ * </pre>
+ * Metrics can also be exposed over JMX with {@link #registerMBean(String)}.
+ */
+public class UpdateMetrics implements UpdateEventListener, UpdateMetricsMBean {
+
+    /**
+     * The static logger for the class.
+     */
+    private static final Logger LOGGER = Logger.getLogger(UpdateMetrics.class);
+
+    /**
+     * Kinds of things that are timed.
+     */
+    public enum Category {
+        UPDATE_ACTION, COMPONENT, NETWORK_ACTION, COUPLING
+    }
+
+    /**
+     * Histograms by category, then by name.
+     */
+    private final Map<Category, Map<String, TimingHistogram>> histograms = new EnumMap<>(Category.class);
+
+    /**
+     * Time of whole workspace updates.
+     */
+    private final TimingHistogram iterations = new TimingHistogram();
+
+    /**
+     * Start times of the update actions in progress.
+     */
+    private final Map<UpdateAction, Long> actionStarts = new ConcurrentHashMap<>();
+
+    /**
+     * Start times of the component updates in progress.
+     */
+    private final Map<WorkspaceComponent, Long> componentStarts = new ConcurrentHashMap<>();
+
+    /**
+     * Name under which this is registered with the platform MBean server, if
+     * any.
+     */
+    private ObjectName mBeanName;
+
+    /**
+     * Create an empty set of metrics.
+     */
+    public UpdateMetrics() {
+        for (Category category : Category.values()) {
+            histograms.put(category, new ConcurrentSkipListMap<>());
+        }
+    }
+
+    /**
+     * Record a duration.
+     *
+     * @param category the kind of thing timed
+     * @param name     name of the thing timed
+     * @param nanos    the duration in nanoseconds
+     */
+    public void record(final Category category, final String name, final long nanos) {
+        histograms.get(category).computeIfAbsent(name, k -> new TimingHistogram()).record(nanos);
+    }
+
+    /**
+     * Record the duration of a whole workspace update.
+     *
+     * @param nanos the duration in nanoseconds
+     */
+    public void recordIteration(final long nanos) {
+        iterations.record(nanos);
+    }
+
+    @Override
+    public void beforeUpdateAction(UpdateAction action, long nanoTime) {
+        actionStarts.put(action, nanoTime);
+    }
+
+    @Override
+    public void afterUpdateAction(UpdateAction action, long nanoTime) {
+        Long start = actionStarts.remove(action);
+        if (start != null) {
+            record(action instanceof UpdateCoupling ? Category.COUPLING : Category.UPDATE_ACTION, action.getDescription(), nanoTime - start);
+        }
+    }
+
+    @Override
+    public void beforeComponentUpdate(WorkspaceComponent component, int update, int thread, long nanoTime) {
+        componentStarts.put(component, nanoTime);
+    }
+
+    @Override
+    public void afterComponentUpdate(WorkspaceComponent component, int update, int thread, long nanoTime) {
+        Long start = componentStarts.remove(component);
+        if (start != null) {
+            record(Category.COMPONENT, component.getName(), nanoTime - start);
+        }
+    }
+
+    /**
+     * Returns the histogram for a timed item.
+     *
+     * @param category the kind of item
+     * @param name     the name of the item
+     * @return the histogram, or null if nothing has been recorded for it
+     */
+    public TimingHistogram getHistogram(final Category category, final String name) {
+        return histograms.get(category).get(name);
+    }
+
+    /**
+     * @param category a kind of timed item
+     * @return the names of the items of that kind with recorded timings
+     */
+    public List<String> getNames(final Category category) {
+        return Collections.unmodifiableList(new ArrayList<>(histograms.get(category).keySet()));
+    }
+
+    /**
+     * @return the histogram of whole workspace update times
+     */
+    public TimingHistogram getIterationHistogram() {
+        return iterations;
+    }
+
+    @Override
+    public long getIterationCount() {
+        return iterations.getCount();
+    }
+
+    @Override
+    public double getIterationsPerSecond() {
+        double meanMs = iterations.getRecentMeanMs();
+        return meanMs == 0 ? 0 : 1000 / meanMs;
+    }
+
+    @Override
+    public void clear() {
+        iterations.clear();
+        for (Map<String, TimingHistogram> byName : histograms.values()) {
+            byName.clear();
+        }
+    }
+
+    @Override
+    public String[] getStatistics() {
+        List<String> lines = new ArrayList<>();
+        lines.add(toCsvLine("workspace", "iteration", iterations));
+        for (Category category : Category.values()) {
+            for (Map.Entry<String, TimingHistogram> entry : histograms.get(category).entrySet()) {
+                lines.add(toCsvLine(category.name().toLowerCase(), entry.getKey(), entry.getValue()));
+            }
+        }
+        return lines.toArray(new String[lines.size()]);
+    }
+
+    /**
+     * @return a readable table of the statistics, for printing
+     */
+    public String getSummary() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%.1f iterations per second over %d iterations%n", getIterationsPerSecond(), getIterationCount()));
+        for (Category category : Category.values()) {
+            for (Map.Entry<String, TimingHistogram> entry : histograms.get(category).entrySet()) {
+                TimingHistogram h = entry.getValue();
+                sb.append(String.format("%-15s %-50s mean %9.3f ms  p50 %9.3f ms  p99 %9.3f ms  total %10.1f ms%n", category.name().toLowerCase(), entry.getKey(), h.getMeanMs(), h.getPercentileMs(50), h.getPercentileMs(99), h.getTotalMs()));
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Write the statistics as comma separated values, with a header line.
+     *
+     * @param writer where to write
+     */
+    public void writeCsv(final Writer writer) {
+        PrintWriter out = new PrintWriter(writer);
+        out.println("category,name,count,mean_ms,p50_ms,p90_ms,p99_ms,max_ms,total_ms");
+        for (String line : getStatistics()) {
+            out.println(line);
+        }
+        out.flush();
+    }
+
+    /**
+     * Write the statistics to a csv file.
+     *
+     * @param file the file to write
+     * @throws IOException if the file can't be written
+     */
+    public void exportCsv(final File file) throws IOException {
+        try (FileWriter writer = new FileWriter(file)) {
+            writeCsv(writer);
+        }
+    }
+
+    /**
+     * Register these metrics with the platform MBean server, under
+     * <code>org.simbrain:type=UpdateMetrics,name=[name]</code>.
+     *
+     * @param name name distinguishing these metrics, e.g. the workspace file
+     */
+    public void registerMBean(final String name) {
+        unregisterMBean();
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            mBeanName = new ObjectName("org.simbrain:type=UpdateMetrics,name=" + ObjectName.quote(name));
+            server.registerMBean(this, mBeanName);
+        } catch (JMException e) {
+            LOGGER.warn("Could not register update metrics with JMX", e);
+            mBeanName = null;
+        }
+    }
+
+    /**
+     * Remove these metrics from the platform MBean server, if registered.
+     */
+    public void unregisterMBean() {
+        if (mBeanName == null) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(mBeanName);
+        } catch (JMException e) {
+            LOGGER.warn("Could not unregister update metrics from JMX", e);
+        }
+        mBeanName = null;
+    }
+
+    /**
+     * Format the statistics of one item as a csv line.
+     */
+    private static String toCsvLine(final String category, final String name, final TimingHistogram h) {
+        return String.format(Locale.US, "%s,\"%s\",%d,%.6f,%.6f,%.6f,%.6f,%.6f,%.3f", category, name.replace("\"", "\"\""), h.getCount(), h.getMeanMs(), h.getPercentileMs(50), h.getPercentileMs(90), h.getPercentileMs(99), h.getMaxMs(), h.getTotalMs());
+    }
+
+}
@@ -107,6 +107,11 @@ public class WorkspaceUpdater {
      */
     private UpdateActionManager updateActionManager;
 
+    /**
+     * Timings of updates, or null if metrics are not enabled.
+     */
+    private volatile UpdateMetrics metrics;
+
     /**
      * Constructor for the updater that uses the provided controller and
      * threads.
@@ -278,11 +283,16 @@ public class WorkspaceUpdater {
     private void doUpdate() {
         time++;
         LOGGER.trace("starting: " + time);
+        final long start = System.nanoTime();
         for (UpdateAction action : updateActionManager.getActionList()) {
             notifyBeforeUpdateAction(action);
             action.invoke();
             notifyAfterUpdateAction(action);
         }
+        UpdateMetrics m = metrics;
+        if (m != null) {
+            m.recordIteration(System.nanoTime() - start);
+        }
         notifyWorkspaceUpdated();
         LOGGER.trace("done: " + time);
     }
@@ -305,6 +315,48 @@ public class WorkspaceUpdater {
         componentListeners.remove(listener);
     }
 
+    /**
+     * Start collecting update timings, if not already collecting them.
+     *
+     * @return the metrics being collected
+     */
+    public UpdateMetrics enableMetrics() {
+        if (metrics == null) {
+            UpdateMetrics m = new UpdateMetrics();
+            addComponentListener(m);
+            for (WorkspaceComponent component : getComponents()) {
+                component.setUpdateMetrics(m);
+            }
+            metrics = m;
+        }
+        return metrics;
+    }
+
+    /**
+     * Stop collecting update timings. The metrics collected so far can still
+     * be queried.
+     */
+    public void disableMetrics() {
+        UpdateMetrics m = metrics;
+        if (m == null) {
+            return;
+        }
+        metrics = null;
+        removeComponentListener(m);
+        for (WorkspaceComponent component : getComponents()) {
+            component.setUpdateMetrics(null);
+        }
+        m.unregisterMBean();
+    }
+
+    /**
+     * @return the update timings being collected, or null if metrics are not
+     * enabled
+     */
+    public UpdateMetrics getMetrics() {
+        return metrics;
+    }
+
     /**
      * Adds an updater listener to this instance.
      *
@@ -6,6 +6,7 @@ import org.simbrain.workspace.AttributeContainer;
 import org.simbrain.workspace.Producible;
 
 import java.awt.image.BufferedImage;
+import java.awt.image.WritableRaster;
 
 /**
  * A rectangular matrix of filtered sensors on an {@link ImageSource} which
@@ -50,6 +51,18 @@ public class SensorMatrix implements ImageSourceListener, AttributeContainer, Ed
      */
     private transient int[] rgbColors;
 
+    /**
+     * Whether {@link #channels} are out of date with {@link #rgbColors}. The
+     * channels are only computed when one of them is read, e.g. by a
+     * coupling.
+     */
+    private transient boolean channelsStale;
+
+    /**
+     * Buffer for reading pixels of byte images.
+     */
+    private transient byte[] pixelBytes;
+
     /**
      * Construct a sensor matrix without attaching it to a source.
      * Currently used by 3d component.
@@ -111,21 +124,25 @@ public class SensorMatrix implements ImageSourceListener, AttributeContainer, Ed
 
     @Producible(idMethod = "getName")
     public double[] getBrightness() {
+        updateChannels();
         return channels[0];
     }
 
     @Producible(idMethod = "getName", defaultVisibility = false)
     public double[] getRed() {
+        updateChannels();
         return channels[1];
     }
 
     @Producible(idMethod = "getName", defaultVisibility = false)
     public double[] getGreen() {
+        updateChannels();
         return channels[2];
     }
 
     @Producible(idMethod = "getName", defaultVisibility = false)
     public double[] getBlue() {
+        updateChannels();
         return channels[3];
     }
 
@@ -148,6 +165,7 @@ public class SensorMatrix implements ImageSourceListener, AttributeContainer, Ed
     public void onResize(ImageSource source) {
         channels = new double[4][getWidth() * getHeight()];
         rgbColors = new int[getWidth() * getHeight()];
+        channelsStale = false;
     }
 
     /**
@@ -156,29 +174,84 @@ public class SensorMatrix implements ImageSourceListener, AttributeContainer, Ed
      * @param image the image to copy to the sensor values
      */
     private void updateSensorValues(BufferedImage image) {
-        if (image.getHeight() != getHeight() || image.getWidth() != getWidth()) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        if (height != getHeight() || width != getWidth()) {
             throw new AssertionError();
         }
 
-        for (int y = 0; y < image.getHeight(); ++y) {
-            for (int x = 0; x < image.getWidth(); ++x) {
-                int color = image.getRGB(x, y);
-
-                // Update rgb colors
-                rgbColors[y * getWidth() + x] = color;
-
-                // Update other color channels
-                // Cf https://stackoverflow.com/questions/2534116/how-to-convert-get-rgbx-y-integer-pixel-to-colorr-g-b-a-in-java
-                double red = ((color >>> 16) & 0xFF) / 255.0;
-                double green = ((color >>> 8) & 0xFF) / 255.0;
-                double blue = (color & 0xFF) / 255.0;
-                // Cf. https://en.wikipedia.org/wiki/Luma_(video)
-                channels[0][y * getWidth() + x] = (red * 0.2126 + green * 0.7152 + blue * 0.0722);
-                channels[1][y * getWidth() + x] = red;
-                channels[2][y * getWidth() + x] = green;
-                channels[3][y * getWidth() + x] = blue;
+        // Copy the pixels from the raster in one call for the common image
+        // types, rather than converting each pixel through the color model
+        // with getRGB(x, y). The result is the same as getRGB.
+        WritableRaster raster = image.getRaster();
+        int numPixels = width * height;
+        switch (image.getType()) {
+            case BufferedImage.TYPE_INT_RGB:
+                raster.getDataElements(0, 0, width, height, rgbColors);
+                for (int i = 0; i < numPixels; i++) {
+                    rgbColors[i] |= 0xFF000000;
+                }
+                break;
+            case BufferedImage.TYPE_INT_ARGB:
+                raster.getDataElements(0, 0, width, height, rgbColors);
+                break;
+            case BufferedImage.TYPE_3BYTE_BGR: {
+                // Data elements are in band order: red, green, blue
+                byte[] bytes = (byte[]) raster.getDataElements(0, 0, width, height, byteBuffer(numPixels * 3));
+                for (int i = 0, j = 0; i < numPixels; i++, j += 3) {
+                    rgbColors[i] = 0xFF000000 | (bytes[j] & 0xFF) << 16 | (bytes[j + 1] & 0xFF) << 8 | (bytes[j + 2] & 0xFF);
+                }
+                break;
+            }
+            case BufferedImage.TYPE_4BYTE_ABGR: {
+                // Data elements are in band order: red, green, blue, alpha
+                byte[] bytes = (byte[]) raster.getDataElements(0, 0, width, height, byteBuffer(numPixels * 4));
+                for (int i = 0, j = 0; i < numPixels; i++, j += 4) {
+                    rgbColors[i] = (bytes[j + 3] & 0xFF) << 24 | (bytes[j] & 0xFF) << 16 | (bytes[j + 1] & 0xFF) << 8 | (bytes[j + 2] & 0xFF);
+                }
+                break;
             }
+            default:
+                image.getRGB(0, 0, width, height, rgbColors, 0, width);
+        }
+        channelsStale = true;
+    }
+
+    /**
+     * @return {@link #pixelBytes}, reallocated if it has the wrong size
+     */
+    private byte[] byteBuffer(int size) {
+        if (pixelBytes == null || pixelBytes.length != size) {
+            pixelBytes = new byte[size];
+        }
+        return pixelBytes;
+    }
+
+    /**
+     * Compute the brightness, red, green and blue channels from the rgb
+     * colors, if they have changed since they were last computed.
+     */
+    private void updateChannels() {
+        if (!channelsStale) {
+            return;
+        }
+        double[] brightness = channels[0];
+        double[] reds = channels[1];
+        double[] greens = channels[2];
+        double[] blues = channels[3];
+        for (int i = 0; i < rgbColors.length; i++) {
+            int color = rgbColors[i];
+            // Cf https://stackoverflow.com/questions/2534116/how-to-convert-get-rgbx-y-integer-pixel-to-colorr-g-b-a-in-java
+            double red = ((color >>> 16) & 0xFF) / 255.0;
+            double green = ((color >>> 8) & 0xFF) / 255.0;
+            double blue = (color & 0xFF) / 255.0;
+            // Cf. https://en.wikipedia.org/wiki/Luma_(video)
+            brightness[i] = (red * 0.2126 + green * 0.7152 + blue * 0.0722);
+            reds[i] = red;
+            greens[i] = green;
+            blues[i] = blue;
         }
+        channelsStale = false;
     }
 
 }
@@ -45,6 +45,37 @@ public class FilteredImageSource extends ImageSourceAdapter implements ImageSour
 
     private transient BufferedImageOp scaleOp;
 
+    /**
+     * Destination of the scale op, reused while the size and type of the
+     * source images and the scale op stay the same.
+     */
+    private transient BufferedImage scaledImage;
+
+    /**
+     * Type and size of the source image {@link #scaledImage} was created for.
+     */
+    private transient int scaledType;
+
+    private transient int scaledWidth;
+
+    private transient int scaledHeight;
+
+    /**
+     * Destinations of the color op, used alternately so that the previous
+     * image is left intact (e.g. for painting) while the next is filtered.
+     */
+    private transient BufferedImage[] filteredImages = new BufferedImage[2];
+
+    /**
+     * Index of the next entry of {@link #filteredImages} to use.
+     */
+    private transient int nextFiltered;
+
+    /**
+     * The color op {@link #filteredImages} were created for.
+     */
+    private transient BufferedImageOp filteredOp;
+
     /**
      * Construct a new FilteredImageSource.
      *
@@ -63,6 +94,7 @@ public class FilteredImageSource extends ImageSourceAdapter implements ImageSour
 
     public Object readResolve() {
         super.readResolve();
+        filteredImages = new BufferedImage[2];
         scaleToFit(wrappedSource);
         wrappedSource.addListener(this);
         return this;
@@ -87,6 +119,7 @@ public class FilteredImageSource extends ImageSourceAdapter implements ImageSour
      */
     protected void setScaleOp(BufferedImageOp value) {
         scaleOp = value;
+        scaledImage = null;
     }
 
     @Override
@@ -107,8 +140,29 @@ public class FilteredImageSource extends ImageSourceAdapter implements ImageSour
     @Override
     public void onImageUpdate(ImageSource source) {
         BufferedImage image = source.getCurrentImage();
-        image = scaleOp.filter(image, null);
-        image = imageOp.getOp().filter(image, null);
+        if (scaledImage != null && (image.getType() != scaledType || image.getWidth() != scaledWidth
+                || image.getHeight() != scaledHeight)) {
+            scaledImage = null;
+        }
+        if (scaledImage == null) {
+            scaledType = image.getType();
+            scaledWidth = image.getWidth();
+            scaledHeight = image.getHeight();
+        }
+        scaledImage = scaleOp.filter(image, scaledImage);
+
+        // Ops which ignore the destination passed to them (e.g. OffsetOp)
+        // just return a new image each time
+        BufferedImageOp colorOp = imageOp.getOp();
+        if (colorOp != filteredOp || filteredImages[0] != null && (filteredImages[0].getWidth() != scaledImage.getWidth()
+                || filteredImages[0].getHeight() != scaledImage.getHeight())) {
+            filteredImages[0] = null;
+            filteredImages[1] = null;
+            filteredOp = colorOp;
+        }
+        image = colorOp.filter(scaledImage, filteredImages[nextFiltered]);
+        filteredImages[nextFiltered] = image;
+        nextFiltered = 1 - nextFiltered;
         setCurrentImage(image);
     }
 
@@ -123,5 +177,6 @@ public class FilteredImageSource extends ImageSourceAdapter implements ImageSour
         float scaleX = (width - 0.1f) / source.getWidth();
         float scaleY = (height - 0.1f) / source.getHeight();
         scaleOp = ImageFilterFactory.createScaleOp(scaleX, scaleY, true);
+        scaledImage = null;
     }
 }
@@ -0,0 +1,267 @@
+/*
+ * Part of Simbrain--a java-based neural network kit
+ * Copyright (C) 2005,2007 The Authors.  See http://www.simbrain.net/credits
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package org.simbrain.world.odorworld;
+
+import org.simbrain.world.odorworld.entities.OdorWorldEntity;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * A uniform grid over an odor world, used to find the entities near a point
+ * without going through every entity in the world. Each entity is kept in the
+ * cell containing its center, and moved to another cell when its position
+ * changes (see {@link OdorWorld#entityMoved(OdorWorldEntity)}).
+ * <p>
+ * Queries return candidates: every entity within a given distance of a point
+ * is visited, along with some which are further away, so callers still apply
+ * their own distance tests. When the world wraps around, cells on the far
+ * side of the world are visited too. Entities outside the world (possible
+ * when it doesn't wrap) are kept in the nearest edge cell.
+ * <p>
+ * The grid is updated and queried on the thread which updates the world.
+ */
+public final class EntityGrid {
+
+    /**
+     * Largest width and height of a cell in pixels. Cells are made a little
+     * smaller where needed so that a whole number of them spans the world,
+     * which lets cell indices wrap around along with positions.
+     */
+    public static final double CELL_SIZE = 64;
+
+    /**
+     * Number of columns of cells.
+     */
+    private int numCols = 1;
+
+    /**
+     * Number of rows of cells.
+     */
+    private int numRows = 1;
+
+    /**
+     * Width of a cell in pixels.
+     */
+    private double cellWidth = CELL_SIZE;
+
+    /**
+     * Height of a cell in pixels.
+     */
+    private double cellHeight = CELL_SIZE;
+
+    /**
+     * Whether cells wrap around the edges of the world.
+     */
+    private boolean wrapAround;
+
+    /**
+     * Entities in each cell, by row then column.
+     */
+    private List<List<OdorWorldEntity>> cells = new ArrayList<>();
+
+    /**
+     * The cell each entity is in.
+     */
+    private final Map<OdorWorldEntity, List<OdorWorldEntity>> cellOf = new IdentityHashMap<>();
+
+    /**
+     * Largest collision radius of any entity in the grid (since the last
+     * rebuild or call to {@link #refreshCollisionRadius()}).
+     */
+    private double maxCollisionRadius;
+
+    /**
+     * Resize the grid to a world and put the world's entities in it.
+     *
+     * @param entities   entities to put in the grid
+     * @param width      width of the world in pixels
+     * @param height     height of the world in pixels
+     * @param wrapAround whether the world wraps around
+     */
+    public void rebuild(final Collection<OdorWorldEntity> entities, final int width, final int height, final boolean wrapAround) {
+        this.wrapAround = wrapAround;
+        numCols = Math.max(1, (int) Math.ceil(width / CELL_SIZE));
+        numRows = Math.max(1, (int) Math.ceil(height / CELL_SIZE));
+        cellWidth = width > 0 ? (double) width / numCols : CELL_SIZE;
+        cellHeight = height > 0 ? (double) height / numRows : CELL_SIZE;
+        cells = new ArrayList<>(numCols * numRows);
+        for (int i = 0; i < numCols * numRows; i++) {
+            cells.add(new ArrayList<>(4));
+        }
+        cellOf.clear();
+        maxCollisionRadius = 0;
+        for (OdorWorldEntity entity : entities) {
+            add(entity);
+        }
+    }
+
+    /**
+     * Add an entity to the grid.
+     *
+     * @param entity the entity to add
+     */
+    public void add(final OdorWorldEntity entity) {
+        if (cellOf.containsKey(entity)) {
+            return;
+        }
+        List<OdorWorldEntity> cell = getCell(entity);
+        cell.add(entity);
+        cellOf.put(entity, cell);
+        maxCollisionRadius = Math.max(maxCollisionRadius, entity.getCollisionBound().getCollisionRadius());
+    }
+
+    /**
+     * Remove an entity from the grid.
+     *
+     * @param entity the entity to remove
+     */
+    public void remove(final OdorWorldEntity entity) {
+        List<OdorWorldEntity> cell = cellOf.remove(entity);
+        if (cell != null) {
+            cell.remove(entity);
+        }
+    }
+
+    /**
+     * Move an entity to the cell containing its current position. Does
+     * nothing if the entity is not in the grid.
+     *
+     * @param entity the entity which moved
+     */
+    public void update(final OdorWorldEntity entity) {
+        List<OdorWorldEntity> oldCell = cellOf.get(entity);
+        if (oldCell == null) {
+            return;
+        }
+        List<OdorWorldEntity> newCell = getCell(entity);
+        if (newCell != oldCell) {
+            oldCell.remove(entity);
+            newCell.add(entity);
+            cellOf.put(entity, newCell);
+        }
+        maxCollisionRadius = Math.max(maxCollisionRadius, entity.getCollisionBound().getCollisionRadius());
+    }
+
+    /**
+     * Recompute the largest collision radius, which otherwise only grows as
+     * entities speed up or change type.
+     */
+    public void refreshCollisionRadius() {
+        maxCollisionRadius = 0;
+        for (OdorWorldEntity entity : cellOf.keySet()) {
+            maxCollisionRadius = Math.max(maxCollisionRadius, entity.getCollisionBound().getCollisionRadius());
+        }
+    }
+
+    /**
+     * Visit every entity whose center is within a distance of a point, and
+     * possibly others.
+     *
+     * @param x        x coordinate of the point
+     * @param y        y coordinate of the point
+     * @param distance distance from the point
+     * @param action   called for each entity found
+     */
+    public void forEachCandidate(final double x, final double y, final double distance, final Consumer<OdorWorldEntity> action) {
+        findCandidate(x, y, distance, entity -> {
+            action.accept(entity);
+            return false;
+        });
+    }
+
+    /**
+     * Find an entity satisfying a test, among the entities whose centers are
+     * within a distance of a point (and possibly others).
+     *
+     * @param x        x coordinate of the point
+     * @param y        y coordinate of the point
+     * @param distance distance from the point
+     * @param test     the test
+     * @return the first entity found which satisfies the test, or null if
+     * there is none
+     */
+    public OdorWorldEntity findCandidate(final double x, final double y, final double distance, final Predicate<OdorWorldEntity> test) {
+        int colLo = (int) Math.floor((x - distance) / cellWidth);
+        int colHi = (int) Math.floor((x + distance) / cellWidth);
+        int rowLo = (int) Math.floor((y - distance) / cellHeight);
+        int rowHi = (int) Math.floor((y + distance) / cellHeight);
+        if (wrapAround) {
+            if (colHi - colLo >= numCols) {
+                colLo = 0;
+                colHi = numCols - 1;
+            }
+            if (rowHi - rowLo >= numRows) {
+                rowLo = 0;
+                rowHi = numRows - 1;
+            }
+        } else {
+            colLo = clamp(colLo, numCols);
+            colHi = clamp(colHi, numCols);
+            rowLo = clamp(rowLo, numRows);
+            rowHi = clamp(rowHi, numRows);
+        }
+        for (int row = rowLo; row <= rowHi; row++) {
+            int r = Math.floorMod(row, numRows);
+            for (int col = colLo; col <= colHi; col++) {
+                List<OdorWorldEntity> cell = cells.get(r * numCols + Math.floorMod(col, numCols));
+                for (int i = 0, n = cell.size(); i < n; i++) {
+                    if (test.test(cell.get(i))) {
+                        return cell.get(i);
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the largest collision radius of any entity, to be added to the
+     * distance of collision queries
+     */
+    public double getMaxCollisionRadius() {
+        return maxCollisionRadius;
+    }
+
+    /**
+     * @return the cell containing the center of an entity
+     */
+    private List<OdorWorldEntity> getCell(final OdorWorldEntity entity) {
+        int col = (int) Math.floor(entity.getCenterX() / cellWidth);
+        int row = (int) Math.floor(entity.getCenterY() / cellHeight);
+        if (wrapAround) {
+            col = Math.floorMod(col, numCols);
+            row = Math.floorMod(row, numRows);
+        } else {
+            col = clamp(col, numCols);
+            row = clamp(row, numRows);
+        }
+        return cells.get(row * numCols + col);
+    }
+
+    private static int clamp(final int index, final int size) {
+        return Math.max(0, Math.min(size - 1, index));
+    }
+
+}
@@ -0,0 +1,403 @@
+/*
+ * Part of Simbrain--a java-based neural network kit
+ * Copyright (C) 2005,2007 The Authors.  See http://www.simbrain.net/credits
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package org.simbrain.world.odorworld;
+
+import org.simbrain.util.environment.SmellSource;
+import org.simbrain.util.math.DecayFunction;
+import org.simbrain.util.math.SimbrainMath;
+import org.simbrain.world.odorworld.entities.OdorWorldEntity;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The summed smell of all the smell sources in an odor world, precomputed on
+ * a grid of points (nodes) so that a smell sensor's reading is a bilinear
+ * interpolation of the four surrounding nodes, whatever the number of
+ * sources. Node values are computed exactly as {@link
+ * OdorWorldEntity#getSmellVector(double[])} would compute them for a sensor
+ * at the node.
+ * <p>
+ * The contribution of each source to the nodes within its dispersion is
+ * stored, so that when a source moves or changes only its own contribution is
+ * subtracted and added again. Sources are checked for changes at the start
+ * of each world update (see {@link #refresh(List)}); sources which move in
+ * the middle of an update are recomputed before the field is next sampled.
+ * <p>
+ * Sources which add noise can't be precomputed; they are evaluated directly
+ * when the field is sampled.
+ */
+public final class OdorField {
+
+    /**
+     * Distance between nodes in pixels.
+     */
+    private final double spacing;
+
+    /**
+     * Number of columns and rows of nodes. Nodes span the world, including
+     * its right and bottom edges.
+     */
+    private final int numCols;
+
+    private final int numRows;
+
+    /**
+     * Size of the world.
+     */
+    private final double width;
+
+    private final double height;
+
+    /**
+     * Whether smells wrap around the edges of the world.
+     */
+    private final boolean wrapAround;
+
+    /**
+     * Summed smell at each node, by stimulus dimension then node.
+     */
+    private double[][] values = new double[0][];
+
+    /**
+     * Contribution of each precomputed source.
+     */
+    private final Map<OdorWorldEntity, Splat> splats = new IdentityHashMap<>();
+
+    /**
+     * Sources which moved since they were last added to the field.
+     */
+    private final Set<OdorWorldEntity> moved = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    /**
+     * Sources which are evaluated directly since they add noise.
+     */
+    private final List<OdorWorldEntity> direct = new ArrayList<>();
+
+    /**
+     * Create an empty field.
+     *
+     * @param spacing    distance between nodes in pixels
+     * @param width      width of the world
+     * @param height     height of the world
+     * @param wrapAround whether the world wraps around
+     */
+    public OdorField(final double spacing, final double width, final double height, final boolean wrapAround) {
+        if (spacing <= 0) {
+            throw new IllegalArgumentException("Node spacing must be positive.");
+        }
+        this.spacing = spacing;
+        this.width = width;
+        this.height = height;
+        this.wrapAround = wrapAround;
+        numCols = (int) Math.ceil(width / spacing) + 1;
+        numRows = (int) Math.ceil(height / spacing) + 1;
+    }
+
+    /**
+     * @return the distance between nodes in pixels
+     */
+    public double getSpacing() {
+        return spacing;
+    }
+
+    /**
+     * Bring the field up to date with a list of entities: add new sources,
+     * remove sources no longer in the list, and recompute sources whose
+     * location, stimulus or decay function changed.
+     *
+     * @param entities all the entities in the world
+     */
+    public void refresh(final List<OdorWorldEntity> entities) {
+        direct.clear();
+        Set<OdorWorldEntity> current = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (OdorWorldEntity entity : entities) {
+            SmellSource source = entity.getSmellSource();
+            if (source == null || source.getStimulusDimension() == 0) {
+                continue;
+            }
+            if (source.isAddNoise()) {
+                direct.add(entity);
+                continue;
+            }
+            current.add(entity);
+            Splat splat = splats.get(entity);
+            if (splat == null || !splat.matches(entity)) {
+                resplat(entity, splat);
+            }
+        }
+        splats.keySet().removeIf(entity -> {
+            if (!current.contains(entity)) {
+                splats.get(entity).subtract();
+                return true;
+            }
+            return false;
+        });
+        moved.clear();
+    }
+
+    /**
+     * Note that an entity moved, so that its contribution is recomputed before
+     * the field is next sampled.
+     *
+     * @param entity the entity which moved
+     */
+    public void entityMoved(final OdorWorldEntity entity) {
+        if (splats.containsKey(entity)) {
+            moved.add(entity);
+        }
+    }
+
+    /**
+     * Returns the smell at a point, interpolated from the surrounding nodes.
+     *
+     * @param x       x coordinate of the point
+     * @param y       y coordinate of the point
+     * @param exclude an entity whose own smell is left out (e.g. the entity
+     *                doing the smelling), or null
+     * @return the smell vector, with one entry per stimulus dimension of the
+     * sources in the world
+     */
+    public double[] sample(final double x, final double y, final OdorWorldEntity exclude) {
+        if (!moved.isEmpty()) {
+            for (OdorWorldEntity entity : moved) {
+                Splat splat = splats.get(entity);
+                if (splat != null && !splat.matches(entity)) {
+                    resplat(entity, splat);
+                }
+            }
+            moved.clear();
+        }
+
+        double fx = Math.max(0, Math.min(numCols - 1, x / spacing));
+        double fy = Math.max(0, Math.min(numRows - 1, y / spacing));
+        int col = Math.min(numCols - 2, (int) fx);
+        int row = Math.min(numRows - 2, (int) fy);
+        if (col < 0 || row < 0) {
+            // A single row or column of nodes
+            col = Math.max(col, 0);
+            row = Math.max(row, 0);
+        }
+        double tx = fx - col;
+        double ty = fy - row;
+        int n00 = node(col, row);
+        int n10 = node(Math.min(col + 1, numCols - 1), row);
+        int n01 = node(col, Math.min(row + 1, numRows - 1));
+        int n11 = node(Math.min(col + 1, numCols - 1), Math.min(row + 1, numRows - 1));
+        double w00 = (1 - tx) * (1 - ty);
+        double w10 = tx * (1 - ty);
+        double w01 = (1 - tx) * ty;
+        double w11 = tx * ty;
+
+        double[] ret = new double[values.length];
+        for (int d = 0; d < values.length; d++) {
+            double[] v = values[d];
+            ret[d] = w00 * v[n00] + w10 * v[n10] + w01 * v[n01] + w11 * v[n11];
+        }
+        Splat own = exclude == null ? null : splats.get(exclude);
+        if (own != null) {
+            double scale = w00 * own.scaleAt(n00) + w10 * own.scaleAt(n10) + w01 * own.scaleAt(n01) + w11 * own.scaleAt(n11);
+            for (int d = 0; d < own.stimulus.length; d++) {
+                ret[d] -= own.stimulus[d] * scale;
+            }
+        }
+        if (!direct.isEmpty()) {
+            double[] location = {x, y};
+            for (OdorWorldEntity entity : direct) {
+                if (entity != exclude) {
+                    double[] smell = entity.getSmellVector(location);
+                    if (smell != null) {
+                        ret = SimbrainMath.addVector(ret, smell);
+                    }
+                }
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Replace the contribution of a source.
+     *
+     * @param entity the source
+     * @param old    its previous contribution, or null
+     */
+    private void resplat(final OdorWorldEntity entity, final Splat old) {
+        if (old != null) {
+            old.subtract();
+        }
+        Splat splat = new Splat(entity);
+        if (splat.stimulus.length > values.length) {
+            double[][] grown = Arrays.copyOf(values, splat.stimulus.length);
+            for (int d = values.length; d < grown.length; d++) {
+                grown[d] = new double[numCols * numRows];
+            }
+            values = grown;
+        }
+        splat.add();
+        splats.put(entity, splat);
+    }
+
+    private int node(final int col, final int row) {
+        return row * numCols + col;
+    }
+
+    /**
+     * @return indices of the columns (or rows) of nodes within a distance of
+     * a coordinate, allowing for wrap around
+     */
+    private int[] nodesWithin(final double center, final double distance, final int count, final double size) {
+        int[] ret = new int[count];
+        int n = 0;
+        for (int i = 0; i < count; i++) {
+            double delta = Math.abs(i * spacing - center);
+            if (delta <= distance || wrapAround && size - delta <= distance) {
+                ret[n++] = i;
+            }
+        }
+        return Arrays.copyOf(ret, n);
+    }
+
+    /**
+     * The contribution of one source to the field: the decay scaling factor
+     * at each node it reaches, and the values it was computed from.
+     */
+    private final class Splat {
+
+        /**
+         * Values the contribution was computed from.
+         */
+        private final double centerX;
+
+        private final double centerY;
+
+        private final double[] stimulus;
+
+        private final Class<?> decayType;
+
+        private final double dispersion;
+
+        private final double peak;
+
+        /**
+         * Nodes reached, in increasing order, and the scaling factor at each.
+         */
+        private final int[] nodes;
+
+        private final double[] scales;
+
+        Splat(final OdorWorldEntity entity) {
+            SmellSource source = entity.getSmellSource();
+            DecayFunction decay = source.getDecayFunction();
+            centerX = entity.getCenterX();
+            centerY = entity.getCenterY();
+            stimulus = source.getStimulusVector().clone();
+            decayType = decay.getClass();
+            dispersion = decay.getDispersion();
+            peak = decay.getPeakDistance();
+
+            int[] cols = nodesWithin(centerX, dispersion, numCols, width);
+            int[] rows = nodesWithin(centerY, dispersion, numRows, height);
+            int[] reached = new int[cols.length * rows.length];
+            double[] factors = new double[reached.length];
+            int n = 0;
+            for (int row : rows) {
+                double dy = row * spacing - centerY;
+                for (int col : cols) {
+                    double dx = col * spacing - centerX;
+                    double factor = scalingFactor(decay, dx, dy);
+                    if (factor != 0) {
+                        reached[n] = node(col, row);
+                        factors[n++] = factor;
+                    }
+                }
+            }
+            nodes = Arrays.copyOf(reached, n);
+            scales = Arrays.copyOf(factors, n);
+        }
+
+        /**
+         * Summed scaling factor for a sensor offset from the source, as in
+         * {@link OdorWorldEntity#getSmellVector(double[])}.
+         */
+        private double scalingFactor(final DecayFunction decay, final double dx, final double dy) {
+            if (!wrapAround) {
+                double distance = Math.sqrt(dx * dx + dy * dy);
+                return distance < dispersion ? decay.getScalingFactor(distance) : 0;
+            }
+            double dxWrap = width - Math.abs(dx);
+            double dyWrap = height - Math.abs(dy);
+            double factor = 0;
+            for (double distance : new double[] {
+                Math.sqrt(dx * dx + dy * dy),
+                Math.sqrt(dxWrap * dxWrap + dy * dy),
+                Math.sqrt(dx * dx + dyWrap * dyWrap),
+                Math.sqrt(dxWrap * dxWrap + dyWrap * dyWrap)}) {
+                if (distance <= dispersion) {
+                    factor += decay.getScalingFactor(distance);
+                }
+            }
+            return factor;
+        }
+
+        /**
+         * @return true if the source is unchanged since this contribution was
+         * computed
+         */
+        boolean matches(final OdorWorldEntity entity) {
+            SmellSource source = entity.getSmellSource();
+            DecayFunction decay = source.getDecayFunction();
+            return entity.getCenterX() == centerX && entity.getCenterY() == centerY
+                && decay.getClass() == decayType && decay.getDispersion() == dispersion
+                && decay.getPeakDistance() == peak && Arrays.equals(source.getStimulusVector(), stimulus);
+        }
+
+        void add() {
+            apply(1);
+        }
+
+        void subtract() {
+            apply(-1);
+        }
+
+        private void apply(final double sign) {
+            for (int d = 0; d < stimulus.length; d++) {
+                double[] v = values[d];
+                double s = sign * stimulus[d];
+                for (int i = 0; i < nodes.length; i++) {
+                    v[nodes[i]] += s * scales[i];
+                }
+            }
+        }
+
+        /**
+         * @return the scaling factor at a node, or 0 if the node isn't
+         * reached
+         */
+        double scaleAt(final int node) {
+            int i = Arrays.binarySearch(nodes, node);
+            return i < 0 ? 0 : scales[i];
+        }
+    }
+
+}
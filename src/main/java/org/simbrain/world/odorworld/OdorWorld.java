@@ -36,6 +36,7 @@ import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.IntStream;
 
 /**
  * Core model class of Odor World, which contains a list of entities in the
@@ -51,7 +52,7 @@ public class OdorWorld implements EditableObject {
     /**
      * Basic tilemap that determines the size and basic features of the world.
      */
-    private TileMap tileMap = TileMap.create("empty.tmx");
+    private TileMap tileMap;
 
     /**
      * Sum of lengths of smell vectors for all smelly objects in the world.
@@ -71,6 +72,40 @@ public class OdorWorld implements EditableObject {
     @UserParameter(label = "Blocking", description = "If true, then objects block movements; otherwise agents can walk through objects", order = 10)
     private boolean objectsBlockMovement = true;
 
+    /**
+     * If true, smell sensors sample a precomputed odor field rather than
+     * summing the smell of every nearby source.
+     */
+    @UserParameter(label = "Use odor field", description = "If true, smell sensors sample a precomputed grid of smells, which is faster with many sources or sensors", order = 20)
+    private boolean useOdorField = false;
+
+    /**
+     * Distance in pixels between the points of the odor field. If 0 the
+     * smallest dispersion of any smell source, divided by {@link
+     * #ODOR_FIELD_POINTS_PER_DISPERSION}, is used.
+     */
+    @UserParameter(label = "Odor field spacing", description = "Distance in pixels between the points of the odor field (0 to choose from the smallest smell dispersion). Wider spacing is faster to update but less accurate: at a spacing of 1/16 of the dispersion smells are within about 1% of their exact values, at 1/3 errors reach about 20%", minimumValue = 0, order = 21)
+    private int odorFieldSpacing = 0;
+
+    /**
+     * Number of odor field spacings in the smallest smell dispersion, when
+     * the spacing is not set.
+     */
+    private static final int ODOR_FIELD_POINTS_PER_DISPERSION = 16;
+
+    /**
+     * If true, entities are updated in phases, with sensors and effectors
+     * updated in parallel. See {@link #updateInPhases()}.
+     */
+    @UserParameter(label = "Parallel update", description = "If true, all sensors are updated, then all effectors, then all motion, using all processors. Results do not depend on the order of entities.", order = 30)
+    private boolean parallelUpdate = false;
+
+    /**
+     * True while a phased update is in progress, during which entities do not
+     * fire "moved" events.
+     */
+    private transient volatile boolean batching;
+
     /**
      * Entity Id generator.
      */
@@ -101,20 +136,65 @@ public class OdorWorld implements EditableObject {
      */
     private Point2D lastClickedPosition = new Point2D.Double(50,50);
 
-    private RectangleCollisionBound worldBoundary = new RectangleCollisionBound(new Rectangle2D.Double(
-            0, 0, tileMap.getMapWidth(), tileMap.getMapHeight()
-    ));
+    private RectangleCollisionBound worldBoundary;
+
+    /**
+     * Index of entities by location, used to find nearby entities.
+     */
+    private transient EntityGrid entityGrid = new EntityGrid();
+
+    /**
+     * Largest dispersion of any smell source in the world, updated at the
+     * start of each update.
+     */
+    private transient double maxSmellDispersion;
+
+    /**
+     * Smallest dispersion of any smell source in the world, or 0 if there
+     * are none.
+     */
+    private transient double minSmellDispersion;
+
+    /**
+     * Precomputed smells, created when first needed if {@link #useOdorField}
+     * is set.
+     */
+    private transient OdorField odorField;
 
     /**
      * Default constructor.
      */
     OdorWorld() {
+        this(TileMap.create("empty.tmx"));
+    }
+
+    /**
+     * Construct a world with a given tile map, e.g. a copy of one already
+     * parsed.
+     *
+     * @param tileMap the tile map, which sets the size of the world
+     */
+    OdorWorld(final TileMap tileMap) {
+        this.tileMap = tileMap;
+        worldBoundary = new RectangleCollisionBound(new Rectangle2D.Double(
+                0, 0, tileMap.getMapWidth(), tileMap.getMapHeight()
+        ));
+        rebuildEntityGrid();
     }
 
     /**
      * Update world.
      */
     public void update() {
+        if (parallelUpdate) {
+            updateInPhases();
+            return;
+        }
+        entityGrid.refreshCollisionRadius();
+        recomputeMaxSmellDispersion();
+        if (useOdorField) {
+            getOdorField().refresh(entityList);
+        }
         for (OdorWorldEntity entity : entityList) {
             entity.updateSmellSource();
             entity.update();
@@ -122,6 +202,55 @@ public class OdorWorld implements EditableObject {
         changeSupport.firePropertyChange("worldUpdated", null, null);
     }
 
+    /**
+     * Update the world in phases, so that no entity sees another entity part
+     * way through its update:
+     * <ol>
+     * <li>all sensors, against the positions at the end of the last update
+     * (in parallel)</li>
+     * <li>all effectors, which set velocities and headings and speak to
+     * other entities (in parallel)</li>
+     * <li>collision checks for all entities against those same positions (in
+     * parallel), then all moves</li>
+     * <li>a single "worldUpdated" event, in place of the "moved" and "update"
+     * events of each entity</li>
+     * </ol>
+     * Phrases spoken in one update are heard in the next.
+     */
+    private void updateInPhases() {
+        OdorWorldEntity[] entities = entityList.toArray(new OdorWorldEntity[0]);
+        entityGrid.refreshCollisionRadius();
+        recomputeMaxSmellDispersion();
+        for (OdorWorldEntity entity : entities) {
+            entity.updateSmellSource();
+        }
+        if (useOdorField) {
+            getOdorField().refresh(entityList);
+        }
+        batching = true;
+        try {
+            IntStream.range(0, entities.length).parallel().forEach(i -> {
+                entities[i].updateSensors();
+                entities[i].clearHeardPhrases();
+            });
+            IntStream.range(0, entities.length).parallel().forEach(i -> entities[i].updateEffectors());
+
+            // Velocities were set by the effectors
+            for (OdorWorldEntity entity : entities) {
+                entity.updateCollisionBound();
+            }
+            entityGrid.refreshCollisionRadius();
+            int[] blocked = new int[entities.length];
+            IntStream.range(0, entities.length).parallel().forEach(i -> blocked[i] = entities[i].checkMotion());
+            for (int i = 0; i < entities.length; i++) {
+                entities[i].applyMotion(blocked[i]);
+            }
+        } finally {
+            batching = false;
+        }
+        changeSupport.firePropertyChange("worldUpdated", null, null);
+    }
+
     /**
      * Advance animation.
      */
@@ -155,6 +284,7 @@ public class OdorWorld implements EditableObject {
         // Add entity to the map
         // map.addSprite(entity);
         entityList.add(entity);
+        entityGrid.add(entity);
 
         changeSupport.firePropertyChange("entityAdded", null, entity);
 
@@ -314,6 +444,7 @@ public class OdorWorld implements EditableObject {
         // map.removeSprite(entity);
         if (entityList.contains(entity)) {
             entityList.remove(entity);
+            entityGrid.remove(entity);
             entity.delete();
             for (Sensor sensor : entity.getSensors()) {
 //                fireSensorRemoved(sensor);
@@ -348,6 +479,97 @@ public class OdorWorld implements EditableObject {
                 totalSmellVectorLength += SimbrainMath.getVectorNorm(entity.getSmellSource().getStimulusVector());
             }
         }
+        recomputeMaxSmellDispersion();
+    }
+
+    /**
+     * Computes the largest dispersion of any smell source, which bounds the
+     * distance over which entities can be smelled, and the smallest, which
+     * sets the default odor field spacing.
+     */
+    private void recomputeMaxSmellDispersion() {
+        maxSmellDispersion = 0;
+        minSmellDispersion = Double.MAX_VALUE;
+        for (OdorWorldEntity entity : entityList) {
+            if (entity.getSmellSource() != null) {
+                double dispersion = entity.getSmellSource().getDispersion();
+                maxSmellDispersion = Math.max(maxSmellDispersion, dispersion);
+                minSmellDispersion = Math.min(minSmellDispersion, dispersion);
+            }
+        }
+        if (minSmellDispersion == Double.MAX_VALUE) {
+            minSmellDispersion = 0;
+        }
+    }
+
+    /**
+     * Put all entities back in the entity grid, after the size of the world
+     * or its wrapping changes.
+     */
+    private void rebuildEntityGrid() {
+        entityGrid.rebuild(entityList, getWidth(), getHeight(), wrapAround);
+    }
+
+    /**
+     * Called by entities when their position changes, to keep the entity grid
+     * up to date.
+     *
+     * @param entity the entity which moved
+     */
+    public void entityMoved(final OdorWorldEntity entity) {
+        if (entityGrid != null) {
+            entityGrid.update(entity);
+        }
+        if (odorField != null) {
+            odorField.entityMoved(entity);
+        }
+    }
+
+    /**
+     * Returns the odor field, creating it (and adding all current smell
+     * sources to it) if needed. If the spacing is not set, the field is
+     * created again when the smallest smell dispersion changes.
+     *
+     * @return the precomputed smells of the world
+     */
+    public OdorField getOdorField() {
+        double spacing = getEffectiveOdorFieldSpacing();
+        if (odorField == null || odorField.getSpacing() != spacing) {
+            odorField = new OdorField(spacing, getWidth(), getHeight(), wrapAround);
+            odorField.refresh(entityList);
+        }
+        return odorField;
+    }
+
+    /**
+     * @return the odor field spacing set, or if it is 0, the smallest smell
+     * dispersion divided by {@link #ODOR_FIELD_POINTS_PER_DISPERSION} (but no
+     * less than a pixel), or the tile size if there are no smell sources
+     */
+    private double getEffectiveOdorFieldSpacing() {
+        if (odorFieldSpacing > 0) {
+            return odorFieldSpacing;
+        }
+        if (minSmellDispersion > 0) {
+            return Math.max(1, minSmellDispersion / ODOR_FIELD_POINTS_PER_DISPERSION);
+        }
+        return tileMap.getTilewidth();
+    }
+
+    /**
+     * @return the index of entities by location
+     */
+    public EntityGrid getEntityGrid() {
+        return entityGrid;
+    }
+
+    /**
+     * @return the largest dispersion of any smell source in the world, as of
+     * the start of the last update (or the last time an entity was added or
+     * removed)
+     */
+    public double getMaxSmellDispersion() {
+        return maxSmellDispersion;
     }
 
     /**
@@ -367,6 +589,8 @@ public class OdorWorld implements EditableObject {
         for (OdorWorldEntity entity : entityList) {
             entity.postSerializationInit();
         }
+        entityGrid = new EntityGrid();
+        rebuildEntityGrid();
         recomputeMaxStimulusLength();
         return this;
     }
@@ -512,6 +736,8 @@ public class OdorWorld implements EditableObject {
      */
     public void setWrapAround(boolean wrapAround) {
         this.wrapAround = wrapAround;
+        rebuildEntityGrid();
+        odorField = null;
     }
 
     /**
@@ -546,6 +772,51 @@ public class OdorWorld implements EditableObject {
         this.objectsBlockMovement = objectsBlockMovement;
     }
 
+    public boolean isUseOdorField() {
+        return useOdorField;
+    }
+
+    /**
+     * @param useOdorField whether smell sensors should sample the odor field
+     */
+    public void setUseOdorField(boolean useOdorField) {
+        this.useOdorField = useOdorField;
+        odorField = null;
+    }
+
+    public boolean isParallelUpdate() {
+        return parallelUpdate;
+    }
+
+    /**
+     * @param parallelUpdate whether to update entities in parallel phases
+     */
+    public void setParallelUpdate(boolean parallelUpdate) {
+        this.parallelUpdate = parallelUpdate;
+    }
+
+    /**
+     * @return true while a phased update is in progress and entities should
+     * not fire individual events
+     */
+    public boolean isBatchingEvents() {
+        return batching;
+    }
+
+    public int getOdorFieldSpacing() {
+        return odorFieldSpacing;
+    }
+
+    /**
+     * @param odorFieldSpacing distance in pixels between the points of the
+     *                         odor field, or 0 to choose it from the
+     *                         smallest smell dispersion
+     */
+    public void setOdorFieldSpacing(int odorFieldSpacing) {
+        this.odorFieldSpacing = odorFieldSpacing;
+        odorField = null;
+    }
+
     /**
      * @return the maxSmellVectorLength
      */
@@ -591,6 +862,8 @@ public class OdorWorld implements EditableObject {
         worldBoundary = new RectangleCollisionBound(new Rectangle2D.Double(
                 0, 0, tileMap.getMapWidth(), tileMap.getMapHeight()
         ));
+        rebuildEntityGrid();
+        odorField = null;
         changeSupport.firePropertyChange("tileMapChanged", null, null);
     }
 
@@ -0,0 +1,349 @@
+/*
+ * Part of Simbrain--a java-based neural network kit
+ * Copyright (C) 2005,2007 The Authors.  See http://www.simbrain.net/credits
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package org.simbrain.world.odorworld;
+
+import org.simbrain.util.piccolo.TileMap;
+import org.simbrain.world.odorworld.effectors.Effector;
+import org.simbrain.world.odorworld.effectors.Speech;
+import org.simbrain.world.odorworld.effectors.StraightMovement;
+import org.simbrain.world.odorworld.effectors.Turning;
+import org.simbrain.world.odorworld.entities.OdorWorldEntity;
+import org.simbrain.world.odorworld.sensors.BumpSensor;
+import org.simbrain.world.odorworld.sensors.GridSensor;
+import org.simbrain.world.odorworld.sensors.Hearing;
+import org.simbrain.world.odorworld.sensors.ObjectSensor;
+import org.simbrain.world.odorworld.sensors.Sensor;
+import org.simbrain.world.odorworld.sensors.SmellSensor;
+import org.simbrain.world.odorworld.sensors.TileSensor;
+
+import java.util.stream.IntStream;
+
+/**
+ * A batch of independent odor worlds, stepped in lockstep without a
+ * workspace or GUI, for evaluating many episodes at once (e.g. fitness
+ * evaluation in evolution, or reinforcement learning).
+ * <p>
+ * Each world has one agent. Its sensors make up the observation and its
+ * effectors take the action. Both are laid out in a flat array with one
+ * block of {@link #getObservationSize()} (or {@link #getActionSize()}) values
+ * per world, in the order of the agent's sensors (or effectors):
+ * <ul>
+ * <li>{@link SmellSensor}: one value per stimulus dimension, up to the
+ * largest dimension of any smell source when the batch was created</li>
+ * <li>{@link GridSensor}: one value per cell</li>
+ * <li>{@link ObjectSensor}, {@link BumpSensor}, {@link TileSensor}, {@link
+ * Hearing}: one value</li>
+ * <li>{@link StraightMovement}, {@link Turning}, {@link Speech}: one value,
+ * the amount</li>
+ * </ul>
+ * Other sensors and effectors are skipped. All worlds must give their agents
+ * the same sensors and effectors.
+ * <p>
+ * Worlds are updated in parallel. As in a workspace where the agent is
+ * coupled to a network, an action is applied by the effectors at the end of
+ * an update and moves the agent at the start of the next.
+ */
+public final class OdorWorldBatch {
+
+    /**
+     * Populates an empty world and returns its agent.
+     */
+    @FunctionalInterface
+    public interface Setup {
+
+        /**
+         * @param world the world to populate
+         * @param index index of the world in the batch
+         * @return the entity whose sensors and effectors are used
+         */
+        OdorWorldEntity populate(OdorWorld world, int index);
+    }
+
+    /**
+     * Populates the worlds when they are created or reset.
+     */
+    private final Setup setup;
+
+    /**
+     * Tile map of an empty world, parsed once and copied for each world
+     * created or reset.
+     */
+    private final TileMap tileMap = TileMap.create("empty.tmx");
+
+    private final OdorWorld[] worlds;
+
+    private final OdorWorldEntity[] agents;
+
+    /**
+     * Number of values read from each smell sensor.
+     */
+    private final int smellSize;
+
+    private final int observationSize;
+
+    private final int actionSize;
+
+    /**
+     * Number of updates of each world since it was created or reset.
+     */
+    private final int[] steps;
+
+    /**
+     * Create a batch of worlds.
+     *
+     * @param numWorlds number of worlds
+     * @param setup     populates each world and returns its agent
+     */
+    public OdorWorldBatch(final int numWorlds, final Setup setup) {
+        if (numWorlds < 1) {
+            throw new IllegalArgumentException("At least one world is required.");
+        }
+        this.setup = setup;
+        worlds = new OdorWorld[numWorlds];
+        agents = new OdorWorldEntity[numWorlds];
+        steps = new int[numWorlds];
+        for (int i = 0; i < numWorlds; i++) {
+            create(i);
+        }
+
+        int smell = 0;
+        for (OdorWorld world : worlds) {
+            for (OdorWorldEntity entity : world.getEntityList()) {
+                if (entity.getSmellSource() != null) {
+                    smell = Math.max(smell, entity.getSmellSource().getStimulusDimension());
+                }
+            }
+        }
+        smellSize = smell;
+        observationSize = observationSize(agents[0]);
+        actionSize = actionSize(agents[0]);
+        for (int i = 1; i < numWorlds; i++) {
+            if (observationSize(agents[i]) != observationSize || actionSize(agents[i]) != actionSize) {
+                throw new IllegalArgumentException("Agent in world " + i + " has different sensors or effectors from the agent in world 0.");
+            }
+        }
+    }
+
+    /**
+     * Create (or re-create) a world and its agent.
+     */
+    private void create(final int index) {
+        OdorWorld world = new OdorWorld(tileMap.copy());
+        OdorWorldEntity agent = setup.populate(world, index);
+        if (agent == null || agent.getParentWorld() != world) {
+            throw new IllegalStateException("Setup must return an entity in the world it was given.");
+        }
+        worlds[index] = world;
+        agents[index] = agent;
+        steps[index] = 0;
+    }
+
+    private int observationSize(final OdorWorldEntity agent) {
+        int size = 0;
+        for (Sensor sensor : agent.getSensors()) {
+            size += width(sensor);
+        }
+        return size;
+    }
+
+    private int actionSize(final OdorWorldEntity agent) {
+        int size = 0;
+        for (Effector effector : agent.getEffectors()) {
+            if (isActuated(effector)) {
+                size++;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * @return number of observation values for a sensor
+     */
+    private int width(final Sensor sensor) {
+        if (sensor instanceof SmellSensor) {
+            return smellSize;
+        } else if (sensor instanceof GridSensor) {
+            return ((GridSensor) sensor).getColumns() * ((GridSensor) sensor).getRows();
+        } else if (sensor instanceof ObjectSensor || sensor instanceof BumpSensor || sensor instanceof TileSensor || sensor instanceof Hearing) {
+            return 1;
+        }
+        return 0;
+    }
+
+    private static boolean isActuated(final Effector effector) {
+        return effector instanceof StraightMovement || effector instanceof Turning || effector instanceof Speech;
+    }
+
+    /**
+     * Apply an action to every world, update them all, then read their
+     * observations.
+     *
+     * @param actions      {@link #getActionSize()} values per world
+     * @param observations filled with {@link #getObservationSize()} values
+     *                     per world
+     */
+    public void step(final double[] actions, final double[] observations) {
+        if (actions.length != worlds.length * actionSize) {
+            throw new IllegalArgumentException("Expected " + worlds.length * actionSize + " actions, got " + actions.length);
+        }
+        checkObservations(observations);
+        IntStream.range(0, worlds.length).parallel().forEach(i -> {
+            act(i, actions, i * actionSize);
+            worlds[i].update();
+            steps[i]++;
+            observe(i, observations, i * observationSize);
+        });
+    }
+
+    /**
+     * Read the current observations of every world, e.g. after a reset.
+     *
+     * @param observations filled with {@link #getObservationSize()} values
+     *                     per world
+     */
+    public void observe(final double[] observations) {
+        checkObservations(observations);
+        for (int i = 0; i < worlds.length; i++) {
+            observe(i, observations, i * observationSize);
+        }
+    }
+
+    /**
+     * Re-create one world with the setup function, e.g. at the end of an
+     * episode.
+     *
+     * @param index the world to reset
+     */
+    public void reset(final int index) {
+        OdorWorld oldWorld = worlds[index];
+        OdorWorldEntity oldAgent = agents[index];
+        int oldSteps = steps[index];
+        create(index);
+        if (observationSize(agents[index]) != observationSize || actionSize(agents[index]) != actionSize) {
+            worlds[index] = oldWorld;
+            agents[index] = oldAgent;
+            steps[index] = oldSteps;
+            throw new IllegalArgumentException("Agent in reset world " + index + " has different sensors or effectors.");
+        }
+    }
+
+    /**
+     * Re-create all the worlds.
+     */
+    public void reset() {
+        for (int i = 0; i < worlds.length; i++) {
+            reset(i);
+        }
+    }
+
+    private void act(final int index, final double[] actions, int offset) {
+        for (Effector effector : agents[index].getEffectors()) {
+            if (effector instanceof StraightMovement) {
+                ((StraightMovement) effector).setAmount(actions[offset++]);
+            } else if (effector instanceof Turning) {
+                ((Turning) effector).setAmount(actions[offset++]);
+            } else if (effector instanceof Speech) {
+                ((Speech) effector).setAmount(actions[offset++]);
+            }
+        }
+    }
+
+    private void observe(final int index, final double[] observations, int offset) {
+        for (Sensor sensor : agents[index].getSensors()) {
+            int width = width(sensor);
+            if (sensor instanceof SmellSensor) {
+                copy(((SmellSensor) sensor).getCurrentValues(), observations, offset, width);
+            } else if (sensor instanceof GridSensor) {
+                copy(((GridSensor) sensor).getValues(), observations, offset, width);
+            } else if (sensor instanceof ObjectSensor) {
+                observations[offset] = ((ObjectSensor) sensor).getCurrentValue();
+            } else if (sensor instanceof BumpSensor) {
+                observations[offset] = ((BumpSensor) sensor).getCurrentValue();
+            } else if (sensor instanceof TileSensor) {
+                observations[offset] = ((TileSensor) sensor).getCurrentValue();
+            } else if (sensor instanceof Hearing) {
+                observations[offset] = ((Hearing) sensor).getValue();
+            }
+            offset += width;
+        }
+    }
+
+    private void checkObservations(final double[] observations) {
+        if (observations.length != worlds.length * observationSize) {
+            throw new IllegalArgumentException("Expected room for " + worlds.length * observationSize + " observations, got " + observations.length);
+        }
+    }
+
+    /**
+     * Copy a sensor's values, padding with zeros (or truncating) to a fixed
+     * width.
+     */
+    private static void copy(final double[] values, final double[] observations, final int offset, final int width) {
+        int n = values == null ? 0 : Math.min(values.length, width);
+        if (n > 0) {
+            System.arraycopy(values, 0, observations, offset, n);
+        }
+        for (int j = n; j < width; j++) {
+            observations[offset + j] = 0;
+        }
+    }
+
+    /**
+     * @return number of observation values per world
+     */
+    public int getObservationSize() {
+        return observationSize;
+    }
+
+    /**
+     * @return number of action values per world
+     */
+    public int getActionSize() {
+        return actionSize;
+    }
+
+    public int getNumWorlds() {
+        return worlds.length;
+    }
+
+    /**
+     * @param index index of a world
+     * @return the world
+     */
+    public OdorWorld getWorld(final int index) {
+        return worlds[index];
+    }
+
+    /**
+     * @param index index of a world
+     * @return the agent of the world
+     */
+    public OdorWorldEntity getAgent(final int index) {
+        return agents[index];
+    }
+
+    /**
+     * @param index index of a world
+     * @return number of updates of the world since it was created or reset
+     */
+    public int getSteps(final int index) {
+        return steps[index];
+    }
+
+}
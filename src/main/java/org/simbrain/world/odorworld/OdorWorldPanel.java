@@ -172,6 +172,12 @@ public class OdorWorldPanel extends JPanel {
             } else if ("entityDeleted".equals(evt.getPropertyName())) {
                 repaint();
             } else if ("worldUpdated".equals(evt.getPropertyName())) {
+                if (world.isParallelUpdate()) {
+                    // Entities don't report their moves in a phased update
+                    canvas.getLayer().getChildrenReference().stream()
+                        .filter(i -> i instanceof EntityNode)
+                        .forEach(i -> ((EntityNode) i).entityMoved());
+                }
                 centerCameraToSelectedEntity();
             } else if ("advance".equals(evt.getPropertyName())) {
                 canvas.getLayer().getChildrenReference().stream()
@@ -23,6 +23,15 @@ public class RectangleCollisionBound extends CollisionBound {
 
     @Override
     public void updateCollisionBounds(String direction) {
+        setLines(direction, collisionBounds.get("up"), collisionBounds.get("down"),
+                collisionBounds.get("left"), collisionBounds.get("right"));
+    }
+
+    /**
+     * Set four lines to the edges of this bound, extended by its velocity in
+     * the given direction(s).
+     */
+    private void setLines(String direction, Line2D.Double up, Line2D.Double down, Line2D.Double left, Line2D.Double right) {
         double dxLeft = 0;
         double dxRight = 0;
         double dyUp = 0;
@@ -41,25 +50,25 @@ public class RectangleCollisionBound extends CollisionBound {
                 dyUp = getVelocity().getY();
             }
         }
-        collisionBounds.get("up").setLine(
+        up.setLine(
                 shape.getX() + dxLeft,
                 shape.getY() + dyUp,
                 shape.getX() + shape.getWidth() + dxRight,
                 shape.getY() + dyUp
         );
-        collisionBounds.get("down").setLine(
+        down.setLine(
                 shape.getX() + dxLeft,
                 shape.getY() + shape.getHeight() + dyDown,
                 shape.getX() + shape.getWidth() + dxRight,
                 shape.getY() + shape.getHeight() + dyDown
         );
-        collisionBounds.get("left").setLine(
+        left.setLine(
                 shape.getX() + dxLeft,
                 shape.getY() + dyUp,
                 shape.getX() + dxLeft,
                 shape.getY() + shape.getHeight() + dyDown
         );
-        collisionBounds.get("right").setLine(
+        right.setLine(
                 shape.getX() + shape.getWidth() + dxRight,
                 shape.getY() + dyUp,
                 shape.getX() + shape.getWidth() + dxRight,
@@ -81,11 +90,30 @@ public class RectangleCollisionBound extends CollisionBound {
         ) * 0.75;
     }
 
+    /**
+     * Check if this bound, moving in the given direction(s), collides with
+     * another. The lines of this bound are computed locally rather than
+     * updated in place, so several entities can check their collisions at
+     * once.
+     *
+     * @param direction "x", "y" or "xy"
+     * @param other     the other bound
+     * @return true if collided
+     */
     public boolean collide(String direction, CollisionBound other) {
-        updateCollisionBounds(direction);
-        boolean ret = collide(other);
-        updateCollisionBounds("xy");
-        return ret;
+        if (!isInCollisionRadius(other)) {
+            return false;
+        }
+        Line2D.Double[] lines = {new Line2D.Double(), new Line2D.Double(), new Line2D.Double(), new Line2D.Double()};
+        setLines(direction, lines[0], lines[1], lines[2], lines[3]);
+        for (Line2D l : lines) {
+            for (Line2D ol : other.collisionBounds.values()) {
+                if (l.intersectsLine(ol)) {
+                    return true;
+                }
+            }
+        }
+        return false;
     }
 
     @Override
@@ -26,6 +26,7 @@ import org.simbrain.workspace.AttributeContainer;
 import org.simbrain.workspace.Consumable;
 import org.simbrain.workspace.Producible;
 import org.simbrain.world.odorworld.CollisionBound;
+import org.simbrain.world.odorworld.EntityGrid;
 import org.simbrain.world.odorworld.OdorWorld;
 import org.simbrain.world.odorworld.RectangleCollisionBound;
 import org.simbrain.world.odorworld.effectors.Effector;
@@ -42,7 +43,6 @@ import java.beans.PropertyChangeListener;
 import java.beans.PropertyChangeSupport;
 import java.util.*;
 import java.util.List;
-import java.util.stream.Collectors;
 
 /**
  * Parent class for all Odor World objects.
@@ -198,6 +198,16 @@ public class OdorWorldEntity implements EditableObject, AttributeContainer {
      */
     private TileCollision tileCollision = new TileCollision();
 
+    /**
+     * Returned by {@link #checkMotion()} when motion in x is blocked.
+     */
+    public static final int BLOCKED_X = 1;
+
+    /**
+     * Returned by {@link #checkMotion()} when motion in y is blocked.
+     */
+    public static final int BLOCKED_Y = 2;
+
     /**
      * Construct an entity.
      *
@@ -240,9 +250,7 @@ public class OdorWorldEntity implements EditableObject, AttributeContainer {
         updateEffectors();
 
         // For Backwards compatibility
-        if (currentlyHeardPhrases != null) {
-            currentlyHeardPhrases.clear();
-        }
+        clearHeardPhrases();
 
         if(updateHeadingBasedOnVelocity) {
             updateHeadingBasedOnVelocity();
@@ -287,6 +295,13 @@ public class OdorWorldEntity implements EditableObject, AttributeContainer {
                 setY(y + dy);
             }
         }
+        rotateVelocity(dx, dy);
+    }
+
+    /**
+     * Turn by {@link #dtheta}, rotating the velocity with the heading.
+     */
+    private void rotateVelocity(double dx, double dy) {
         if (dtheta != 0) {
             setHeading(heading + dtheta);
             double dthetaRad = Math.toRadians(-dtheta);
@@ -301,6 +316,60 @@ public class OdorWorldEntity implements EditableObject, AttributeContainer {
         }
     }
 
+    /**
+     * Check which components of this entity's velocity are blocked by other
+     * entities, tiles or the world boundary, with everything at its current
+     * position. Changes no state, so it can be called for many entities at
+     * once. Unlike {@link #update()}, the y component is checked from the
+     * current position rather than after moving in x.
+     *
+     * @return {@link #BLOCKED_X} and / or {@link #BLOCKED_Y}, or 0 if
+     * unblocked
+     */
+    public int checkMotion() {
+        double dx = manualMode ? manualMovementVelocity.getX() : this.dx;
+        double dy = manualMode ? manualMovementVelocity.getY() : this.dy;
+        int blocked = 0;
+        if (dx != 0 && collideOn("x")) {
+            blocked |= BLOCKED_X;
+        }
+        if (dy != 0 && collideOn("y")) {
+            blocked |= BLOCKED_Y;
+        }
+        return blocked;
+    }
+
+    /**
+     * Move by this entity's velocity except where blocked, then turn. Used
+     * with {@link #checkMotion()} in a parallel world update.
+     *
+     * @param blocked components of the velocity which are blocked
+     */
+    public void applyMotion(int blocked) {
+        double dx = manualMode ? manualMovementVelocity.getX() : this.dx;
+        double dy = manualMode ? manualMovementVelocity.getY() : this.dy;
+        if (dx != 0 && (blocked & BLOCKED_X) == 0) {
+            setX(x + dx);
+        }
+        if (dy != 0 && (blocked & BLOCKED_Y) == 0) {
+            setY(y + dy);
+        }
+        rotateVelocity(dx, dy);
+        if (updateHeadingBasedOnVelocity) {
+            updateHeadingBasedOnVelocity();
+        }
+    }
+
+    /**
+     * Fire a "moved" event, unless the world is in the middle of a batched
+     * update.
+     */
+    private void fireMoved() {
+        if (parentWorld == null || !parentWorld.isBatchingEvents()) {
+            changeSupport.firePropertyChange("moved", null, null);
+        }
+    }
+
     /**
      * Sets this OdorWorldEntity's current x position.
      *
@@ -321,7 +390,7 @@ public class OdorWorldEntity implements EditableObject, AttributeContainer {
             this.x = newx;
         }
         updateCollisionBound();
-        changeSupport.firePropertyChange("moved", null, null);
+        fireMoved();
 
     }
 
@@ -345,7 +414,7 @@ public class OdorWorldEntity implements EditableObject, AttributeContainer {
             this.y = newy;
         }
         updateCollisionBound();
-        changeSupport.firePropertyChange("moved", null, null);
+        fireMoved();
     }
 
     /**
@@ -553,6 +622,9 @@ public class OdorWorldEntity implements EditableObject, AttributeContainer {
         }
         collisionBound.setLocation(x, y);
         collisionBound.setSize(entityType.getImageWidth(), entityType.getImageHeight()); // TODO: optimize
+        if (parentWorld != null) {
+            parentWorld.entityMoved(this);
+        }
     }
 
     /**
@@ -633,6 +705,7 @@ public class OdorWorldEntity implements EditableObject, AttributeContainer {
     public void setCenterLocation(double x, double y) {
         this.x = x - entityType.getImageWidth() / 2;
         this.y = y - entityType.getImageHeight() / 2;
+        updateCollisionBound();
     }
 
     /**
@@ -822,7 +895,19 @@ public class OdorWorldEntity implements EditableObject, AttributeContainer {
     }
 
     public void speakToEntity(String phrase) {
-        currentlyHeardPhrases.add(phrase);
+        // Other entities may speak at once in a parallel world update
+        synchronized (currentlyHeardPhrases) {
+            currentlyHeardPhrases.add(phrase);
+        }
+    }
+
+    /**
+     * Forget the phrases heard since the last update.
+     */
+    public void clearHeardPhrases() {
+        if (currentlyHeardPhrases != null) {
+            currentlyHeardPhrases.clear();
+        }
     }
 
     public List<String> getCurrentlyHeardPhrases() {
@@ -905,7 +990,7 @@ public class OdorWorldEntity implements EditableObject, AttributeContainer {
             newHeading += 360;
         }
         heading = newHeading;
-        changeSupport.firePropertyChange("moved", null, null);
+        fireMoved();
     }
 
 
@@ -948,7 +1033,7 @@ public class OdorWorldEntity implements EditableObject, AttributeContainer {
             return;
         }
         setHeading(heading + amount);
-        changeSupport.firePropertyChange("moved", null, null);
+        fireMoved();
 
     }
 
@@ -972,7 +1057,7 @@ public class OdorWorldEntity implements EditableObject, AttributeContainer {
         double radians = getHeadingRadians();
         dx = amount * Math.cos(radians);
         dy = -amount * Math.sin(radians);
-        changeSupport.firePropertyChange("moved", null, null);
+        fireMoved();
     }
 
     public void goStraight() {
@@ -1146,9 +1231,14 @@ public class OdorWorldEntity implements EditableObject, AttributeContainer {
      * @return a list of entities in the collision bound.
      */
     public List<OdorWorldEntity> getEntitiesInCollisionRadius() {
-        return parentWorld.getEntityList().stream()
-            .filter(i -> collisionBound.isInCollisionRadius(i.collisionBound))
-            .collect(Collectors.toList());
+        EntityGrid grid = parentWorld.getEntityGrid();
+        List<OdorWorldEntity> ret = new ArrayList<>();
+        grid.forEachCandidate(getCenterX(), getCenterY(), collisionBound.getCollisionRadius() + grid.getMaxCollisionRadius(), i -> {
+            if (collisionBound.isInCollisionRadius(i.collisionBound)) {
+                ret.add(i);
+            }
+        });
+        return ret;
     }
 
     /**
@@ -1158,9 +1248,13 @@ public class OdorWorldEntity implements EditableObject, AttributeContainer {
      * @return a list of entities in the given radius
      */
     public List<OdorWorldEntity> getEntitiesInRadius(double radius) {
-        return parentWorld.getEntityList().stream()
-            .filter(i -> isInRadius(i, radius))
-            .collect(Collectors.toList());
+        List<OdorWorldEntity> ret = new ArrayList<>();
+        parentWorld.getEntityGrid().forEachCandidate(getCenterX(), getCenterY(), radius, i -> {
+            if (isInRadius(i, radius)) {
+                ret.add(i);
+            }
+        });
+        return ret;
     }
 
     /**
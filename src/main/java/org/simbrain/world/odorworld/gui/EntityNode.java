@@ -241,6 +241,14 @@ public class EntityNode extends PNode {
 
     }
 
+    /**
+     * Update this node to the entity's current location and heading.
+     */
+    public void entityMoved() {
+        updateFlag = true;
+        update();
+    }
+
     private void update() {
 
         //TODO: Make sure this is only called once per workspace update
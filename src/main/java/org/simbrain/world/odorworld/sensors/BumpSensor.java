@@ -21,10 +21,12 @@ package org.simbrain.world.odorworld.sensors;
 import org.simbrain.util.UserParameter;
 import org.simbrain.util.propertyeditor.EditableObject;
 import org.simbrain.workspace.Producible;
+import org.simbrain.world.odorworld.EntityGrid;
 import org.simbrain.world.odorworld.OdorWorld;
 import org.simbrain.world.odorworld.RectangleCollisionBound;
 import org.simbrain.world.odorworld.entities.OdorWorldEntity;
 
+import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
 
 /**
@@ -127,12 +129,11 @@ public class BumpSensor extends Sensor implements VisualizableEntityAttribute {
         if (world == null) {
             world = parent.getParentWorld();
         }
-        for (OdorWorldEntity e : world.getEntityList()) {
-            if (e != parent && e.getCollisionBound().collide(this.collisionBound)) {
-                return true;
-            }
-        }
-        return false;
+        EntityGrid grid = world.getEntityGrid();
+        double distance = collisionBound.getCollisionRadius() + grid.getMaxCollisionRadius();
+        Point2D.Double center = collisionBound.getCenterLocation();
+        return grid.findCandidate(center.getX(), center.getY(), distance,
+            e -> e != parent && e.getCollisionBound().collide(this.collisionBound)) != null;
     }
 
     /**
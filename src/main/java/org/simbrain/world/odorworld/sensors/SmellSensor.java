@@ -21,6 +21,7 @@ package org.simbrain.world.odorworld.sensors;
 import org.simbrain.util.math.SimbrainMath;
 import org.simbrain.util.propertyeditor.EditableObject;
 import org.simbrain.workspace.Producible;
+import org.simbrain.world.odorworld.OdorWorld;
 import org.simbrain.world.odorworld.entities.OdorWorldEntity;
 
 /**
@@ -97,15 +98,22 @@ public class SmellSensor extends Sensor implements VisualizableEntityAttribute {
         // Start with an empty array. It will grow in size as smell vectors are
         // added.
         currentValue = new double[0];
-        for (OdorWorldEntity entity : parent.getParentWorld().getEntityList()) {
+        OdorWorld world = parent.getParentWorld();
+        double[] location = getLocation();
+        if (world.isUseOdorField()) {
+            currentValue = world.getOdorField().sample(location[0], location[1], parent);
+            return;
+        }
+        // Only entities within the largest dispersion can be smelled
+        world.getEntityGrid().forEachCandidate(location[0], location[1], world.getMaxSmellDispersion(), entity -> {
             // Don't smell yourself
             if (entity != parent) {
-                double[] smell = entity.getSmellVector(getLocation());
+                double[] smell = entity.getSmellVector(location);
                 if (smell != null) {
                     currentValue = SimbrainMath.addVector(currentValue, smell);
                 }
             }
-        }
+        });
     }
 
     @Producible(customDescriptionMethod = "getAttributeDescription")
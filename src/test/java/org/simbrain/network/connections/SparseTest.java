@@ -0,0 +1,119 @@
+package org.simbrain.network.connections;
+
+import org.simbrain.network.core.Network;
+import org.simbrain.network.core.Neuron;
+import org.simbrain.network.core.Synapse;
+import org.simbrain.network.groups.NeuronGroup;
+import org.simbrain.network.groups.SynapseGroup;
+import org.simbrain.util.SimbrainConstants.Polarity;
+import org.simbrain.util.math.ProbDistributions.NormalDistribution;
+import org.simbrain.util.math.ProbDistributions.UniformDistribution;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SparseTest {
+
+    @Test
+    public void seededRandomSparseIsReproducibleTest() {
+        assertEquals(connect(new Sparse(0.2, false, false), 40, 1), connect(new Sparse(0.2, false, false), 40, 1));
+        assertNotEquals(connect(new Sparse(0.2, false, false), 40, 1), connect(new Sparse(0.2, false, false), 40, 2));
+    }
+
+    @Test
+    public void seededEqualizedSparseIsReproducibleTest() {
+        assertEquals(connect(new Sparse(0.2, true, false), 40, 1), connect(new Sparse(0.2, true, false), 40, 1));
+        assertNotEquals(connect(new Sparse(0.2, true, false), 40, 1), connect(new Sparse(0.2, true, false), 40, 2));
+    }
+
+    @Test
+    public void densityEditingMakesSameConnectionsTest() {
+        for (boolean equalize : new boolean[]{false, true}) {
+            Sparse editable = new Sparse(0.2, equalize, false);
+            Sparse fixed = new Sparse(0.2, equalize, false);
+            fixed.setPermitDensityEditing(false);
+            assertEquals(connect(editable, 40, 1), connect(fixed, 40, 1));
+        }
+    }
+
+    @Test
+    public void densityEditingFollowsGeneratedConnectionsTest() {
+        Network net = new Network();
+        NeuronGroup group = grid(net, 40);
+        Sparse sparse = new Sparse(0.2, true, false);
+        sparse.setSeed(1L);
+        SynapseGroup sg = SynapseGroup.createSynapseGroup(group, group, sparse);
+        assertEquals(40 * 7, sg.size());
+        sparse.setConnectionDensity(0.5);
+        assertEquals(40 * 19, sg.size());
+        sparse.setConnectionDensity(0.1);
+        assertEquals(40 * 4, sg.size());
+        for (Synapse s : sg.getAllSynapses()) {
+            assertNotSame(s.getSource(), s.getTarget());
+        }
+    }
+
+    @Test
+    public void seededRadialIsReproducibleTest() {
+        assertEquals(connect(new RadialGaussian(0.5, 100), 40, 1), connect(new RadialGaussian(0.5, 100), 40, 1));
+        assertNotEquals(connect(new RadialGaussian(0.5, 100), 40, 1), connect(new RadialGaussian(0.5, 100), 40, 2));
+    }
+
+    @Test
+    public void largeRadialTakesRatioFromPolarityTest() {
+        // 400 of 500 sources are excitatory, so synapses from the rest should
+        // be excitatory 80% of the time rather than at the default ratio
+        Network net = new Network();
+        NeuronGroup group = grid(net, 500);
+        for (int i = 100; i < 500; i++) {
+            group.getNeuronList().get(i).setPolarity(Polarity.EXCITATORY);
+        }
+        RadialGaussian radial = new RadialGaussian(0.5, 100);
+        radial.setSeed(1L);
+        SynapseGroup sg = SynapseGroup.createSynapseGroup(group, group, radial);
+        int unpolarized = 0;
+        int excitatory = 0;
+        for (Synapse s : sg.getAllSynapses()) {
+            if (!s.getSource().isPolarized()) {
+                unpolarized++;
+                if (sg.getExcitatorySynapses().contains(s)) {
+                    excitatory++;
+                }
+            }
+        }
+        assertEquals(0.8, excitatory / (double) unpolarized, 0.05);
+    }
+
+    /**
+     * Connect a recurrent group with randomized strengths and describe each
+     * synapse by its source index, target index and strength.
+     */
+    private static List<String> connect(ConnectionStrategy strategy, int size, long seed) {
+        Network net = new Network();
+        NeuronGroup group = grid(net, size);
+        strategy.setSeed(seed);
+        SynapseGroup sg = SynapseGroup.createSynapseGroup(group, group, strategy, 0.5,
+            UniformDistribution.builder().floor(0).ceil(1).build(),
+            NormalDistribution.builder().mean(-1).standardDeviation(0.1).build());
+        List<Neuron> neurons = group.getNeuronList();
+        List<String> synapses = new ArrayList<>();
+        for (Synapse s : sg.getAllSynapses()) {
+            synapses.add(neurons.indexOf(s.getSource()) + " " + neurons.indexOf(s.getTarget()) + " " + s.getStrength());
+        }
+        synapses.sort(null);
+        return synapses;
+    }
+
+    private static NeuronGroup grid(Network net, int size) {
+        NeuronGroup group = new NeuronGroup(net, size);
+        net.addGroup(group);
+        for (int i = 0; i < size; i++) {
+            group.getNeuronList().get(i).setLocation(20 * (i % 20), 20 * (i / 20));
+        }
+        return group;
+    }
+
+}
@@ -0,0 +1,143 @@
+package org.simbrain.network.core;
+
+import org.simbrain.network.connections.AllToAll;
+import org.simbrain.network.groups.NeuronGroup;
+import org.simbrain.network.groups.SynapseGroup;
+import org.simbrain.network.neuron_update_rules.IzhikevichRule;
+import org.simbrain.network.subnetworks.WinnerTakeAll;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class NetworkCopierTest {
+
+    @Test
+    public void copyDenseAndCompressedTest() {
+        Network net = new Network();
+        NeuronGroup in = new NeuronGroup(net, 6);
+        net.addGroup(in);
+        NeuronGroup out = new NeuronGroup(net, 4);
+        net.addGroup(out);
+        in.setDenseMode(true);
+        out.setDenseMode(true);
+        SynapseGroup sg = SynapseGroup.createSynapseGroup(in, out, new AllToAll());
+        net.addGroup(sg);
+        List<Neuron> src = in.getNeuronList();
+        List<Neuron> tar = out.getNeuronList();
+        for (Synapse s : sg.getAllSynapses()) {
+            s.setStrength(Math.sin(5 * src.indexOf(s.getSource()) + tar.indexOf(s.getTarget()) + 0.5));
+        }
+        sg.setCompressed(true);
+        for (int i = 0; i < in.size(); i++) {
+            src.get(i).setClamped(true);
+        }
+        in.forceSetActivations(new double[]{0.1, -0.2, 0.3, -0.4, 0.5, -0.6});
+        net.update();
+
+        Network copy = net.copy();
+        List<NeuronGroup> groups = new ArrayList<>(copy.getNeuronGroups());
+        NeuronGroup copiedIn = groups.get(0);
+        NeuronGroup copiedOut = groups.get(1);
+        assertTrue(copiedIn.isDenseMode());
+        assertEquals(in.getId(), copiedIn.getId());
+        assertEquals(in.getLabel(), copiedIn.getLabel());
+        assertArrayEquals(in.getActivations(), copiedIn.getActivations(), 0);
+        assertArrayEquals(out.getActivations(), copiedOut.getActivations(), 0);
+
+        SynapseGroup copiedSg = copy.getSynapseGroups().iterator().next();
+        assertTrue(copiedSg.isCompressed());
+        assertEquals(sg.getId(), copiedSg.getId());
+        assertEquals(sg.size(), copiedSg.size());
+        double[][] expected = sg.getWeightMatrix();
+        double[][] actual = copiedSg.getWeightMatrix();
+        for (int i = 0; i < expected.length; i++) {
+            assertArrayEquals(expected[i], actual[i], 0);
+        }
+
+        // The original is left as it was and both update alike
+        assertTrue(sg.isCompressed());
+        for (int step = 0; step < 5; step++) {
+            net.update();
+            copy.update();
+            assertArrayEquals(out.getActivations(), copiedOut.getActivations(), 0);
+        }
+    }
+
+    @Test
+    public void copySpikingNeuronsTest() {
+        Network net = new Network();
+        Neuron a = addIzhikevichNeuron(net, 10);
+        Neuron b = addIzhikevichNeuron(net, 4);
+        Neuron c = addIzhikevichNeuron(net, 2);
+        net.addSynapse(new Synapse(a, c, 3));
+        net.addSynapse(new Synapse(b, c, -1.5));
+        net.addSynapse(new Synapse(c, a, 0.7));
+        for (int i = 0; i < 40; i++) {
+            net.update();
+        }
+
+        Network copy = net.copy();
+        assertEquals(net.getTime(), copy.getTime(), 0);
+        List<Neuron> originals = net.getFlatNeuronList();
+        List<Neuron> copies = copy.getFlatNeuronList();
+        assertEquals(originals.size(), copies.size());
+        for (int i = 0; i < originals.size(); i++) {
+            Neuron n = originals.get(i);
+            Neuron copied = copies.get(i);
+            assertNotSame(n, copied);
+            assertEquals(n.getId(), copied.getId());
+            assertEquals(n.getActivation(), copied.getActivation(), 0);
+            IzhikevichRule rule = (IzhikevichRule) n.getUpdateRule();
+            IzhikevichRule copiedRule = (IzhikevichRule) copied.getUpdateRule();
+            assertNotSame(rule, copiedRule);
+            assertEquals(rule.getThreshold(), copiedRule.getThreshold(), 0);
+            assertEquals(rule.getRefractoryPeriod(), copiedRule.getRefractoryPeriod(), 0);
+            assertEquals(rule.getiBg(), copiedRule.getiBg(), 0);
+            assertEquals(rule.getLastSpikeTime(), copiedRule.getLastSpikeTime(), 0);
+        }
+        List<Synapse> synapses = new ArrayList<>(net.getSynapseList());
+        List<Synapse> copiedSynapses = new ArrayList<>(copy.getSynapseList());
+        for (int i = 0; i < synapses.size(); i++) {
+            assertEquals(synapses.get(i).getId(), copiedSynapses.get(i).getId());
+            assertEquals(synapses.get(i).getStrength(), copiedSynapses.get(i).getStrength(), 0);
+        }
+
+        // Recovery and spike times are part of the copied state, so the
+        // copy goes on exactly as the original does
+        for (int step = 0; step < 100; step++) {
+            net.update();
+            copy.update();
+            for (int i = 0; i < originals.size(); i++) {
+                assertEquals(originals.get(i).getActivation(), copies.get(i).getActivation(), 0);
+                assertEquals(originals.get(i).isSpike(), copies.get(i).isSpike());
+            }
+        }
+
+        // Ids go on from where the original's left off
+        Neuron added = new Neuron(net);
+        Neuron addedToCopy = new Neuron(copy);
+        net.addNeuron(added);
+        copy.addNeuron(addedToCopy);
+        assertEquals(added.getId(), addedToCopy.getId());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void copyUnsupportedGroupTest() {
+        Network net = new Network();
+        net.addGroup(new WinnerTakeAll(net, 3));
+        net.copy();
+    }
+
+    private static Neuron addIzhikevichNeuron(Network net, double iBg) {
+        IzhikevichRule rule = new IzhikevichRule();
+        rule.setiBg(iBg);
+        rule.setThreshold(12.5);
+        rule.setRefractoryPeriod(2);
+        Neuron neuron = new Neuron(net, rule);
+        net.addNeuron(neuron);
+        return neuron;
+    }
+}
@@ -0,0 +1,107 @@
+package org.simbrain.network.core;
+
+import org.simbrain.network.connections.AllToAll;
+import org.simbrain.network.groups.NeuronGroup;
+import org.simbrain.network.groups.SynapseGroup;
+import org.simbrain.network.neuron_update_rules.LinearRule;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class NetworkTest {
+
+    @Test
+    public void batchedEventsKeepCompressionTest() {
+        Network net = new Network();
+        NeuronGroup in = new NeuronGroup(net, 50);
+        net.addGroup(in);
+        NeuronGroup out = new NeuronGroup(net, 50);
+        net.addGroup(out);
+        SynapseGroup sg = SynapseGroup.createSynapseGroup(in, out, new AllToAll());
+        net.addGroup(sg);
+        sg.setCompressed(true);
+        net.setBatchEvents(true);
+        net.setUpdateFreq(1);
+        List<Network.UpdatedElements> events = new ArrayList<>();
+        net.addPropertyChangeListener(evt -> {
+            if ("elementsUpdated".equals(evt.getPropertyName())) {
+                events.add((Network.UpdatedElements) evt.getNewValue());
+            }
+        });
+
+        net.update();
+        assertTrue(sg.isCompressed());
+        assertEquals(2500, sg.size());
+        assertEquals(1, events.size());
+        assertTrue(events.get(0).getSynapses().isEmpty());
+    }
+
+    @Test
+    public void batchedEventsReportChangedElementsTest() {
+        Network net = new Network();
+        Neuron source = new Neuron(net);
+        Neuron target = new Neuron(net);
+        Neuron idle = new Neuron(net);
+        net.addNeuron(source);
+        net.addNeuron(target);
+        net.addNeuron(idle);
+        source.setClamped(true);
+        source.forceSetActivation(1);
+        Synapse synapse = new Synapse(source, target);
+        synapse.setStrength(0.5);
+        net.addSynapse(synapse);
+        net.setBatchEvents(true);
+        net.setUpdateFreq(1);
+        List<Network.UpdatedElements> events = new ArrayList<>();
+        net.addPropertyChangeListener(evt -> {
+            if ("elementsUpdated".equals(evt.getPropertyName())) {
+                events.add((Network.UpdatedElements) evt.getNewValue());
+            }
+        });
+
+        net.update();
+        assertEquals(1, events.size());
+        assertEquals(1, events.get(0).getNeurons().size());
+        assertSame(target, events.get(0).getNeurons().get(0));
+
+        // Nothing changes on the second update
+        net.update();
+        assertEquals(2, events.size());
+        assertTrue(events.get(1).getNeurons().isEmpty());
+    }
+
+    @Test
+    public void batchedEventsReportDenseNeuronsTest() {
+        Network net = new Network();
+        NeuronGroup ng = new NeuronGroup(net, 3);
+        LinearRule rule = new LinearRule();
+        rule.setBias(1);
+        ng.setNeuronType(rule);
+        net.addGroup(ng);
+        ng.setDenseMode(true);
+        Neuron clamped = ng.getNeuronList().get(2);
+        clamped.setClamped(true);
+        net.setBatchEvents(true);
+        net.setUpdateFreq(1);
+        List<Network.UpdatedElements> events = new ArrayList<>();
+        net.addPropertyChangeListener(evt -> {
+            if ("elementsUpdated".equals(evt.getPropertyName())) {
+                events.add((Network.UpdatedElements) evt.getNewValue());
+            }
+        });
+
+        net.update();
+        assertEquals(1, events.size());
+        List<Neuron> changed = events.get(0).getNeurons();
+        assertEquals(2, changed.size());
+        assertTrue(changed.contains(ng.getNeuronList().get(0)));
+        assertTrue(changed.contains(ng.getNeuronList().get(1)));
+
+        net.update();
+        assertTrue(events.get(1).getNeurons().isEmpty());
+    }
+
+}
@@ -1,7 +1,10 @@
 package org.simbrain.network.core;
 
+import org.simbrain.network.groups.NeuronGroup;
 import org.junit.Test;
 
+import java.util.Arrays;
+
 import static org.junit.Assert.*;
 
 public class NeuronTest {
@@ -15,6 +18,54 @@ public class NeuronTest {
         assert (neuron.getActivation() == 1);
     }
 
+    @Test
+    public void denseStateTest() {
+        Neuron n1 = new Neuron(null);
+        Neuron n2 = new Neuron(null);
+        n2.forceSetActivation(.5);
+        DenseNeuronState state = new DenseNeuronState(Arrays.asList(n1, n2));
+        assertEquals(.5, state.getActivations()[1], 0);
+
+        // Neurons are views on the arrays
+        n1.setBuffer(2);
+        n2.setClamped(true);
+        n2.setBuffer(3);
+        state.commitBuffers();
+        assertEquals(2, n1.getActivation(), 0);
+        assertEquals(.5, n2.getActivation(), 0);
+
+        // Last activations are kept in the arrays too
+        assertArrayEquals(new double[]{0, .5}, state.getLastActivations(), 0);
+        assertEquals(.5, n2.getLastActivation(), 0);
+
+        // Values are copied back on detach
+        state.detach();
+        state.getActivations()[0] = 10;
+        assertEquals(2, n1.getActivation(), 0);
+        assertTrue(n2.isClamped());
+        assertEquals(.5, n2.getLastActivation(), 0);
+        assertNull(n1.getDenseState());
+    }
+
+    @Test
+    public void denseStateSaveTest() {
+        Network net = new Network();
+        NeuronGroup ng = new NeuronGroup(net, 3);
+        net.addGroup(ng);
+        ng.setDenseMode(true);
+        ng.forceSetActivations(new double[]{1, 2, 3});
+        ng.forceSetActivations(new double[]{4, 5, 6});
+        ng.getNeuronList().get(2).setClamped(true);
+
+        Network opened = net.copyFromXml();
+        NeuronGroup openedGroup = opened.getNeuronGroups().iterator().next();
+        assertNotNull(openedGroup.getDenseState());
+        assertArrayEquals(new double[]{4, 5, 6}, openedGroup.getActivations(), 0);
+        assertArrayEquals(new double[]{1, 2, 3}, openedGroup.getDenseState().getLastActivations(), 0);
+        assertTrue(openedGroup.getNeuronList().get(2).isClamped());
+        assertSame(openedGroup.getDenseState(), openedGroup.getNeuronList().get(0).getDenseState());
+    }
+
 
 
 }
\ No newline at end of file
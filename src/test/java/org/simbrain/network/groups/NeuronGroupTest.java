@@ -0,0 +1,63 @@
+package org.simbrain.network.groups;
+
+import org.simbrain.network.core.Network;
+import org.simbrain.network.core.Neuron;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class NeuronGroupTest {
+
+    @Test
+    public void denseAddNeuronTest() {
+        Network net = new Network();
+        NeuronGroup ng = new NeuronGroup(net, 3);
+        net.addGroup(ng);
+        ng.setDenseMode(true);
+        ng.getNeuronList().get(0).forceSetActivation(1);
+
+        // Added neurons join the dense state the next time it is used
+        Neuron added = new Neuron(net);
+        added.forceSetActivation(4);
+        ng.addNeuron(added);
+        assertEquals(4, ng.getDenseState().size());
+        assertSame(ng.getDenseState(), added.getDenseState());
+        assertArrayEquals(new double[] {1, 0, 0, 4}, ng.getActivations(), 0);
+
+        ng.setDenseMode(false);
+        assertNull(added.getDenseState());
+        assertEquals(4, added.getActivation(), 0);
+    }
+
+    @Test
+    public void denseLastActivationTest() {
+        Network net = new Network();
+        NeuronGroup ng = new NeuronGroup(net, 2);
+        net.addGroup(ng);
+        ng.setDenseMode(true);
+        ng.forceSetActivations(new double[] {1, 2});
+        ng.forceSetActivations(new double[] {3, 4});
+        assertEquals(2, ng.getNeuronList().get(1).getLastActivation(), 0);
+    }
+
+    @Test
+    public void denseSetActivationsEventsTest() {
+        Network net = new Network();
+        NeuronGroup ng = new NeuronGroup(net, 2);
+        net.addGroup(ng);
+        ng.setDenseMode(true);
+        int[] events = new int[1];
+        net.addPropertyChangeListener(evt -> {
+            if ("neuronsUpdated".equals(evt.getPropertyName())) {
+                events[0]++;
+            }
+        });
+        ng.setActivations(new double[] {1, 2});
+        assertEquals(1, events[0]);
+        ng.setActivations(new double[] {1, 2});
+        assertEquals(1, events[0]);
+        ng.forceSetActivations(new double[] {1, 3});
+        assertEquals(2, events[0]);
+    }
+
+}
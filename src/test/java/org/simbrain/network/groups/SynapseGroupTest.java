@@ -0,0 +1,168 @@
+package org.simbrain.network.groups;
+
+import org.simbrain.network.connections.AllToAll;
+import org.simbrain.network.core.Network;
+import org.simbrain.network.core.Neuron;
+import org.simbrain.network.core.Synapse;
+import org.simbrain.network.neuron_update_rules.IntegrateAndFireRule;
+import org.simbrain.network.synapse_update_rules.spikeresponders.JumpAndDecay;
+import org.simbrain.util.SimbrainConstants.Polarity;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class SynapseGroupTest {
+
+    @Test
+    public void compressedMatchesUncompressedTest() {
+        SynapseGroup plain = build();
+        SynapseGroup compressed = build();
+        compressed.setCompressed(true);
+        assertTrue(compressed.isCompressed());
+        assertEquals(plain.size(), compressed.size());
+        assertArrayEquals(flatten(plain.getWeightMatrix()), flatten(compressed.getWeightMatrix()), 0);
+
+        for (int step = 0; step < 20; step++) {
+            drive(plain, step);
+            drive(compressed, step);
+            plain.getParentNetwork().update();
+            compressed.getParentNetwork().update();
+            assertArrayEquals(plain.getTargetNeuronGroup().getActivations(), compressed.getTargetNeuronGroup().getActivations(), 1e-12);
+        }
+    }
+
+    @Test
+    public void getAllSynapsesKeepsCompressionTest() {
+        SynapseGroup sg = build();
+        sg.setCompressed(true);
+        int size = sg.size();
+        double[][] weights = sg.getWeightMatrix();
+        List<Neuron> in = sg.getSourceNeuronGroup().getNeuronList();
+        List<Neuron> out = sg.getTargetNeuronGroup().getNeuronList();
+        List<Synapse> synapses = sg.getAllSynapses();
+        assertEquals(size, synapses.size());
+        assertEquals(size, sg.getParentNetwork().getFlatSynapseList().size());
+        Set<String> pairs = new HashSet<>();
+        for (Synapse s : synapses) {
+            int i = in.indexOf(s.getSource());
+            int j = out.indexOf(s.getTarget());
+            assertTrue(pairs.add(i + "," + j));
+            assertEquals(weights[i][j], s.getStrength(), 0);
+            assertSame(sg, s.getParentGroup());
+            assertFalse(s.getTarget().getFanIn().contains(s));
+        }
+        Set<Synapse> excitatory = sg.getExcitatorySynapses();
+        Set<Synapse> inhibitory = sg.getInhibitorySynapses();
+        assertEquals(size, excitatory.size() + inhibitory.size());
+        assertFalse(excitatory.isEmpty());
+        assertFalse(inhibitory.isEmpty());
+        for (Synapse s : excitatory) {
+            assertTrue(s.getStrength() >= 0);
+        }
+        for (Synapse s : inhibitory) {
+            assertTrue(s.getStrength() < 0);
+        }
+        assertTrue(sg.isCompressed());
+        assertEquals(size, sg.size());
+
+        // Setting a strength sets the compressed weight
+        Synapse first = synapses.get(0);
+        first.setStrength(0.75);
+        assertEquals(0.75, sg.getWeightMatrix()[in.indexOf(first.getSource())][out.indexOf(first.getTarget())], 0);
+        assertTrue(sg.isCompressed());
+
+        // Decompressing is explicit
+        sg.setCompressed(false);
+        assertFalse(sg.isCompressed());
+        assertEquals(size, sg.getAllSynapses().size());
+    }
+
+    @Test
+    public void emptyGroupPropertiesTest() {
+        SynapseGroup sg = build();
+        sg.clear();
+        assertTrue(sg.isEmpty());
+        assertEquals(sg.getExcitatoryPrototype().getDelay(), (int) sg.getDelay(Polarity.BOTH));
+        assertFalse(Double.isNaN(sg.getIncrement(Polarity.BOTH)));
+    }
+
+    @Test
+    public void eventDrivenExpandKeepsSettingsTest() {
+        SynapseGroup sg = build();
+        sg.getSourceNeuronGroup().setNeuronType(new IntegrateAndFireRule());
+        for (Synapse s : sg.getAllSynapses()) {
+            JumpAndDecay jad = new JumpAndDecay();
+            jad.setJumpHeight(2);
+            jad.setTimeConstant(7);
+            s.setSpikeResponder(jad);
+            s.setDelay(3);
+            s.setFrozen(true);
+        }
+        sg.setEventDriven(true);
+        sg.setEventDriven(false);
+        assertFalse(sg.isCompressed());
+        for (Synapse s : sg.getAllSynapses()) {
+            assertEquals(3, s.getDelay());
+            assertTrue(s.isFrozen());
+            JumpAndDecay jad = (JumpAndDecay) s.getSpikeResponder();
+            assertEquals(2, jad.getJumpHeight(), 0);
+            assertEquals(7, jad.getTimeConstant(), 0);
+        }
+    }
+
+    @Test
+    public void nonUniformGroupIsNotCompressedTest() {
+        SynapseGroup sg = build();
+        sg.getAllSynapses().get(0).setIncrement(0.25);
+        try {
+            sg.setCompressed(true);
+            fail("Synapses with different settings were compressed");
+        } catch (IllegalStateException e) {
+            assertFalse(sg.isCompressed());
+            assertEquals(24, sg.getAllSynapses().size());
+        }
+    }
+
+    /**
+     * Build a network with a clamped input group fully connected to a
+     * linear group, and return the synapse group.
+     */
+    private static SynapseGroup build() {
+        Network net = new Network();
+        NeuronGroup in = new NeuronGroup(net, 6);
+        net.addGroup(in);
+        for (Neuron n : in.getNeuronList()) {
+            n.setClamped(true);
+        }
+        NeuronGroup out = new NeuronGroup(net, 4);
+        net.addGroup(out);
+        SynapseGroup sg = SynapseGroup.createSynapseGroup(in, out, new AllToAll());
+        net.addGroup(sg);
+        for (Synapse s : sg.getAllSynapses()) {
+            int i = in.getNeuronList().indexOf(s.getSource());
+            int j = out.getNeuronList().indexOf(s.getTarget());
+            s.setStrength(Math.sin(5 * i + j));
+        }
+        return sg;
+    }
+
+    private static void drive(SynapseGroup sg, int step) {
+        NeuronGroup in = sg.getSourceNeuronGroup();
+        for (int i = 0; i < in.size(); i++) {
+            in.getNeuronList().get(i).forceSetActivation(Math.cos(step * 0.5 + i));
+        }
+    }
+
+    private static double[] flatten(double[][] matrix) {
+        double[] flat = new double[matrix.length * matrix[0].length];
+        for (int i = 0; i < matrix.length; i++) {
+            System.arraycopy(matrix[i], 0, flat, i * matrix[0].length, matrix[0].length);
+        }
+        return flat;
+    }
+
+}
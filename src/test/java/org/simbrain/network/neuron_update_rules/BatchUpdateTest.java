@@ -0,0 +1,155 @@
+package org.simbrain.network.neuron_update_rules;
+
+import org.simbrain.network.connections.AllToAll;
+import org.simbrain.network.core.Network;
+import org.simbrain.network.core.Neuron;
+import org.simbrain.network.core.NeuronUpdateRule;
+import org.simbrain.network.core.Synapse;
+import org.simbrain.network.groups.NeuronGroup;
+import org.simbrain.network.groups.SynapseGroup;
+import org.simbrain.network.synapse_update_rules.spikeresponders.JumpAndDecay;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the batch update of each rule gives the same results as
+ * updating the neurons one by one.
+ */
+public class BatchUpdateTest {
+
+    @Test
+    public void linearTest() {
+        compare(new LinearRule());
+    }
+
+    @Test
+    public void sigmoidalTest() {
+        compare(new SigmoidalRule());
+    }
+
+    @Test
+    public void izhikevichTest() {
+        compare(new IzhikevichRule());
+    }
+
+    @Test
+    public void integrateAndFireTest() {
+        compare(new IntegrateAndFireRule());
+    }
+
+    @Test
+    public void adExIFTest() {
+        compare(new AdExIFRule());
+    }
+
+    @Test
+    public void integrateAndFireRefractoryTest() {
+        NeuronGroup serial = buildSpiking(false);
+        NeuronGroup dense = buildSpiking(true);
+        int spikes = 0;
+        for (int step = 0; step < 500; step++) {
+            serial.getParentNetwork().update();
+            dense.getParentNetwork().update();
+            for (int i = 0; i < serial.size(); i++) {
+                Neuron a = serial.getNeuronList().get(i);
+                Neuron b = dense.getNeuronList().get(i);
+                assertEquals("step " + step + ", neuron " + i, a.getActivation(), b.getActivation(), 1e-9);
+                assertEquals(a.isSpike(), b.isSpike());
+                for (int k = 0; k < a.getFanIn().size(); k++) {
+                    assertEquals(a.getFanIn().get(k).getPsr(), b.getFanIn().get(k).getPsr(), 1e-9);
+                }
+                if (a.isSpike()) {
+                    spikes++;
+                }
+            }
+        }
+        // The target neurons must spike, so that refractory periods are
+        // crossed while spikes keep arriving
+        assertTrue(spikes > 10);
+    }
+
+    private static void compare(NeuronUpdateRule rule) {
+        NeuronGroup serial = build(rule, false);
+        NeuronGroup dense = build(rule, true);
+        for (int step = 0; step < 50; step++) {
+            drive(serial, step);
+            drive(dense, step);
+            serial.getParentNetwork().update();
+            dense.getParentNetwork().update();
+            for (int i = 0; i < serial.size(); i++) {
+                Neuron a = serial.getNeuronList().get(i);
+                Neuron b = dense.getNeuronList().get(i);
+                assertEquals("step " + step + ", neuron " + i, a.getActivation(), b.getActivation(), 1e-9);
+                assertEquals(a.isSpike(), b.isSpike());
+            }
+        }
+    }
+
+    /**
+     * Build a network with a clamped input group fully connected to a group
+     * of neurons with the given rule. Returns the second group.
+     */
+    private static NeuronGroup build(NeuronUpdateRule rule, boolean dense) {
+        Network net = new Network();
+        NeuronGroup in = new NeuronGroup(net, 5);
+        net.addGroup(in);
+        for (Neuron n : in.getNeuronList()) {
+            n.setClamped(true);
+        }
+        NeuronGroup out = new NeuronGroup(net, 8);
+        out.setNeuronType(rule.deepCopy());
+        net.addGroup(out);
+        SynapseGroup sg = SynapseGroup.createSynapseGroup(in, out, new AllToAll());
+        net.addGroup(sg);
+        for (int j = 0; j < out.size(); j++) {
+            for (Synapse s : out.getNeuronList().get(j).getFanIn()) {
+                int i = in.getNeuronList().indexOf(s.getSource());
+                s.setStrength(Math.sin(7 * i + j) * 4);
+            }
+        }
+        out.setDenseMode(dense);
+        return out;
+    }
+
+    /**
+     * Build a network with a group of integrate and fire neurons driven to
+     * spike by background currents, fully connected through jump and decay
+     * responders to a second group of integrate and fire neurons with a long
+     * refractory period. Returns the second group.
+     */
+    private static NeuronGroup buildSpiking(boolean dense) {
+        Network net = new Network();
+        NeuronGroup in = new NeuronGroup(net, 5);
+        in.setNeuronType(new IntegrateAndFireRule());
+        for (int i = 0; i < in.size(); i++) {
+            ((IntegrateAndFireRule) in.getNeuronList().get(i).getUpdateRule()).setBackgroundCurrent(40 + 5 * i);
+        }
+        net.addGroup(in);
+        IntegrateAndFireRule rule = new IntegrateAndFireRule();
+        rule.setRefractoryPeriod(5);
+        rule.setBackgroundCurrent(15);
+        NeuronGroup out = new NeuronGroup(net, 8);
+        out.setNeuronType(rule);
+        net.addGroup(out);
+        SynapseGroup sg = SynapseGroup.createSynapseGroup(in, out, new AllToAll());
+        net.addGroup(sg);
+        for (int j = 0; j < out.size(); j++) {
+            for (Synapse s : out.getNeuronList().get(j).getFanIn()) {
+                int i = in.getNeuronList().indexOf(s.getSource());
+                s.setSpikeResponder(new JumpAndDecay());
+                s.setStrength(5 + 2 * Math.sin(7 * i + j));
+            }
+        }
+        out.setDenseMode(dense);
+        return out;
+    }
+
+    private static void drive(NeuronGroup out, int step) {
+        NeuronGroup in = (NeuronGroup) out.getParentNetwork().getGroupList().get(0);
+        for (int i = 0; i < in.size(); i++) {
+            in.getNeuronList().get(i).forceSetActivation(Math.cos(step * 0.3 + i) * 5);
+        }
+    }
+
+}
@@ -0,0 +1,150 @@
+package org.simbrain.network.trainers;
+
+import org.simbrain.network.core.Network;
+import org.simbrain.network.core.Neuron;
+import org.simbrain.network.core.Synapse;
+import org.simbrain.network.neuron_update_rules.SigmoidalRule;
+import org.simbrain.network.neuron_update_rules.interfaces.BiasedUpdateRule;
+import org.simbrain.network.subnetworks.BPTTNetwork;
+import org.junit.Test;
+
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class BPTTTrainerTest {
+
+    private static final double[][] INPUTS = {{0, 0}, {0, 1}, {1, 0}, {1, 1}, {0.5, 0.2}, {0.2, 0.8}};
+
+    private static final double[][] TARGETS = {{0, 1}, {1, 0}, {1, 0}, {0, 1}, {0.3, 0.6}, {0.7, 0.2}};
+
+    private static final double LEARNING_RATE = 0.25;
+
+    @Test
+    public void matchesPerObjectTrainingTest() {
+        BPTTNetwork arrayNet = build();
+        BPTTNetwork objectNet = build();
+        BPTTTrainer trainer = new BPTTTrainer(arrayNet);
+        trainer.setLearningRate(LEARNING_RATE);
+        trainer.setMomentum(0);
+        for (int epoch = 0; epoch < 5; epoch++) {
+            trainer.apply();
+            double error = perObjectEpoch(objectNet);
+            assertEquals(error, trainer.getError(), 1e-12);
+        }
+        assertArrayEquals(parameters(objectNet), parameters(arrayNet), 1e-12);
+    }
+
+    @Test
+    public void iterationsCountRowsTest() {
+        BPTTNetwork net = build();
+        net.setStepsPerSequences(4);
+        BPTTTrainer trainer = new BPTTTrainer(net);
+        trainer.apply();
+        assertEquals(INPUTS.length, trainer.getIteration());
+        trainer.apply();
+        assertEquals(2 * INPUTS.length, trainer.getIteration());
+    }
+
+    /**
+     * Build a network with one step per sequence, so that backprop through
+     * time reduces to training each row on its own.
+     */
+    private static BPTTNetwork build() {
+        BPTTNetwork net = new BPTTNetwork(new Network(), 2, 3, 2, new Point2D.Double());
+        net.setStepsPerSequences(1);
+        net.getTrainingSet().setInputData(INPUTS);
+        net.getTrainingSet().setTargetData(TARGETS);
+        int k = 0;
+        for (Neuron neuron : layers(net)) {
+            ((BiasedUpdateRule) neuron.getUpdateRule()).setBias(0.1 * Math.sin(k));
+            for (Synapse s : neuron.getFanIn()) {
+                s.setStrength(0.5 * Math.cos(3 * k++));
+            }
+        }
+        return net;
+    }
+
+    /**
+     * Train one epoch a row at a time on the network's own neurons and
+     * synapses, as the trainer did before it used arrays.
+     *
+     * @return the mean squared error over the epoch
+     */
+    private static double perObjectEpoch(BPTTNetwork net) {
+        double sse = 0;
+        for (int row = 0; row < INPUTS.length; row++) {
+            net.initNetwork();
+            net.getInputLayer().forceSetActivations(INPUTS[row]);
+            net.getHiddenLayer().update();
+            net.getOutputLayer().update();
+
+            Map<Neuron, Double> errors = new HashMap<>();
+            List<Neuron> outputs = net.getOutputLayer().getNeuronList();
+            for (int i = 0; i < outputs.size(); i++) {
+                Neuron n = outputs.get(i);
+                double error = TARGETS[row][i] - n.getActivation();
+                sse += error * error;
+                errors.put(n, error * derivative(n));
+            }
+            for (Neuron n : net.getHiddenLayer().getNeuronList()) {
+                double sum = 0;
+                for (Synapse s : n.getFanOut().values()) {
+                    sum += errors.get(s.getTarget()) * s.getStrength();
+                }
+                errors.put(n, sum * derivative(n));
+            }
+
+            // Deltas are all computed before any weight is changed
+            Map<Synapse, Double> weightDeltas = new HashMap<>();
+            for (Neuron n : layers(net)) {
+                for (Synapse s : n.getFanIn()) {
+                    weightDeltas.put(s, LEARNING_RATE * errors.get(n) * s.getSource().getActivation());
+                }
+            }
+            for (Map.Entry<Synapse, Double> entry : weightDeltas.entrySet()) {
+                entry.getKey().setStrength(entry.getKey().getStrength() + entry.getValue());
+            }
+            for (Neuron n : layers(net)) {
+                BiasedUpdateRule rule = (BiasedUpdateRule) n.getUpdateRule();
+                rule.setBias(rule.getBias() + LEARNING_RATE * errors.get(n));
+            }
+        }
+        return sse / (INPUTS.length * TARGETS[0].length);
+    }
+
+    /**
+     * @return the derivative of a neuron's activation at its net input,
+     * bias included
+     */
+    private static double derivative(Neuron n) {
+        SigmoidalRule rule = (SigmoidalRule) n.getUpdateRule();
+        return rule.getDerivative(n.getWeightedInputs() + rule.getBias());
+    }
+
+    private static List<Neuron> layers(BPTTNetwork net) {
+        List<Neuron> neurons = new ArrayList<>(net.getHiddenLayer().getNeuronList());
+        neurons.addAll(net.getOutputLayer().getNeuronList());
+        return neurons;
+    }
+
+    private static double[] parameters(BPTTNetwork net) {
+        List<Double> values = new ArrayList<>();
+        for (Neuron n : layers(net)) {
+            values.add(((BiasedUpdateRule) n.getUpdateRule()).getBias());
+            for (Synapse s : n.getFanIn()) {
+                values.add(s.getStrength());
+            }
+        }
+        double[] parameters = new double[values.size()];
+        for (int i = 0; i < parameters.length; i++) {
+            parameters[i] = values.get(i);
+        }
+        return parameters;
+    }
+
+}
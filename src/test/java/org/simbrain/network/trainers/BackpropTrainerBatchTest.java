@@ -0,0 +1,98 @@
+package org.simbrain.network.trainers;
+
+import org.jblas.DoubleMatrix;
+import org.simbrain.network.core.Network;
+import org.simbrain.network.subnetworks.BackpropNetwork;
+import org.simbrain.network.trainers.BackpropTrainer.UpdateMethod;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the block (mini-batch and batch) update methods of the backprop
+ * trainer against the row by row methods.
+ */
+public class BackpropTrainerBatchTest {
+
+    private static final double[][] INPUTS = {{0, 0}, {0, 1}, {1, 0}, {1, 1}, {0.5, 0.2}};
+
+    private static final double[][] TARGETS = {{0}, {1}, {1}, {0}, {0.3}};
+
+    @Test
+    public void miniBatchOfOneMatchesSingleTest() {
+        BackpropNetwork network = build();
+        BackpropTrainer single = trainer(network, UpdateMethod.SINGLE, 1);
+        BackpropTrainer miniBatch = trainer(network, UpdateMethod.MINI_BATCH, 1);
+        miniBatch.setBatchSize(1);
+        for (int i = 0; i < 12; i++) {
+            single.apply();
+            miniBatch.apply();
+            assertEquals(single.getError(), miniBatch.getError(), 1e-12);
+        }
+        assertSameParameters(single, miniBatch);
+    }
+
+    @Test
+    public void shardedBatchMatchesOneThreadTest() {
+        BackpropNetwork network = build();
+        BackpropTrainer serial = trainer(network, UpdateMethod.BATCH, 1);
+        BackpropTrainer sharded = trainer(network, UpdateMethod.BATCH, 3);
+        for (int i = 0; i < 12; i++) {
+            serial.apply();
+            sharded.apply();
+            assertEquals(serial.getError(), sharded.getError(), 1e-12);
+        }
+        assertSameParameters(serial, sharded);
+    }
+
+    @Test
+    public void miniBatchReducesErrorTest() {
+        BackpropNetwork network = build();
+        BackpropTrainer trainer = trainer(network, UpdateMethod.BATCH, 1);
+        trainer.apply();
+        double initial = trainer.getError();
+        trainer.setUpdateMethod(UpdateMethod.MINI_BATCH);
+        trainer.setBatchSize(2);
+        for (int i = 0; i < 2000; i++) {
+            trainer.apply();
+        }
+        trainer.setUpdateMethod(UpdateMethod.BATCH);
+        trainer.apply();
+        assertTrue(trainer.getError() < initial);
+    }
+
+    private static BackpropNetwork build() {
+        BackpropNetwork network = new BackpropNetwork(new Network(), new int[] {2, 3, 1});
+        network.getTrainingSet().setInputData(INPUTS);
+        network.getTrainingSet().setTargetData(TARGETS);
+        return network;
+    }
+
+    /**
+     * Create a trainer. Trainers copy the network's weights when created, so
+     * trainers of the same network start from the same weights.
+     */
+    private static BackpropTrainer trainer(BackpropNetwork network, UpdateMethod method, int numThreads) {
+        BackpropTrainer trainer = new BackpropTrainer(network);
+        trainer.setUpdateMethod(method);
+        trainer.setNumThreads(numThreads);
+        trainer.setLearningRate(0.5);
+        trainer.initData();
+        return trainer;
+    }
+
+    private static void assertSameParameters(BackpropTrainer a, BackpropTrainer b) {
+        assertSameMatrices(a.getWeightMatrices(), b.getWeightMatrices());
+        assertSameMatrices(a.getBiases(), b.getBiases());
+    }
+
+    private static void assertSameMatrices(List<DoubleMatrix> a, List<DoubleMatrix> b) {
+        assertEquals(a.size(), b.size());
+        for (int i = 0; i < a.size(); i++) {
+            assertArrayEquals(a.get(i).data, b.get(i).data, 1e-12);
+        }
+    }
+
+}
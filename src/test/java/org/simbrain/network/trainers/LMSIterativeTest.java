@@ -0,0 +1,123 @@
+package org.simbrain.network.trainers;
+
+import org.simbrain.network.core.Network;
+import org.simbrain.network.core.Neuron;
+import org.simbrain.network.core.Synapse;
+import org.simbrain.network.neuron_update_rules.LinearRule;
+import org.simbrain.network.neuron_update_rules.SigmoidalRule;
+import org.simbrain.network.subnetworks.LMSNetwork;
+import org.junit.Test;
+
+import java.awt.geom.Point2D;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class LMSIterativeTest {
+
+    private static final int NUM_ROWS = 12;
+
+    @Test
+    public void batchConvergesLikeOnlineTest() {
+        LMSNetwork onlineNet = build();
+        LMSNetwork batchNet = build();
+        LMSIterative online = trainer(onlineNet, false, 1);
+        LMSIterative batch = trainer(batchNet, true, 3);
+        for (int epoch = 0; epoch < 3000; epoch++) {
+            online.apply();
+            batch.apply();
+        }
+        assertTrue(online.getError() < 1e-10);
+        assertTrue(batch.getError() < 1e-10);
+        assertEquals(online.getError(), batch.getError(), 1e-10);
+    }
+
+    @Test
+    public void threadsDoNotChangeBatchTest() {
+        LMSNetwork serialNet = build();
+        LMSNetwork threadedNet = build();
+        LMSIterative serial = trainer(serialNet, true, 1);
+        LMSIterative threaded = trainer(threadedNet, true, 3);
+        for (int epoch = 0; epoch < 20; epoch++) {
+            serial.apply();
+            threaded.apply();
+            assertEquals(serial.getError(), threaded.getError(), 1e-12);
+        }
+
+        // Threads alone do not make training batch
+        LMSNetwork onlineNet = build();
+        LMSIterative online = trainer(onlineNet, false, 3);
+        LMSIterative batch = trainer(build(), true, 1);
+        online.apply();
+        batch.apply();
+        assertNotEquals(online.getError(), batch.getError(), 1e-12);
+    }
+
+    @Test
+    public void batchFollowsChangedFanInTest() {
+        LMSNetwork net = build();
+        LMSIterative batch = trainer(net, true, 3);
+        batch.apply();
+        Neuron context = new Neuron(net.getParentNetwork(), new LinearRule());
+        context.forceSetActivation(0.5);
+        Synapse synapse = new Synapse(context, net.getOutputNeurons().get(0));
+        synapse.setStrength(0);
+        batch.apply();
+        assertNotEquals(0, synapse.getStrength(), 0);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void batchRequiresLinearOutputsTest() {
+        LMSNetwork net = build();
+        net.getOutputNeurons().get(0).setUpdateRule(new SigmoidalRule());
+        trainer(net, true, 1).apply();
+    }
+
+    @Test
+    public void threadedTrainsOtherSourcesTest() {
+        LMSNetwork net = build();
+        Neuron context = new Neuron(net.getParentNetwork(), new LinearRule());
+        context.forceSetActivation(0.5);
+        Synapse synapse = new Synapse(context, net.getOutputNeurons().get(0));
+        synapse.setStrength(0);
+        LMSIterative threaded = trainer(net, true, 3);
+        threaded.apply();
+        assertNotEquals(0, synapse.getStrength(), 0);
+    }
+
+    /**
+     * Build a 3-2 network with targets that are a linear function of the
+     * inputs, so the least squares error can be brought to zero.
+     */
+    private static LMSNetwork build() {
+        LMSNetwork net = new LMSNetwork(new Network(), 3, 2, new Point2D.Double());
+        double[][] inputs = new double[NUM_ROWS][3];
+        double[][] targets = new double[NUM_ROWS][2];
+        for (int row = 0; row < NUM_ROWS; row++) {
+            for (int i = 0; i < 3; i++) {
+                inputs[row][i] = 0.5 * Math.sin(3 * row + i);
+            }
+            targets[row][0] = 0.4 * inputs[row][0] - 0.3 * inputs[row][1] + 0.1;
+            targets[row][1] = 0.2 * inputs[row][2] + 0.5 * inputs[row][1] - 0.2;
+        }
+        net.getTrainingSet().setInputData(inputs);
+        net.getTrainingSet().setTargetData(targets);
+        List<Neuron> in = net.getInputNeurons();
+        List<Neuron> out = net.getOutputNeurons();
+        for (Neuron target : out) {
+            for (Synapse s : target.getFanIn()) {
+                s.setStrength(0.1 * Math.cos(5 * in.indexOf(s.getSource()) + out.indexOf(target)));
+            }
+        }
+        return net;
+    }
+
+    private static LMSIterative trainer(LMSNetwork net, boolean batch, int numThreads) {
+        LMSIterative trainer = new LMSIterative(net);
+        trainer.setBatch(batch);
+        trainer.setNumThreads(numThreads);
+        trainer.setLearningRate(0.5);
+        return trainer;
+    }
+
+}
@@ -0,0 +1,125 @@
+package org.simbrain.network.trainers;
+
+import org.simbrain.network.core.Network;
+import org.simbrain.network.subnetworks.LMSNetwork;
+import org.simbrain.network.util.SimnetUtils;
+import org.junit.Test;
+
+import java.awt.geom.Point2D;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class LMSStreamingTest {
+
+    private static final int NUM_INPUTS = 5;
+
+    private static final int NUM_OUTPUTS = 2;
+
+    private static final int NUM_SAMPLES = 40;
+
+    @Test
+    public void solveRecoversLinearMapTest() {
+        double[][] w = new double[NUM_INPUTS][NUM_OUTPUTS];
+        for (int i = 0; i < NUM_INPUTS; i++) {
+            for (int j = 0; j < NUM_OUTPUTS; j++) {
+                w[i][j] = Math.sin(3 * i + j);
+            }
+        }
+        LMSStreaming trainer = new LMSStreaming(build());
+        Random random = new Random(1);
+        for (int n = 0; n < NUM_SAMPLES; n++) {
+            double[] x = new double[NUM_INPUTS];
+            for (int i = 0; i < NUM_INPUTS; i++) {
+                x[i] = random.nextDouble() * 2 - 1;
+            }
+            double[] y = new double[NUM_OUTPUTS];
+            for (int j = 0; j < NUM_OUTPUTS; j++) {
+                for (int i = 0; i < NUM_INPUTS; i++) {
+                    y[j] += x[i] * w[i][j];
+                }
+            }
+            trainer.addSample(x, y);
+        }
+        assertEquals(NUM_SAMPLES, trainer.getNumSamples());
+        double[][] solution = trainer.solve();
+        for (int i = 0; i < NUM_INPUTS; i++) {
+            assertArrayEquals(w[i], solution[i], 1e-9);
+        }
+    }
+
+    @Test
+    public void matchesOfflineRidgeTest() throws Exception {
+        double[][] inputs = randomData(NUM_SAMPLES, NUM_INPUTS, 2);
+        double[][] targets = randomData(NUM_SAMPLES, NUM_OUTPUTS, 3);
+
+        LMSNetwork offlineNet = build();
+        offlineNet.getTrainingSet().setInputData(inputs);
+        offlineNet.getTrainingSet().setTargetData(targets);
+        LMSOffline offline = new LMSOffline(offlineNet);
+        offline.setRidgeRegression(true);
+        offline.setAlpha(0.5);
+        offline.apply();
+
+        LMSNetwork streamingNet = build();
+        LMSStreaming streaming = new LMSStreaming(streamingNet);
+        streaming.setAlpha(0.5);
+        for (int n = 0; n < NUM_SAMPLES; n++) {
+            streaming.addSample(inputs[n], targets[n]);
+        }
+        streaming.apply();
+
+        double[][] expected = weights(offlineNet);
+        double[][] actual = weights(streamingNet);
+        for (int i = 0; i < NUM_INPUTS; i++) {
+            assertArrayEquals(expected[i], actual[i], 1e-9);
+        }
+    }
+
+    @Test
+    public void recursiveMatchesSolveTest() throws Exception {
+        double[][] inputs = randomData(NUM_SAMPLES, NUM_INPUTS, 4);
+        double[][] targets = randomData(NUM_SAMPLES, NUM_OUTPUTS, 5);
+        LMSNetwork net = build();
+        LMSStreaming trainer = new LMSStreaming(net);
+        trainer.setAlpha(0.5);
+        trainer.setRecursive(true);
+        for (int n = 0; n < NUM_SAMPLES; n++) {
+            trainer.addSample(inputs[n], targets[n]);
+        }
+        trainer.apply();
+
+        // With no forgetting, recursive least squares started from the
+        // inverse ridge term is exactly ridge regression
+        double[][] expected = trainer.solve();
+        double[][] actual = weights(net);
+        for (int i = 0; i < NUM_INPUTS; i++) {
+            assertArrayEquals(expected[i], actual[i], 1e-9);
+        }
+    }
+
+    @Test(expected = Trainer.DataNotInitializedException.class)
+    public void noSamplesTest() throws Exception {
+        new LMSStreaming(build()).apply();
+    }
+
+    private static LMSNetwork build() {
+        return new LMSNetwork(new Network(), NUM_INPUTS, NUM_OUTPUTS, new Point2D.Double());
+    }
+
+    private static double[][] weights(LMSNetwork net) {
+        return SimnetUtils.getWeights(net.getInputNeurons(), net.getOutputNeurons());
+    }
+
+    private static double[][] randomData(int rows, int columns, long seed) {
+        Random random = new Random(seed);
+        double[][] data = new double[rows][columns];
+        for (double[] row : data) {
+            for (int i = 0; i < columns; i++) {
+                row[i] = random.nextDouble() * 2 - 1;
+            }
+        }
+        return data;
+    }
+
+}
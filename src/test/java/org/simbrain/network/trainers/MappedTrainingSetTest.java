@@ -0,0 +1,146 @@
+package org.simbrain.network.trainers;
+
+import org.simbrain.network.core.Network;
+import org.simbrain.network.core.Synapse;
+import org.simbrain.network.subnetworks.BackpropNetwork;
+import org.simbrain.network.subnetworks.LMSNetwork;
+import org.simbrain.network.trainers.BackpropTrainer.UpdateMethod;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.awt.geom.Point2D;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class MappedTrainingSetTest {
+
+    private static final double[][] INPUTS = {{0, 0}, {0, 1}, {1, 0}, {1, 1}, {0.5, 0.2}};
+
+    private static final double[][] TARGETS = {{0}, {1}, {1}, {0}, {0.3}};
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void importCsvTest() throws IOException {
+        try (MappedTrainingSet data = importData()) {
+            assertEquals(INPUTS.length, data.getSize());
+            assertEquals(2, data.getNumInputs());
+            assertEquals(1, data.getNumTargets());
+            for (int row = 0; row < INPUTS.length; row++) {
+                assertArrayEquals(INPUTS[row], data.getInput(row), 0);
+                assertArrayEquals(TARGETS[row], data.getTarget(row), 0);
+            }
+        }
+    }
+
+    @Test
+    public void trainsLikeHeapDataTest() throws IOException {
+        for (UpdateMethod method : new UpdateMethod[]{UpdateMethod.SINGLE, UpdateMethod.BATCH}) {
+            BackpropNetwork network = new BackpropNetwork(new Network(), new int[]{2, 3, 1});
+            network.getTrainingSet().setInputData(INPUTS);
+            network.getTrainingSet().setTargetData(TARGETS);
+            BackpropTrainer heap = trainer(network, method);
+            try (MappedTrainingSet data = importData()) {
+                network.setTrainingSet(data);
+                BackpropTrainer mapped = trainer(network, method);
+                for (int i = 0; i < 10; i++) {
+                    heap.apply();
+                    mapped.apply();
+                    assertEquals(method.toString(), heap.getError(), mapped.getError(), 1e-12);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void lmsTrainsLikeHeapDataTest() throws Exception {
+        for (boolean batch : new boolean[]{false, true}) {
+            LMSNetwork heapNet = lmsNetwork();
+            LMSNetwork mappedNet = lmsNetwork();
+            LMSIterative heap = new LMSIterative(heapNet);
+            LMSIterative mapped = new LMSIterative(mappedNet);
+            heap.setBatch(batch);
+            mapped.setBatch(batch);
+            heap.setNumThreads(3);
+            mapped.setNumThreads(3);
+            try (MappedTrainingSet data = importData()) {
+                mappedNet.setTrainingSet(data);
+                for (int i = 0; i < 10; i++) {
+                    heap.apply();
+                    mapped.apply();
+                    assertEquals(heap.getError(), mapped.getError(), 1e-12);
+                }
+                assertArrayEquals(weights(heapNet), weights(mappedNet), 1e-12);
+
+                LMSNetwork offlineHeapNet = lmsNetwork();
+                LMSNetwork offlineMappedNet = lmsNetwork();
+                offlineMappedNet.setTrainingSet(data);
+                new LMSOffline(offlineHeapNet).apply();
+                new LMSOffline(offlineMappedNet).apply();
+                assertArrayEquals(weights(offlineHeapNet), weights(offlineMappedNet), 1e-12);
+            }
+        }
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void emptyDataTest() throws IOException {
+        File empty = folder.newFile("empty.csv");
+        try (MappedTrainingSet data = MappedTrainingSet.importCsv(empty, null, folder.newFile("empty.sbts"), false)) {
+            assertEquals(0, data.getSize());
+            data.readRows(0, 1, new double[0], null);
+        }
+    }
+
+    private MappedTrainingSet importData() throws IOException {
+        File data = folder.newFile();
+        return MappedTrainingSet.importCsv(writeCsv(INPUTS), writeCsv(TARGETS), data, false);
+    }
+
+    private File writeCsv(double[][] rows) throws IOException {
+        File csv = folder.newFile();
+        try (PrintWriter out = new PrintWriter(csv)) {
+            for (double[] row : rows) {
+                StringBuilder line = new StringBuilder();
+                for (int i = 0; i < row.length; i++) {
+                    line.append(i > 0 ? "," : "").append(row[i]);
+                }
+                out.println(line);
+            }
+        }
+        return csv;
+    }
+
+    private static LMSNetwork lmsNetwork() {
+        LMSNetwork network = new LMSNetwork(new Network(), 2, 1, new Point2D.Double());
+        network.getTrainingSet().setInputData(INPUTS);
+        network.getTrainingSet().setTargetData(TARGETS);
+        for (Synapse s : network.getOutputNeurons().get(0).getFanIn()) {
+            s.setStrength(0.1);
+        }
+        return network;
+    }
+
+    private static double[] weights(LMSNetwork network) {
+        List<Synapse> fanIn = network.getOutputNeurons().get(0).getFanIn();
+        double[] weights = new double[fanIn.size()];
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] = fanIn.get(i).getStrength();
+        }
+        return weights;
+    }
+
+    private static BackpropTrainer trainer(BackpropNetwork network, UpdateMethod method) {
+        BackpropTrainer trainer = new BackpropTrainer(network);
+        trainer.setUpdateMethod(method);
+        trainer.setLearningRate(0.5);
+        trainer.initData();
+        return trainer;
+    }
+
+}
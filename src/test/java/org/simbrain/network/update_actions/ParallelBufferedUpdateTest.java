@@ -0,0 +1,168 @@
+package org.simbrain.network.update_actions;
+
+import org.simbrain.network.connections.AllToAll;
+import org.simbrain.network.core.Network;
+import org.simbrain.network.core.NetworkUpdateAction;
+import org.simbrain.network.core.Neuron;
+import org.simbrain.network.core.Synapse;
+import org.simbrain.network.groups.NeuronGroup;
+import org.simbrain.network.groups.SynapseGroup;
+import org.simbrain.network.neuron_update_rules.SigmoidalRule;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ParallelBufferedUpdateTest {
+
+    @Test
+    public void matchesSingleThreadTest() {
+        Network serial = build();
+        Network parallel = build();
+        useOnly(serial, new ParallelBufferedUpdate(serial, 1));
+        ParallelBufferedUpdate action = new ParallelBufferedUpdate(parallel, 3);
+        useOnly(parallel, action);
+        try {
+            for (int step = 0; step < 20; step++) {
+                serial.update();
+                parallel.update();
+                assertArrayEquals("step " + step, activations(serial), activations(parallel), 1e-12);
+            }
+        } finally {
+            action.shutdown();
+        }
+    }
+
+    @Test
+    public void denseGroupsMatchSingleThreadTest() {
+        Network serial = build();
+        Network parallel = build();
+        for (NeuronGroup ng : parallel.getNeuronGroups()) {
+            ng.setDenseMode(true);
+        }
+        useOnly(serial, new ParallelBufferedUpdate(serial, 1));
+        ParallelBufferedUpdate action = new ParallelBufferedUpdate(parallel, 3);
+        useOnly(parallel, action);
+        try {
+            for (int step = 0; step < 20; step++) {
+                serial.update();
+                parallel.update();
+                assertArrayEquals("step " + step, activations(serial), activations(parallel), 1e-12);
+            }
+        } finally {
+            action.shutdown();
+        }
+    }
+
+    @Test
+    public void followsGroupMembershipTest() {
+        Network net = build();
+        ParallelBufferedUpdate action = new ParallelBufferedUpdate(net, 3);
+        useOnly(net, action);
+        NeuronGroup group = net.getNeuronGroups().iterator().next();
+        try {
+            net.update();
+            Neuron removed = group.getNeuronList().get(5);
+            group.removeNeuron(removed);
+            double activation = removed.getActivation();
+            double[] before = group.getActivations();
+            net.update();
+            assertEquals(activation, removed.getActivation(), 0);
+            assertFalse(Arrays.equals(before, group.getActivations()));
+        } finally {
+            action.shutdown();
+        }
+    }
+
+    @Test
+    public void eventsFromCallingThreadTest() {
+        Network net = build();
+        ParallelBufferedUpdate action = new ParallelBufferedUpdate(net, 3);
+        useOnly(net, action);
+        List<Thread> threads = new ArrayList<>();
+        for (Neuron neuron : net.getFlatNeuronList()) {
+            neuron.addPropertyChangeListener(evt -> {
+                synchronized (threads) {
+                    threads.add(Thread.currentThread());
+                }
+            });
+        }
+        try {
+            net.update();
+        } finally {
+            action.shutdown();
+        }
+        assertFalse(threads.isEmpty());
+        for (Thread thread : threads) {
+            assertSame(Thread.currentThread(), thread);
+        }
+    }
+
+    @Test
+    public void workersStopWhenRemovedTest() {
+        Network net = build();
+        ParallelBufferedUpdate action = new ParallelBufferedUpdate(net, 3);
+        assertEquals(0, countWorkers());
+        useOnly(net, action);
+        net.update();
+        assertEquals(2, countWorkers());
+        net.getUpdateManager().removeAction(action);
+        assertEquals(0, countWorkers());
+
+        // Restarted if used again
+        net.getUpdateManager().addAction(action);
+        net.update();
+        assertEquals(2, countWorkers());
+        net.getUpdateManager().shutdownActions();
+        assertEquals(0, countWorkers());
+    }
+
+    /**
+     * Build a network of two recurrently connected sigmoidal groups, large
+     * enough to span several partitions.
+     */
+    private static Network build() {
+        Network net = new Network();
+        NeuronGroup a = new NeuronGroup(net, 40);
+        a.setNeuronType(new SigmoidalRule());
+        net.addGroup(a);
+        NeuronGroup b = new NeuronGroup(net, 30);
+        b.setNeuronType(new SigmoidalRule());
+        net.addGroup(b);
+        net.addGroup(SynapseGroup.createSynapseGroup(a, b, new AllToAll()));
+        net.addGroup(SynapseGroup.createSynapseGroup(b, a, new AllToAll()));
+        List<Neuron> neurons = net.getFlatNeuronList();
+        for (Synapse s : net.getFlatSynapseList()) {
+            s.setStrength(Math.sin(7 * neurons.indexOf(s.getSource()) + neurons.indexOf(s.getTarget())));
+        }
+        for (int i = 0; i < neurons.size(); i++) {
+            neurons.get(i).forceSetActivation(Math.cos(i));
+        }
+        return net;
+    }
+
+    private static void useOnly(Network net, NetworkUpdateAction action) {
+        for (NetworkUpdateAction old : new ArrayList<>(net.getUpdateManager().getActionList())) {
+            net.getUpdateManager().removeAction(old);
+        }
+        net.getUpdateManager().addAction(action);
+    }
+
+    private static double[] activations(Network net) {
+        return net.getFlatNeuronList().stream().mapToDouble(Neuron::getActivation).toArray();
+    }
+
+    private static int countWorkers() {
+        int count = 0;
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().startsWith("ParallelBufferedUpdate-") && thread.isAlive()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+}
@@ -0,0 +1,85 @@
+package org.simbrain.network.update_actions;
+
+import org.simbrain.network.connections.AllToAll;
+import org.simbrain.network.core.Network;
+import org.simbrain.network.core.NetworkUpdateAction;
+import org.simbrain.network.core.Synapse;
+import org.simbrain.network.groups.NeuronGroup;
+import org.simbrain.network.groups.SynapseGroup;
+import org.simbrain.network.neuron_update_rules.IntegrateAndFireRule;
+import org.simbrain.network.synapse_update_rules.spikeresponders.JumpAndDecay;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class SpikePropagationUpdateTest {
+
+    @Test
+    public void removedWhenNoGroupsRemainTest() {
+        Network net = new Network();
+        SynapseGroup first = addEventDrivenGroup(net);
+        net.update();
+        SynapseGroup second = addEventDrivenGroup(net);
+        net.update();
+        assertTrue(hasAction(net));
+
+        first.setEventDriven(false);
+        net.update();
+        assertTrue(hasAction(net));
+
+        net.removeGroup(second);
+        assertFalse(hasAction(net));
+        net.update();
+    }
+
+    @Test
+    public void followsGroupsAddedAfterFirstUpdateTest() {
+        Network net = new Network();
+        SynapseGroup first = addEventDrivenGroup(net);
+        net.update();
+        SynapseGroup second = addEventDrivenGroup(net);
+        NeuronGroup target = second.getTargetNeuronGroup();
+        first.setEventDriven(false);
+        double[] before = target.getActivations();
+        for (int step = 0; step < 10; step++) {
+            net.update();
+        }
+        assertTrue(hasAction(net));
+        assertFalse(Arrays.equals(before, target.getActivations()));
+    }
+
+    /**
+     * Add a group of strongly driven integrate and fire neurons, fully
+     * connected to a linear group by an event-driven synapse group.
+     */
+    private static SynapseGroup addEventDrivenGroup(Network net) {
+        NeuronGroup in = new NeuronGroup(net, 5);
+        in.setNeuronType(new IntegrateAndFireRule());
+        net.addGroup(in);
+        NeuronGroup out = new NeuronGroup(net, 3);
+        net.addGroup(out);
+        for (int i = 0; i < in.size(); i++) {
+            ((IntegrateAndFireRule) in.getNeuronList().get(i).getUpdateRule()).setBackgroundCurrent(20 + i);
+        }
+        SynapseGroup sg = SynapseGroup.createSynapseGroup(in, out, new AllToAll());
+        net.addGroup(sg);
+        for (Synapse s : sg.getAllSynapses()) {
+            s.setSpikeResponder(new JumpAndDecay());
+            s.setFrozen(true);
+        }
+        sg.setEventDriven(true);
+        return sg;
+    }
+
+    private static boolean hasAction(Network net) {
+        for (NetworkUpdateAction action : net.getUpdateManager().getActionList()) {
+            if (action instanceof SpikePropagationUpdate) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
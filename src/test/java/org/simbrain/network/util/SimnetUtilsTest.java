@@ -0,0 +1,78 @@
+package org.simbrain.network.util;
+
+import Jama.EigenvalueDecomposition;
+import Jama.Matrix;
+import org.simbrain.network.core.SparseWeightMatrix;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class SimnetUtilsTest {
+
+    @Test
+    public void spectralRadiusOfRotationTest() {
+        // Cyclic shift scaled by 2: eigenvalues are 2 times the n-th roots
+        // of unity, mostly complex
+        int n = 7;
+        int[] rowPtr = new int[n + 1];
+        int[] colIdx = new int[n];
+        double[] weights = new double[n];
+        for (int i = 0; i < n; i++) {
+            rowPtr[i + 1] = i + 1;
+            colIdx[i] = (i + 1) % n;
+            weights[i] = 2;
+        }
+        assertEquals(2, SimnetUtils.findSpectralRadius(new SparseWeightMatrix(n, n, rowPtr, colIdx, weights)), 1e-9);
+    }
+
+    @Test
+    public void spectralRadiusOfRandomReservoirTest() {
+        // The largest eigenvalues, 5.2207 and 5.1844, are close enough
+        // together for a single vector restart to settle on the smaller one
+        double[][] dense = new double[800][800];
+        SparseWeightMatrix sparse = randomMatrix(dense, 0.1, 1);
+        double expected = denseSpectralRadius(dense);
+        assertEquals(expected, SimnetUtils.findSpectralRadius(sparse), 1e-5 * expected);
+    }
+
+    /**
+     * Fill a dense matrix with uniform random weights in [-1, 1] at a given
+     * density and return the same weights as a sparse matrix.
+     */
+    private static SparseWeightMatrix randomMatrix(double[][] dense, double density, long seed) {
+        int n = dense.length;
+        Random random = new Random(seed);
+        int[] rowPtr = new int[n + 1];
+        int[] colIdx = new int[n * n];
+        double[] weights = new double[n * n];
+        int count = 0;
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                if (random.nextDouble() < density) {
+                    dense[i][j] = random.nextDouble() * 2 - 1;
+                    colIdx[count] = j;
+                    weights[count] = dense[i][j];
+                    count++;
+                }
+            }
+            rowPtr[i + 1] = count;
+        }
+        int[] cols = new int[count];
+        double[] vals = new double[count];
+        System.arraycopy(colIdx, 0, cols, 0, count);
+        System.arraycopy(weights, 0, vals, 0, count);
+        return new SparseWeightMatrix(n, n, rowPtr, cols, vals);
+    }
+
+    private static double denseSpectralRadius(double[][] dense) {
+        EigenvalueDecomposition eig = new Matrix(dense).eig();
+        double max = 0;
+        for (int i = 0; i < dense.length; i++) {
+            max = Math.max(max, Math.hypot(eig.getRealEigenvalues()[i], eig.getImagEigenvalues()[i]));
+        }
+        return max;
+    }
+
+}
@@ -0,0 +1,162 @@
+package org.simbrain.network.util.io_utilities;
+
+import org.simbrain.network.connections.AllToAll;
+import org.simbrain.network.core.Network;
+import org.simbrain.network.core.Neuron;
+import org.simbrain.network.core.Synapse;
+import org.simbrain.network.groups.NeuronGroup;
+import org.simbrain.network.groups.SynapseGroup;
+import org.simbrain.network.neuron_update_rules.IzhikevichRule;
+import org.simbrain.network.neuron_update_rules.LinearRule;
+import org.simbrain.network.neuron_update_rules.SigmoidalRule;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class NetworkBinarySerializerTest {
+
+    @Test
+    public void roundTripTest() throws IOException {
+        Network network = build();
+        Network copy = NetworkBinaryDeserializer.open(new ByteArrayInputStream(save(network)));
+
+        assertEquals(network.getFlatNeuronList().size(), copy.getFlatNeuronList().size());
+        List<NeuronGroup> neuronGroups = new ArrayList<>(network.getNeuronGroups());
+        List<NeuronGroup> copiedNeuronGroups = new ArrayList<>(copy.getNeuronGroups());
+        assertEquals(neuronGroups.size(), copiedNeuronGroups.size());
+        for (int g = 0; g < neuronGroups.size(); g++) {
+            List<Neuron> expected = neuronGroups.get(g).getNeuronList();
+            List<Neuron> actual = copiedNeuronGroups.get(g).getNeuronList();
+            assertEquals(expected.size(), actual.size());
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.get(i).getActivation(), actual.get(i).getActivation(), 0);
+                assertEquals(expected.get(i).getUpdateRule().getClass(), actual.get(i).getUpdateRule().getClass());
+                assertSame(copiedNeuronGroups.get(g), actual.get(i).getParentGroup());
+            }
+        }
+
+        List<SynapseGroup> synapseGroups = new ArrayList<>(network.getSynapseGroups());
+        List<SynapseGroup> copiedSynapseGroups = new ArrayList<>(copy.getSynapseGroups());
+        assertEquals(synapseGroups.size(), copiedSynapseGroups.size());
+        for (int g = 0; g < synapseGroups.size(); g++) {
+            assertEquals(synapseGroups.get(g).size(), copiedSynapseGroups.get(g).size());
+            double[][] expected = synapseGroups.get(g).getWeightMatrix();
+            double[][] actual = copiedSynapseGroups.get(g).getWeightMatrix();
+            for (int i = 0; i < expected.length; i++) {
+                assertArrayEquals(expected[i], actual[i], 0);
+            }
+        }
+
+        Neuron loose = copy.getNeuronList().get(0);
+        assertEquals(2, ((LinearRule) loose.getUpdateRule()).getSlope(), 0);
+        assertEquals(0.75, loose.getFanOut().values().iterator().next().getStrength(), 0);
+    }
+
+    @Test
+    public void ruleStateRoundTripTest() throws IOException {
+        Network network = new Network();
+        NeuronGroup group = new NeuronGroup(network, 4);
+        IzhikevichRule rule = new IzhikevichRule();
+        rule.setiBg(10);
+        rule.setThreshold(12.5);
+        rule.setRefractoryPeriod(2);
+        group.setNeuronType(rule);
+        network.addGroup(group);
+        for (int i = 0; i < 40; i++) {
+            network.update();
+        }
+        Network copy = NetworkBinaryDeserializer.open(new ByteArrayInputStream(save(network)));
+
+        // The neurons have equal rules, written once, but each gets its own
+        List<Neuron> expected = group.getNeuronList();
+        List<Neuron> actual = copy.getNeuronGroups().iterator().next().getNeuronList();
+        for (int i = 0; i < expected.size(); i++) {
+            IzhikevichRule copiedRule = (IzhikevichRule) actual.get(i).getUpdateRule();
+            assertEquals(12.5, copiedRule.getThreshold(), 0);
+            assertEquals(2, copiedRule.getRefractoryPeriod(), 0);
+            assertEquals(((IzhikevichRule) expected.get(i).getUpdateRule()).getLastSpikeTime(), copiedRule.getLastSpikeTime(), 0);
+            for (int j = 0; j < i; j++) {
+                assertNotSame(actual.get(j).getUpdateRule(), copiedRule);
+            }
+        }
+
+        // Recovery is restored too, so both go on alike
+        for (int step = 0; step < 100; step++) {
+            network.update();
+            copy.update();
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.get(i).getActivation(), actual.get(i).getActivation(), 0);
+            }
+        }
+    }
+
+    @Test
+    public void equalRulesAreWrittenOnceTest() throws IOException {
+        // Ten identical linear rules, five identical sigmoidal rules and one
+        // linear rule with a different slope
+        ByteBuffer header = ByteBuffer.wrap(save(build())).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(NetworkBinarySerializer.MAGIC, header.getInt(0));
+        assertEquals(3, header.getInt(12));
+    }
+
+    /**
+     * Build a network with a compressed synapse group, a group with
+     * individual synapse settings, and a loose neuron and synapse.
+     */
+    private static Network build() {
+        Network net = new Network();
+        NeuronGroup in = new NeuronGroup(net, 10);
+        net.addGroup(in);
+        NeuronGroup out = new NeuronGroup(net, 5);
+        out.setNeuronType(new SigmoidalRule());
+        net.addGroup(out);
+        for (int i = 0; i < in.size(); i++) {
+            in.getNeuronList().get(i).forceSetActivation(Math.sin(i));
+        }
+        for (int i = 0; i < out.size(); i++) {
+            out.getNeuronList().get(i).forceSetActivation(Math.cos(i));
+        }
+
+        SynapseGroup compressed = SynapseGroup.createSynapseGroup(in, out, new AllToAll());
+        net.addGroup(compressed);
+        setWeights(compressed, 3);
+        compressed.setCompressed(true);
+
+        SynapseGroup individual = SynapseGroup.createSynapseGroup(out, in, new AllToAll());
+        net.addGroup(individual);
+        setWeights(individual, 7);
+        individual.getAllSynapses().get(0).setIncrement(0.25);
+
+        LinearRule rule = new LinearRule();
+        rule.setSlope(2);
+        Neuron loose = new Neuron(net, rule);
+        net.addNeuron(loose);
+        Synapse synapse = new Synapse(loose, in.getNeuronList().get(0));
+        synapse.setStrength(0.75);
+        net.addSynapse(synapse);
+        return net;
+    }
+
+    private static void setWeights(SynapseGroup sg, int scale) {
+        List<Neuron> src = sg.getSourceNeurons();
+        List<Neuron> tar = sg.getTargetNeurons();
+        for (Synapse s : sg.getAllSynapses()) {
+            s.setStrength(Math.sin(scale * src.indexOf(s.getSource()) + tar.indexOf(s.getTarget())));
+        }
+    }
+
+    private static byte[] save(Network network) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        NetworkBinarySerializer.save(network, output);
+        return output.toByteArray();
+    }
+
+}
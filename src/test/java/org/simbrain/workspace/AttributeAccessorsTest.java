@@ -0,0 +1,44 @@
+package org.simbrain.workspace;
+
+import org.junit.Test;
+
+import java.lang.reflect.Method;
+import java.util.function.ObjDoubleConsumer;
+import java.util.function.ToDoubleFunction;
+
+import static org.junit.Assert.*;
+
+public class AttributeAccessorsTest {
+
+    public static class Value {
+
+        private double value;
+
+        public double getValue() {
+            return value;
+        }
+
+        public void setValue(double value) {
+            this.value = value;
+        }
+    }
+
+    @Test
+    public void accessorsAreSharedTest() throws Exception {
+        Method get = Value.class.getMethod("getValue");
+        Method set = Value.class.getMethod("setValue", double.class);
+        ToDoubleFunction<Object> getter = AttributeAccessors.doubleGetter(get);
+        ObjDoubleConsumer<Object> setter = AttributeAccessors.doubleSetter(set);
+        assertSame(getter, AttributeAccessors.doubleGetter(Value.class.getMethod("getValue")));
+        assertSame(setter, AttributeAccessors.doubleSetter(set));
+        assertSame(AttributeAccessors.getter(get), AttributeAccessors.getter(get));
+        assertSame(AttributeAccessors.setter(set), AttributeAccessors.setter(set));
+
+        Value v = new Value();
+        setter.accept(v, 2.5);
+        assertEquals(2.5, getter.applyAsDouble(v), 0);
+        AttributeAccessors.setter(set).accept(v, 4.0);
+        assertEquals(4.0, AttributeAccessors.getter(get).apply(v));
+    }
+
+}
@@ -0,0 +1,33 @@
+package org.simbrain.workspace.serialization;
+
+import org.simbrain.network.NetworkComponent;
+import org.simbrain.network.core.Network;
+import org.simbrain.network.groups.NeuronGroup;
+import org.simbrain.workspace.Workspace;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+import static org.junit.Assert.*;
+
+public class WorkspaceSerializerTest {
+
+    @Test
+    public void headlessRoundTripTest() throws Exception {
+        Workspace workspace = new Workspace();
+        Network network = new Network();
+        network.addGroup(new NeuronGroup(network, 3));
+        workspace.addWorkspaceComponent(new NetworkComponent("net", network));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new WorkspaceSerializer(workspace, null).serialize(out);
+
+        Workspace copy = new Workspace();
+        new WorkspaceSerializer(copy, null).deserialize(new ByteArrayInputStream(out.toByteArray()));
+        assertEquals(1, copy.getComponentList().size());
+        Network copied = ((NetworkComponent) copy.getComponentList().get(0)).getNetwork();
+        assertEquals(3, copied.getFlatNeuronList().size());
+    }
+
+}
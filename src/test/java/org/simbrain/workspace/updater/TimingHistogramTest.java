@@ -0,0 +1,80 @@
+package org.simbrain.workspace.updater;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TimingHistogramTest {
+
+    private static final long MS = 1_000_000;
+
+    @Test
+    public void binCountsTest() {
+        TimingHistogram h = millis(10, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10);
+        // Bins are a fifth of the longest sample wide, and the longest
+        // sample goes in the last bin
+        assertArrayEquals(new int[]{1, 2, 2, 2, 3}, h.getBinCounts(5));
+        assertArrayEquals(new int[]{10}, h.getBinCounts(1));
+        assertArrayEquals(new int[]{3, 0}, millis(10, 0, 0, 0).getBinCounts(2));
+        assertArrayEquals(new int[]{0, 0, 0}, new TimingHistogram().getBinCounts(3));
+    }
+
+    @Test
+    public void percentilesTest() {
+        TimingHistogram h = millis(10, 7, 3, 10, 1, 9, 2, 8, 4, 6, 5);
+        assertEquals(1, h.getPercentileMs(0), 0);
+        assertEquals(1, h.getPercentileMs(10), 0);
+        assertEquals(5, h.getPercentileMs(50), 0);
+        assertEquals(9, h.getPercentileMs(90), 0);
+        assertEquals(10, h.getPercentileMs(99), 0);
+        assertEquals(10, h.getPercentileMs(100), 0);
+        assertEquals(0, new TimingHistogram().getPercentileMs(50), 0);
+    }
+
+    @Test
+    public void windowKeepsRecentSamplesTest() {
+        TimingHistogram h = millis(3, 1, 2, 3, 4, 5);
+        assertArrayEquals(new long[]{3 * MS, 4 * MS, 5 * MS}, h.getRecentSamples());
+        assertEquals(4, h.getRecentMeanMs(), 1e-12);
+        assertEquals(3, h.getPercentileMs(0), 0);
+
+        // Totals cover every sample, not just the recent ones
+        assertEquals(5, h.getCount());
+        assertEquals(15, h.getTotalMs(), 1e-12);
+        assertEquals(3, h.getMeanMs(), 1e-12);
+        assertEquals(5, h.getMaxMs(), 0);
+    }
+
+    @Test
+    public void clearTest() {
+        TimingHistogram h = millis(3, 1, 2, 3, 4);
+        h.clear();
+        assertEquals(0, h.getCount());
+        assertEquals(0, h.getTotalMs(), 0);
+        assertEquals(0, h.getMeanMs(), 0);
+        assertEquals(0, h.getMaxMs(), 0);
+        assertEquals(0, h.getRecentMeanMs(), 0);
+        assertEquals(0, h.getRecentSamples().length);
+        assertEquals(0, h.getPercentileMs(50), 0);
+
+        // Samples from before the clear do not come back
+        h.record(6 * MS);
+        assertArrayEquals(new long[]{6 * MS}, h.getRecentSamples());
+        assertEquals(6, h.getMaxMs(), 0);
+        assertEquals(1, h.getCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void emptyWindowTest() {
+        new TimingHistogram(0);
+    }
+
+    private static TimingHistogram millis(int windowSize, long... samples) {
+        TimingHistogram h = new TimingHistogram(windowSize);
+        for (long s : samples) {
+            h.record(s * MS);
+        }
+        return h;
+    }
+
+}
@@ -0,0 +1,155 @@
+package org.simbrain.workspace.updater;
+
+import org.simbrain.network.core.Network;
+import org.simbrain.network.core.NetworkUpdateAction;
+import org.simbrain.network.core.NetworkUpdateManager;
+import org.simbrain.workspace.updater.UpdateMetrics.Category;
+import org.junit.Test;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class UpdateMetricsTest {
+
+    @Test
+    public void recordByCategoryTest() {
+        UpdateMetrics metrics = new UpdateMetrics();
+        metrics.record(Category.COMPONENT, "b", 2_000_000);
+        metrics.record(Category.COMPONENT, "a", 1_000_000);
+        metrics.record(Category.COMPONENT, "a", 3_000_000);
+        metrics.record(Category.COUPLING, "a", 5_000_000);
+        assertEquals(Arrays.asList("a", "b"), metrics.getNames(Category.COMPONENT));
+        assertEquals(2, metrics.getHistogram(Category.COMPONENT, "a").getCount());
+        assertEquals(2, metrics.getHistogram(Category.COMPONENT, "a").getMeanMs(), 1e-12);
+        assertEquals(5, metrics.getHistogram(Category.COUPLING, "a").getMaxMs(), 0);
+        assertNull(metrics.getHistogram(Category.UPDATE_ACTION, "a"));
+
+        metrics.recordIteration(4_000_000);
+        metrics.recordIteration(6_000_000);
+        assertEquals(2, metrics.getIterationCount());
+        assertEquals(200, metrics.getIterationsPerSecond(), 1e-9);
+    }
+
+    @Test
+    public void statisticsTest() {
+        UpdateMetrics metrics = new UpdateMetrics();
+        metrics.recordIteration(2_000_000);
+        metrics.record(Category.NETWORK_ACTION, "net: \"update\"", 1_500_000);
+        String[] lines = metrics.getStatistics();
+        assertEquals(2, lines.length);
+        assertEquals("workspace,\"iteration\",1,2.000000,2.000000,2.000000,2.000000,2.000000,2.000", lines[0]);
+        assertEquals("network_action,\"net: \"\"update\"\"\",1,1.500000,1.500000,1.500000,1.500000,1.500000,1.500", lines[1]);
+
+        StringWriter csv = new StringWriter();
+        metrics.writeCsv(csv);
+        String[] csvLines = csv.toString().split("\\R");
+        assertEquals("category,name,count,mean_ms,p50_ms,p90_ms,p99_ms,max_ms,total_ms", csvLines[0]);
+        assertEquals(lines[1], csvLines[2]);
+    }
+
+    @Test
+    public void clearTest() {
+        UpdateMetrics metrics = new UpdateMetrics();
+        metrics.record(Category.COMPONENT, "a", 1_000_000);
+        metrics.recordIteration(1_000_000);
+        metrics.clear();
+        assertEquals(0, metrics.getIterationCount());
+        assertEquals(0, metrics.getIterationsPerSecond(), 0);
+        assertTrue(metrics.getNames(Category.COMPONENT).isEmpty());
+        assertEquals(1, metrics.getStatistics().length);
+    }
+
+    @Test
+    public void updateActionTimingTest() {
+        UpdateMetrics metrics = new UpdateMetrics();
+        UpdateAction action = new UpdateAction() {
+            @Override
+            public void invoke() {
+            }
+
+            @Override
+            public String getDescription() {
+                return "action";
+            }
+
+            @Override
+            public String getLongDescription() {
+                return "action";
+            }
+        };
+        // Ends without a start are ignored
+        metrics.afterUpdateAction(action, 10);
+        assertNull(metrics.getHistogram(Category.UPDATE_ACTION, "action"));
+
+        metrics.beforeUpdateAction(action, 1_000_000);
+        metrics.afterUpdateAction(action, 4_000_000);
+        assertEquals(3, metrics.getHistogram(Category.UPDATE_ACTION, "action").getTotalMs(), 1e-12);
+    }
+
+    @Test
+    public void networkActionTimingTest() {
+        Network net = new Network();
+        net.setName("net");
+        NetworkUpdateManager manager = net.getUpdateManager();
+        for (NetworkUpdateAction old : new ArrayList<>(manager.getActionList())) {
+            manager.removeAction(old);
+        }
+        manager.addAction(new SleepAction("first", 2));
+        manager.addAction(new SleepAction("second", 0));
+        UpdateMetrics metrics = new UpdateMetrics();
+        manager.setMetrics(metrics);
+        for (int i = 0; i < 3; i++) {
+            net.update();
+        }
+        assertEquals(Arrays.asList("net: first", "net: second"), metrics.getNames(Category.NETWORK_ACTION));
+        TimingHistogram first = metrics.getHistogram(Category.NETWORK_ACTION, "net: first");
+        assertEquals(3, first.getCount());
+        for (long nanos : first.getRecentSamples()) {
+            assertTrue(nanos >= 2_000_000);
+        }
+        assertEquals(3, metrics.getHistogram(Category.NETWORK_ACTION, "net: second").getCount());
+
+        // Nothing is recorded once the metrics are removed
+        manager.setMetrics(null);
+        net.update();
+        assertEquals(3, first.getCount());
+    }
+
+    /**
+     * A network update action which sleeps for a given time.
+     */
+    private static class SleepAction implements NetworkUpdateAction {
+
+        private final String description;
+
+        private final long millis;
+
+        SleepAction(String description, long millis) {
+            this.description = description;
+            this.millis = millis;
+        }
+
+        @Override
+        public void invoke() {
+            try {
+                Thread.sleep(millis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public String getDescription() {
+            return description;
+        }
+
+        @Override
+        public String getLongDescription() {
+            return description;
+        }
+    }
+
+}
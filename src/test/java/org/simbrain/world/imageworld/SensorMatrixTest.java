@@ -0,0 +1,91 @@
+package org.simbrain.world.imageworld;
+
+import org.junit.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class SensorMatrixTest {
+
+    private static final int[] TYPES = {BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_INT_ARGB,
+            BufferedImage.TYPE_3BYTE_BGR, BufferedImage.TYPE_4BYTE_ABGR, BufferedImage.TYPE_BYTE_GRAY,
+            BufferedImage.TYPE_USHORT_565_RGB};
+
+    @Test
+    public void matchesGetRGBTest() {
+        Random random = new Random(5);
+        for (int type : TYPES) {
+            BufferedImage image = randomImage(random, type, 13, 7);
+            TestSource source = new TestSource(image);
+            SensorMatrix matrix = new SensorMatrix("Sensors", source);
+            check(image, matrix);
+
+            // A second image of the same size refreshes the channels
+            BufferedImage next = randomImage(random, type, 13, 7);
+            source.show(next);
+            check(next, matrix);
+        }
+    }
+
+    @Test
+    public void subimageMatchesGetRGBTest() {
+        Random random = new Random(6);
+        for (int type : TYPES) {
+            BufferedImage image = randomImage(random, type, 20, 15).getSubimage(3, 4, 11, 9);
+            SensorMatrix matrix = new SensorMatrix("Sensors", new TestSource(image));
+            check(image, matrix);
+        }
+    }
+
+    /**
+     * Check a matrix's colors and channels against getRGB(x, y) of an image.
+     */
+    private static void check(BufferedImage image, SensorMatrix matrix) {
+        int[] colors = matrix.getRGBColor();
+        double[] brightness = matrix.getBrightness();
+        double[] reds = matrix.getRed();
+        double[] greens = matrix.getGreen();
+        double[] blues = matrix.getBlue();
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                int i = y * image.getWidth() + x;
+                int color = image.getRGB(x, y);
+                assertEquals("Type " + image.getType() + " at " + x + ", " + y, color, colors[i]);
+                double red = ((color >>> 16) & 0xFF) / 255.0;
+                double green = ((color >>> 8) & 0xFF) / 255.0;
+                double blue = (color & 0xFF) / 255.0;
+                assertEquals(red * 0.2126 + green * 0.7152 + blue * 0.0722, brightness[i], 0);
+                assertEquals(red, reds[i], 0);
+                assertEquals(green, greens[i], 0);
+                assertEquals(blue, blues[i], 0);
+            }
+        }
+    }
+
+    private static BufferedImage randomImage(Random random, int type, int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, type);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, random.nextInt());
+            }
+        }
+        return image;
+    }
+
+    /**
+     * A source whose image is set directly.
+     */
+    private static class TestSource extends ImageSourceAdapter {
+
+        TestSource(BufferedImage image) {
+            super(image);
+        }
+
+        void show(BufferedImage image) {
+            setCurrentImage(image);
+        }
+    }
+
+}
@@ -0,0 +1,97 @@
+package org.simbrain.world.imageworld.filters;
+
+import org.simbrain.world.imageworld.ImageSourceAdapter;
+import org.junit.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Function;
+
+import static org.junit.Assert.*;
+
+public class FilteredImageSourceTest {
+
+    @Test
+    public void grayFilterTest() {
+        check(source -> ImageFilterFactory.createGrayFilter(source, 8, 6));
+    }
+
+    @Test
+    public void colorFilterTest() {
+        check(source -> ImageFilterFactory.createColorFilter(source, 8, 6));
+    }
+
+    @Test
+    public void thresholdFilterTest() {
+        check(source -> ThresholdFilterFactory.createThresholdFilter(source, 0.5, 8, 6));
+    }
+
+    @Test
+    public void offsetFilterTest() {
+        // Offset ops ignore the destination they are passed
+        check(source -> OffsetFilterFactory.createOffsetFilter(source, 2, 1, 8, 6));
+    }
+
+    /**
+     * Filter a series of frames, including a change of size and type, with
+     * one filter reusing its images, and check each frame against a new
+     * filter which allocates new images. Also check that each filtered
+     * image is left intact while the next frame is filtered.
+     */
+    private static void check(Function<TestSource, FilteredImageSource> create) {
+        Random random = new Random(7);
+        List<BufferedImage> frames = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            frames.add(randomImage(random, BufferedImage.TYPE_INT_RGB, 20, 15));
+        }
+        frames.add(randomImage(random, BufferedImage.TYPE_INT_ARGB, 31, 17));
+        frames.add(randomImage(random, BufferedImage.TYPE_INT_ARGB, 31, 17));
+
+        TestSource source = new TestSource(frames.get(0));
+        FilteredImageSource filter = create.apply(source);
+        BufferedImage previous = null;
+        int[] previousPixels = null;
+        for (BufferedImage frame : frames) {
+            source.show(frame);
+            BufferedImage image = filter.getCurrentImage();
+            BufferedImage expected = create.apply(new TestSource(frame)).getCurrentImage();
+            assertArrayEquals(pixels(expected), pixels(image));
+            if (previous != null) {
+                assertArrayEquals(previousPixels, pixels(previous));
+            }
+            previous = image;
+            previousPixels = pixels(image);
+        }
+    }
+
+    private static int[] pixels(BufferedImage image) {
+        return image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth());
+    }
+
+    private static BufferedImage randomImage(Random random, int type, int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, type);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, random.nextInt());
+            }
+        }
+        return image;
+    }
+
+    /**
+     * A source whose image is set directly.
+     */
+    private static class TestSource extends ImageSourceAdapter {
+
+        TestSource(BufferedImage image) {
+            super(image);
+        }
+
+        void show(BufferedImage image) {
+            setCurrentImage(image);
+        }
+    }
+
+}
@@ -0,0 +1,71 @@
+package org.simbrain.world.odorworld;
+
+import org.simbrain.world.odorworld.entities.OdorWorldEntity;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class EntityGridTest {
+
+    private static final int WIDTH = 480;
+
+    private static final int HEIGHT = 352;
+
+    @Test
+    public void wrapEdgeTest() {
+        // 480 is not a multiple of 64, so cells must be sized to fit the
+        // world for x = 420 + 70 to wrap onto the cell holding x = 5
+        OdorWorld world = new OdorWorld();
+        OdorWorldEntity left = entity(world, 5, 100);
+        OdorWorldEntity top = entity(world, 200, 5);
+        EntityGrid grid = new EntityGrid();
+        List<OdorWorldEntity> entities = new ArrayList<>();
+        entities.add(left);
+        entities.add(top);
+        grid.rebuild(entities, WIDTH, HEIGHT, true);
+        assertSame(left, grid.findCandidate(420, 100, 70, e -> e == left));
+        assertSame(top, grid.findCandidate(200, 330, 40, e -> e == top));
+    }
+
+    @Test
+    public void wrappedCandidatesMatchBruteForceTest() {
+        OdorWorld world = new OdorWorld();
+        Random random = new Random(1);
+        List<OdorWorldEntity> entities = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            entities.add(entity(world, random.nextDouble() * WIDTH, random.nextDouble() * HEIGHT));
+        }
+        EntityGrid grid = new EntityGrid();
+        grid.rebuild(entities, WIDTH, HEIGHT, true);
+        for (int q = 0; q < 200; q++) {
+            double x = random.nextDouble() * WIDTH;
+            double y = random.nextDouble() * HEIGHT;
+            double distance = random.nextDouble() * 150;
+            Set<OdorWorldEntity> found = Collections.newSetFromMap(new IdentityHashMap<>());
+            grid.forEachCandidate(x, y, distance, found::add);
+            for (OdorWorldEntity e : entities) {
+                double dx = Math.abs(e.getCenterX() - x);
+                double dy = Math.abs(e.getCenterY() - y);
+                dx = Math.min(dx, WIDTH - dx);
+                dy = Math.min(dy, HEIGHT - dy);
+                if (Math.sqrt(dx * dx + dy * dy) <= distance) {
+                    assertTrue("Missed entity at " + e.getCenterX() + ", " + e.getCenterY(), found.contains(e));
+                }
+            }
+        }
+    }
+
+    private static OdorWorldEntity entity(OdorWorld world, double x, double y) {
+        OdorWorldEntity entity = new OdorWorldEntity(world);
+        entity.setCenterLocation(x, y);
+        return entity;
+    }
+
+}
@@ -0,0 +1,93 @@
+package org.simbrain.world.odorworld;
+
+import org.simbrain.util.environment.SmellSource;
+import org.simbrain.util.math.DecayFunctions.LinearDecayFunction;
+import org.simbrain.util.math.DecayFunction;
+import org.simbrain.world.odorworld.entities.OdorWorldEntity;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class OdorFieldTest {
+
+    @Test
+    public void defaultSpacingMatchesDirectSummationTest() {
+        for (boolean wrapAround : new boolean[]{false, true}) {
+            OdorWorld world = new OdorWorld();
+            world.setWrapAround(wrapAround);
+            Random random = new Random(2);
+            // Linear decay, as a Gaussian smell drops to 0 at its dispersion
+            // and no spacing can interpolate across the step
+            for (int i = 0; i < 12; i++) {
+                addSource(world, random, LinearDecayFunction.create(), 60 + random.nextDouble() * 60);
+            }
+            world.setUseOdorField(true);
+            world.update();
+            OdorField field = world.getOdorField();
+            assertTrue(field.getSpacing() < world.getTileMap().getTilewidth());
+
+            double maxError = 0;
+            double maxSmell = 0;
+            for (int q = 0; q < 500; q++) {
+                double x = random.nextDouble() * world.getWidth();
+                double y = random.nextDouble() * world.getHeight();
+                double[] expected = directSum(world, x, y);
+                double[] actual = field.sample(x, y, null);
+                for (int d = 0; d < expected.length; d++) {
+                    maxError = Math.max(maxError, Math.abs(expected[d] - actual[d]));
+                    maxSmell = Math.max(maxSmell, Math.abs(expected[d]));
+                }
+            }
+            assertTrue("Error " + maxError + " of " + maxSmell, maxError < 0.02 * maxSmell);
+        }
+    }
+
+    @Test
+    public void spacingFollowsSmallestDispersionTest() {
+        OdorWorld world = new OdorWorld();
+        Random random = new Random(3);
+        OdorWorldEntity entity = addSource(world, random, LinearDecayFunction.create(), 160);
+        world.setUseOdorField(true);
+        world.update();
+        assertEquals(10, world.getOdorField().getSpacing(), 0);
+
+        entity.getSmellSource().setDispersion(80);
+        world.update();
+        assertEquals(5, world.getOdorField().getSpacing(), 0);
+
+        world.setOdorFieldSpacing(7);
+        assertEquals(7, world.getOdorField().getSpacing(), 0);
+    }
+
+    /**
+     * Add an entity with a three dimensional smell at a random location.
+     */
+    private static OdorWorldEntity addSource(OdorWorld world, Random random, DecayFunction decay, double dispersion) {
+        OdorWorldEntity entity = new OdorWorldEntity(world);
+        entity.setCenterLocation(random.nextDouble() * world.getWidth(), random.nextDouble() * world.getHeight());
+        double[] stimulus = {random.nextDouble(), random.nextDouble(), random.nextDouble()};
+        entity.setSmellSource(new SmellSource(stimulus, decay, dispersion));
+        world.addEntity(entity);
+        return entity;
+    }
+
+    /**
+     * Sum the smells of all entities at a point, as a smell sensor does
+     * without the odor field.
+     */
+    private static double[] directSum(OdorWorld world, double x, double y) {
+        double[] sum = new double[3];
+        for (OdorWorldEntity entity : world.getEntityList()) {
+            double[] smell = entity.getSmellVector(new double[]{x, y});
+            if (smell != null) {
+                for (int d = 0; d < sum.length; d++) {
+                    sum[d] += smell[d];
+                }
+            }
+        }
+        return sum;
+    }
+
+}
@@ -0,0 +1,100 @@
+package org.simbrain.world.odorworld;
+
+import org.simbrain.util.environment.SmellSource;
+import org.simbrain.util.piccolo.TileMap;
+import org.simbrain.world.odorworld.effectors.StraightMovement;
+import org.simbrain.world.odorworld.entities.OdorWorldEntity;
+import org.simbrain.world.odorworld.sensors.SmellSensor;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class OdorWorldBatchTest {
+
+    @Test
+    public void worldsHaveTheirOwnTileMapsTest() {
+        OdorWorldBatch batch = new OdorWorldBatch(3, OdorWorldBatchTest::populate);
+        TileMap parsed = TileMap.create("empty.tmx");
+        TileMap first = batch.getWorld(0).getTileMap();
+        TileMap second = batch.getWorld(1).getTileMap();
+        assertNotSame(first, second);
+        assertEquals(parsed.getMapWidth(), first.getMapWidth());
+        assertEquals(parsed.getMapHeight(), first.getMapHeight());
+        assertEquals(parsed.getTilewidth(), first.getTilewidth());
+
+        first.createImageList();
+        first.addTile(5, 2, 3, true);
+        assertTrue(first.hasCollisionTile(2, 3));
+        assertFalse(second.hasCollisionTile(2, 3));
+
+        batch.reset(0);
+        assertNotSame(first, batch.getWorld(0).getTileMap());
+        assertFalse(batch.getWorld(0).getTileMap().hasCollisionTile(2, 3));
+    }
+
+    @Test
+    public void stepTest() {
+        OdorWorldBatch batch = new OdorWorldBatch(4, OdorWorldBatchTest::populate);
+        assertEquals(2, batch.getObservationSize());
+        assertEquals(1, batch.getActionSize());
+        double[] actions = {1, 2, 3, 4};
+        double[] observations = new double[8];
+        double[] x = new double[4];
+        for (int i = 0; i < 4; i++) {
+            x[i] = batch.getAgent(i).getX();
+        }
+        // The effectors apply the action at the end of the first update and
+        // move the agents in the second
+        batch.step(actions, observations);
+        batch.step(new double[4], observations);
+        for (int i = 0; i < 4; i++) {
+            assertEquals(2, batch.getSteps(i));
+            assertEquals(x[i] + i + 1, batch.getAgent(i).getX(), 1e-9);
+            double[] smell = ((SmellSensor) batch.getAgent(i).getSensors().get(0)).getCurrentValues();
+            assertArrayEquals(smell, new double[]{observations[2 * i], observations[2 * i + 1]}, 0);
+            assertTrue(smell[0] > 0);
+        }
+    }
+
+    @Test
+    public void wrongObservationSizeTest() {
+        OdorWorldBatch batch = new OdorWorldBatch(2, OdorWorldBatchTest::populate);
+        try {
+            batch.step(new double[2], new double[3]);
+            fail("Expected the observation array to be rejected");
+        } catch (IllegalArgumentException e) {
+            // Rejected before any world was updated
+            assertEquals(0, batch.getSteps(0));
+            assertEquals(0, batch.getSteps(1));
+        }
+        try {
+            batch.observe(new double[5]);
+            fail("Expected the observation array to be rejected");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+    }
+
+    /**
+     * Add an agent facing right with a smell sensor and straight movement,
+     * and a smell source ahead of it.
+     */
+    private static OdorWorldEntity populate(OdorWorld world, int index) {
+        OdorWorldEntity agent = new OdorWorldEntity(world);
+        agent.setCenterLocation(100, 100 + 50 * index);
+        agent.setHeading(0);
+        agent.addSensor(new SmellSensor(agent, "Smell", 0, 0));
+        agent.setSensorsEnabled(true);
+        agent.addEffector(new StraightMovement(agent));
+        agent.setEffectorsEnabled(true);
+        agent.setSmellSource(null);
+        world.addEntity(agent);
+
+        OdorWorldEntity food = new OdorWorldEntity(world);
+        food.setCenterLocation(150, 100 + 50 * index);
+        food.setSmellSource(new SmellSource(new double[]{1, 0.5}));
+        world.addEntity(food);
+        return agent;
+    }
+
+}
@@ -0,0 +1,152 @@
+package org.simbrain.world.odorworld;
+
+import org.simbrain.util.environment.SmellSource;
+import org.simbrain.world.odorworld.entities.OdorWorldEntity;
+import org.simbrain.world.odorworld.sensors.SmellSensor;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class ParallelUpdateTest {
+
+    private static final int NUM_ENTITIES = 40;
+
+    @Test
+    public void sensorsSeePreviousPositionsTest() {
+        OdorWorld world = build(false);
+        List<SmellSensor> sensors = new ArrayList<>();
+        for (OdorWorldEntity entity : world.getEntityList()) {
+            sensors.add((SmellSensor) entity.getSensors().get(0));
+        }
+        for (int step = 0; step < 10; step++) {
+            List<double[]> expected = new ArrayList<>();
+            for (SmellSensor sensor : sensors) {
+                expected.add(directSum(world, sensor));
+            }
+            world.update();
+            for (int i = 0; i < sensors.size(); i++) {
+                double[] actual = sensors.get(i).getCurrentValues();
+                if (expected.get(i) == null) {
+                    assertEquals(0, actual.length);
+                } else {
+                    assertArrayEquals(expected.get(i), actual, 1e-12);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void resultDoesNotDependOnOrderTest() {
+        OdorWorld world = build(false);
+        OdorWorld reversed = build(true);
+        for (int step = 0; step < 30; step++) {
+            world.update();
+            reversed.update();
+            List<OdorWorldEntity> entities = world.getEntityList();
+            List<OdorWorldEntity> reversedEntities = reversed.getEntityList();
+            for (int i = 0; i < NUM_ENTITIES; i++) {
+                OdorWorldEntity a = entities.get(i);
+                OdorWorldEntity b = reversedEntities.get(NUM_ENTITIES - 1 - i);
+                assertEquals(a.getX(), b.getX(), 0);
+                assertEquals(a.getY(), b.getY(), 0);
+                double[] smell = ((SmellSensor) a.getSensors().get(0)).getCurrentValues();
+                double[] reversedSmell = ((SmellSensor) b.getSensors().get(0)).getCurrentValues();
+                assertArrayEquals(smell, reversedSmell, 1e-12);
+            }
+        }
+    }
+
+    @Test
+    public void singleEventPerUpdateTest() {
+        OdorWorld world = build(false);
+        AtomicInteger worldUpdated = new AtomicInteger();
+        AtomicInteger moved = new AtomicInteger();
+        world.addPropertyChangeListener(evt -> {
+            if ("worldUpdated".equals(evt.getPropertyName())) {
+                worldUpdated.incrementAndGet();
+            }
+        });
+        for (OdorWorldEntity entity : world.getEntityList()) {
+            entity.addPropertyChangeListener(evt -> {
+                if ("moved".equals(evt.getPropertyName())) {
+                    moved.incrementAndGet();
+                }
+            });
+        }
+        double[] x = new double[NUM_ENTITIES];
+        for (int i = 0; i < NUM_ENTITIES; i++) {
+            x[i] = world.getEntityList().get(i).getX();
+        }
+        world.update();
+        assertEquals(1, worldUpdated.get());
+        assertEquals(0, moved.get());
+        int numMoved = 0;
+        for (int i = 0; i < NUM_ENTITIES; i++) {
+            if (world.getEntityList().get(i).getX() != x[i]) {
+                numMoved++;
+            }
+        }
+        assertTrue(numMoved > 0);
+    }
+
+    /**
+     * Build a world with moving entities which smell each other, added in
+     * the same order for the same seed, or in the reverse order.
+     */
+    private static OdorWorld build(boolean reverse) {
+        OdorWorld world = new OdorWorld();
+        world.setParallelUpdate(true);
+        Random random = new Random(4);
+        List<OdorWorldEntity> entities = new ArrayList<>();
+        for (int i = 0; i < NUM_ENTITIES; i++) {
+            OdorWorldEntity entity = new OdorWorldEntity(world);
+            entity.setCenterLocation(40 + random.nextDouble() * 400, 40 + random.nextDouble() * 270);
+            entity.setVelocityX(random.nextDouble() * 6 - 3);
+            entity.setVelocityY(random.nextDouble() * 6 - 3);
+            double[] stimulus = {random.nextDouble(), random.nextDouble()};
+            entity.setSmellSource(new SmellSource(stimulus));
+            entity.addSensor(new SmellSensor(entity, "Smell", 0, 20));
+            entity.setSensorsEnabled(true);
+            entities.add(entity);
+        }
+        if (reverse) {
+            Collections.reverse(entities);
+        }
+        for (OdorWorldEntity entity : entities) {
+            world.addEntity(entity);
+        }
+        return world;
+    }
+
+    /**
+     * Sum the smells of all other entities at a sensor, or return null if
+     * there are none.
+     */
+    private static double[] directSum(OdorWorld world, SmellSensor sensor) {
+        double[] location = sensor.getLocation();
+        double[] sum = null;
+        for (OdorWorldEntity entity : world.getEntityList()) {
+            if (entity != sensor.getParent()) {
+                double[] smell = entity.getSmellVector(location);
+                if (smell != null) {
+                    sum = sum == null ? smell.clone() : addTo(sum, smell);
+                }
+            }
+        }
+        return sum;
+    }
+
+    private static double[] addTo(double[] sum, double[] smell) {
+        for (int i = 0; i < sum.length; i++) {
+            sum[i] += smell[i];
+        }
+        return sum;
+    }
+
+}